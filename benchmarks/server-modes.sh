@@ -0,0 +1,75 @@
+#!/usr/bin/env bash
+# Compares the server's request execution modes under concurrent load:
+#   platform - servlet stack on Tomcat's platform thread pool (the default)
+#   virtual  - servlet stack with a virtual thread per request
+#   reactive - WebFlux on Netty event loops
+#   coalesced      - platform, with concurrent /api/sort requests classified in batches
+#   coalesced-wait - coalesced, waiting up to 50 us for each batch to fill
+#
+# Starts the packaged server once per mode, runs ConcurrencyLoadClient at each client
+# count (with and without a slow request body) and prints one line per run, with the
+# server's resident memory and thread count sampled halfway through the run.
+#
+#   mvn -DskipTests package && benchmarks/server-modes.sh [clients...] (default: 1000 10000)
+#
+# MODES (default "platform virtual reactive"), SECONDS_PER_RUN, WARMUP, BODY_DELAY_MS
+# (default 50) and JAVA_OPTS (default -Xmx512m) override the run settings.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+if [ $# -gt 0 ]; then CLIENTS=("$@"); else CLIENTS=(1000 10000); fi
+read -r -a MODES <<< "${MODES:-platform virtual reactive}"
+SECONDS_PER_RUN=${SECONDS_PER_RUN:-20}
+WARMUP=${WARMUP:-5}
+BODY_DELAY_MS=${BODY_DELAY_MS:-50}
+read -r -a JAVA_OPTS <<< "${JAVA_OPTS:--Xmx512m}"
+JAR=$(ls target/package-sorting-*.jar)
+PORT=18080
+
+ulimit -n 65536 2>/dev/null || true
+
+mvn -q -Pbenchmarks test-compile dependency:build-classpath \
+  -Dmdep.outputFile=target/load-classpath.txt -Dmdep.includeScope=test
+LOAD_CP="target/classes:target/test-classes:$(cat target/load-classpath.txt)"
+
+memory() {
+  awk '/^VmRSS/ {rss = $2} /^Threads/ {threads = $2}
+       END {printf "rss=%d MB threads=%d", rss / 1024, threads}' "/proc/$1/status"
+}
+
+for mode in "${MODES[@]}"; do
+  case "$mode" in
+    platform) args=(--spring.threads.virtual.enabled=false) ;;
+    virtual)  args=(--spring.threads.virtual.enabled=true) ;;
+    reactive) args=(--spring.main.web-application-type=reactive) ;;
+    coalesced) args=(--sorting.coalescing.enabled=true) ;;
+    coalesced-wait) args=(--sorting.coalescing.enabled=true --sorting.coalescing.max-wait=50us) ;;
+    *) echo "Unknown mode: $mode" >&2; exit 1 ;;
+  esac
+  java "${JAVA_OPTS[@]}" --add-modules jdk.incubator.vector -jar "$JAR" --server.port=$PORT \
+    "${args[@]}" --logging.level.root=WARN --logging.level.com.thoughtful.sorting=WARN \
+    > "target/server-modes-$mode.log" 2>&1 &
+  server=$!
+  trap 'kill $server 2>/dev/null || true' EXIT
+  until curl -sf "http://localhost:$PORT/api/health" > /dev/null; do sleep 1; done
+  # Let the JIT settle before the measured runs
+  java -cp "$LOAD_CP" com.thoughtful.sorting.ConcurrencyLoadClient \
+    "http://localhost:$PORT/api/sort" 100 "$WARMUP" 0 0 > /dev/null
+  printf '%-14s idle      %s\n' "$mode" "$(memory $server)"
+
+  for clients in "${CLIENTS[@]}"; do
+    for delay in 0 "$BODY_DELAY_MS"; do
+      java -cp "$LOAD_CP" com.thoughtful.sorting.ConcurrencyLoadClient \
+        "http://localhost:$PORT/api/sort" "$clients" "$SECONDS_PER_RUN" "$WARMUP" "$delay" \
+        > target/server-modes-run.txt &
+      load=$!
+      sleep $((WARMUP + SECONDS_PER_RUN / 2))
+      sample=$(memory $server)
+      wait $load
+      printf '%-14s delay=%3sms %s %s\n' "$mode" "$delay" "$(cat target/server-modes-run.txt)" "$sample"
+    done
+  done
+
+  kill $server
+  wait $server 2>/dev/null || true
+done
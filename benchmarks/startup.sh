@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# Time to first successful /api/sort for the default and startup-optimized artifacts:
+#   default - the Spring Boot jar, as `mvn package` builds it
+#   aot     - the same jar with the Spring AOT bean definitions (-Dspring.aot.enabled=true)
+#   aot-cds - the fast-startup jar with AOT and the AppCDS archive from the training run
+#
+# Each run starts a fresh JVM and polls /api/sort with a package until it answers 200; the
+# time is measured from launching the JVM. Prints every run and the median per artifact.
+#
+#   mvn -Pfast-startup package && benchmarks/startup.sh [runs] (default: 10)
+#
+# ARTIFACTS (default "default aot aot-cds") and JAVA_OPTS (default -Xmx512m) override the
+# run settings.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-10}
+read -r -a ARTIFACTS <<< "${ARTIFACTS:-default aot aot-cds}"
+read -r -a JAVA_OPTS <<< "${JAVA_OPTS:--Xmx512m}"
+JAR=$(cd target && ls "$PWD"/package-sorting-*.jar)
+# The archive records the class path as the training run saw it, relative to its directory
+FAST_JAR=$(cd target/fast-startup && ls package-sorting-*-fast-startup.jar)
+PORT=18080
+BODY='{"width":50,"height":50,"length":50,"mass":10}'
+
+for artifact in "${ARTIFACTS[@]}"; do
+  case "$artifact" in
+    default) dir=target; args=(-jar "$JAR") ;;
+    aot)     dir=target; args=(-Dspring.aot.enabled=true -jar "$JAR") ;;
+    aot-cds) dir=target/fast-startup
+             args=(-XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar "$FAST_JAR") ;;
+    *) echo "Unknown artifact: $artifact" >&2; exit 1 ;;
+  esac
+
+  times=()
+  for ((run = 1; run <= RUNS; run++)); do
+    start=$(date +%s%N)
+    (cd "$dir" && exec java "${JAVA_OPTS[@]}" --add-modules jdk.incubator.vector "${args[@]}" \
+      --server.port=$PORT --logging.level.root=WARN --logging.level.com.thoughtful.sorting=WARN) \
+      > "target/startup-$artifact.log" 2>&1 &
+    server=$!
+    trap 'kill $server 2>/dev/null || true' EXIT
+    until curl -sf -o /dev/null -H 'Content-Type: application/json' -d "$BODY" \
+        "http://localhost:$PORT/api/sort"; do
+      if ! kill -0 $server 2>/dev/null; then
+        echo "$artifact failed to start, see target/startup-$artifact.log" >&2
+        exit 1
+      fi
+      sleep 0.01
+    done
+    millis=$((($(date +%s%N) - start) / 1000000))
+    times+=("$millis")
+    printf '%-8s run %2d  %5d ms\n' "$artifact" "$run" "$millis"
+    kill $server
+    wait $server 2>/dev/null || true
+  done
+
+  median=$(printf '%s\n' "${times[@]}" | sort -n | awk '{a[NR] = $1} END {print a[int((NR + 1) / 2)]}')
+  printf '%-8s median  %5d ms\n' "$artifact" "$median"
+done
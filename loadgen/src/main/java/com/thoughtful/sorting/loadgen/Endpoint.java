@@ -0,0 +1,26 @@
+package com.thoughtful.sorting.loadgen;
+
+/**
+ * Sorting API endpoints the load generator can drive.
+ */
+public enum Endpoint {
+    SORT("/api/sort", "application/json"),
+    BATCH("/api/sort/batch", "application/json"),
+    STREAM("/api/sort/stream", "application/x-ndjson");
+
+    private final String path;
+    private final String contentType;
+
+    Endpoint(String path, String contentType) {
+        this.path = path;
+        this.contentType = contentType;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
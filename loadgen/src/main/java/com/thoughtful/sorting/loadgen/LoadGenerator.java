@@ -0,0 +1,231 @@
+package com.thoughtful.sorting.loadgen;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load against a running sorting API.
+ * <p>
+ * Requests start on a fixed schedule, with Poisson or constant spacing at the requested
+ * rate, whether or not earlier requests have been answered. This is unlike
+ * {@code ConcurrencyLoadClient}, whose clients wait for each answer before sending again.
+ * When the server stalls, the requests due during the stall still start on time and wait
+ * for one of the {@code --connections} slots. Latency is measured from the time a request
+ * was due, not from the time it was sent, so a stall shows up in the percentiles of every
+ * request it delayed. A closed-loop client would instead send fewer requests during the
+ * stall and hide it (coordinated omission). Service time, from sending to the answer, is
+ * reported alongside. Requests due during the warmup are not counted.
+ * <pre>
+ * java -jar package-sorting-loadgen-1.0.0.jar --rate=2000 --manifest=manifest.csv
+ * </pre>
+ * See {@link LoadOptions#USAGE} for all options.
+ */
+public final class LoadGenerator {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final LoadOptions options;
+    private final Manifest manifest;
+    private final HttpClient client;
+
+    public LoadGenerator(LoadOptions options, Manifest manifest) {
+        this.options = options;
+        this.manifest = manifest;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(options.timeout)
+            .build();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        Manifest manifest = options.manifest == null ? Manifest.sample() : Manifest.load(options.manifest);
+
+        Result result = new LoadGenerator(options, manifest).run();
+        result.print(System.out);
+        if (options.hgrm != null) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(options.hgrm))) {
+                result.latency.outputPercentileDistribution(out, 1_000_000.0);
+            }
+        }
+    }
+
+    public Result run() throws InterruptedException {
+        URI uri = options.url.resolve(options.endpoint.getPath());
+        Result result = new Result(options, manifest);
+        Semaphore connections = new Semaphore(options.connections);
+        SplittableRandom arrivals = new SplittableRandom(options.seed);
+        double periodNanos = 1_000_000_000.0 / options.rate;
+
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup.toNanos();
+        long end = measureFrom + options.duration.toNanos();
+        result.measureFrom = measureFrom;
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            double offset = 0;
+            for (long sequence = 0; ; sequence++) {
+                long due = start + (long) offset;
+                if (due >= end) {
+                    break;
+                }
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                result.recordLag(-wait);
+
+                long number = sequence;
+                requests.execute(() -> send(uri, number, due, connections, result));
+                offset += options.poisson ? -Math.log(1 - arrivals.nextDouble()) * periodNanos : periodNanos;
+            }
+        }
+        return result;
+    }
+
+    private void send(URI uri, long sequence, long due, Semaphore connections, Result result) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .timeout(options.timeout)
+            .header("Content-Type", options.endpoint.getContentType())
+            .POST(HttpRequest.BodyPublishers.ofByteArray(manifest.body(
+                options.endpoint, sequence, options.batchSize, options.replay, options.seed)))
+            .build();
+        try {
+            connections.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long sent = System.nanoTime();
+        boolean ok;
+        try {
+            ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            ok = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            connections.release();
+        }
+        long done = System.nanoTime();
+        if (due >= result.measureFrom) {
+            result.record(ok, due, sent, done);
+        }
+    }
+
+    /**
+     * Counts and latency histograms of the measured requests, in nanoseconds.
+     */
+    public static final class Result {
+        private final LoadOptions options;
+        private final Manifest manifest;
+        private final Histogram latency = new ConcurrentHistogram(3);
+        private final Histogram service = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong lastDone = new AtomicLong();
+        private final AtomicLong maxLag = new AtomicLong();
+        private long measureFrom;
+
+        Result(LoadOptions options, Manifest manifest) {
+            this.options = options;
+            this.manifest = manifest;
+        }
+
+        void record(boolean ok, long due, long sent, long done) {
+            if (ok) {
+                latency.recordValue(done - due);
+                service.recordValue(done - sent);
+            } else {
+                errors.increment();
+            }
+            lastDone.accumulateAndGet(done, Math::max);
+        }
+
+        void recordLag(long nanos) {
+            if (nanos > maxLag.get()) {
+                maxLag.set(nanos);
+            }
+        }
+
+        /** Successful measured requests. */
+        public long getRequests() {
+            return latency.getTotalCount();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /** Latency of successful requests, from when each was due. */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /** Service time of successful requests, from when each was sent. */
+        public Histogram getServiceTime() {
+            return service;
+        }
+
+        /** Successful requests per second, over the time until the last measured answer. */
+        public double getThroughput() {
+            long elapsed = lastDone.get() - measureFrom;
+            return elapsed <= 0 ? 0 : getRequests() * 1e9 / Math.max(elapsed, options.duration.toNanos());
+        }
+
+        public void print(PrintStream out) {
+            int perRequest = options.endpoint == Endpoint.SORT ? 1 : options.batchSize;
+            out.printf("POST %s%s: %s arrivals at %.0f req/s, %d connections, %d s after %d s warmup%n",
+                options.url, options.endpoint.getPath(), options.poisson ? "poisson" : "constant",
+                options.rate, options.connections, options.duration.toSeconds(), options.warmup.toSeconds());
+            out.printf("manifest %s: %d packages, %s order%n", manifest.getSource(), manifest.size(),
+                options.replay ? "replay" : "random");
+            out.printf("requests=%d errors=%d throughput=%.1f req/s (%.0f packages/s)%n",
+                getRequests(), getErrors(), getThroughput(), getThroughput() * perRequest);
+
+            out.printf("%-8s", "ms");
+            for (double percentile : PERCENTILES) {
+                out.printf(" %9s", "p" + (percentile == (long) percentile
+                    ? String.valueOf((long) percentile) : String.valueOf(percentile)));
+            }
+            out.printf(" %9s%n", "max");
+            printRow(out, "latency", latency);
+            printRow(out, "service", service);
+
+            if (maxLag.get() > 10_000_000) {
+                out.printf("warning: the generator fell up to %.1f ms behind schedule; "
+                    + "the server saw less than the requested rate%n", maxLag.get() / 1e6);
+            }
+        }
+
+        private static void printRow(PrintStream out, String name, Histogram histogram) {
+            out.printf("%-8s", name);
+            for (double percentile : PERCENTILES) {
+                out.printf(" %9.3f", histogram.getValueAtPercentile(percentile) / 1e6);
+            }
+            out.printf(" %9.3f%n", histogram.getMaxValue() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.thoughtful.sorting.loadgen;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Command line options of {@link LoadGenerator}, as {@code --name=value} arguments.
+ */
+public final class LoadOptions {
+
+    static final String USAGE = String.join("\n",
+        "Usage: LoadGenerator [options]",
+        "  --url=URL            server base URL (default http://localhost:8080)",
+        "  --endpoint=NAME      sort, batch or stream (default sort)",
+        "  --rate=N             requests per second to start, whatever the responses do (default 1000)",
+        "  --arrivals=NAME      poisson or constant spacing of request starts (default poisson)",
+        "  --connections=N      requests in flight at most; later ones queue (default 64)",
+        "  --duration=SECONDS   measured run time (default 30)",
+        "  --warmup=SECONDS     unmeasured load before the run (default 5)",
+        "  --manifest=FILE      recorded packages, .csv or .ndjson (default: built-in sample)",
+        "  --order=NAME         random (recorded size distribution) or replay (recorded order),"
+            + " default random",
+        "  --batch-size=N       packages per batch or stream request (default 100)",
+        "  --seed=N             seed for random order and poisson arrivals (default 42)",
+        "  --timeout=SECONDS    per-request timeout (default 30)",
+        "  --hgrm=FILE          also write the latency percentile distribution in HdrHistogram format");
+
+    URI url = URI.create("http://localhost:8080");
+    Endpoint endpoint = Endpoint.SORT;
+    double rate = 1000;
+    boolean poisson = true;
+    int connections = 64;
+    Duration duration = Duration.ofSeconds(30);
+    Duration warmup = Duration.ofSeconds(5);
+    Path manifest;
+    boolean replay;
+    int batchSize = 100;
+    long seed = 42;
+    Duration timeout = Duration.ofSeconds(30);
+    Path hgrm;
+
+    /**
+     * @throws IllegalArgumentException for unknown options or invalid values
+     */
+    public static LoadOptions parse(String... args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            try {
+                options.set(name, value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number '" + value + "' for --" + name);
+            }
+        }
+        if (options.rate <= 0 || options.connections <= 0 || options.batchSize <= 0
+                || options.duration.isZero() || options.duration.isNegative() || options.warmup.isNegative()) {
+            throw new IllegalArgumentException(
+                "--rate, --connections, --batch-size and --duration must be positive");
+        }
+        return options;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "url" -> url = URI.create(value.endsWith("/") ? value.substring(0, value.length() - 1) : value);
+            case "endpoint" -> endpoint = choice(name, value, Endpoint.class);
+            case "rate" -> rate = Double.parseDouble(value);
+            case "arrivals" -> poisson = "poisson".equals(choice(name, value, "poisson", "constant"));
+            case "connections" -> connections = Integer.parseInt(value);
+            case "duration" -> duration = Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+            case "warmup" -> warmup = Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+            case "manifest" -> manifest = Path.of(value);
+            case "order" -> replay = "replay".equals(choice(name, value, "random", "replay"));
+            case "batch-size" -> batchSize = Integer.parseInt(value);
+            case "seed" -> seed = Long.parseLong(value);
+            case "timeout" -> timeout = Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+            case "hgrm" -> hgrm = Path.of(value);
+            default -> throw new IllegalArgumentException("Unknown option --" + name);
+        }
+    }
+
+    private static <E extends Enum<E>> E choice(String name, String value, Class<E> type) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value '" + value + "' for --" + name);
+        }
+    }
+
+    private static String choice(String name, String value, String... allowed) {
+        for (String candidate : allowed) {
+            if (candidate.equals(value)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid value '" + value + "' for --" + name
+            + ". Expected one of " + String.join(", ", allowed));
+    }
+}
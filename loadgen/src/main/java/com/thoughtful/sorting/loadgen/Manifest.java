@@ -0,0 +1,150 @@
+package com.thoughtful.sorting.loadgen;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorded packages to replay, each kept as the JSON object the load generator sends.
+ * <p>
+ * Two formats are read, as the sorter itself takes them: CSV with
+ * {@code width,height,length,mass} per line and an optional header (the
+ * {@code ManifestClassifier} input), or NDJSON with one package object per line (the
+ * {@code /api/sort/stream} input), which is sent verbatim, ids included. Packages are
+ * either replayed in recorded order or sampled at random, which keeps the recorded
+ * size distribution without its ordering.
+ */
+public final class Manifest {
+
+    static final String SAMPLE = "sample-manifest.csv";
+
+    private final String source;
+    private final byte[][] packages;
+
+    Manifest(String source, List<byte[]> packages) {
+        if (packages.isEmpty()) {
+            throw new IllegalArgumentException("Manifest " + source + " holds no packages");
+        }
+        this.source = source;
+        this.packages = packages.toArray(new byte[0][]);
+    }
+
+    /**
+     * Reads a manifest file; {@code .ndjson} and {@code .jsonl} files are NDJSON, anything
+     * else CSV.
+     */
+    public static Manifest load(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return parse(name, reader, name.endsWith(".ndjson") || name.endsWith(".jsonl"));
+        }
+    }
+
+    /**
+     * The built-in sample: a mix of standard, bulky, heavy and rejected packages.
+     */
+    public static Manifest sample() {
+        InputStream in = Manifest.class.getResourceAsStream("/" + SAMPLE);
+        if (in == null) {
+            throw new IllegalStateException("Missing resource " + SAMPLE);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return parse(SAMPLE, reader, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Manifest parse(String source, BufferedReader reader, boolean ndjson) throws IOException {
+        List<byte[]> packages = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (ndjson) {
+                packages.add(line.getBytes(StandardCharsets.UTF_8));
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 4) {
+                throw new IllegalArgumentException(source + " line " + lineNumber
+                    + ": expected width,height,length,mass");
+            }
+            double[] values = new double[4];
+            try {
+                for (int i = 0; i < 4; i++) {
+                    values[i] = Double.parseDouble(fields[i].trim());
+                }
+            } catch (NumberFormatException e) {
+                if (packages.isEmpty() && lineNumber == 1) {
+                    continue; // Header
+                }
+                throw new IllegalArgumentException(source + " line " + lineNumber + ": invalid number");
+            }
+            packages.add(("{\"width\":" + values[0] + ",\"height\":" + values[1]
+                + ",\"length\":" + values[2] + ",\"mass\":" + values[3] + "}")
+                .getBytes(StandardCharsets.UTF_8));
+        }
+        return new Manifest(source, packages);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int size() {
+        return packages.length;
+    }
+
+    /**
+     * Builds the body of request number {@code sequence}: one package for
+     * {@link Endpoint#SORT}, {@code batchSize} packages as a JSON array or NDJSON lines
+     * for the others. Bodies depend only on the arguments, so a run with the same seed
+     * sends the same packages.
+     */
+    public byte[] body(Endpoint endpoint, long sequence, int batchSize, boolean replay, long seed) {
+        if (endpoint == Endpoint.SORT) {
+            return packages[index(sequence, replay, seed)];
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(batchSize * 64);
+        if (endpoint == Endpoint.BATCH) {
+            body.write('[');
+        }
+        for (int i = 0; i < batchSize; i++) {
+            if (i > 0 && endpoint == Endpoint.BATCH) {
+                body.write(',');
+            }
+            body.writeBytes(packages[index(sequence * batchSize + i, replay, seed)]);
+            if (endpoint == Endpoint.STREAM) {
+                body.write('\n');
+            }
+        }
+        if (endpoint == Endpoint.BATCH) {
+            body.write(']');
+        }
+        return body.toByteArray();
+    }
+
+    private int index(long position, boolean replay, long seed) {
+        long value = replay ? position : mix(position ^ seed);
+        return (int) Long.remainderUnsigned(value, packages.length);
+    }
+
+    // SplitMix64 finalizer: a uniform, stateless pick per position
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,87 @@
+package com.thoughtful.sorting.loadgen;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    private final AtomicInteger received = new AtomicInteger();
+    private HttpServer server;
+    private volatile long delayMillis;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/sort", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            received.incrementAndGet();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"category\":\"STANDARD\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Requests start on schedule and only measured ones are counted")
+    void testConstantRate() throws InterruptedException {
+        LoadGenerator.Result result = run("--arrivals=constant", "--rate=200", "--duration=1", "--warmup=0.5");
+
+        assertEquals(300, received.get());
+        assertEquals(200, result.getRequests());
+        assertEquals(0, result.getErrors());
+    }
+
+    @Test
+    @DisplayName("Latency counts the time requests wait for a connection; service time does not")
+    void testLatencyIncludesQueueing() throws InterruptedException {
+        delayMillis = 50;
+        LoadGenerator.Result result = run("--arrivals=constant", "--rate=100", "--duration=1", "--warmup=0",
+            "--connections=1");
+
+        // One connection serves 20 requests a second, so the 100th request waits about 4 s
+        assertEquals(100, result.getRequests());
+        assertTrue(result.getServiceTime().getValueAtPercentile(99) < 1_000_000_000L);
+        assertTrue(result.getLatency().getMaxValue() > 3_000_000_000L);
+    }
+
+    @Test
+    @DisplayName("Invalid options are rejected")
+    void testInvalidOptions() {
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse("--rate=0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse("--endpoint=unknown"));
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse("--rate"));
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse("--threads=4"));
+        assertEquals(Endpoint.BATCH, LoadOptions.parse("--endpoint=batch").endpoint);
+    }
+
+    private LoadGenerator.Result run(String... args) throws InterruptedException {
+        String[] all = new String[args.length + 1];
+        all[0] = "--url=http://localhost:" + server.getAddress().getPort();
+        System.arraycopy(args, 0, all, 1, args.length);
+        return new LoadGenerator(LoadOptions.parse(all), Manifest.sample()).run();
+    }
+}
@@ -0,0 +1,73 @@
+package com.thoughtful.sorting.loadgen;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManifestTest {
+
+    @Test
+    @DisplayName("CSV rows become package objects, batches and NDJSON bodies")
+    void testCsvBodies() throws IOException {
+        Manifest manifest = parse("width,height,length,mass\n50,50,50,10\n\n150,100,100,25\n", false);
+
+        assertEquals(2, manifest.size());
+        assertEquals("{\"width\":50.0,\"height\":50.0,\"length\":50.0,\"mass\":10.0}",
+            body(manifest, Endpoint.SORT, 0, 1));
+        assertEquals("[{\"width\":50.0,\"height\":50.0,\"length\":50.0,\"mass\":10.0},"
+                + "{\"width\":150.0,\"height\":100.0,\"length\":100.0,\"mass\":25.0}]",
+            body(manifest, Endpoint.BATCH, 0, 2));
+        assertEquals("{\"width\":50.0,\"height\":50.0,\"length\":50.0,\"mass\":10.0}\n"
+                + "{\"width\":150.0,\"height\":100.0,\"length\":100.0,\"mass\":25.0}\n",
+            body(manifest, Endpoint.STREAM, 0, 2));
+    }
+
+    @Test
+    @DisplayName("NDJSON lines are sent verbatim; random order follows the seed")
+    void testNdjsonAndOrder() throws IOException {
+        Manifest manifest = parse("{\"id\":\"A1\",\"width\":1,\"height\":1,\"length\":1,\"mass\":1}\n"
+            + "{\"width\":2,\"height\":2,\"length\":2,\"mass\":2}\n", true);
+
+        assertEquals("{\"id\":\"A1\",\"width\":1,\"height\":1,\"length\":1,\"mass\":1}",
+            body(manifest, Endpoint.SORT, 2, 1));
+        int[] picks = new int[2];
+        for (long sequence = 0; sequence < 1000; sequence++) {
+            byte[] picked = manifest.body(Endpoint.SORT, sequence, 1, false, 42);
+            assertSame(picked, manifest.body(Endpoint.SORT, sequence, 1, false, 42));
+            picks[picked[2] == 'i' ? 0 : 1]++;
+        }
+        assertTrue(picks[0] > 400 && picks[1] > 400, "Both packages are picked about equally");
+    }
+
+    @Test
+    @DisplayName("Malformed CSV rows are reported with their line number")
+    void testInvalidCsv() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> parse("50,50,50,10\n50,50,x,10\n", false));
+        assertEquals("test line 2: invalid number", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> parse("50,50,50\n", false));
+        assertEquals("test line 1: expected width,height,length,mass", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> parse("width,height,length,mass\n", false));
+    }
+
+    @Test
+    @DisplayName("The built-in sample manifest loads")
+    void testSample() {
+        assertEquals(500, Manifest.sample().size());
+    }
+
+    private static Manifest parse(String text, boolean ndjson) throws IOException {
+        return Manifest.parse("test", new BufferedReader(new StringReader(text)), ndjson);
+    }
+
+    private static String body(Manifest manifest, Endpoint endpoint, long sequence, int batchSize) {
+        return new String(manifest.body(endpoint, sequence, batchSize, true, 0), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,76 @@
+package com.thoughtful.sorting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the {@link AdmissionLimiter} adds to each sorting request: a token from the
+ * client's bucket, then entering and leaving the concurrency limit, as
+ * {@link AdmissionFilter} does. {@code limits} compares the limiter switched off with
+ * both limits on; the limits are high enough that every request is admitted, so the
+ * score is the cost of the happy path. {@code admitManyClients} rotates over 4096
+ * client ids, {@code admitContended} has eight threads sharing one client's bucket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdmissionLimiterBenchmark {
+
+    private static final int CLIENTS = 4096;
+
+    @Param({"off", "on"})
+    public String limits;
+
+    private final String[] clients = new String[CLIENTS];
+    private AdmissionLimiter limiter;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "gateway-" + i;
+        }
+        limiter = new AdmissionLimiter("off".equals(limits)
+            ? new AdmissionLimits(0, 1, 0)
+            : new AdmissionLimits(1e9, 1_000_000, 1_000_000), 2 * CLIENTS);
+    }
+
+    @Benchmark
+    public boolean admit() {
+        return admit(clients[0]);
+    }
+
+    @Benchmark
+    public boolean admitManyClients() {
+        return admit(clients[next++ & (CLIENTS - 1)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean admitContended() {
+        return admit(clients[0]);
+    }
+
+    private boolean admit(String client) {
+        if (limiter.tryAcquire(client) > 0 || !limiter.enter()) {
+            return false;
+        }
+        limiter.exit();
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file with a committed baseline.
+ * <p>
+ * Prints one line per benchmark and fails (by throwing, so {@code exec:java} fails the
+ * build) when any benchmark is worse than its baseline by more than the tolerance.
+ * Throughput scores must not drop; time-per-operation scores must not rise.
+ * <p>
+ * With {@code significant} as fourth argument, a change beyond the tolerance only counts
+ * when the two scores are further apart than their JMH error margins (99.9% confidence)
+ * added together, so a noisy machine does not fail the build on an unchanged variant.
+ * <pre>
+ * BenchmarkComparison &lt;baseline.json&gt; &lt;result.json&gt; [tolerance, default 0.10] [significant]
+ * </pre>
+ */
+public class BenchmarkComparison {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException(
+                "Usage: BenchmarkComparison <baseline.json> <result.json> [tolerance] [significant]");
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        boolean significantOnly = args.length > 3 && "significant".equals(args[3]);
+
+        List<String> regressions = compare(Path.of(args[0]), Path.of(args[1]), tolerance, significantOnly);
+
+        if (!regressions.isEmpty()) {
+            throw new IllegalStateException(regressions.size() + " benchmark(s) regressed more than "
+                + Math.round(tolerance * 100) + "%: " + String.join(", ", regressions));
+        }
+        System.out.println("No regressions beyond " + Math.round(tolerance * 100) + "%");
+    }
+
+    /**
+     * Prints the comparison and returns the keys of the benchmarks that regressed.
+     */
+    public static List<String> compare(Path baselineFile, Path resultFile, double tolerance)
+            throws IOException {
+        return compare(baselineFile, resultFile, tolerance, false);
+    }
+
+    /**
+     * @param significantOnly whether a change within the combined error margins of the two
+     *                        scores is ignored
+     */
+    public static List<String> compare(Path baselineFile, Path resultFile, double tolerance,
+                                       boolean significantOnly) throws IOException {
+        Map<String, JsonNode> baseline = load(baselineFile);
+        Map<String, JsonNode> results = load(resultFile);
+        List<String> regressions = new ArrayList<>();
+
+        System.out.printf("%-70s %14s %14s %8s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, JsonNode> entry : results.entrySet()) {
+            String key = entry.getKey();
+            JsonNode current = entry.getValue();
+            JsonNode base = baseline.get(key);
+            double score = current.path("primaryMetric").path("score").asDouble();
+            String unit = current.path("primaryMetric").path("scoreUnit").asText();
+            if (base == null) {
+                System.out.printf("%-70s %14s %14.3f %8s  %s%n", key, "-", score, "new", unit);
+                continue;
+            }
+
+            double baseScore = base.path("primaryMetric").path("score").asDouble();
+            double change = (score - baseScore) / baseScore;
+            boolean higherIsBetter = "thrpt".equals(current.path("mode").asText());
+            double worse = higherIsBetter ? -change : change;
+            boolean regressed = worse > tolerance;
+            boolean withinError = regressed && significantOnly
+                && Math.abs(score - baseScore) <= error(current) + error(base);
+            if (regressed && !withinError) {
+                regressions.add(key);
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+7.1f%%  %s%s%n", key, baseScore, score, change * 100, unit,
+                withinError ? "  within error" : regressed ? "  REGRESSION" : "");
+        }
+        for (String key : baseline.keySet()) {
+            if (!results.containsKey(key)) {
+                System.out.printf("%-70s %14s %14s %8s%n", key, "", "-", "not run");
+            }
+        }
+        return regressions;
+    }
+
+    // Half-width of the confidence interval; NaN (a single iteration) counts as none
+    private static double error(JsonNode run) {
+        double error = run.path("primaryMetric").path("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static Map<String, JsonNode> load(Path file) throws IOException {
+        Map<String, JsonNode> byKey = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            byKey.put(key(run), run);
+        }
+        return byKey;
+    }
+
+    // Benchmark name without the package, plus its parameters
+    private static String key(JsonNode run) {
+        String name = run.path("benchmark").asText();
+        name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+        Map<String, String> params = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> param = fields.next();
+            params.put(param.getKey(), param.getValue().asText());
+        }
+        return params.isEmpty() ? name : name + params;
+    }
+}
@@ -0,0 +1,204 @@
+package com.thoughtful.sorting;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load against a running server: each client keeps one keep-alive
+ * connection, sends a package to {@code /api/sort}, waits for the answer and sends the
+ * next one. Every client is a virtual thread doing blocking socket I/O, so 10k clients
+ * cost the load generator little more than 10k sockets. Requests started during the
+ * warmup are not counted.
+ * <p>
+ * A body delay makes every client send its headers, pause, and then send the body, like a
+ * scanner on a slow link; the server holds its request thread while it waits, which is
+ * where thread pool size starts to matter.
+ * <pre>
+ * ConcurrencyLoadClient &lt;url&gt; &lt;clients&gt; [seconds, default 20] [warmup seconds, default 5]
+ *                       [body delay millis, default 0]
+ * </pre>
+ */
+public class ConcurrencyLoadClient {
+
+    private static final byte[] BODY =
+        "{\"width\":50,\"height\":50,\"length\":50,\"mass\":10}".getBytes(StandardCharsets.UTF_8);
+
+    private static final int TIMEOUT_MILLIS = 30_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: ConcurrencyLoadClient <url> <clients> "
+                + "[seconds] [warmup seconds] [body delay millis]");
+        }
+        URI uri = URI.create(args[0]);
+        int clients = Integer.parseInt(args[1]);
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int warmup = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        long delayMillis = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        InetSocketAddress address = new InetSocketAddress(uri.getHost(), uri.getPort() < 0 ? 80 : uri.getPort());
+        byte[] headers = ("POST " + uri.getRawPath() + " HTTP/1.1\r\n"
+            + "Host: " + uri.getAuthority() + "\r\n"
+            + "Content-Type: application/json\r\n"
+            + "Content-Length: " + BODY.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        long measureFrom = System.nanoTime() + Duration.ofSeconds(warmup).toNanos();
+        long end = measureFrom + Duration.ofSeconds(seconds).toNanos();
+
+        Thread[] threads = new Thread[clients];
+        for (int i = 0; i < clients; i++) {
+            threads[i] = Thread.ofVirtual().start(
+                () -> runClient(address, headers, delayMillis, measureFrom, end, latencies, errors));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram.Snapshot snapshot = latencies.snapshot();
+        System.out.printf("clients=%d requests=%d errors=%d throughput=%.0f req/s "
+                + "p50=%.2f ms p99=%.2f ms p999=%.2f ms%n",
+            clients, snapshot.getCount(), errors.sum(), snapshot.getCount() / (double) seconds,
+            millis(snapshot.quantileNanos(0.5)), millis(snapshot.quantileNanos(0.99)),
+            millis(snapshot.quantileNanos(0.999)));
+    }
+
+    private static void runClient(InetSocketAddress address, byte[] headers, long delayMillis,
+                                  long measureFrom, long end, LatencyHistogram latencies, LongAdder errors) {
+        Connection connection = null;
+        long start;
+        while ((start = System.nanoTime()) < end) {
+            boolean ok;
+            try {
+                if (connection == null) {
+                    connection = new Connection(address);
+                }
+                int status = connection.exchange(headers, delayMillis);
+                if (status < 0) {
+                    // Server ended keep-alive after this response
+                    connection.close();
+                    connection = null;
+                    status = -status;
+                }
+                ok = status == 200;
+            } catch (IOException e) {
+                ok = false;
+                if (connection != null) {
+                    connection.close();
+                    connection = null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (start >= measureFrom) {
+                if (ok) {
+                    latencies.record(System.nanoTime() - start);
+                } else {
+                    errors.increment();
+                }
+            }
+        }
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    private static final class Connection {
+        private final Socket socket = new Socket();
+        private final OutputStream out;
+        // A plain BufferedInputStream: subclasses lock with synchronized, which pins the
+        // virtual thread to its carrier during blocking reads
+        private final InputStream in;
+
+        Connection(InetSocketAddress address) throws IOException {
+            socket.connect(address, TIMEOUT_MILLIS);
+            socket.setSoTimeout(TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            out = socket.getOutputStream();
+            in = new BufferedInputStream(socket.getInputStream(), 1024);
+        }
+
+        // Sends one request and reads the whole response, returning its status code,
+        // negated when the server closes the connection afterwards
+        int exchange(byte[] headers, long delayMillis) throws IOException, InterruptedException {
+            out.write(headers);
+            if (delayMillis > 0) {
+                out.flush();
+                Thread.sleep(delayMillis);
+            }
+            out.write(BODY);
+            out.flush();
+
+            String statusLine = readLine(in);
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            long contentLength = -1;
+            boolean chunked = false;
+            boolean close = false;
+            for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+                String header = line.toLowerCase();
+                if (header.startsWith("content-length:")) {
+                    contentLength = Long.parseLong(header.substring(15).trim());
+                } else if (header.startsWith("transfer-encoding:") && header.contains("chunked")) {
+                    chunked = true;
+                } else if (header.startsWith("connection:") && header.contains("close")) {
+                    close = true;
+                }
+            }
+            if (chunked) {
+                for (long size = Long.parseLong(readLine(in).trim(), 16); size > 0;
+                     size = Long.parseLong(readLine(in).trim(), 16)) {
+                    skip(in, size);
+                    readLine(in);
+                }
+                readLine(in);
+            } else if (contentLength > 0) {
+                skip(in, contentLength);
+            }
+            return close ? -status : status;
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already broken
+            }
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b < 0) {
+                throw new EOFException("Connection closed by server");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void skip(InputStream in, long count) throws IOException {
+        for (long skipped = 0; skipped < count; skipped++) {
+            if (in.read() < 0) {
+                throw new EOFException("Connection closed by server");
+            }
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
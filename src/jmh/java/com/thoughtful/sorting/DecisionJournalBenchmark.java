@@ -0,0 +1,94 @@
+package com.thoughtful.sorting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Sustained decisions per second with the {@link DecisionJournal} on, against the same
+ * sorter without it. The ring is much smaller than an iteration, so once it fills the
+ * sorting thread runs at the writer's pace: the score is the rate the journal can keep
+ * up with, fsync included. {@code syncInterval} shows what group commit buys over
+ * forcing after nearly every batch. Writes a few GB to the temp directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class DecisionJournalBenchmark {
+
+    private static final int SIZE = 4096;
+
+    @Param({"1ms", "50ms"})
+    public String syncInterval;
+
+    private final double[] width = new double[SIZE];
+    private final double[] height = new double[SIZE];
+    private final double[] length = new double[SIZE];
+    private final double[] mass = new double[SIZE];
+    private final PackageSorter plain = new PackageSorter();
+    private Path directory;
+    private DecisionJournal journal;
+    private PackageSorter journaled;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(17);
+        for (int i = 0; i < SIZE; i++) {
+            width[i] = 1 + random.nextDouble() * 199;
+            height[i] = 1 + random.nextDouble() * 199;
+            length[i] = 1 + random.nextDouble() * 199;
+            mass[i] = 0.1 + random.nextDouble() * 39.9;
+        }
+        directory = Files.createTempDirectory("decision-journal-benchmark");
+        journal = new DecisionJournal(directory, 64 << 20,
+            Duration.ofMillis(Long.parseLong(syncInterval.replace("ms", ""))), Duration.ofDays(90), 65536);
+        journal.start();
+        journaled = new PackageSorter(List.of(journal));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public byte sortCode() {
+        int i = next++ & (SIZE - 1);
+        return plain.sortCode(width[i], height[i], length[i], mass[i]);
+    }
+
+    @Benchmark
+    public byte sortCodeJournaled() {
+        int i = next++ & (SIZE - 1);
+        return journaled.sortCode(width[i], height[i], length[i], mass[i]);
+    }
+}
@@ -0,0 +1,72 @@
+package com.thoughtful.sorting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DecisionStore} operations on a store of the default size filled with 18-digit
+ * ids: a retry that hits, a new id that misses, inserting a new id over an old one, and
+ * the {@code GET /api/packages/{id}} lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecisionStoreBenchmark {
+
+    private static final int CAPACITY = 262_144;
+    private static final int IDS = 4096;
+
+    private final DecisionStore store = new DecisionStore(CAPACITY, Duration.ofHours(24));
+    private final String[] stored = new String[IDS];
+    private final String[] fresh = new String[IDS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < CAPACITY; i++) {
+            store.put(ThresholdProfile.DEFAULT, id(i), PackageSorter.SPECIAL_CODE);
+        }
+        for (int i = 0; i < IDS; i++) {
+            stored[i] = id(i * 61L);
+            fresh[i] = id(CAPACITY + i * 61L);
+        }
+    }
+
+    @Benchmark
+    public int hit() {
+        return store.code(ThresholdProfile.DEFAULT, stored[next++ & (IDS - 1)]);
+    }
+
+    @Benchmark
+    public int miss() {
+        return store.code(ThresholdProfile.DEFAULT, fresh[next++ & (IDS - 1)]);
+    }
+
+    @Benchmark
+    public void put() {
+        store.put(ThresholdProfile.DEFAULT, fresh[next++ & (IDS - 1)], PackageSorter.STANDARD_CODE);
+    }
+
+    @Benchmark
+    public PackageDecision lookup() {
+        return store.lookup(stored[next++ & (IDS - 1)]);
+    }
+
+    private static String id(long serial) {
+        return String.format("%018d", 340_000_000_000_000_000L + serial);
+    }
+}
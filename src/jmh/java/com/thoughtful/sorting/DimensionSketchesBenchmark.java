@@ -0,0 +1,100 @@
+package com.thoughtful.sorting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link DimensionSketches} adds to each decision, and what serving and merging its
+ * sketches cost. {@code listeners} compares no listener, the listeners the application
+ * always has ({@link SortingMetrics} and {@link SortingStats}), and those plus the
+ * sketches; {@code sortContended} has eight threads sharing them.
+ * {@code snapshotAndSerialize} is one {@code GET /api/sketches} after {@code SIZE}
+ * varied packages, {@code parseAndMerge} reads back four instances' concatenated sketches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DimensionSketchesBenchmark {
+
+    private static final int SIZE = 4096;
+
+    @Param({"none", "stats", "stats+sketches", "sketches"})
+    public String listeners;
+
+    private final double[] width = new double[SIZE];
+    private final double[] height = new double[SIZE];
+    private final double[] length = new double[SIZE];
+    private final double[] mass = new double[SIZE];
+    private DimensionSketches sketches;
+    private PackageSorter sorter;
+    private byte[] fourInstances;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(29);
+        for (int i = 0; i < SIZE; i++) {
+            width[i] = 1 + random.nextDouble() * 199;
+            height[i] = 1 + random.nextDouble() * 199;
+            length[i] = 1 + random.nextDouble() * 199;
+            mass[i] = 0.1 + random.nextDouble() * 39.9;
+        }
+        sketches = new DimensionSketches();
+        List<SortListener> sortListeners = switch (listeners) {
+            case "stats" -> List.of(new SortingMetrics(), new SortingStats());
+            case "stats+sketches" -> List.of(new SortingMetrics(), new SortingStats(), sketches);
+            case "sketches" -> List.of(sketches);
+            default -> List.of();
+        };
+        sorter = new PackageSorter(sortListeners);
+        PackageSorter filling = new PackageSorter(List.of(sketches));
+        for (int i = 0; i < SIZE; i++) {
+            filling.sortCode(width[i], height[i], length[i], mass[i]);
+        }
+        byte[] one = sketches.snapshot().toBytes();
+        fourInstances = new byte[one.length * 4];
+        for (int i = 0; i < 4; i++) {
+            System.arraycopy(one, 0, fourInstances, i * one.length, one.length);
+        }
+    }
+
+    @Benchmark
+    public byte sort() {
+        int i = next++ & (SIZE - 1);
+        return sorter.sortCode(width[i], height[i], length[i], mass[i]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public byte sortContended() {
+        int i = next++ & (SIZE - 1);
+        return sorter.sortCode(width[i], height[i], length[i], mass[i]);
+    }
+
+    @Benchmark
+    public byte[] snapshotAndSerialize() {
+        return sketches.snapshot().toBytes();
+    }
+
+    @Benchmark
+    public long parseAndMerge() {
+        return SketchSnapshot.parse(fourInstances).count();
+    }
+}
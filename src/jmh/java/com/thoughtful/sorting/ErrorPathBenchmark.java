@@ -0,0 +1,91 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rejecting a bad /api/sort request, from reading the body to the written error:
+ * {@code validationFailure}, {@code invalidNumber} and {@code malformedJson} go through
+ * {@link SingleSortProcessor} and its {@link SortErrorBodies} templates, and
+ * {@code handlerValidationFailure} is the same rejection raised as an exception and
+ * answered by {@link GlobalExceptionHandler} with a serialized {@link ErrorResponse}, as
+ * /api/sort did before. Compare with {@link SortEndpointBenchmark} for a valid request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+    private static final byte[] INVALID =
+        "{\"width\":-1.0,\"length\":75.0,\"mass\":0.0}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NOT_A_NUMBER =
+        "{\"width\":\"not-a-number\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MALFORMED = "{\"width\":".getBytes(StandardCharsets.UTF_8);
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+    private final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/sort");
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .findAndRegisterModules()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final SingleSortProcessor processor = new SingleSortProcessor(objectMapper, "/api/sort");
+    private final PackageSorter sorter = new PackageSorter();
+    private final DecisionStore decisionStore = new DecisionStore(1024, Duration.ofHours(1));
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+    private final SingleSortProcessor.Responder responder = status -> out;
+
+    @Benchmark
+    public int validationFailure() throws IOException {
+        return reject(INVALID);
+    }
+
+    @Benchmark
+    public int invalidNumber() throws IOException {
+        return reject(NOT_A_NUMBER);
+    }
+
+    @Benchmark
+    public int malformedJson() throws IOException {
+        return reject(MALFORMED);
+    }
+
+    @Benchmark
+    public int handlerValidationFailure() throws IOException {
+        out.reset();
+        PackageRequest invalid = objectMapper.readValue(INVALID, PackageRequest.class);
+        List<String> violations = PackageValidator.violations(invalid);
+        try {
+            throw new PackageValidationException(violations);
+        } catch (PackageValidationException e) {
+            objectMapper.writeValue(out, handler.handlePackageValidation(e, request).getBody());
+        }
+        return out.size();
+    }
+
+    private int reject(byte[] body) throws IOException {
+        out.reset();
+        processor.process(new ByteArrayInputStream(body), responder, sorter, decisionStore);
+        return out.size();
+    }
+}
@@ -0,0 +1,58 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the /api/sort request and response bodies, using the same
+ * indent-output setting as application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBindingBenchmark {
+
+    private static final byte[] REQUEST =
+        "{\"width\":100.0,\"height\":50.0,\"length\":75.0,\"mass\":15.0}".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .enable(SerializationFeature.INDENT_OUTPUT);
+    private final PackageResponse response = new PackageResponse(PackageSorter.STANDARD);
+    private final PackageMeasurement measurement = new PackageMeasurement();
+
+    @Benchmark
+    public PackageRequest bindRequest() throws IOException {
+        return objectMapper.readValue(REQUEST, PackageRequest.class);
+    }
+
+    @Benchmark
+    public PackageMeasurement streamRequest() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(REQUEST)) {
+            parser.nextToken();
+            PackageJsonReader.read(parser, measurement);
+        }
+        return measurement;
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,138 @@
+package com.thoughtful.sorting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classification cost per package over three input shapes:
+ * <ul>
+ *   <li>{@code edge} - values at and next to the 150 cm, 1,000,000 cm³ and 20 kg thresholds,
+ *       in random order, so every branch is hard to predict</li>
+ *   <li>{@code random} - uniform sizes and masses</li>
+ *   <li>{@code sorted} - the random set ordered by category, the best case for branches</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PackageSorterBenchmark {
+
+    static final int SIZE = 4096;
+
+    @Param({"edge", "random", "sorted"})
+    public String inputs;
+
+    private final PackageSorter sorter = new PackageSorter();
+    private final PackageSorter instrumented = new PackageSorter(List.of(new SortingMetrics()));
+    private final PackageSorter withStats = new PackageSorter(List.of(new SortingMetrics(), new SortingStats()));
+    private final double[] width = new double[SIZE];
+    private final double[] height = new double[SIZE];
+    private final double[] length = new double[SIZE];
+    private final double[] mass = new double[SIZE];
+    private final byte[] codes = new byte[SIZE];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(17);
+        double[][] rows = new double[SIZE][];
+        double[] edges = {
+            Math.nextDown(150.0), 150, Math.nextUp(150.0), 99.99, 100, 100.01, 125, 64
+        };
+        double[] masses = {Math.nextDown(20.0), 20, Math.nextUp(20.0), 5, 30};
+        for (int i = 0; i < SIZE; i++) {
+            if ("edge".equals(inputs)) {
+                rows[i] = new double[] {
+                    edges[random.nextInt(edges.length)],
+                    edges[random.nextInt(edges.length)],
+                    edges[random.nextInt(edges.length)],
+                    masses[random.nextInt(masses.length)]
+                };
+            } else {
+                rows[i] = new double[] {
+                    1 + random.nextDouble() * 199,
+                    1 + random.nextDouble() * 199,
+                    1 + random.nextDouble() * 199,
+                    0.1 + random.nextDouble() * 39.9
+                };
+            }
+        }
+        if ("sorted".equals(inputs)) {
+            Arrays.sort(rows, Comparator.comparingInt((double[] r) -> sorter.sortCode(r[0], r[1], r[2], r[3])));
+        }
+        for (int i = 0; i < SIZE; i++) {
+            width[i] = rows[i][0];
+            height[i] = rows[i][1];
+            length[i] = rows[i][2];
+            mass[i] = rows[i][3];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void sort(Blackhole blackhole) {
+        for (int i = 0; i < SIZE; i++) {
+            blackhole.consume(sorter.sort(width[i], height[i], length[i], mass[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void sortCode(Blackhole blackhole) {
+        for (int i = 0; i < SIZE; i++) {
+            blackhole.consume(sorter.sortCode(width[i], height[i], length[i], mass[i]));
+        }
+    }
+
+    // Same as sortCode with the metrics listener attached
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void sortCodeWithMetrics(Blackhole blackhole) {
+        for (int i = 0; i < SIZE; i++) {
+            blackhole.consume(instrumented.sortCode(width[i], height[i], length[i], mass[i]));
+        }
+    }
+
+    // The listeners the application registers: metrics and the sliding-window stats
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void sortCodeWithStats(Blackhole blackhole) {
+        for (int i = 0; i < SIZE; i++) {
+            blackhole.consume(withStats.sortCode(width[i], height[i], length[i], mass[i]));
+        }
+    }
+
+    // The scalar loop sortBatch falls back to without the Vector API
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public byte[] sortBatchScalar() {
+        sorter.sortBatchScalar(width, height, length, mass, codes, 0, SIZE);
+        return codes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public byte[] sortBatch() {
+        sorter.sortBatch(width, height, length, mass, codes);
+        return codes;
+    }
+}
@@ -0,0 +1,92 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the {@link RequestTracer} adds to an {@code /api/sort} request, measured on
+ * {@link SingleSortProcessor} as in {@link SortEndpointBenchmark}: {@code untraced} is the
+ * processor without a tracer, {@code traced} samples each request at {@code sampleRate}
+ * and records the sampled ones while the drainer runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestTracerBenchmark {
+
+    private static final byte[] REQUEST =
+        "{\"width\":100.0,\"height\":50.0,\"length\":75.0,\"mass\":15.0}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"0", "0.01", "1"})
+    public double sampleRate;
+
+    // As configured by application.properties
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .findAndRegisterModules()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final PackageSorter sorter = new PackageSorter();
+    private final DecisionStore decisionStore = new DecisionStore(1024, Duration.ofHours(1));
+    private final SingleSortProcessor processor = new SingleSortProcessor(objectMapper, "/api/sort");
+    private final ByteArrayInputStream in = new ByteArrayInputStream(REQUEST);
+    private final OutputStream out = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+    private final SingleSortProcessor.Responder responder = status -> out;
+    private RequestTracer tracer;
+
+    @Setup
+    public void setUp() {
+        tracer = new RequestTracer(sampleRate, 4096, 1000, null, Long.MAX_VALUE);
+        tracer.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        tracer.stop();
+    }
+
+    @Benchmark
+    public void untraced() throws IOException {
+        in.reset();
+        processor.process(in, responder, sorter, decisionStore);
+    }
+
+    @Benchmark
+    public void traced() throws IOException {
+        in.reset();
+        RequestTracer.Trace trace = tracer.sample();
+        processor.process(in, responder, sorter, decisionStore, trace);
+        if (trace != null) {
+            tracer.record(trace, 200);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.thoughtful.sorting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One single sort classified directly and through the {@link SortCoalescer}, from one
+ * thread and from sixteen threads sharing the coalescer, with {@link SortingMetrics} as
+ * the listener in both cases. The coalesced score is the round trip a request thread
+ * waits for: publish, wake the worker, batch classification, completion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SortCoalescerBenchmark {
+
+    private static final int SIZE = 4096;
+
+    private final double[] width = new double[SIZE];
+    private final double[] height = new double[SIZE];
+    private final double[] length = new double[SIZE];
+    private final double[] mass = new double[SIZE];
+    private SortingMetrics metrics;
+    private PackageSorter sorter;
+    private SortCoalescer coalescer;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(23);
+        for (int i = 0; i < SIZE; i++) {
+            width[i] = 1 + random.nextDouble() * 199;
+            height[i] = 1 + random.nextDouble() * 199;
+            length[i] = 1 + random.nextDouble() * 199;
+            mass[i] = 0.1 + random.nextDouble() * 39.9;
+        }
+        metrics = new SortingMetrics();
+        sorter = new PackageSorter(List.of(metrics));
+        coalescer = new SortCoalescer(64, Duration.ZERO, 1024, metrics);
+        coalescer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        coalescer.stop();
+        if (metrics.getBatchCount() > 0) {
+            System.out.printf("%nmean batch size %.1f%n",
+                ((Number) ((Map<?, ?>) metrics.toJson().get("coalescing")).get("meanBatchSize"))
+                    .doubleValue());
+        }
+    }
+
+    @Benchmark
+    public byte direct() {
+        int i = next++ & (SIZE - 1);
+        return sorter.sortCode(width[i], height[i], length[i], mass[i]);
+    }
+
+    @Benchmark
+    public byte coalesced() {
+        int i = next++ & (SIZE - 1);
+        return coalescer.sortCode(sorter, width[i], height[i], length[i], mass[i]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public byte coalescedContended() {
+        int i = next++ & (SIZE - 1);
+        return coalescer.sortCode(sorter, width[i], height[i], length[i], mass[i]);
+    }
+}
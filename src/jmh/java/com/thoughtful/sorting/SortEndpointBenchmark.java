@@ -0,0 +1,75 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work /api/sort does per request between reading the body and writing the
+ * response, without the servlet container: {@code bound} binds a {@link PackageRequest}
+ * and serializes a {@link PackageResponse} in a {@link ResponseEntity}, as the endpoint
+ * did with {@code @RequestBody}; {@code streamed} is {@link SingleSortProcessor}. Run with
+ * {@code -prof gc} for bytes allocated per request ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortEndpointBenchmark {
+
+    private static final byte[] REQUEST =
+        "{\"width\":100.0,\"height\":50.0,\"length\":75.0,\"mass\":15.0}".getBytes(StandardCharsets.UTF_8);
+
+    // As configured by application.properties
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final PackageSorter sorter = new PackageSorter();
+    private final DecisionStore decisionStore = new DecisionStore(1024, Duration.ofHours(1));
+    private final SingleSortProcessor processor = new SingleSortProcessor(objectMapper, "/api/sort");
+    private final ByteArrayInputStream in = new ByteArrayInputStream(REQUEST);
+    // Discards the response and, unlike OutputStream.nullOutputStream(), stays usable after close
+    private final OutputStream out = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+    private final SingleSortProcessor.Responder responder = status -> out;
+
+    @Benchmark
+    public void bound() throws IOException {
+        in.reset();
+        PackageRequest request = objectMapper.readValue(in, PackageRequest.class);
+        String category = SingleSortProcessor.classify(request, sorter, decisionStore);
+        ResponseEntity<PackageResponse> response = ResponseEntity.ok(new PackageResponse(category));
+        objectMapper.writeValue(out, response.getBody());
+    }
+
+    @Benchmark
+    public void streamed() throws IOException {
+        in.reset();
+        processor.process(in, responder, sorter, decisionStore);
+    }
+}
@@ -0,0 +1,54 @@
+package com.thoughtful.sorting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@link StackAssigner#assign} over four STANDARD stacks, from one thread and from
+ * eight threads sharing the same stacks. Stacks are emptied before each iteration and
+ * are large enough never to fill during one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackAssignerBenchmark {
+
+    private static final int CAPACITY = 1 << 30;
+
+    private StackAssigner assigner;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Map<Category, Map<String, Integer>> stacks = new EnumMap<>(Category.class);
+        stacks.put(Category.STANDARD, Map.of("S1", CAPACITY, "S2", CAPACITY, "S3", CAPACITY, "S4", CAPACITY));
+        assigner = new StackAssigner(stacks);
+    }
+
+    @Benchmark
+    public int assign() {
+        return assigner.assign(PackageSorter.STANDARD_CODE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int assignContended() {
+        return assigner.assign(PackageSorter.STANDARD_CODE);
+    }
+}
@@ -0,0 +1,114 @@
+package com.thoughtful.sorting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of configurable thresholds: {@code constants} classifies with the limits as
+ * {@code static final} constants, as {@link PackageSorter} did before profiles;
+ * {@code defaultProfile} and {@code customProfile} run the real sorter with its thresholds
+ * in final fields; {@code profileLookup} adds the per-request header lookup in
+ * {@link SortingProfiles}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThresholdProfileBenchmark {
+
+    private static final int SIZE = PackageSorterBenchmark.SIZE;
+
+    private static final double DIMENSION_THRESHOLD = 150.0;
+    private static final double VOLUME_THRESHOLD = 1_000_000.0;
+    private static final double MASS_THRESHOLD = 20.0;
+
+    private final double[] width = new double[SIZE];
+    private final double[] height = new double[SIZE];
+    private final double[] length = new double[SIZE];
+    private final double[] mass = new double[SIZE];
+
+    private SortingProfiles profiles;
+    private PackageSorter defaultSorter;
+    private PackageSorter customSorter;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(17);
+        for (int i = 0; i < SIZE; i++) {
+            width[i] = 1 + random.nextDouble() * 199;
+            height[i] = 1 + random.nextDouble() * 199;
+            length[i] = 1 + random.nextDouble() * 199;
+            mass[i] = 0.1 + random.nextDouble() * 39.9;
+        }
+
+        Path file = Files.createTempFile("sorting-profiles", ".properties");
+        Files.writeString(file, "berlin.dimension=120\nberlin.volume=800000\nberlin.mass=25\n"
+            + "madrid.dimension=160\nmadrid.volume=1200000\nmadrid.mass=18\n");
+        profiles = new SortingProfiles(file, List.of());
+        profiles.reload();
+        Files.delete(file);
+        defaultSorter = profiles.getDefault();
+        customSorter = profiles.sorter("berlin");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void constants(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            bh.consume(constantCode(width[i], height[i], length[i], mass[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void defaultProfile(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            bh.consume(defaultSorter.sortCode(width[i], height[i], length[i], mass[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void customProfile(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            bh.consume(customSorter.sortCode(width[i], height[i], length[i], mass[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void profileLookup(Blackhole bh) {
+        for (int i = 0; i < SIZE; i++) {
+            bh.consume(profiles.sorter("berlin").sortCode(width[i], height[i], length[i], mass[i]));
+        }
+    }
+
+    // PackageSorter.code as it was with static final thresholds
+    private static byte constantCode(double width, double height, double length, double mass) {
+        boolean isBulky = (width >= DIMENSION_THRESHOLD)
+            | (height >= DIMENSION_THRESHOLD)
+            | (length >= DIMENSION_THRESHOLD)
+            | (width * height * length >= VOLUME_THRESHOLD);
+        boolean isHeavy = mass >= MASS_THRESHOLD;
+        return (byte) ((isBulky ? 1 : 0) + (isHeavy ? 1 : 0));
+    }
+}
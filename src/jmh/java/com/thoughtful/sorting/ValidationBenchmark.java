@@ -0,0 +1,79 @@
+package com.thoughtful.sorting;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation of {@link PackageRequest} against the primitive {@link PackageValidator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private final PackageRequest valid = new PackageRequest(100.0, 50.0, 75.0, 15.0);
+    private final PackageRequest invalid = new PackageRequest(-1.0, null, 75.0, 0.0);
+    private final PackageMeasurement validMeasurement = new PackageMeasurement();
+    private final PackageMeasurement invalidMeasurement = new PackageMeasurement();
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validMeasurement.set(PackageValidator.WIDTH, 100);
+        validMeasurement.set(PackageValidator.HEIGHT, 50);
+        validMeasurement.set(PackageValidator.LENGTH, 75);
+        validMeasurement.set(PackageValidator.MASS, 15);
+        invalidMeasurement.set(PackageValidator.WIDTH, -1);
+        invalidMeasurement.set(PackageValidator.LENGTH, 75);
+        invalidMeasurement.set(PackageValidator.MASS, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<PackageRequest>> beanValidationValid() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<PackageRequest>> beanValidationInvalid() {
+        return validator.validate(invalid);
+    }
+
+    @Benchmark
+    public boolean packageValidatorValid() {
+        return PackageValidator.isValid(validMeasurement);
+    }
+
+    @Benchmark
+    public List<String> packageValidatorInvalid() {
+        return PackageValidator.violations(invalidMeasurement);
+    }
+}
@@ -0,0 +1,39 @@
+package com.thoughtful.sorting;
+
+import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Shows the {@link AdmissionLimiter}'s limits and counts, and changes the limits
+ * without a restart.
+ */
+@RestController
+@RequestMapping("/api/admission")
+public class AdmissionController {
+
+    private final AdmissionLimiter admissionLimiter;
+
+    public AdmissionController(AdmissionLimiter admissionLimiter) {
+        this.admissionLimiter = admissionLimiter;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> admission() {
+        return ResponseEntity.ok(admissionLimiter.toJson());
+    }
+
+    // Takes effect from the next request; restarting goes back to sorting.admission.*
+    @PutMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> setLimits(@Valid @RequestBody AdmissionLimits limits) {
+        admissionLimiter.setLimits(limits);
+        return ResponseEntity.ok(admissionLimiter.toJson());
+    }
+}
@@ -0,0 +1,68 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Puts the {@link AdmissionLimiter} in front of the sorting endpoints. Rejected requests
+ * are answered here, before the body is read or a controller is reached, with 429 for a
+ * client over its rate and 503 when too many requests are in progress, each with a
+ * Retry-After header.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final AdmissionLimiter limiter;
+    private final ObjectMapper objectMapper;
+
+    public AdmissionFilter(AdmissionLimiter limiter, ObjectMapper objectMapper) {
+        this.limiter = limiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        String client = AdmissionLimiter.client(
+            request.getHeader(AdmissionLimiter.CLIENT_HEADER), request.getRemoteAddr());
+        long wait = limiter.tryAcquire(client);
+        if (wait > 0) {
+            reject(request, response, HttpStatus.TOO_MANY_REQUESTS, ErrorResponse.TOO_MANY_REQUESTS,
+                AdmissionLimiter.rateLimitedMessage(client), AdmissionLimiter.retryAfterSeconds(wait));
+            return;
+        }
+        if (!limiter.enter()) {
+            reject(request, response, HttpStatus.SERVICE_UNAVAILABLE, ErrorResponse.SERVICE_UNAVAILABLE,
+                limiter.overloadedMessage(), 1);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limiter.exit();
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                        String error, String message, long retryAfterSeconds) throws IOException {
+        ErrorResponse errorResponse = new ErrorResponse(
+            status.value(),
+            error,
+            List.of(message),
+            request.getRequestURI()
+        );
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+}
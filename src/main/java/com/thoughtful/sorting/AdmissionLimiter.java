@@ -0,0 +1,207 @@
+package com.thoughtful.sorting;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether a sorting request is let in, before any of its body is read.
+ * <p>
+ * Each client has a token bucket that refills at the configured rate up to the burst
+ * size; a client that has used up its bucket gets a 429 with the time until its next
+ * token. The bucket is a single atomic long holding the time at which it will be full
+ * again (the generic cell rate form of a token bucket), so taking a token is one
+ * compare-and-set and no lock is taken. Clients are keyed by the {@value #CLIENT_HEADER}
+ * header, or by address when it is missing.
+ * <p>
+ * Independently of the client, at most the configured number of requests are in progress
+ * at once; the next one gets a 503 straight away instead of waiting for a thread. Both
+ * limits can be changed while running with {@link #setLimits}, and zero turns them off.
+ * <p>
+ * Buckets of idle clients are full and carry no state, so they are dropped when the
+ * number of clients reaches the configured maximum.
+ */
+public class AdmissionLimiter {
+
+    public static final String CLIENT_HEADER = "X-Client-Id";
+
+    static final int MAX_CLIENT_ID_LENGTH = 64;
+
+    private static final int ADMITTED = 0;
+    private static final int RATE_LIMITED = 1;
+    private static final int OVERLOADED = 2;
+
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long SWEEP_INTERVAL_NANOS = SECOND_NANOS;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final StripedCounters counters = new StripedCounters(3);
+    private final AtomicLong lastSweep;
+    private final int maxClients;
+    private final LongSupplier clock;
+    private volatile Settings settings;
+
+    public AdmissionLimiter(AdmissionLimits limits, int maxClients) {
+        this(limits, maxClients, System::nanoTime);
+    }
+
+    AdmissionLimiter(AdmissionLimits limits, int maxClients, LongSupplier clock) {
+        if (maxClients <= 0) {
+            throw new IllegalArgumentException("Max clients must be positive");
+        }
+        this.maxClients = maxClients;
+        this.clock = clock;
+        this.lastSweep = new AtomicLong(clock.getAsLong());
+        setLimits(limits);
+    }
+
+    /**
+     * The key a request is rate limited under: its client id if it sent a usable one,
+     * otherwise its address.
+     */
+    public static String client(String clientId, String address) {
+        if (clientId != null && !clientId.isBlank() && clientId.length() <= MAX_CLIENT_ID_LENGTH) {
+            return clientId;
+        }
+        return address;
+    }
+
+    /**
+     * Takes a token from the client's bucket.
+     *
+     * @return 0 if the request may go ahead, otherwise the nanoseconds until the client
+     *         has a token again
+     */
+    public long tryAcquire(String client) {
+        Settings current = settings;
+        if (current.interval == 0) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        AtomicLong bucket = buckets.get(client);
+        if (bucket == null) {
+            bucket = newBucket(client, now);
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + current.interval;
+            long wait = next - now - current.capacity;
+            if (wait > 0) {
+                counters.increment(RATE_LIMITED);
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Counts a request as in progress unless that would exceed the concurrency limit.
+     * Every {@code true} must be followed by one {@link #exit}.
+     */
+    public boolean enter() {
+        int max = settings.maxConcurrent;
+        int current = inFlight.incrementAndGet();
+        if (max > 0 && current > max) {
+            inFlight.decrementAndGet();
+            counters.increment(OVERLOADED);
+            return false;
+        }
+        counters.increment(ADMITTED);
+        return true;
+    }
+
+    public void exit() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Replaces the limits. Clients keep their buckets; the new rate and burst apply from
+     * their next request.
+     *
+     * @throws IllegalArgumentException for a negative limit or a burst below 1
+     */
+    public void setLimits(AdmissionLimits limits) {
+        this.settings = new Settings(limits);
+    }
+
+    public AdmissionLimits getLimits() {
+        AdmissionLimits limits = settings.limits;
+        return new AdmissionLimits(limits.getRatePerSecond(), limits.getBurst(), limits.getMaxConcurrent());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Map<String, Object> toJson() {
+        AdmissionLimits limits = settings.limits;
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("ratePerSecond", limits.getRatePerSecond());
+        json.put("burst", limits.getBurst());
+        json.put("maxConcurrent", limits.getMaxConcurrent());
+        json.put("inFlight", getInFlight());
+        json.put("clients", buckets.size());
+        json.put("admitted", counters.sum(ADMITTED));
+        json.put("rateLimited", counters.sum(RATE_LIMITED));
+        json.put("overloaded", counters.sum(OVERLOADED));
+        return json;
+    }
+
+    static String rateLimitedMessage(String client) {
+        return "Rate limit exceeded for client '" + client + "'";
+    }
+
+    String overloadedMessage() {
+        return "Server is at its limit of " + settings.maxConcurrent + " concurrent sorting requests";
+    }
+
+    /** Whole seconds for a Retry-After header, at least 1. */
+    static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + SECOND_NANOS - 1) / SECOND_NANOS);
+    }
+
+    int getClientCount() {
+        return buckets.size();
+    }
+
+    private AtomicLong newBucket(String client, long now) {
+        long last = lastSweep.get();
+        if (buckets.size() >= maxClients && now - last >= SWEEP_INTERVAL_NANOS
+                && lastSweep.compareAndSet(last, now)) {
+            // A full bucket is the same as no bucket; a token taken between the check and
+            // the removal is forgotten, which only ever errs towards letting a request in
+            buckets.values().removeIf(bucket -> bucket.get() <= now);
+        }
+        return buckets.computeIfAbsent(client, key -> new AtomicLong(now));
+    }
+
+    private static final class Settings {
+        final AdmissionLimits limits;
+        // Nanoseconds per token, 0 when rate limiting is off
+        final long interval;
+        // Nanoseconds of tokens a full bucket holds
+        final long capacity;
+        final int maxConcurrent;
+
+        Settings(AdmissionLimits limits) {
+            double rate = limits.getRatePerSecond();
+            if (!(rate >= 0) || limits.getBurst() < 1 || limits.getMaxConcurrent() < 0) {
+                throw new IllegalArgumentException(
+                    "Admission limits need a rate and max concurrent of at least 0 and a burst of at least 1");
+            }
+            this.limits = new AdmissionLimits(rate, limits.getBurst(), limits.getMaxConcurrent());
+            this.interval = rate == 0 ? 0 : Math.max(1, Math.round(SECOND_NANOS / rate));
+            // Capped far below overflow; a bucket that takes years to drain is unlimited anyway
+            this.capacity = interval > (Long.MAX_VALUE >> 2) / limits.getBurst()
+                ? Long.MAX_VALUE >> 2 : interval * limits.getBurst();
+            this.maxConcurrent = limits.getMaxConcurrent();
+        }
+    }
+}
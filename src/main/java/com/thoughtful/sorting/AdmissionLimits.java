@@ -0,0 +1,56 @@
+package com.thoughtful.sorting;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.PositiveOrZero;
+
+/**
+ * Limits applied by the {@link AdmissionLimiter}, as read from configuration and as
+ * accepted by {@code PUT /api/admission}. Zero turns a limit off.
+ */
+public class AdmissionLimits {
+
+    // Sustained requests per second for each client
+    @PositiveOrZero(message = "Rate per second must not be negative")
+    private double ratePerSecond;
+
+    // Requests a client may send at once after being idle
+    @Min(value = 1, message = "Burst must be at least 1")
+    private int burst = 1;
+
+    // Sorting requests in progress at once, over all clients
+    @PositiveOrZero(message = "Max concurrent must not be negative")
+    private int maxConcurrent;
+
+    public AdmissionLimits() {
+    }
+
+    public AdmissionLimits(double ratePerSecond, int burst, int maxConcurrent) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public void setRatePerSecond(double ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+}
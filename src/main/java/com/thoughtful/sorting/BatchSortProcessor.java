@@ -0,0 +1,85 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+
+/**
+ * Classifies a JSON array of packages element by element.
+ * <p>
+ * The array is read with the streaming parser and results are written as they are
+ * produced, so heap use does not depend on the size of the batch. Each element yields
+ * either {@code {"category":...}} or an inline error with the same {@code error} and
+ * {@code messages} a single /api/sort call would return.
+ */
+public class BatchSortProcessor {
+
+    private final JsonFactory jsonFactory;
+
+    public BatchSortProcessor(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Classifies the batch with the given sorter and returns the number of elements answered.
+     *
+     * @throws MalformedPayloadException if the body is empty or not a JSON array;
+     *         nothing has been written to {@code out} in that case
+     */
+    public int process(InputStream in, OutputStream out, PackageSorter sorter) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            JsonToken first;
+            try {
+                first = parser.nextToken();
+            } catch (JsonProcessingException e) {
+                throw new MalformedPayloadException(GlobalExceptionHandler.INVALID_JSON_MESSAGE);
+            }
+            if (first == null) {
+                throw new MalformedPayloadException(GlobalExceptionHandler.BODY_REQUIRED_MESSAGE);
+            }
+            if (first != JsonToken.START_ARRAY) {
+                throw new MalformedPayloadException("Request body must be a JSON array of packages");
+            }
+
+            try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+                return writeResults(parser, generator, sorter);
+            }
+        }
+    }
+
+    private int writeResults(JsonParser parser, JsonGenerator generator, PackageSorter sorter)
+            throws IOException {
+        PackageMeasurement measurement = new PackageMeasurement();
+        int count = 0;
+
+        generator.writeStartArray();
+        try {
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    PackageResultWriter.writeError(generator, -1, ErrorResponse.INVALID_REQUEST,
+                        Collections.singletonList(GlobalExceptionHandler.INVALID_JSON_MESSAGE));
+                    count++;
+                    break;
+                }
+                boolean objectRead = PackageJsonReader.read(parser, measurement);
+                PackageResultWriter.write(sorter, generator, measurement, objectRead, -1);
+                count++;
+            }
+        } catch (JsonProcessingException e) {
+            // The rest of the array cannot be located reliably, so close it with one error
+            PackageResultWriter.writeError(generator, -1, ErrorResponse.INVALID_REQUEST,
+                Collections.singletonList(GlobalExceptionHandler.INVALID_JSON_MESSAGE));
+            count++;
+        }
+        generator.writeEndArray();
+        return count;
+    }
+}
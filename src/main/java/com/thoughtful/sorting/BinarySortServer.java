@@ -0,0 +1,198 @@
+package com.thoughtful.sorting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * Fixed-width binary protocol for conveyor PLC gateways, served from one NIO selector thread.
+ * <p>
+ * Each request is a 40-byte little-endian record: {@code long id, double width,
+ * double height, double length, double mass}. Each is answered with one byte, the
+ * {@link PackageSorter} category code, or {@link #INVALID_CODE} when the record fails the
+ * {@link PackageRequest} constraints. Requests may be pipelined; answers come back in
+ * request order. Every connection owns two direct buffers allocated when it is accepted,
+ * and nothing is allocated per record.
+ */
+public class BinarySortServer implements SmartLifecycle {
+
+    public static final int RECORD_SIZE = Long.BYTES + 4 * Double.BYTES;
+    public static final byte INVALID_CODE = PackageValidator.INVALID_CODE;
+
+    private static final Logger log = LoggerFactory.getLogger(BinarySortServer.class);
+    private static final int RECORDS_PER_READ = 1024;
+
+    private final PackageSorter packageSorter;
+    private final int port;
+
+    private volatile boolean running;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+
+    public BinarySortServer(PackageSorter packageSorter, int port) {
+        this.packageSorter = packageSorter;
+        this.port = port;
+    }
+
+    @Override
+    public void start() {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start binary sort server on port " + port, e);
+        }
+        running = true;
+        selectorThread = new Thread(this::run, "binary-sort-server");
+        selectorThread.start();
+        log.info("Binary sort server listening on port {}", getPort());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Binary sort server stopped unexpectedly", e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            SocketChannel channel = serverChannel.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new Connection());
+            }
+            return;
+        }
+
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable() && channel.read(connection.in) < 0) {
+                close(key);
+                return;
+            }
+            boolean drained;
+            do {
+                connection.process(packageSorter);
+                drained = connection.flush(channel);
+            } while (drained && connection.hasPendingRecord());
+            if (!drained) {
+                // Stop reading until the client drains its answers
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        } catch (IOException e) {
+            close(key);
+        }
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // already closed by the peer
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            close(key);
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+    private static final class Connection {
+        // Both buffers stay in write mode between events
+        private final ByteBuffer in = ByteBuffer.allocateDirect(RECORDS_PER_READ * RECORD_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        private final ByteBuffer out = ByteBuffer.allocateDirect(RECORDS_PER_READ);
+
+        void process(PackageSorter sorter) {
+            in.flip();
+            while (in.remaining() >= RECORD_SIZE && out.hasRemaining()) {
+                int at = in.position() + Long.BYTES;
+                double width = in.getDouble(at);
+                double height = in.getDouble(at + Double.BYTES);
+                double length = in.getDouble(at + 2 * Double.BYTES);
+                double mass = in.getDouble(at + 3 * Double.BYTES);
+                in.position(in.position() + RECORD_SIZE);
+
+                if (PackageValidator.isValid(width, height, length, mass)) {
+                    out.put(sorter.sortCode(width, height, length, mass));
+                } else {
+                    out.put(INVALID_CODE);
+                }
+            }
+            in.compact();
+        }
+
+        boolean hasPendingRecord() {
+            return in.position() >= RECORD_SIZE;
+        }
+
+        // Returns true when every answer produced so far has been written
+        boolean flush(SocketChannel channel) throws IOException {
+            out.flip();
+            channel.write(out);
+            boolean drained = !out.hasRemaining();
+            out.compact();
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.thoughtful.sorting;
+
+/**
+ * Sorting categories in category-code order, so {@code Category.of(code)} maps the codes
+ * returned by {@link PackageSorter#sortCode} back to a category without a lookup.
+ */
+public enum Category {
+    STANDARD,
+    SPECIAL,
+    REJECTED;
+
+    private static final Category[] BY_CODE = values();
+
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    public static Category of(byte code) {
+        return BY_CODE[code];
+    }
+}
@@ -0,0 +1,399 @@
+package com.thoughtful.sorting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only record of every sorting decision: inputs, category, time and profile,
+ * kept for {@code sorting.journal.retention} and queried by time range.
+ * <p>
+ * Sorting threads never touch the disk. Each decision claims a slot in a pre-allocated
+ * ring with one atomic increment, fills it and publishes it; a single writer thread
+ * drains everything published since its last pass into the mapped
+ * {@link JournalSegment} and makes the batch visible to queries in one step, then forces
+ * the file at most once per {@code sync-interval}. Under load one force covers thousands
+ * of decisions (group commit), so the sustained rate is bounded by encoding and copying
+ * rather than by fsync. When the writer falls a full ring behind, sorting threads wait
+ * for it instead of dropping decisions. A crash loses at most the decisions of the last
+ * sync interval; the torn record it may leave is cut off on the next start.
+ * <p>
+ * Segments roll at {@code segment-size} and are deleted once their newest decision is
+ * older than the retention.
+ */
+public class DecisionJournal implements SortListener, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(DecisionJournal.class);
+
+    private static final int MAX_BATCH = 4096;
+    private static final long IDLE_PARK_NANOS = 200_000;
+    private static final long RETENTION_CHECK_MILLIS = 60_000;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long syncIntervalNanos;
+    private final long retentionMillis;
+    private final LongSupplier clock;
+
+    // Ring of pending decisions; a slot holds the sequence it was published for
+    private final int capacity;
+    private final int mask;
+    private final long[] decidedAt;
+    private final double[] widths;
+    private final double[] heights;
+    private final double[] lengths;
+    private final double[] masses;
+    private final byte[] codes;
+    private final int[] profiles;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long written;
+
+    private final Map<String, Integer> profileIds = new ConcurrentHashMap<>();
+    private volatile byte[][] profileNames = new byte[0][];
+    private final SortListener defaultListener;
+
+    private final List<JournalSegment> segments = new CopyOnWriteArrayList<>();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private JournalSegment active;
+    private Thread writer;
+    private volatile boolean running;
+    // Until the writer has drained the ring after stop
+    private volatile boolean writing;
+    private volatile boolean failed;
+
+    /**
+     * @param bufferCapacity decisions waiting for the writer before sorting threads wait,
+     *                       rounded up to a power of two
+     */
+    public DecisionJournal(Path directory, int segmentSize, Duration syncInterval, Duration retention,
+                           int bufferCapacity) {
+        this(directory, segmentSize, syncInterval, retention, bufferCapacity, System::currentTimeMillis);
+    }
+
+    DecisionJournal(Path directory, int segmentSize, Duration syncInterval, Duration retention,
+                    int bufferCapacity, LongSupplier clock) {
+        if (segmentSize < JournalSegment.HEADER_SIZE + JournalSegment.MAX_RECORD) {
+            throw new IllegalArgumentException("Journal segment size " + segmentSize + " is too small");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncIntervalNanos = syncInterval.toNanos();
+        this.retentionMillis = retention.toMillis();
+        this.clock = clock;
+        this.capacity = Integer.highestOneBit(Math.max(2, bufferCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.decidedAt = new long[capacity];
+        this.widths = new double[capacity];
+        this.heights = new double[capacity];
+        this.lengths = new double[capacity];
+        this.masses = new double[capacity];
+        this.codes = new byte[capacity];
+        this.profiles = new int[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        int defaultId = profileId(ThresholdProfile.DEFAULT_NAME);
+        this.defaultListener = (width, height, length, mass, code, reasons) ->
+            record(defaultId, width, height, length, mass, code);
+    }
+
+    @Override
+    public SortListener forProfile(ThresholdProfile profile) {
+        int id = profileId(profile.getName());
+        return (width, height, length, mass, code, reasons) -> record(id, width, height, length, mass, code);
+    }
+
+    @Override
+    public void onSort(double width, double height, double length, double mass, byte code, int reasons) {
+        defaultListener.onSort(width, height, length, mass, code, reasons);
+    }
+
+    private synchronized int profileId(String name) {
+        Integer id = profileIds.get(name);
+        if (id == null) {
+            byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length > JournalSegment.MAX_PROFILE_LENGTH) {
+                throw new IllegalArgumentException("Profile name too long for the journal: " + name);
+            }
+            byte[][] names = Arrays.copyOf(profileNames, profileNames.length + 1);
+            names[names.length - 1] = bytes;
+            profileNames = names;
+            id = names.length - 1;
+            profileIds.put(name, id);
+        }
+        return id;
+    }
+
+    private void record(int profile, double width, double height, double length, double mass, byte code) {
+        long sequence = claimed.getAndIncrement();
+        while (sequence - written >= capacity) {
+            if (failed || !writing) {
+                // Nobody will free the slot; waiting would block sorting for good
+                dropped.increment();
+                return;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        int slot = (int) sequence & mask;
+        decidedAt[slot] = clock.getAsLong();
+        widths[slot] = width;
+        heights[slot] = height;
+        lengths[slot] = length;
+        masses[slot] = mass;
+        codes[slot] = code;
+        profiles[slot] = profile;
+        published.setRelease(slot, sequence);
+    }
+
+    /**
+     * Decisions in the range (epoch millis, inclusive), in the order they were written,
+     * at most {@code limit}.
+     */
+    public List<RecordedDecision> scan(long from, long to, int limit) {
+        List<RecordedDecision> decisions = new ArrayList<>();
+        for (JournalSegment segment : segments) {
+            try {
+                if (!segment.scan(from, to, limit, decisions)) {
+                    break;
+                }
+            } catch (IOException e) {
+                // Deleted by retention while we were reading
+                log.debug("Skipped journal segment {}: {}", segment.file, e.toString());
+            }
+        }
+        return decisions;
+    }
+
+    /**
+     * Waits until every decision recorded before the call has been written and can be
+     * found by {@link #scan}.
+     */
+    public void flush() {
+        long target = claimed.get();
+        while (written < target && writing) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    /** Decisions that could not be journaled because the writer had failed or stopped. */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /** Times the active segment was forced to disk, not counting seals. */
+    long getSyncCount() {
+        return syncs.sum();
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void start() {
+        try {
+            Files.createDirectories(directory);
+            recover();
+            active = JournalSegment.create(directory, nextNumber(), segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the decision journal in " + directory, e);
+        }
+        segments.add(active);
+        written = claimed.get();
+        running = true;
+        writing = true;
+        writer = new Thread(this::run, "decision-journal");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Decision journal writing to {}", directory.toAbsolutePath());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Before the web server starts and after it stops, so no request sorts unjournaled
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.getFileName().toString().endsWith(".journal")).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long number = Long.parseLong(name.substring(0, name.length() - ".journal".length()));
+            long size = Files.size(file);
+            JournalSegment segment = JournalSegment.open(file, number);
+            if (segment == null) {
+                log.warn("Deleted journal segment {} without a header", file);
+                continue;
+            }
+            if (segment.size() < size) {
+                log.warn("Truncated journal segment {} from {} to {} bytes", file, size, segment.size());
+            }
+            segments.add(segment);
+        }
+        deleteExpired();
+    }
+
+    private long nextNumber() {
+        return segments.isEmpty() ? 0 : segments.get(segments.size() - 1).number + 1;
+    }
+
+    private void run() {
+        byte[] record = new byte[JournalSegment.MAX_RECORD];
+        ByteBuffer encoder = ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C crc = new CRC32C();
+        long lastSync = System.nanoTime();
+        long lastRetentionCheck = clock.getAsLong();
+        while (true) {
+            if (clock.getAsLong() - lastRetentionCheck >= RETENTION_CHECK_MILLIS) {
+                lastRetentionCheck = clock.getAsLong();
+                deleteExpired();
+            }
+            long from = written;
+            long to = from;
+            while (to - from < MAX_BATCH && published.getAcquire((int) to & mask) == to) {
+                to++;
+            }
+            if (to == from) {
+                if (!running && claimed.get() == from) {
+                    break;
+                }
+                // Still at most one force per interval when decisions trickle in
+                long untilSync = syncIntervalNanos - (System.nanoTime() - lastSync);
+                if (untilSync <= 0) {
+                    if (!failed) {
+                        sync();
+                    }
+                    lastSync = System.nanoTime();
+                    untilSync = syncIntervalNanos;
+                }
+                LockSupport.parkNanos(Math.min(IDLE_PARK_NANOS, untilSync));
+                continue;
+            }
+            if (!failed) {
+                try {
+                    for (long sequence = from; sequence < to; sequence++) {
+                        write((int) sequence & mask, encoder, crc);
+                    }
+                    active.commit();
+                    long now = System.nanoTime();
+                    if (now - lastSync >= syncIntervalNanos) {
+                        sync();
+                        lastSync = now;
+                    }
+                } catch (IOException | UncheckedIOException | IllegalStateException e) {
+                    failed = true;
+                    log.error("Decision journal writer failed; decisions are no longer journaled", e);
+                }
+            }
+            if (failed) {
+                dropped.add(to - from);
+            }
+            written = to;
+        }
+        if (!failed) {
+            try {
+                active.seal();
+            } catch (IOException e) {
+                log.error("Could not seal journal segment {}", active.file, e);
+            }
+        }
+        writing = false;
+    }
+
+    private void sync() {
+        if (active.sync()) {
+            syncs.increment();
+        }
+    }
+
+    private void write(int slot, ByteBuffer encoder, CRC32C crc) throws IOException {
+        byte[] profile = profileNames[profiles[slot]];
+        int payload = JournalSegment.FIXED_PAYLOAD + profile.length;
+        encoder.clear();
+        encoder.putInt(payload)
+            .putLong(decidedAt[slot])
+            .putDouble(widths[slot])
+            .putDouble(heights[slot])
+            .putDouble(lengths[slot])
+            .putDouble(masses[slot])
+            .put(codes[slot])
+            .put((byte) profile.length)
+            .put(profile);
+        crc.reset();
+        crc.update(encoder.array(), 0, encoder.position());
+        encoder.putInt((int) crc.getValue());
+
+        int length = encoder.position();
+        if (!active.fits(length)) {
+            roll();
+        }
+        active.append(encoder.array(), length, decidedAt[slot]);
+    }
+
+    private void roll() throws IOException {
+        active.seal();
+        JournalSegment next = JournalSegment.create(directory, active.number + 1, segmentSize);
+        segments.add(next);
+        active = next;
+        deleteExpired();
+    }
+
+    private void deleteExpired() {
+        long cutoff = clock.getAsLong() - retentionMillis;
+        for (JournalSegment segment : segments) {
+            if (segment != active && segment.isSealed() && segment.maxDecidedAt() < cutoff) {
+                segments.remove(segment);
+                try {
+                    segment.delete();
+                    log.info("Deleted expired journal segment {}", segment.file);
+                } catch (IOException e) {
+                    log.warn("Could not delete expired journal segment {}", segment.file, e);
+                }
+            }
+        }
+    }
+}
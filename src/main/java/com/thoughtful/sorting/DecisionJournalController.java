@@ -0,0 +1,61 @@
+package com.thoughtful.sorting;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decisions from the {@link DecisionJournal} between {@code from} and {@code to}, local
+ * date-times like {@code decidedAt}. Without a range it returns the last hour.
+ */
+@RestController
+@RequestMapping("/api/decisions")
+@ConditionalOnProperty(name = "sorting.journal.enabled", havingValue = "true")
+public class DecisionJournalController {
+
+    static final int DEFAULT_LIMIT = 1000;
+    static final int MAX_LIMIT = 100_000;
+
+    private final DecisionJournal journal;
+
+    public DecisionJournalController(DecisionJournal journal) {
+        this.journal = journal;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> decisions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new InvalidTimeRangeException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        long toMillis = to == null ? System.currentTimeMillis() : to.atZone(zone).toInstant().toEpochMilli();
+        long fromMillis = from == null
+            ? toMillis - Duration.ofHours(1).toMillis()
+            : from.atZone(zone).toInstant().toEpochMilli();
+        if (fromMillis > toMillis) {
+            throw new InvalidTimeRangeException("from must not be after to");
+        }
+
+        List<RecordedDecision> decisions = journal.scan(fromMillis, toMillis, limit + 1);
+        boolean truncated = decisions.size() > limit;
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("decisions", truncated ? decisions.subList(0, limit) : decisions);
+        json.put("truncated", truncated);
+        return ResponseEntity.ok(json);
+    }
+}
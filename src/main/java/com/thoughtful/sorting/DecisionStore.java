@@ -0,0 +1,232 @@
+package com.thoughtful.sorting;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Recent decisions by package id, so scanner retries get the first answer back and
+ * robots can ask where a package went.
+ * <p>
+ * Each entry also records the {@link ThresholdProfile} the decision was made under. A
+ * retry under a different profile, or under a profile whose thresholds have since been
+ * reloaded with other values, is a miss, so it is classified again and the new decision
+ * replaces the old one.
+ * <p>
+ * Entries live off-heap in one direct buffer allocated up front, 64 bytes each, grouped
+ * into sets of {@link #WAYS}. An id hashes to one set; a new id takes an empty or expired
+ * entry in that set, otherwise the least recently used one. Memory is fixed at
+ * {@code capacity * 64} bytes however many ids pass through, the heap holds nothing per
+ * entry, and lookups and inserts never allocate. Sets are guarded by striped locks held
+ * only while the eight entries are scanned.
+ */
+public final class DecisionStore {
+
+    // Ids longer than this are never stored; PackageRequest rejects them
+    public static final int MAX_ID_LENGTH = 38;
+
+    static final int ENTRY_BYTES = 64;
+    static final int WAYS = 8;
+    static final int MAX_CAPACITY = 1 << 24;
+
+    private static final int LOCK_STRIPES = 1024;
+
+    // Entry layout; a zero hash marks an empty entry. The id bytes decide a match, so
+    // 32 bits of hash are enough to skip most entries without comparing them
+    private static final int HASH = 0;
+    private static final int PROFILE = 4;
+    private static final int DECIDED_AT = 8;
+    private static final int USED_AT = 16;
+    private static final int CODE = 24;
+    private static final int LENGTH = 25;
+    private static final int ID = 26;
+
+    private final ByteBuffer entries;
+    private final int capacity;
+    private final int setMask;
+    private final Object[] locks;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    // Profiles with equal names and thresholds share a tag
+    private final Map<ThresholdProfile, Integer> profileTags = new ConcurrentHashMap<>();
+    private final AtomicInteger lastProfileTag = new AtomicInteger();
+
+    /**
+     * @param capacity entries to keep, rounded down to a power of two; between
+     *                 {@link #WAYS} and {@link #MAX_CAPACITY}
+     * @param ttl      how long a decision is returned after it was made
+     */
+    public DecisionStore(int capacity, Duration ttl) {
+        this(capacity, ttl, System::currentTimeMillis);
+    }
+
+    DecisionStore(int capacity, Duration ttl, LongSupplier clock) {
+        if (capacity < WAYS || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException(
+                "Decision store capacity must be between " + WAYS + " and " + MAX_CAPACITY + ": " + capacity);
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Decision store TTL must be positive: " + ttl);
+        }
+        int sets = Integer.highestOneBit(capacity / WAYS);
+        this.capacity = sets * WAYS;
+        this.setMask = sets - 1;
+        this.entries = ByteBuffer.allocateDirect(this.capacity * ENTRY_BYTES);
+        this.locks = new Object[Math.min(sets, LOCK_STRIPES)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the category code decided for the id under the profile, or -1 if there is
+     * none, it has expired or it was decided under another profile. A hit marks the entry
+     * as recently used.
+     */
+    public int code(ThresholdProfile profile, String id) {
+        if (!PackageValidator.isValidId(id)) {
+            return -1;
+        }
+        long hash = hash(id);
+        int set = set(hash);
+        int profileTag = profileTag(profile);
+        long now = clock.getAsLong();
+        synchronized (lock(set)) {
+            int entry = find(set, hash, id, now);
+            if (entry < 0 || entries.getInt(entry + PROFILE) != profileTag) {
+                return -1;
+            }
+            entries.putLong(entry + USED_AT, now);
+            return entries.get(entry + CODE);
+        }
+    }
+
+    /**
+     * Returns the latest decision for the id under any profile, or {@code null} if there
+     * is none or it has expired. Lookups do not count as use.
+     */
+    public PackageDecision lookup(String id) {
+        if (!PackageValidator.isValidId(id)) {
+            return null;
+        }
+        long hash = hash(id);
+        int set = set(hash);
+        synchronized (lock(set)) {
+            int entry = find(set, hash, id, clock.getAsLong());
+            if (entry < 0) {
+                return null;
+            }
+            return new PackageDecision(id, PackageSorter.category(entries.get(entry + CODE)),
+                entries.getLong(entry + DECIDED_AT));
+        }
+    }
+
+    /**
+     * Stores a decision made under the profile, replacing any earlier one for the same id.
+     *
+     * @throws IllegalArgumentException if the id is not valid for a {@link PackageRequest}
+     */
+    public void put(ThresholdProfile profile, String id, byte code) {
+        if (!PackageValidator.isValidId(id)) {
+            throw new IllegalArgumentException("Invalid package id: " + id);
+        }
+        long hash = hash(id);
+        int set = set(hash);
+        int profileTag = profileTag(profile);
+        long now = clock.getAsLong();
+        synchronized (lock(set)) {
+            int target = -1;
+            long oldest = Long.MAX_VALUE;
+            for (int way = 0, entry = set * WAYS * ENTRY_BYTES; way < WAYS; way++, entry += ENTRY_BYTES) {
+                int entryHash = entries.getInt(entry + HASH);
+                if (entryHash == (int) hash && idEquals(entry, id)) {
+                    target = entry;
+                    break;
+                }
+                long usedAt = entryHash == 0 || expired(entry, now)
+                    ? Long.MIN_VALUE : entries.getLong(entry + USED_AT);
+                if (usedAt < oldest) {
+                    oldest = usedAt;
+                    target = entry;
+                }
+            }
+            entries.putInt(target + HASH, (int) hash);
+            entries.putInt(target + PROFILE, profileTag);
+            entries.putLong(target + DECIDED_AT, now);
+            entries.putLong(target + USED_AT, now);
+            entries.put(target + CODE, code);
+            entries.put(target + LENGTH, (byte) id.length());
+            for (int i = 0; i < id.length(); i++) {
+                entries.put(target + ID + i, (byte) id.charAt(i));
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getMemoryBytes() {
+        return (long) capacity * ENTRY_BYTES;
+    }
+
+    // Live entry holding the id in the set, or -1
+    private int find(int set, long hash, String id, long now) {
+        for (int way = 0, entry = set * WAYS * ENTRY_BYTES; way < WAYS; way++, entry += ENTRY_BYTES) {
+            if (entries.getInt(entry + HASH) == (int) hash && idEquals(entry, id)) {
+                return expired(entry, now) ? -1 : entry;
+            }
+        }
+        return -1;
+    }
+
+    private int profileTag(ThresholdProfile profile) {
+        Integer tag = profileTags.get(profile);
+        return tag != null ? tag : profileTags.computeIfAbsent(profile, p -> lastProfileTag.incrementAndGet());
+    }
+
+    private boolean idEquals(int entry, String id) {
+        if (entries.get(entry + LENGTH) != id.length()) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (entries.get(entry + ID + i) != (byte) id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean expired(int entry, long now) {
+        return now - entries.getLong(entry + DECIDED_AT) >= ttlMillis;
+    }
+
+    private int set(long hash) {
+        return (int) (hash >>> 32) & setMask;
+    }
+
+    private Object lock(int set) {
+        return locks[set & (locks.length - 1)];
+    }
+
+    // FNV-1a over the characters, then the murmur3 finalizer to spread the high bits
+    static long hash(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash = (hash ^ id.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        // Nonzero in the low 32 bits stored in an entry
+        return (int) hash == 0 ? hash | 1 : hash;
+    }
+}
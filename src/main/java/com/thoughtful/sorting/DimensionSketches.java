@@ -0,0 +1,147 @@
+package com.thoughtful.sorting;
+
+/**
+ * Mergeable sketches of the packages this instance classified: the distribution of
+ * volume, mass and longest dimension per category, and how often each box size occurs.
+ * <p>
+ * Distributions are log-linear histograms: each power of two is split into
+ * {@link #SUB_BUCKETS} equal buckets, so a bucket's midpoint is within
+ * {@link #RELATIVE_ERROR} of any value in it. A bucket index is the top bits of the
+ * value's IEEE 754 representation, with one bucket below and one above the covered range
+ * of each metric. Box sizes go into a count-min sketch keyed by the three sides rounded
+ * to whole centimetres, largest first, so orientation does not matter. Every bucket and
+ * sketch cell is a counter in one {@link StripedCounters}: a decision is seven atomic
+ * adds and never allocates, and memory is fixed no matter the traffic.
+ * <p>
+ * Unlike a t-digest, two instances' histograms merge by adding counters, so merging is
+ * exact, order-independent and gives the same sketch as one instance that saw every
+ * package. {@link #snapshot} copies the counters into a {@link SketchSnapshot}, which
+ * serializes, merges and answers queries.
+ */
+public class DimensionSketches implements SortListener {
+
+    public static final int VOLUME = 0;
+    public static final int MASS = 1;
+    public static final int LONGEST_DIMENSION = 2;
+    static final String[] METRIC_NAMES = {"volumeCm3", "massKg", "longestDimensionCm"};
+
+    static final int SUB_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    public static final double RELATIVE_ERROR = 1.0 / (2 * SUB_BUCKETS);
+
+    // Covered range per metric, powers of two: 1 mm³ to 1000 m³, 1 g to 16 t, 0.1 mm to 1.3 km
+    private static final int[] MIN_EXPONENTS = {-10, -10, -7};
+    private static final int[] MAX_EXPONENTS = {40, 14, 17};
+
+    // Count-min sketch of box sizes
+    static final int FREQUENCY_DEPTH = 4;
+    static final int FREQUENCY_WIDTH_BITS = 10;
+    static final int FREQUENCY_WIDTH = 1 << FREQUENCY_WIDTH_BITS;
+    private static final long[] ROW_SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    // Counter layout: per category code the three metrics' buckets, then the sketch rows
+    static final int[] BUCKETS = new int[METRIC_NAMES.length];
+    static final int[] METRIC_OFFSETS = new int[METRIC_NAMES.length];
+    private static final double[] MIN_VALUES = new double[METRIC_NAMES.length];
+    private static final double[] MAX_VALUES = new double[METRIC_NAMES.length];
+    private static final long[] BIT_OFFSETS = new long[METRIC_NAMES.length];
+    static final int CATEGORIES = 3;
+    static final int PER_CATEGORY;
+    static final int FREQUENCY_OFFSET;
+    static final int COUNTERS;
+
+    static {
+        int offset = 0;
+        for (int metric = 0; metric < METRIC_NAMES.length; metric++) {
+            BUCKETS[metric] = ((MAX_EXPONENTS[metric] - MIN_EXPONENTS[metric]) << SUB_BITS) + 2;
+            METRIC_OFFSETS[metric] = offset;
+            MIN_VALUES[metric] = Math.scalb(1.0, MIN_EXPONENTS[metric]);
+            MAX_VALUES[metric] = Math.scalb(1.0, MAX_EXPONENTS[metric]);
+            BIT_OFFSETS[metric] = Double.doubleToRawLongBits(MIN_VALUES[metric]) >>> (52 - SUB_BITS);
+            offset += BUCKETS[metric];
+        }
+        PER_CATEGORY = offset;
+        FREQUENCY_OFFSET = CATEGORIES * PER_CATEGORY;
+        COUNTERS = FREQUENCY_OFFSET + FREQUENCY_DEPTH * FREQUENCY_WIDTH;
+    }
+
+    private final StripedCounters counters = new StripedCounters(COUNTERS);
+
+    @Override
+    public void onSort(double width, double height, double length, double mass, byte code, int reasons) {
+        int base = code * PER_CATEGORY;
+        counters.increment(base + METRIC_OFFSETS[VOLUME] + bucket(VOLUME, width * height * length));
+        counters.increment(base + METRIC_OFFSETS[MASS] + bucket(MASS, mass));
+        counters.increment(base + METRIC_OFFSETS[LONGEST_DIMENSION]
+            + bucket(LONGEST_DIMENSION, Math.max(width, Math.max(height, length))));
+        long key = boxKey(width, height, length);
+        for (int row = 0; row < FREQUENCY_DEPTH; row++) {
+            counters.increment(FREQUENCY_OFFSET + frequencyCell(row, key));
+        }
+    }
+
+    /**
+     * Copies the current counts. Decisions made while copying may be partly included.
+     */
+    public SketchSnapshot snapshot() {
+        long[] counts = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            counts[i] = counters.sum(i);
+        }
+        return new SketchSnapshot(counts);
+    }
+
+    /**
+     * Bucket of a value within its metric: 0 below the covered range (and NaN), the last
+     * bucket at or above it.
+     */
+    static int bucket(int metric, double value) {
+        if (!(value >= MIN_VALUES[metric])) {
+            return 0;
+        }
+        if (value >= MAX_VALUES[metric]) {
+            return BUCKETS[metric] - 1;
+        }
+        // Exponent and the top SUB_BITS of the mantissa, counted from the range's start
+        return 1 + (int) ((Double.doubleToRawLongBits(value) >>> (52 - SUB_BITS)) - BIT_OFFSETS[metric]);
+    }
+
+    /**
+     * The value a bucket stands for: its midpoint, or the range's bound for the bucket
+     * below or above it.
+     */
+    static double bucketValue(int metric, int bucket) {
+        if (bucket == 0) {
+            return MIN_VALUES[metric];
+        }
+        if (bucket >= BUCKETS[metric] - 1) {
+            return MAX_VALUES[metric];
+        }
+        int index = bucket - 1;
+        int exponent = MIN_EXPONENTS[metric] + (index >> SUB_BITS);
+        double sub = (index & (SUB_BUCKETS - 1)) + 0.5;
+        return Math.scalb(1.0 + sub / SUB_BUCKETS, exponent);
+    }
+
+    // Sides rounded to whole cm, largest first, 16 bits each
+    static long boxKey(double width, double height, double length) {
+        long a = side(width);
+        long b = side(height);
+        long c = side(length);
+        long largest = Math.max(a, Math.max(b, c));
+        long smallest = Math.min(a, Math.min(b, c));
+        return largest << 32 | (a + b + c - largest - smallest) << 16 | smallest;
+    }
+
+    private static long side(double cm) {
+        return Math.min(0xFFFF, Math.max(0, Math.round(cm)));
+    }
+
+    static int frequencyCell(int row, long key) {
+        long hash = (key ^ ROW_SEEDS[row]) * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 31;
+        hash *= ROW_SEEDS[(row + 1) & (FREQUENCY_DEPTH - 1)] | 1;
+        return row * FREQUENCY_WIDTH + (int) (hash >>> (64 - FREQUENCY_WIDTH_BITS));
+    }
+}
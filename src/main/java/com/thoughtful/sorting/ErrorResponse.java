@@ -4,6 +4,14 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 public class ErrorResponse {
+    public static final String VALIDATION_FAILED = "Validation Failed";
+    public static final String INVALID_REQUEST = "Invalid Request";
+    public static final String NOT_FOUND = "Not Found";
+    public static final String CONFLICT = "Conflict";
+    public static final String PAYLOAD_TOO_LARGE = "Payload Too Large";
+    public static final String TOO_MANY_REQUESTS = "Too Many Requests";
+    public static final String SERVICE_UNAVAILABLE = "Service Unavailable";
+
     private LocalDateTime timestamp;
     private int status;
     private String error;
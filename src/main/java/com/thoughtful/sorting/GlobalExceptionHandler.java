@@ -3,6 +3,7 @@ package com.thoughtful.sorting;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -16,8 +17,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 @RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class GlobalExceptionHandler {
 
+    public static final String INVALID_BODY_MESSAGE = "Invalid request body";
+    public static final String BODY_REQUIRED_MESSAGE = "Request body is required";
+    public static final String INVALID_JSON_MESSAGE =
+        "Invalid JSON format. Please check your request structure.";
+    public static final String UNEXPECTED_ERROR_MESSAGE =
+        "An unexpected error occurred. Please contact support if the problem persists.";
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidationExceptions(
             MethodArgumentNotValidException ex, HttpServletRequest request) {
@@ -27,94 +36,114 @@ public class GlobalExceptionHandler {
             messages.add(error.getDefaultMessage());
         }
         
-        ErrorResponse errorResponse = new ErrorResponse(
-            HttpStatus.BAD_REQUEST.value(),
-            "Validation Failed",
-            messages,
-            request.getRequestURI()
-        );
+        return error(HttpStatus.BAD_REQUEST, ErrorResponse.VALIDATION_FAILED, messages, request.getRequestURI());
+    }
+
+    @ExceptionHandler(PackageValidationException.class)
+    public ResponseEntity<ErrorResponse> handlePackageValidation(
+            PackageValidationException ex, HttpServletRequest request) {
         
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        return error(HttpStatus.BAD_REQUEST, ErrorResponse.VALIDATION_FAILED, ex.getMessages(),
+            request.getRequestURI());
     }
 
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<ErrorResponse> handleHttpMessageNotReadable(
             HttpMessageNotReadableException ex, HttpServletRequest request) {
         
-        List<String> messages = new ArrayList<>();
-        String userFriendlyMessage = "Invalid request body";
+        String userFriendlyMessage = INVALID_BODY_MESSAGE;
         
         Throwable cause = ex.getCause();
         if (cause instanceof InvalidFormatException) {
-            InvalidFormatException ife = (InvalidFormatException) cause;
-            String fieldName = getFieldName(ife);
-            String targetType = getSimpleTypeName(ife.getTargetType().getSimpleName());
-            Object value = ife.getValue();
-            
-            if (value instanceof String) {
-                userFriendlyMessage = String.format(
-                    "Invalid value '%s' for field '%s'. Expected a valid %s.",
-                    value, fieldName, targetType
-                );
-            } else {
-                userFriendlyMessage = String.format(
-                    "Invalid value for field '%s'. Expected a valid %s.",
-                    fieldName, targetType
-                );
-            }
+            userFriendlyMessage = invalidFormatMessage((InvalidFormatException) cause);
         } else if (ex.getMessage().contains("Required request body is missing")) {
-            userFriendlyMessage = "Request body is required";
+            userFriendlyMessage = BODY_REQUIRED_MESSAGE;
         } else if (ex.getMessage().contains("JSON parse error")) {
-            userFriendlyMessage = "Invalid JSON format. Please check your request structure.";
+            userFriendlyMessage = INVALID_JSON_MESSAGE;
         }
         
-        messages.add(userFriendlyMessage);
-        
-        ErrorResponse errorResponse = new ErrorResponse(
-            HttpStatus.BAD_REQUEST.value(),
-            "Invalid Request",
-            messages,
-            request.getRequestURI()
-        );
+        return error(HttpStatus.BAD_REQUEST, ErrorResponse.INVALID_REQUEST, userFriendlyMessage,
+            request.getRequestURI());
+    }
+
+    // Exceptions whose message is written for the client, grouped by the status they answer
+    @ExceptionHandler({MalformedPayloadException.class, InvalidProfileException.class,
+        InvalidTimeRangeException.class, InvalidSketchException.class})
+    public ResponseEntity<ErrorResponse> handleInvalidRequest(RuntimeException ex, HttpServletRequest request) {
+        return error(HttpStatus.BAD_REQUEST, ErrorResponse.INVALID_REQUEST, ex.getMessage(), request.getRequestURI());
+    }
+
+    @ExceptionHandler({UnknownPackageException.class, UnknownStackException.class, UnknownJobException.class})
+    public ResponseEntity<ErrorResponse> handleNotFound(RuntimeException ex, HttpServletRequest request) {
+        return error(HttpStatus.NOT_FOUND, ErrorResponse.NOT_FOUND, ex.getMessage(), request.getRequestURI());
+    }
+
+    @ExceptionHandler({StacksFullException.class, JobStateException.class})
+    public ResponseEntity<ErrorResponse> handleConflict(RuntimeException ex, HttpServletRequest request) {
+        return error(HttpStatus.CONFLICT, ErrorResponse.CONFLICT, ex.getMessage(), request.getRequestURI());
+    }
+
+    @ExceptionHandler(UploadTooLargeException.class)
+    public ResponseEntity<ErrorResponse> handleUploadTooLarge(
+            UploadTooLargeException ex, HttpServletRequest request) {
         
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        return error(HttpStatus.PAYLOAD_TOO_LARGE, ErrorResponse.PAYLOAD_TOO_LARGE, ex.getMessage(),
+            request.getRequestURI());
     }
 
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     public ResponseEntity<ErrorResponse> handleTypeMismatchException(
             MethodArgumentTypeMismatchException ex, HttpServletRequest request) {
         
-        List<String> messages = new ArrayList<>();
-        messages.add("Invalid value for parameter '" + ex.getName() + "': " + ex.getValue());
-        
-        ErrorResponse errorResponse = new ErrorResponse(
-            HttpStatus.BAD_REQUEST.value(),
-            "Invalid Input",
-            messages,
-            request.getRequestURI()
-        );
-        
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        return error(HttpStatus.BAD_REQUEST, "Invalid Input",
+            "Invalid value for parameter '" + ex.getName() + "': " + ex.getValue(), request.getRequestURI());
     }
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGenericException(
             Exception ex, HttpServletRequest request) {
         
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error", UNEXPECTED_ERROR_MESSAGE,
+            request.getRequestURI());
+    }
+
+    // Shared with ReactiveExceptionHandler so both stacks answer with the same bodies
+    static ResponseEntity<ErrorResponse> error(HttpStatus status, String error, String message, String path) {
         List<String> messages = new ArrayList<>();
-        messages.add("An unexpected error occurred. Please contact support if the problem persists.");
-        
+        messages.add(message);
+        return error(status, error, messages, path);
+    }
+
+    static ResponseEntity<ErrorResponse> error(HttpStatus status, String error, List<String> messages, String path) {
         ErrorResponse errorResponse = new ErrorResponse(
-            HttpStatus.INTERNAL_SERVER_ERROR.value(),
-            "Internal Server Error",
+            status.value(),
+            error,
             messages,
-            request.getRequestURI()
+            path
         );
         
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        return ResponseEntity.status(status).body(errorResponse);
     }
     
-    private String getFieldName(InvalidFormatException ex) {
+    // Shared with ReactiveExceptionHandler so both stacks word bad values the same way
+    static String invalidFormatMessage(InvalidFormatException ex) {
+        String fieldName = getFieldName(ex);
+        String targetType = getSimpleTypeName(ex.getTargetType().getSimpleName());
+        Object value = ex.getValue();
+
+        if (value instanceof String) {
+            return String.format(
+                "Invalid value '%s' for field '%s'. Expected a valid %s.",
+                value, fieldName, targetType
+            );
+        }
+        return String.format(
+            "Invalid value for field '%s'. Expected a valid %s.",
+            fieldName, targetType
+        );
+    }
+
+    private static String getFieldName(InvalidFormatException ex) {
         if (!ex.getPath().isEmpty()) {
             JsonMappingException.Reference reference = ex.getPath().get(ex.getPath().size() - 1);
             return reference.getFieldName();
@@ -122,7 +151,7 @@ public class GlobalExceptionHandler {
         return "unknown";
     }
     
-    private String getSimpleTypeName(String typeName) {
+    private static String getSimpleTypeName(String typeName) {
         switch (typeName) {
             case "Double":
                 return "number (e.g., 10.5, 150.0)";
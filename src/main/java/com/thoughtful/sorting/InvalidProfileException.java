@@ -0,0 +1,16 @@
+package com.thoughtful.sorting;
+
+/**
+ * Thrown for an unknown {@code X-Sorting-Profile} or a profiles file that cannot be
+ * loaded. The message is shown to the client.
+ */
+public class InvalidProfileException extends RuntimeException {
+
+    public InvalidProfileException(String message) {
+        super(message);
+    }
+
+    public InvalidProfileException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
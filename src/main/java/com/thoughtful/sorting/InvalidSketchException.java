@@ -0,0 +1,12 @@
+package com.thoughtful.sorting;
+
+/**
+ * Thrown for a serialized {@link SketchSnapshot} that cannot be read or merged. The
+ * message is shown to the client.
+ */
+public class InvalidSketchException extends RuntimeException {
+
+    public InvalidSketchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.thoughtful.sorting;
+
+/**
+ * Thrown for a decision journal query whose range or limit cannot be served. The message
+ * is shown to the client.
+ */
+public class InvalidTimeRangeException extends RuntimeException {
+
+    public InvalidTimeRangeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.thoughtful.sorting;
+
+/**
+ * Thrown when a manifest job is asked for something its current state does not allow,
+ * such as results before it is done. The message is shown to the client.
+ */
+public class JobStateException extends RuntimeException {
+
+    public JobStateException(String message) {
+        super(message);
+    }
+}
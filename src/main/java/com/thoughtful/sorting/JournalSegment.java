@@ -0,0 +1,379 @@
+package com.thoughtful.sorting;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * One file of the {@link DecisionJournal}.
+ * <p>
+ * A segment is a 16-byte header ({@code int magic, int version}, padding) followed by
+ * little-endian records:
+ * <pre>
+ * int    payload length
+ * long   decided at, epoch millis
+ * double width, height, length, mass
+ * byte   category code
+ * byte   profile name length, then the name in ASCII
+ * int    CRC32C of the length and payload
+ * </pre>
+ * The active segment is memory-mapped at its full size and appended to by the journal's
+ * writer thread; readers see records up to {@link #end}. A sparse index keeps the offset
+ * range and the earliest and latest decision time of every {@link #BLOCK_RECORDS}
+ * records, so range scans skip blocks outside the range even when concurrent requests
+ * recorded their decisions slightly out of order. Sealing truncates the file to its data
+ * and writes the index next to it ({@code .idx}).
+ */
+final class JournalSegment {
+
+    static final int MAGIC = 0x504B474A; // "PKGJ"
+    static final int INDEX_MAGIC = 0x504B4749; // "PKGI"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int BLOCK_RECORDS = 1024;
+
+    // Payload without the profile name: millis, four doubles, code, name length
+    static final int FIXED_PAYLOAD = Long.BYTES + 4 * Double.BYTES + 2;
+    static final int MAX_PROFILE_LENGTH = 255;
+    static final int MAX_RECORD = Integer.BYTES + FIXED_PAYLOAD + MAX_PROFILE_LENGTH + Integer.BYTES;
+    private static final int MIN_RECORD = Integer.BYTES + FIXED_PAYLOAD + Integer.BYTES;
+    private static final int INDEX_HEADER = 16;
+    private static final int INDEX_ENTRY = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    final long number;
+    final Path file;
+
+    private volatile MappedByteBuffer buffer;
+    private FileChannel channel;
+    private int position;
+    private int synced;
+
+    // End of the records readers may see
+    private volatile int end;
+
+    // Completed blocks; entries below blocks never change
+    private int[] blockStart;
+    private int[] blockEnd;
+    private long[] blockMin;
+    private long[] blockMax;
+    private volatile int blocks;
+
+    // Block being filled by the writer
+    private int pendingRecords;
+    private int pendingStart;
+    private long pendingMin;
+    private long pendingMax;
+
+    private JournalSegment(long number, Path file) {
+        this.number = number;
+        this.file = file;
+    }
+
+    static Path file(Path directory, long number) {
+        return directory.resolve(String.format("%020d.journal", number));
+    }
+
+    private static Path indexFile(Path file) {
+        String name = file.getFileName().toString();
+        return file.resolveSibling(name.substring(0, name.length() - ".journal".length()) + ".idx");
+    }
+
+    /**
+     * Creates a new segment, mapped for appending.
+     */
+    static JournalSegment create(Path directory, long number, int size) throws IOException {
+        JournalSegment segment = new JournalSegment(number, file(directory, number));
+        segment.channel = FileChannel.open(segment.file, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment.buffer = segment.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segment.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        segment.buffer.putInt(0, MAGIC).putInt(4, VERSION);
+        segment.position = HEADER_SIZE;
+        segment.end = HEADER_SIZE;
+        segment.allocateIndex((size - HEADER_SIZE) / (MIN_RECORD * BLOCK_RECORDS) + 1);
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment read-only: from its index if it was sealed, otherwise by
+     * scanning it, truncating any torn or corrupt tail left by a crash, and sealing it.
+     *
+     * @return the segment, or {@code null} if the file was too short to hold a header
+     */
+    static JournalSegment open(Path file, long number) throws IOException {
+        JournalSegment segment = new JournalSegment(number, file);
+        if (segment.loadIndex()) {
+            return segment;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                Files.delete(file);
+                return null;
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE));
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a decision journal segment");
+            }
+            segment.allocateIndex((int) ((size - HEADER_SIZE) / (MIN_RECORD * BLOCK_RECORDS) + 1));
+            int position = HEADER_SIZE;
+            CRC32C crc = new CRC32C();
+            while (position + MIN_RECORD <= map.capacity()) {
+                int length = map.getInt(position);
+                int recordEnd = position + Integer.BYTES + length + Integer.BYTES;
+                if (length < FIXED_PAYLOAD || length > FIXED_PAYLOAD + MAX_PROFILE_LENGTH
+                        || recordEnd > map.capacity()) {
+                    break;
+                }
+                crc.reset();
+                crc.update(map.slice(position, Integer.BYTES + length));
+                if ((int) crc.getValue() != map.getInt(position + Integer.BYTES + length)) {
+                    break;
+                }
+                segment.index(position, recordEnd, map.getLong(position + Integer.BYTES));
+                position = recordEnd;
+            }
+            segment.position = position;
+            segment.end = position;
+            channel.truncate(position);
+            segment.sealIndex();
+            channel.force(true);
+        }
+        return segment;
+    }
+
+    boolean fits(int recordLength) {
+        return position + recordLength <= buffer.capacity();
+    }
+
+    /**
+     * Appends one encoded record; it becomes visible to readers on the next
+     * {@link #commit}.
+     */
+    void append(byte[] record, int recordLength, long decidedAt) {
+        buffer.put(position, record, 0, recordLength);
+        index(position, position + recordLength, decidedAt);
+        position += recordLength;
+    }
+
+    void commit() {
+        end = position;
+    }
+
+    /**
+     * Flushes records appended since the last sync to disk.
+     *
+     * @return whether there was anything to flush
+     */
+    boolean sync() {
+        if (position > synced) {
+            buffer.force(synced, position - synced);
+            synced = position;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Syncs, writes the index file and truncates the segment to its data. The segment is
+     * read-only afterwards.
+     */
+    void seal() throws IOException {
+        commit();
+        sync();
+        sealIndex();
+        channel.truncate(position);
+        channel.force(true);
+        channel.close();
+        channel = null;
+        buffer = null;
+    }
+
+    private void index(int start, int recordEnd, long decidedAt) {
+        if (pendingRecords == 0) {
+            pendingStart = start;
+            pendingMin = decidedAt;
+            pendingMax = decidedAt;
+        } else {
+            pendingMin = Math.min(pendingMin, decidedAt);
+            pendingMax = Math.max(pendingMax, decidedAt);
+        }
+        if (++pendingRecords == BLOCK_RECORDS) {
+            publishBlock(recordEnd);
+        }
+    }
+
+    private void publishBlock(int blockEndOffset) {
+        int block = blocks;
+        if (block == blockStart.length) {
+            allocateIndex(block * 2);
+        }
+        blockStart[block] = pendingStart;
+        blockEnd[block] = blockEndOffset;
+        blockMin[block] = pendingMin;
+        blockMax[block] = pendingMax;
+        blocks = block + 1;
+        pendingRecords = 0;
+    }
+
+    private void allocateIndex(int capacity) {
+        int copied = blockStart == null ? 0 : blocks;
+        int[] start = new int[capacity];
+        int[] endOffsets = new int[capacity];
+        long[] min = new long[capacity];
+        long[] max = new long[capacity];
+        if (copied > 0) {
+            System.arraycopy(blockStart, 0, start, 0, copied);
+            System.arraycopy(blockEnd, 0, endOffsets, 0, copied);
+            System.arraycopy(blockMin, 0, min, 0, copied);
+            System.arraycopy(blockMax, 0, max, 0, copied);
+        }
+        // Readers index with a count read after the arrays are complete
+        blockStart = start;
+        blockEnd = endOffsets;
+        blockMin = min;
+        blockMax = max;
+    }
+
+    private void sealIndex() throws IOException {
+        if (pendingRecords > 0) {
+            publishBlock(position);
+        }
+        int count = blocks;
+        ByteBuffer index = ByteBuffer.allocate(INDEX_HEADER + count * INDEX_ENTRY).order(ByteOrder.LITTLE_ENDIAN);
+        index.putInt(INDEX_MAGIC).putInt(VERSION).putInt(count).putInt(position);
+        for (int i = 0; i < count; i++) {
+            index.putInt(blockStart[i]).putInt(blockEnd[i]).putLong(blockMin[i]).putLong(blockMax[i]);
+        }
+        Path indexFile = indexFile(file);
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            index.flip();
+            while (index.hasRemaining()) {
+                out.write(index);
+            }
+            out.force(true);
+        }
+        Files.move(temporary, indexFile, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Reads the index of a sealed segment; false if there is none or it does not match
+    private boolean loadIndex() throws IOException {
+        Path indexFile = indexFile(file);
+        if (!Files.exists(indexFile)) {
+            return false;
+        }
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile)).order(ByteOrder.LITTLE_ENDIAN);
+        if (index.remaining() < INDEX_HEADER || index.getInt() != INDEX_MAGIC || index.getInt() != VERSION) {
+            return false;
+        }
+        int count = index.getInt();
+        int dataEnd = index.getInt();
+        if (count < 0 || index.remaining() != count * INDEX_ENTRY || dataEnd > Files.size(file)) {
+            return false;
+        }
+        allocateIndex(Math.max(1, count));
+        for (int i = 0; i < count; i++) {
+            blockStart[i] = index.getInt();
+            blockEnd[i] = index.getInt();
+            blockMin[i] = index.getLong();
+            blockMax[i] = index.getLong();
+        }
+        blocks = count;
+        position = dataEnd;
+        end = dataEnd;
+        return true;
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(indexFile(file));
+        Files.deleteIfExists(file);
+    }
+
+    boolean isSealed() {
+        return buffer == null;
+    }
+
+    /**
+     * Latest decision time in the segment, or {@link Long#MIN_VALUE} if it is empty.
+     */
+    long maxDecidedAt() {
+        long max = Long.MIN_VALUE;
+        for (int i = 0, count = blocks; i < count; i++) {
+            max = Math.max(max, blockMax[i]);
+        }
+        return max;
+    }
+
+    long size() {
+        return end;
+    }
+
+    /**
+     * Adds the decisions made between {@code from} and {@code to} (epoch millis,
+     * inclusive) to {@code out}, in journal order, until it holds {@code limit}.
+     *
+     * @return {@code false} if the limit was reached
+     */
+    boolean scan(long from, long to, int limit, List<RecordedDecision> out) throws IOException {
+        int dataEnd = end;
+        int count = blocks;
+        ByteBuffer data = buffer;
+        if (data != null) {
+            data = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        } else {
+            if (count == 0) {
+                return true;
+            }
+            try (FileChannel read = FileChannel.open(file, StandardOpenOption.READ)) {
+                data = read.map(FileChannel.MapMode.READ_ONLY, 0, dataEnd).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        int[] starts = blockStart;
+        int[] ends = blockEnd;
+        long[] min = blockMin;
+        long[] max = blockMax;
+        for (int i = 0; i < count; i++) {
+            if (max[i] >= from && min[i] <= to
+                    && !scanRange(data, starts[i], Math.min(ends[i], dataEnd), from, to, limit, out)) {
+                return false;
+            }
+        }
+        // Records after the last completed block of the active segment
+        int tail = count == 0 ? HEADER_SIZE : ends[count - 1];
+        return tail >= dataEnd || scanRange(data, tail, dataEnd, from, to, limit, out);
+    }
+
+    private static boolean scanRange(ByteBuffer data, int start, int stop, long from, long to,
+                                     int limit, List<RecordedDecision> out) {
+        for (int position = start; position < stop; ) {
+            int length = data.getInt(position);
+            long decidedAt = data.getLong(position + 4);
+            if (decidedAt >= from && decidedAt <= to) {
+                if (out.size() == limit) {
+                    return false;
+                }
+                int profileLength = data.get(position + 45) & 0xFF;
+                byte[] profile = new byte[profileLength];
+                data.get(position + 46, profile);
+                out.add(new RecordedDecision(decidedAt, data.getDouble(position + 12),
+                    data.getDouble(position + 20), data.getDouble(position + 28), data.getDouble(position + 36),
+                    PackageSorter.category(data.get(position + 44)),
+                    new String(profile, StandardCharsets.US_ASCII)));
+            }
+            position += Integer.BYTES + length + Integer.BYTES;
+        }
+        return true;
+    }
+}
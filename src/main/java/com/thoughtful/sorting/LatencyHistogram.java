@@ -0,0 +1,95 @@
+package com.thoughtful.sorting;
+
+/**
+ * Log-linear latency histogram in nanoseconds: each power of two is split into eight
+ * buckets, so any reported percentile is within 12.5% of the true value. Values up to
+ * about 18 minutes are resolved; larger ones land in the last bucket. Recording is two
+ * striped atomic adds, bucket and sum, and never allocates.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private static final int SUM = BUCKETS;
+
+    private final StripedCounters counters = new StripedCounters(BUCKETS + 1);
+
+    public void record(long nanos) {
+        counters.increment(bucket(Math.max(0, nanos)));
+        counters.add(SUM, nanos);
+    }
+
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = counters.sum(i);
+            count += buckets[i];
+        }
+        return new Snapshot(buckets, count, counters.sum(SUM));
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Largest value that falls into the bucket
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long width = 1L << (exponent - SUB_BITS);
+        return (SUB_BUCKETS + bucket % SUB_BUCKETS) * width + width - 1;
+    }
+
+    public static final class Snapshot {
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+
+        Snapshot(long[] buckets, long count, long sum) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSumNanos() {
+            return sum;
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the given quantile (0..1), or 0
+         * if nothing was recorded.
+         */
+        public long quantileNanos(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(buckets.length - 1);
+        }
+    }
+}
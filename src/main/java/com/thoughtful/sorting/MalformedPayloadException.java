@@ -0,0 +1,12 @@
+package com.thoughtful.sorting;
+
+/**
+ * Thrown by the streaming endpoints when a payload cannot be processed at all,
+ * before any part of the response has been written.
+ */
+public class MalformedPayloadException extends RuntimeException {
+
+    public MalformedPayloadException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,329 @@
+package com.thoughtful.sorting;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * Offline classifier for full-day manifests.
+ * <p>
+ * Manifests are stored in a columnar binary format: a 32-byte header ({@code int magic,
+ * int version, long count}, padding) followed by the width, height, length and mass
+ * columns, each {@code count} little-endian doubles. The input and the output (one
+ * category code byte per record, {@link PackageValidator#INVALID_CODE} for records that
+ * fail validation) are processed in parallel chunks on the common fork-join pool: the
+ * input is memory-mapped, and each chunk's codes go to the output in one positional
+ * write. CSV input ({@code width,height,length,mass} per line, optional header)
+ * is converted once to a {@code .bin} file next to it; later runs reuse it while it is
+ * newer than the CSV.
+ */
+public class ManifestClassifier {
+
+    public static final int MAGIC = 0x504B474D; // "PKGM"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    static final int COLUMNS = 4;
+    private static final String[] HEADER_FIELDS = {"width", "height", "length", "mass"};
+    // Per-chunk counters: one slot per category code, then invalid records
+    static final int INVALID_SLOT = 3;
+
+    private final PackageSorter packageSorter;
+    private final int chunkSize;
+    private final ThreadLocal<Chunk> chunks;
+
+    public ManifestClassifier(PackageSorter packageSorter) {
+        this(packageSorter, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ManifestClassifier(PackageSorter packageSorter, int chunkSize) {
+        this.packageSorter = packageSorter;
+        this.chunkSize = chunkSize;
+        this.chunks = ThreadLocal.withInitial(() -> new Chunk(chunkSize));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ManifestClassifier <manifest.bin|manifest.csv> <codes.out>");
+            System.exit(2);
+        }
+        ManifestClassifier classifier = new ManifestClassifier(new PackageSorter());
+        Path input = Path.of(args[0]);
+        if (input.getFileName().toString().endsWith(".csv")) {
+            input = classifier.binaryFor(input);
+        }
+
+        Result result = classifier.classify(input, Path.of(args[1]));
+
+        System.out.printf("Classified %,d records in %,d ms (%,d records/sec)%n",
+            result.getRecords(), result.getElapsedNanos() / 1_000_000, result.recordsPerSecond());
+        System.out.printf("  STANDARD: %,d  SPECIAL: %,d  REJECTED: %,d  INVALID: %,d%n",
+            result.getCount(PackageSorter.STANDARD_CODE), result.getCount(PackageSorter.SPECIAL_CODE),
+            result.getCount(PackageSorter.REJECTED_CODE), result.getInvalid());
+    }
+
+    /**
+     * Returns the binary manifest for a CSV file, converting it first unless an
+     * up-to-date {@code .bin} already exists.
+     */
+    public Path binaryFor(Path csv) throws IOException {
+        String name = csv.getFileName().toString();
+        Path binary = csv.resolveSibling(name.substring(0, name.length() - ".csv".length()) + ".bin");
+        if (Files.exists(binary)
+                && Files.getLastModifiedTime(binary).compareTo(Files.getLastModifiedTime(csv)) > 0) {
+            return binary;
+        }
+        convertCsv(csv, binary);
+        return binary;
+    }
+
+    /**
+     * Converts a CSV manifest to the binary format. A first line naming the columns
+     * ({@code width,height,length,mass} in any case) is skipped; rows that cannot be parsed,
+     * including a malformed first one, are kept as NaN so they are reported as invalid at
+     * their original position.
+     */
+    public long convertCsv(Path csv, Path binary) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !(first && isHeader(line))) {
+                    count++;
+                }
+                first = false;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            writeHeader(channel, count);
+            // Rows are collected a chunk at a time and each column window mapped on its own,
+            // since one mapping cannot exceed 2 GB (about 268M doubles)
+            Chunk chunk = chunks.get();
+            double[][] columns = {chunk.width, chunk.height, chunk.length, chunk.mass};
+            long start = 0;
+            int size = 0;
+
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || (first && isHeader(line))) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                String[] fields = line.split(",", -1);
+                for (int c = 0; c < COLUMNS; c++) {
+                    columns[c][size] = c < fields.length ? parse(fields[c]) : Double.NaN;
+                }
+                if (++size == chunkSize) {
+                    writeColumns(channel, count, start, size, columns);
+                    start += size;
+                    size = 0;
+                }
+            }
+            writeColumns(channel, count, start, size, columns);
+        }
+        return count;
+    }
+
+    private static void writeColumns(FileChannel channel, long count, long start, int size, double[][] columns)
+            throws IOException {
+        if (size == 0) {
+            return;
+        }
+        for (int c = 0; c < COLUMNS; c++) {
+            mapColumn(channel, FileChannel.MapMode.READ_WRITE, count, c, start, size)
+                .asDoubleBuffer().put(columns[c], 0, size);
+        }
+    }
+
+    public Result classify(Path manifest, Path output) throws IOException {
+        long started = System.nanoTime();
+        try (FileChannel in = FileChannel.open(manifest, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long count = readHeader(in);
+            int chunkCount = (int) ((count + chunkSize - 1) / chunkSize);
+            if (count > 0) {
+                // Size the output up front so chunks can map their slices concurrently
+                out.write(ByteBuffer.allocate(1), count - 1);
+            }
+
+            long[] counts = IntStream.range(0, chunkCount)
+                .parallel()
+                .mapToObj(chunk -> classifyChunk(in, out, count, chunk))
+                .reduce(new long[INVALID_SLOT + 1], ManifestClassifier::add);
+
+            return new Result(count, counts, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Classifies one chunk of {@code in} into its slice of {@code out}, which must already
+     * be {@code count} bytes long.
+     *
+     * @return counts per category code, then invalid records
+     */
+    long[] classifyChunk(FileChannel in, FileChannel out, long count, int chunkIndex) {
+        long start = (long) chunkIndex * chunkSize;
+        int size = (int) Math.min(chunkSize, count - start);
+        Chunk chunk = chunks.get();
+        try {
+            mapColumn(in, FileChannel.MapMode.READ_ONLY, count, 0, start, size)
+                .asDoubleBuffer().get(chunk.width, 0, size);
+            mapColumn(in, FileChannel.MapMode.READ_ONLY, count, 1, start, size)
+                .asDoubleBuffer().get(chunk.height, 0, size);
+            mapColumn(in, FileChannel.MapMode.READ_ONLY, count, 2, start, size)
+                .asDoubleBuffer().get(chunk.length, 0, size);
+            mapColumn(in, FileChannel.MapMode.READ_ONLY, count, 3, start, size)
+                .asDoubleBuffer().get(chunk.mass, 0, size);
+
+            packageSorter.sortBatch(chunk.width, chunk.height, chunk.length, chunk.mass, chunk.codes, 0, size);
+
+            long[] counts = new long[INVALID_SLOT + 1];
+            for (int i = 0; i < size; i++) {
+                if (!PackageValidator.isValid(chunk.width[i], chunk.height[i], chunk.length[i], chunk.mass[i])) {
+                    chunk.codes[i] = PackageValidator.INVALID_CODE;
+                    counts[INVALID_SLOT]++;
+                } else {
+                    counts[chunk.codes[i]]++;
+                }
+            }
+
+            // A positional write rather than a mapping, so out.force() makes the codes durable
+            ByteBuffer codes = ByteBuffer.wrap(chunk.codes, 0, size);
+            while (codes.hasRemaining()) {
+                out.write(codes, start + codes.position());
+            }
+            return counts;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    static MappedByteBuffer mapColumn(FileChannel channel, FileChannel.MapMode mode, long count,
+                                              int column, long start, long size) throws IOException {
+        long position = HEADER_SIZE + (column * count + start) * Double.BYTES;
+        MappedByteBuffer buffer = channel.map(mode, position, size * Double.BYTES);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static void writeHeader(FileChannel channel, long count) throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(count);
+    }
+
+    static long readHeader(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException("Not a binary manifest: file is shorter than the header");
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a binary manifest (bad magic or version)");
+        }
+        long count = header.getLong();
+        if (channel.size() < HEADER_SIZE + count * COLUMNS * Double.BYTES) {
+            throw new IOException("Binary manifest is truncated: expected " + count + " records");
+        }
+        return count;
+    }
+
+    // Only the column names make a header; a first row that just fails to parse is a record
+    private static boolean isHeader(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != HEADER_FIELDS.length) {
+            return false;
+        }
+        for (int c = 0; c < HEADER_FIELDS.length; c++) {
+            if (!fields[c].trim().equalsIgnoreCase(HEADER_FIELDS[c])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double parse(String field) {
+        try {
+            return Double.parseDouble(field.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static long[] add(long[] a, long[] b) {
+        long[] sum = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+
+    private static final class Chunk {
+        private final double[] width;
+        private final double[] height;
+        private final double[] length;
+        private final double[] mass;
+        private final byte[] codes;
+
+        Chunk(int size) {
+            width = new double[size];
+            height = new double[size];
+            length = new double[size];
+            mass = new double[size];
+            codes = new byte[size];
+        }
+    }
+
+    public static class Result {
+        private final long records;
+        private final long[] counts;
+        private final long elapsedNanos;
+
+        Result(long records, long[] counts, long elapsedNanos) {
+            this.records = records;
+            this.counts = counts;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getCount(byte code) {
+            return counts[code];
+        }
+
+        public long getInvalid() {
+            return counts[INVALID_SLOT];
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long recordsPerSecond() {
+            return elapsedNanos == 0 ? 0 : (long) (records * 1_000_000_000.0 / elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.thoughtful.sorting;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * One uploaded manifest being classified by {@link ManifestJobs}: where it is, how far it
+ * got and what it found so far. Everything needed to resume it after a restart is kept in
+ * {@code job.properties} in its directory; progress within the run is kept by
+ * {@link ManifestJobs} in the {@code chunks} file next to it.
+ */
+public class ManifestJob {
+
+    public enum State {
+        UPLOADING, QUEUED, CONVERTING, RUNNING, DONE, CANCELLED, FAILED;
+
+        boolean isActive() {
+            return this == QUEUED || this == CONVERTING || this == RUNNING;
+        }
+
+        boolean isFinished() {
+            return this == DONE || this == CANCELLED || this == FAILED;
+        }
+    }
+
+    static final String PROPERTIES = "job.properties";
+    static final String UPLOAD = "upload.csv";
+    static final String MANIFEST = "manifest.bin";
+    static final String CODES = "codes.out";
+    static final String CHUNKS = "chunks";
+    static final String RESULTS = "results.csv";
+
+    private final String id;
+    private final String name;
+    private final ThresholdProfile profile;
+    private final long createdAt;
+    private final int chunkSize;
+    private final Path directory;
+    private final List<Consumer<ManifestJob>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile State state;
+    private volatile long records = -1;
+    private volatile int chunks;
+    private final AtomicInteger completedChunks = new AtomicInteger();
+    // Per category code, then invalid records, over the completed chunks
+    private final AtomicLongArray counts = new AtomicLongArray(ManifestClassifier.INVALID_SLOT + 1);
+    private volatile long finishedAt;
+    private volatile String error;
+    private volatile boolean cancelRequested;
+
+    ManifestJob(String id, String name, ThresholdProfile profile, long createdAt, int chunkSize, Path directory,
+                State state) {
+        this.id = id;
+        this.name = name;
+        this.profile = profile;
+        this.createdAt = createdAt;
+        this.chunkSize = chunkSize;
+        this.directory = directory;
+        this.state = state;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ThresholdProfile getProfile() {
+        return profile;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public int getCompletedChunks() {
+        return completedChunks.get();
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Records classified so far with the given category code, or invalid records for
+     * {@link PackageValidator#INVALID_CODE}.
+     */
+    public long getCount(byte code) {
+        return counts.get(code == PackageValidator.INVALID_CODE ? ManifestClassifier.INVALID_SLOT : code);
+    }
+
+    public long getProcessed() {
+        long processed = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            processed += counts.get(i);
+        }
+        return processed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    // Fixed for the job's lifetime, since the chunks file is indexed by it
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    Path file(String file) {
+        return directory.resolve(file);
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    void setCancelRequested(boolean cancelRequested) {
+        this.cancelRequested = cancelRequested;
+    }
+
+    void start(long records, int chunks) {
+        this.records = records;
+        this.chunks = chunks;
+        completedChunks.set(0);
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    void chunkDone(long[] chunkCounts) {
+        for (int i = 0; i < chunkCounts.length; i++) {
+            counts.addAndGet(i, chunkCounts[i]);
+        }
+        completedChunks.incrementAndGet();
+        notifyListeners();
+    }
+
+    void setState(State state) {
+        setState(state, null);
+    }
+
+    /**
+     * Moves to a new state, stores it and tells the listeners. An unfinished state clears
+     * the finish time and the error of an earlier run.
+     */
+    synchronized void setState(State state, String error) {
+        this.error = error;
+        this.finishedAt = state.isFinished() ? System.currentTimeMillis() : 0;
+        this.state = state;
+        store();
+        notifyListeners();
+    }
+
+    /**
+     * Calls the listener now and on every change until it is removed, on whichever thread
+     * made the change.
+     *
+     * @return removes the listener
+     */
+    Runnable subscribe(Consumer<ManifestJob> listener) {
+        listeners.add(listener);
+        listener.accept(this);
+        return () -> listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        for (Consumer<ManifestJob> listener : listeners) {
+            listener.accept(this);
+        }
+    }
+
+    /**
+     * Writes {@code job.properties} by replacing it, so a crash leaves the old or the new
+     * one.
+     */
+    synchronized void store() {
+        Properties properties = new Properties();
+        properties.setProperty("id", id);
+        properties.setProperty("name", name);
+        properties.setProperty("profile", profile.getName());
+        properties.setProperty("profile.dimension", Double.toString(profile.getDimension()));
+        properties.setProperty("profile.volume", Double.toString(profile.getVolume()));
+        properties.setProperty("profile.mass", Double.toString(profile.getMass()));
+        properties.setProperty("createdAt", Long.toString(createdAt));
+        properties.setProperty("chunkSize", Integer.toString(chunkSize));
+        properties.setProperty("finishedAt", Long.toString(finishedAt));
+        properties.setProperty("state", state.name());
+        // Final once the job is finished, so finished jobs load without rescanning codes
+        properties.setProperty("records", Long.toString(records));
+        properties.setProperty("chunks", Integer.toString(chunks));
+        properties.setProperty("completedChunks", Integer.toString(completedChunks.get()));
+        for (int i = 0; i < counts.length(); i++) {
+            properties.setProperty("count." + i, Long.toString(counts.get(i)));
+        }
+        if (error != null) {
+            properties.setProperty("error", error);
+        }
+        Path temporary = file(PROPERTIES + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(writer, null);
+            }
+            Files.move(temporary, file(PROPERTIES), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static ManifestJob load(Path directory) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(directory.resolve(PROPERTIES), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        ThresholdProfile profile = new ThresholdProfile(properties.getProperty("profile"),
+            Double.parseDouble(properties.getProperty("profile.dimension")),
+            Double.parseDouble(properties.getProperty("profile.volume")),
+            Double.parseDouble(properties.getProperty("profile.mass")));
+        ManifestJob job = new ManifestJob(properties.getProperty("id"), properties.getProperty("name"), profile,
+            Long.parseLong(properties.getProperty("createdAt")), Integer.parseInt(properties.getProperty("chunkSize")),
+            directory, State.valueOf(properties.getProperty("state")));
+        job.finishedAt = Long.parseLong(properties.getProperty("finishedAt", "0"));
+        job.error = properties.getProperty("error");
+        job.records = Long.parseLong(properties.getProperty("records", "-1"));
+        job.chunks = Integer.parseInt(properties.getProperty("chunks", "0"));
+        job.completedChunks.set(Integer.parseInt(properties.getProperty("completedChunks", "0")));
+        for (int i = 0; i < job.counts.length(); i++) {
+            job.counts.set(i, Long.parseLong(properties.getProperty("count." + i, "0")));
+        }
+        return job;
+    }
+
+    public Map<String, Object> toJson() {
+        Map<String, Long> categories = new LinkedHashMap<>();
+        for (byte code = PackageSorter.STANDARD_CODE; code <= PackageSorter.REJECTED_CODE; code++) {
+            categories.put(PackageSorter.category(code), getCount(code));
+        }
+        categories.put("INVALID", getCount(PackageValidator.INVALID_CODE));
+
+        long processed = getProcessed();
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", id);
+        json.put("name", name);
+        json.put("profile", profile.getName());
+        json.put("state", state.name());
+        json.put("records", records < 0 ? null : records);
+        json.put("processed", processed);
+        json.put("progress", records <= 0 ? (state == State.DONE ? 1.0 : 0.0) : (double) processed / records);
+        json.put("chunks", chunks);
+        json.put("completedChunks", completedChunks.get());
+        json.put("categories", categories);
+        json.put("createdAt", Instant.ofEpochMilli(createdAt).toString());
+        json.put("finishedAt", finishedAt == 0 ? null : Instant.ofEpochMilli(finishedAt).toString());
+        if (error != null) {
+            json.put("error", error);
+        }
+        return json;
+    }
+}
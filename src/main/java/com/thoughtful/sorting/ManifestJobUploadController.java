@@ -0,0 +1,44 @@
+package com.thoughtful.sorting;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * {@code POST /api/jobs} on the servlet stack: the request body, a CSV manifest or a
+ * binary one, is streamed to disk and a job for it is queued. Answers 202 with the job;
+ * the profile comes from {@link SortingProfiles#HEADER} like for {@code /api/sort}.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "sorting.jobs.enabled", havingValue = "true", matchIfMissing = true)
+public class ManifestJobUploadController {
+
+    private final ManifestJobs jobs;
+    private final SortingProfiles sortingProfiles;
+
+    public ManifestJobUploadController(ManifestJobs jobs, SortingProfiles sortingProfiles) {
+        this.jobs = jobs;
+        this.sortingProfiles = sortingProfiles;
+    }
+
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> create(
+            HttpServletRequest request,
+            @RequestParam(required = false) String name,
+            @RequestHeader(value = SortingProfiles.HEADER, required = false) String profile) throws IOException {
+        ThresholdProfile thresholds = sortingProfiles.sorter(profile).getProfile();
+        return ManifestJobsController.accepted(jobs.create(request.getInputStream(), name, thresholds));
+    }
+}
@@ -0,0 +1,461 @@
+package com.thoughtful.sorting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Classifies uploaded manifests in the background, so a whole day's CSV does not have to
+ * fit in one request.
+ * <p>
+ * Each job has a directory under {@code sorting.jobs.directory}. The upload is converted
+ * to the binary manifest format of {@link ManifestClassifier} and classified in chunks of
+ * {@code sorting.jobs.chunk-size} records as a parallel stream on this component's own
+ * {@link ForkJoinPool}. A finished chunk is forced to disk and then marked in the job's
+ * {@code chunks} file, one byte per chunk. A job that was queued or running when the
+ * application stopped resumes on the next start with the chunks not yet marked; so does
+ * a cancelled or failed job on {@link #resume}. When every chunk is done, the results
+ * are written as CSV, one line per record in manifest order.
+ * <p>
+ * Jobs use their profile's thresholds without the application's {@link SortListener}s:
+ * they are offline batches, like {@link ManifestClassifier} runs, and do not count as live
+ * traffic in metrics, statistics or the journal.
+ */
+public class ManifestJobs implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ManifestJobs.class);
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final int chunkSize;
+    private final int parallelism;
+    private final long maxUploadBytes;
+    private final Map<String, ManifestJob> jobs = new ConcurrentHashMap<>();
+
+    private ForkJoinPool pool;
+    private volatile boolean running;
+
+    /**
+     * @param parallelism worker threads, or 0 for one per processor
+     * @param maxUploadBytes the largest upload accepted, checked as it is stored
+     */
+    public ManifestJobs(Path directory, int chunkSize, int parallelism, long maxUploadBytes) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+        if (maxUploadBytes < 1) {
+            throw new IllegalArgumentException("Maximum upload size must be at least 1 byte");
+        }
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxUploadBytes = maxUploadBytes;
+    }
+
+    /**
+     * Creates a job, stores the body as its upload and queues it.
+     *
+     * @throws UploadTooLargeException if the body is longer than the upload limit; the job
+     *                                 is abandoned without reading the rest
+     */
+    public ManifestJob create(InputStream body, String name, ThresholdProfile profile) throws IOException {
+        ManifestJob job = prepare(name, profile);
+        try (OutputStream upload = Files.newOutputStream(uploadPath(job))) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long stored = 0;
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                stored += read;
+                if (stored > maxUploadBytes) {
+                    throw new UploadTooLargeException(maxUploadBytes);
+                }
+                upload.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            abandon(job);
+            throw e;
+        }
+        return submit(job);
+    }
+
+    /**
+     * Creates a job waiting for its upload, for callers that write {@link #uploadPath}
+     * themselves; then {@link #submit} or {@link #abandon} it.
+     */
+    public ManifestJob prepare(String name, ThresholdProfile profile) throws IOException {
+        long now = System.currentTimeMillis();
+        String id = Long.toString(now, 36) + "-" + Long.toString(ThreadLocalRandom.current().nextLong(1L << 40), 36);
+        Path jobDirectory = Files.createDirectories(directory.resolve(id));
+        ManifestJob job = new ManifestJob(id, name == null || name.isBlank() ? id : name, profile, now, chunkSize,
+            jobDirectory, ManifestJob.State.UPLOADING);
+        job.store();
+        jobs.put(id, job);
+        return job;
+    }
+
+    /**
+     * The largest upload accepted; callers writing {@link #uploadPath} themselves enforce it.
+     */
+    public long getMaxUploadBytes() {
+        return maxUploadBytes;
+    }
+
+    public Path uploadPath(ManifestJob job) {
+        return job.file(ManifestJob.UPLOAD);
+    }
+
+    public ManifestJob submit(ManifestJob job) {
+        job.setState(ManifestJob.State.QUEUED);
+        schedule(job);
+        return job;
+    }
+
+    public void abandon(ManifestJob job) {
+        jobs.remove(job.getId());
+        deleteDirectory(job.getDirectory());
+    }
+
+    /**
+     * @throws UnknownJobException if there is no such job
+     */
+    public ManifestJob get(String id) {
+        ManifestJob job = jobs.get(id);
+        if (job == null) {
+            throw new UnknownJobException(id);
+        }
+        return job;
+    }
+
+    /**
+     * All jobs, newest first.
+     */
+    public List<ManifestJob> list() {
+        List<ManifestJob> list = new ArrayList<>(jobs.values());
+        list.sort(Comparator.comparing(ManifestJob::getId).reversed());
+        return list;
+    }
+
+    /**
+     * Stops a job after the chunks in progress. A queued job is cancelled at once.
+     *
+     * @throws JobStateException if the job is not queued or running
+     */
+    public ManifestJob cancel(String id) {
+        ManifestJob job = get(id);
+        synchronized (job) {
+            if (!job.getState().isActive()) {
+                throw new JobStateException("Job '" + id + "' is " + job.getState() + " and cannot be cancelled");
+            }
+            job.setCancelRequested(true);
+            if (job.getState() == ManifestJob.State.QUEUED) {
+                job.setState(ManifestJob.State.CANCELLED);
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Queues a cancelled or failed job again; it continues from its last completed chunk.
+     *
+     * @throws JobStateException if the job is in any other state
+     */
+    public ManifestJob resume(String id) {
+        ManifestJob job = get(id);
+        synchronized (job) {
+            ManifestJob.State state = job.getState();
+            if (state != ManifestJob.State.CANCELLED && state != ManifestJob.State.FAILED) {
+                throw new JobStateException("Job '" + id + "' is " + state + "; only cancelled or failed jobs resume");
+            }
+            job.setCancelRequested(false);
+            submit(job);
+        }
+        return job;
+    }
+
+    /**
+     * Removes a finished job and its files.
+     *
+     * @throws JobStateException if the job is not finished
+     */
+    public void delete(String id) {
+        ManifestJob job = get(id);
+        synchronized (job) {
+            if (!job.getState().isFinished()) {
+                throw new JobStateException("Job '" + id + "' is " + job.getState() + "; cancel it first");
+            }
+            abandon(job);
+        }
+    }
+
+    /**
+     * The results CSV of a finished job.
+     *
+     * @throws JobStateException if the job is not done
+     */
+    public Path results(String id) {
+        ManifestJob job = get(id);
+        if (job.getState() != ManifestJob.State.DONE) {
+            throw new JobStateException("Job '" + id + "' is " + job.getState() + "; results are ready when it is DONE");
+        }
+        return job.file(ManifestJob.RESULTS);
+    }
+
+    /**
+     * Calls the listener with the job now and after every completed chunk and change of
+     * state, on the thread that made the change, until the returned handle is run.
+     */
+    public Runnable subscribe(String id, Consumer<ManifestJob> listener) {
+        return get(id).subscribe(listener);
+    }
+
+    private void schedule(ManifestJob job) {
+        if (running) {
+            pool.execute(() -> run(job));
+        }
+    }
+
+    private void run(ManifestJob job) {
+        synchronized (job) {
+            // Cancelled while queued, or already picked up after a resume
+            if (job.getState() != ManifestJob.State.QUEUED || !running) {
+                return;
+            }
+            job.setState(ManifestJob.State.CONVERTING);
+        }
+        try {
+            convert(job);
+            classify(job);
+        } catch (IOException | RuntimeException e) {
+            if (running) {
+                log.warn("Manifest job {} failed", job.getId(), e);
+                job.setState(ManifestJob.State.FAILED, e.getMessage() == null ? e.toString() : e.getMessage());
+            }
+        }
+    }
+
+    private void convert(ManifestJob job) throws IOException {
+        Path manifest = job.file(ManifestJob.MANIFEST);
+        Path upload = job.file(ManifestJob.UPLOAD);
+        if (Files.exists(manifest)) {
+            // Converted before a restart
+            Files.deleteIfExists(upload);
+            return;
+        }
+        if (isBinaryManifest(upload)) {
+            Files.move(upload, manifest, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+        Path temporary = job.file(ManifestJob.MANIFEST + ".tmp");
+        new ManifestClassifier(new PackageSorter()).convertCsv(upload, temporary);
+        Files.move(temporary, manifest, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(upload);
+    }
+
+    private void classify(ManifestJob job) throws IOException {
+        int size = job.getChunkSize();
+        ManifestClassifier classifier = new ManifestClassifier(new PackageSorter(job.getProfile(), List.of()), size);
+        try (FileChannel in = FileChannel.open(job.file(ManifestJob.MANIFEST), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(job.file(ManifestJob.CODES), StandardOpenOption.CREATE,
+                 StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel marks = FileChannel.open(job.file(ManifestJob.CHUNKS), StandardOpenOption.CREATE,
+                 StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long count = ManifestClassifier.readHeader(in);
+            int chunkCount = (int) ((count + size - 1) / size);
+            if (out.size() < count) {
+                out.write(ByteBuffer.allocate(1), count - 1);
+            }
+            byte[] completed = new byte[chunkCount];
+            marks.read(ByteBuffer.wrap(completed), 0);
+
+            job.start(count, chunkCount);
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                if (completed[chunk] != 0) {
+                    job.chunkDone(countCodes(out, count, size, chunk));
+                }
+            }
+            job.setState(ManifestJob.State.RUNNING);
+
+            // Runs on this pool, since run() does
+            IntStream.range(0, chunkCount)
+                .filter(chunk -> completed[chunk] == 0)
+                .parallel()
+                .forEach(chunk -> {
+                    if (job.isCancelRequested() || !running) {
+                        return;
+                    }
+                    long[] counts = classifier.classifyChunk(in, out, count, chunk);
+                    try {
+                        // The codes must be on disk before the mark that says they are
+                        out.force(false);
+                        marks.write(ByteBuffer.wrap(new byte[] {1}), chunk);
+                        marks.force(false);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    job.chunkDone(counts);
+                });
+
+            if (job.getCompletedChunks() < chunkCount) {
+                if (running) {
+                    job.setState(ManifestJob.State.CANCELLED);
+                }
+                // Otherwise stopping: the job stays RUNNING on disk and resumes on the next start
+                return;
+            }
+            writeResults(job, in, out, count);
+            job.setState(ManifestJob.State.DONE);
+        }
+    }
+
+    private static long[] countCodes(FileChannel out, long count, int size, int chunk) throws IOException {
+        long start = (long) chunk * size;
+        int length = (int) Math.min(size, count - start);
+        MappedByteBuffer codes = out.map(FileChannel.MapMode.READ_ONLY, start, length);
+        long[] counts = new long[ManifestClassifier.INVALID_SLOT + 1];
+        for (int i = 0; i < length; i++) {
+            byte code = codes.get(i);
+            counts[code == PackageValidator.INVALID_CODE ? ManifestClassifier.INVALID_SLOT : code]++;
+        }
+        return counts;
+    }
+
+    // width,height,length,mass,category per record; unparseable fields are left empty
+    private static void writeResults(ManifestJob job, FileChannel in, FileChannel out, long count) throws IOException {
+        Path temporary = job.file(ManifestJob.RESULTS + ".tmp");
+        int size = job.getChunkSize();
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write("width,height,length,mass,category\n");
+            StringBuilder line = new StringBuilder(64);
+            for (long start = 0; start < count; start += size) {
+                int length = (int) Math.min(size, count - start);
+                DoubleBuffer[] columns = new DoubleBuffer[ManifestClassifier.COLUMNS];
+                for (int c = 0; c < columns.length; c++) {
+                    columns[c] = ManifestClassifier.mapColumn(in, FileChannel.MapMode.READ_ONLY, count, c, start, length)
+                        .asDoubleBuffer();
+                }
+                MappedByteBuffer codes = out.map(FileChannel.MapMode.READ_ONLY, start, length);
+                for (int i = 0; i < length; i++) {
+                    line.setLength(0);
+                    for (DoubleBuffer column : columns) {
+                        double value = column.get(i);
+                        if (!Double.isNaN(value)) {
+                            line.append(value);
+                        }
+                        line.append(',');
+                    }
+                    byte code = codes.get(i);
+                    line.append(code == PackageValidator.INVALID_CODE ? "INVALID" : PackageSorter.category(code));
+                    line.append('\n');
+                    writer.append(line);
+                }
+            }
+        }
+        Files.move(temporary, job.file(ManifestJob.RESULTS), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean isBinaryManifest(Path upload) throws IOException {
+        try (FileChannel channel = FileChannel.open(upload, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            return channel.read(magic, 0) == Integer.BYTES && magic.getInt(0) == ManifestClassifier.MAGIC;
+        }
+    }
+
+    private static void deleteDirectory(Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete job directory {}: {}", path, e.toString());
+        }
+    }
+
+    @Override
+    public void start() {
+        pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("manifest-job-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        running = true;
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> directories = Files.list(directory)) {
+            for (Path jobDirectory : directories.sorted().toList()) {
+                if (!Files.exists(jobDirectory.resolve(ManifestJob.PROPERTIES))) {
+                    continue;
+                }
+                ManifestJob job = ManifestJob.load(jobDirectory);
+                if (job.getState() == ManifestJob.State.UPLOADING) {
+                    log.warn("Deleted manifest job {} whose upload did not complete", job.getId());
+                    deleteDirectory(jobDirectory);
+                    continue;
+                }
+                jobs.put(job.getId(), job);
+                if (job.getState().isActive()) {
+                    log.info("Resuming manifest job {}", job.getId());
+                    submit(job);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Manifest jobs still running after {} s; they resume on the next start", STOP_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pool = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Started before the web server and stopped after it, like the DecisionJournal
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
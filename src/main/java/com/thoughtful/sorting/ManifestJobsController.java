@@ -0,0 +1,112 @@
+package com.thoughtful.sorting;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Status, progress events, results, cancellation and resumption of {@link ManifestJobs},
+ * on both web stacks. Uploads differ per stack: see {@link ManifestJobUploadController}
+ * and {@link ReactiveManifestJobUploadController}.
+ * <p>
+ * {@code GET /api/jobs/{id}/events} is a server-sent event stream: the job's current
+ * state first, then a {@code progress} event per completed chunk, and a final
+ * {@code done}, {@code cancelled} or {@code failed} event. A slow client gets the latest
+ * state rather than every intermediate one, so it never holds up the workers.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@ConditionalOnProperty(name = "sorting.jobs.enabled", havingValue = "true", matchIfMissing = true)
+public class ManifestJobsController {
+
+    private final ManifestJobs jobs;
+
+    public ManifestJobsController(ManifestJobs jobs) {
+        this.jobs = jobs;
+    }
+
+    static ResponseEntity<Map<String, Object>> accepted(ManifestJob job) {
+        return ResponseEntity.accepted().location(URI.create("/api/jobs/" + job.getId())).body(job.toJson());
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> list() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (ManifestJob job : jobs.list()) {
+            list.add(job.toJson());
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("jobs", list);
+        return ResponseEntity.ok(json);
+    }
+
+    @GetMapping(path = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> job(@PathVariable String id) {
+        return ResponseEntity.ok(jobs.get(id).toJson());
+    }
+
+    @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, Object>>> events(@PathVariable String id) {
+        ManifestJob job = jobs.get(id);
+        return Flux.<ManifestJob>create(sink -> {
+            Runnable unsubscribe = job.subscribe(changed -> {
+                sink.next(changed);
+                if (changed.getState().isFinished()) {
+                    sink.complete();
+                }
+            });
+            sink.onDispose(unsubscribe::run);
+        }, FluxSink.OverflowStrategy.LATEST).map(changed -> {
+            // Read when sent, so the event carries the latest progress
+            Map<String, Object> json = changed.toJson();
+            String state = (String) json.get("state");
+            String event = ManifestJob.State.valueOf(state).isFinished() ? state.toLowerCase() : "progress";
+            return ServerSentEvent.builder(json).event(event).build();
+        });
+    }
+
+    @GetMapping(path = "/{id}/results", produces = "text/csv")
+    public ResponseEntity<Resource> results(@PathVariable String id) {
+        ManifestJob job = jobs.get(id);
+        Resource results = new FileSystemResource(jobs.results(id));
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(job.getName().replaceFirst("\\.csv$", "") + "-results.csv").build().toString())
+            .body(results);
+    }
+
+    @PostMapping(path = "/{id}/cancel", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> cancel(@PathVariable String id) {
+        return ResponseEntity.ok(jobs.cancel(id).toJson());
+    }
+
+    @PostMapping(path = "/{id}/resume", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> resume(@PathVariable String id) {
+        return accepted(jobs.resume(id));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable String id) {
+        jobs.delete(id);
+        return ResponseEntity.noContent().build();
+    }
+}
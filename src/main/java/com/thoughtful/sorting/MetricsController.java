@@ -0,0 +1,34 @@
+package com.thoughtful.sorting;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final SortingMetrics metrics;
+
+    public MetricsController(SortingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> metrics() {
+        return ResponseEntity.ok(metrics.toJson());
+    }
+
+    @GetMapping("/prometheus")
+    public ResponseEntity<String> prometheus() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(PROMETHEUS_CONTENT_TYPE))
+            .body(metrics.toPrometheus());
+    }
+}
@@ -0,0 +1,196 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+
+/**
+ * Classifies newline-delimited JSON manifests of any length.
+ * <p>
+ * Lines are cut out of one fixed input buffer and parsed in place, and each result line
+ * is written as soon as its input line is read. Output is flushed whenever the next read
+ * would block, so interactive clients see results immediately while bulk uploads are not
+ * flushed per line. The stream ends with a summary line carrying counts and throughput.
+ */
+public class NdjsonSortProcessor {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+    public static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final JsonFactory jsonFactory;
+
+    public NdjsonSortProcessor(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    public Summary process(InputStream in, OutputStream out, PackageSorter sorter) throws IOException {
+        Summary summary = new Summary();
+        long started = System.nanoTime();
+
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            PackageMeasurement measurement = new PackageMeasurement();
+            byte[] buffer = new byte[MAX_LINE_LENGTH];
+            int start = 0;
+            int end = 0;
+            int scanned = 0;
+            boolean discarding = false;
+            long line = 0;
+
+            while (true) {
+                int newline = indexOf(buffer, scanned, end);
+                if (newline >= 0) {
+                    line++;
+                    if (!discarding) {
+                        processLine(buffer, start, newline, line, generator, measurement, summary, sorter);
+                    }
+                    discarding = false;
+                    start = newline + 1;
+                    scanned = start;
+                    continue;
+                }
+
+                if (start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
+                scanned = end;
+                if (end == buffer.length) {
+                    if (!discarding) {
+                        summary.records++;
+                        writeError(generator, line + 1,
+                            "Line exceeds " + MAX_LINE_LENGTH + " bytes", summary);
+                    }
+                    discarding = true;
+                    end = 0;
+                    scanned = 0;
+                }
+
+                if (in.available() == 0) {
+                    generator.flush();
+                }
+                int read = in.read(buffer, end, buffer.length - end);
+                if (read < 0) {
+                    if (end > 0 && !discarding) {
+                        processLine(buffer, 0, end, line + 1, generator, measurement, summary, sorter);
+                    }
+                    break;
+                }
+                end += read;
+            }
+
+            summary.elapsedNanos = System.nanoTime() - started;
+            writeSummary(generator, summary);
+        }
+        return summary;
+    }
+
+    // Also used per frame line by ScannerSession
+    void processLine(byte[] buffer, int from, int to, long line, JsonGenerator generator,
+                     PackageMeasurement measurement, Summary summary, PackageSorter sorter)
+            throws IOException {
+        if (to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        if (isBlank(buffer, from, to)) {
+            return;
+        }
+
+        summary.records++;
+        String category;
+        try (JsonParser parser = jsonFactory.createParser(buffer, from, to - from)) {
+            parser.nextToken();
+            boolean objectRead = PackageJsonReader.read(parser, measurement);
+            if (objectRead && parser.nextToken() != null) {
+                // Anything after the object means the line is not a single JSON value
+                writeError(generator, line, GlobalExceptionHandler.INVALID_JSON_MESSAGE, summary);
+                return;
+            }
+            category = PackageResultWriter.write(sorter, generator, measurement, objectRead, line);
+        } catch (JsonProcessingException e) {
+            writeError(generator, line, GlobalExceptionHandler.INVALID_JSON_MESSAGE, summary);
+            return;
+        }
+        generator.writeRaw('\n');
+
+        if (category == null) {
+            summary.errors++;
+        } else if (PackageSorter.STANDARD.equals(category)) {
+            summary.standard++;
+        } else if (PackageSorter.SPECIAL.equals(category)) {
+            summary.special++;
+        } else {
+            summary.rejected++;
+        }
+    }
+
+    private void writeError(JsonGenerator generator, long line, String message,
+                            Summary summary) throws IOException {
+        PackageResultWriter.writeError(generator, line, ErrorResponse.INVALID_REQUEST,
+            Collections.singletonList(message));
+        generator.writeRaw('\n');
+        summary.errors++;
+    }
+
+    private void writeSummary(JsonGenerator generator, Summary summary) throws IOException {
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("summary");
+        generator.writeNumberField("records", summary.records);
+        generator.writeNumberField("standard", summary.standard);
+        generator.writeNumberField("special", summary.special);
+        generator.writeNumberField("rejected", summary.rejected);
+        generator.writeNumberField("errors", summary.errors);
+        generator.writeNumberField("elapsedMillis", summary.elapsedNanos / 1_000_000);
+        generator.writeNumberField("recordsPerSecond", summary.recordsPerSecond());
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    static int indexOf(byte[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(byte[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static class Summary {
+        private long records;
+        private long standard;
+        private long special;
+        private long rejected;
+        private long errors;
+        private long elapsedNanos;
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long recordsPerSecond() {
+            return elapsedNanos == 0 ? 0 : (long) (records * 1_000_000_000.0 / elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.thoughtful.sorting;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+public class PackageDecision {
+    private String id;
+    private String category;
+    private LocalDateTime decidedAt;
+
+    public PackageDecision() {
+    }
+
+    public PackageDecision(String id, String category, long decidedAtMillis) {
+        this.id = id;
+        this.category = category;
+        this.decidedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(decidedAtMillis), ZoneId.systemDefault());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public LocalDateTime getDecidedAt() {
+        return decidedAt;
+    }
+
+    public void setDecidedAt(LocalDateTime decidedAt) {
+        this.decidedAt = decidedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PackageDecision{" +
+                "id='" + id + '\'' +
+                ", category='" + category + '\'' +
+                ", decidedAt=" + decidedAt +
+                '}';
+    }
+}
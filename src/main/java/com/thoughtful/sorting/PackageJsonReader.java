@@ -0,0 +1,192 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Reads package objects straight off a Jackson {@link JsonParser} into a
+ * {@link PackageMeasurement}, without binding a {@link PackageRequest}.
+ */
+public final class PackageJsonReader {
+
+    // Decimal digits that always fit a double's 53-bit significand, and the largest power
+    // of ten that is itself an exact double
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final int MAX_EXACT_POWER = 22;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_POWER + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_EXACT_POWER; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private PackageJsonReader() {
+    }
+
+    /**
+     * Reads the value the parser is positioned on. Returns {@code false} (after skipping
+     * the value) when it is not a JSON object.
+     */
+    public static boolean read(JsonParser parser, PackageMeasurement target) throws IOException {
+        target.reset();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return false;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            int field = PackageValidator.fieldIndex(name);
+            JsonToken value = parser.nextToken();
+            if (field < 0) {
+                if ("id".equals(name)) {
+                    readId(parser, value, target);
+                } else {
+                    parser.skipChildren();
+                }
+                continue;
+            }
+
+            switch (value) {
+                case VALUE_NUMBER_INT:
+                    target.set(field, parser.getDoubleValue());
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    target.set(field, readDouble(parser));
+                    break;
+                case VALUE_NULL:
+                    break;
+                case VALUE_STRING:
+                    readString(parser.getText(), field, target);
+                    break;
+                default:
+                    parser.skipChildren();
+                    target.markInvalid(field, null);
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the current floating-point token. Jackson builds a String for every fractional
+     * number it converts; short decimals such as {@code 75.5} or {@code 1.2e3} are
+     * converted here from the token's characters instead. With at most 15 significant
+     * digits and a power of ten up to 22 both operands are exact doubles, so the one
+     * multiplication or division is correctly rounded and the result is identical to
+     * {@link Double#parseDouble}; anything longer falls back to Jackson.
+     */
+    static double readDouble(JsonParser parser) throws IOException {
+        char[] text = parser.getTextCharacters();
+        int i = parser.getTextOffset();
+        int end = i + parser.getTextLength();
+
+        boolean negative = i < end && text[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long significand = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = text[i];
+            if (c >= '0' && c <= '9') {
+                if (significand > 0 || c != '0') {
+                    if (++digits > MAX_EXACT_DIGITS) {
+                        return parser.getDoubleValue();
+                    }
+                }
+                significand = significand * 10 + (c - '0');
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E') {
+                int power = parseExponent(text, i + 1, end);
+                if (power == Integer.MIN_VALUE) {
+                    return parser.getDoubleValue();
+                }
+                exponent += power;
+                break;
+            } else {
+                return parser.getDoubleValue();
+            }
+        }
+
+        double value = significand;
+        if (exponent < 0) {
+            if (exponent < -MAX_EXACT_POWER) {
+                return parser.getDoubleValue();
+            }
+            value /= POWERS_OF_TEN[-exponent];
+        } else if (exponent > 0) {
+            if (exponent > MAX_EXACT_POWER) {
+                return parser.getDoubleValue();
+            }
+            value *= POWERS_OF_TEN[exponent];
+        }
+        return negative ? -value : value;
+    }
+
+    // Exponent digits after 'e', or MIN_VALUE if there are too many to handle here
+    private static int parseExponent(char[] text, int i, int end) {
+        boolean negative = false;
+        if (i < end && (text[i] == '-' || text[i] == '+')) {
+            negative = text[i] == '-';
+            i++;
+        }
+        if (end - i > 3 || i == end) {
+            return Integer.MIN_VALUE;
+        }
+        int power = 0;
+        for (; i < end; i++) {
+            power = power * 10 + (text[i] - '0');
+        }
+        return negative ? -power : power;
+    }
+
+    // Jackson binds any scalar to a String field, as its text
+    private static void readId(JsonParser parser, JsonToken value, PackageMeasurement target) throws IOException {
+        if (value.isScalarValue()) {
+            target.setId(value == JsonToken.VALUE_NULL ? null : parser.getText());
+        } else {
+            parser.skipChildren();
+            target.markInvalidId();
+        }
+    }
+
+    // Jackson coerces numeric strings and treats empty strings as null for Double fields
+    private static void readString(String text, int field, PackageMeasurement target) {
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return;
+        }
+        if (!mayBeDouble(trimmed)) {
+            target.markInvalid(field, text);
+            return;
+        }
+        try {
+            target.set(field, Double.parseDouble(trimmed));
+        } catch (NumberFormatException e) {
+            target.markInvalid(field, text);
+        }
+    }
+
+    // Rejects most non-numeric text without the cost of a NumberFormatException: every
+    // character Double.parseDouble accepts, including NaN, Infinity, hex and type suffixes
+    private static boolean mayBeDouble(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c < '0' || c > '9') && "+-.eEpPxXabcdfABCDFNIinty".indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,28 @@
+package com.thoughtful.sorting;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/packages")
+public class PackageLookupController {
+
+    private final DecisionStore decisionStore;
+
+    public PackageLookupController(DecisionStore decisionStore) {
+        this.decisionStore = decisionStore;
+    }
+
+    // Where did package {id} go? Answers from DecisionStore while the decision is recent
+    @GetMapping("/{id}")
+    public ResponseEntity<PackageDecision> lookup(@PathVariable String id) {
+        PackageDecision decision = decisionStore.lookup(id);
+        if (decision == null) {
+            throw new UnknownPackageException(id);
+        }
+        return ResponseEntity.ok(decision);
+    }
+}
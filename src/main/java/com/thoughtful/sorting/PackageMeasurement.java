@@ -0,0 +1,91 @@
+package com.thoughtful.sorting;
+
+/**
+ * Mutable holder for one package read off a stream. Instances are reused between
+ * items so reading a large payload does not allocate per package.
+ */
+public final class PackageMeasurement {
+    private final double[] values = new double[PackageValidator.FIELD_COUNT];
+    private int present;
+    private int invalidField = -1;
+    private String invalidValue;
+    private String id;
+    private boolean invalidId;
+
+    public void reset() {
+        present = 0;
+        invalidField = -1;
+        invalidValue = null;
+        id = null;
+        invalidId = false;
+    }
+
+    public void set(int field, double value) {
+        values[field] = value;
+        present |= 1 << field;
+    }
+
+    /**
+     * Records a value that could not be read as a number. Only the first one is kept,
+     * matching the single message Jackson reports for a bound {@link PackageRequest}.
+     */
+    public void markInvalid(int field, String value) {
+        if (invalidField < 0) {
+            invalidField = field;
+            invalidValue = value;
+        }
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    // An id that was an object or array, which Jackson cannot bind to a String
+    public void markInvalidId() {
+        invalidId = true;
+    }
+
+    public double get(int field) {
+        return values[field];
+    }
+
+    public boolean isPresent(int field) {
+        return (present & (1 << field)) != 0;
+    }
+
+    public int getPresent() {
+        return present;
+    }
+
+    public int getInvalidField() {
+        return invalidField;
+    }
+
+    public String getInvalidValue() {
+        return invalidValue;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isInvalidId() {
+        return invalidId;
+    }
+
+    public double getWidth() {
+        return values[PackageValidator.WIDTH];
+    }
+
+    public double getHeight() {
+        return values[PackageValidator.HEIGHT];
+    }
+
+    public double getLength() {
+        return values[PackageValidator.LENGTH];
+    }
+
+    public double getMass() {
+        return values[PackageValidator.MASS];
+    }
+}
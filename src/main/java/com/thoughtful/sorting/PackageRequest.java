@@ -1,9 +1,16 @@
 package com.thoughtful.sorting;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 
 public class PackageRequest {
+    // Optional barcode; retries with the same id get the first decision back
+    @Size(min = 1, max = DecisionStore.MAX_ID_LENGTH, message = "Id must be 1 to 38 characters")
+    @Pattern(regexp = "[\\x21-\\x7E]*", message = "Id must be printable ASCII without spaces")
+    private String id;
+
     @NotNull(message = "Width cannot be null")
     @Positive(message = "Width must be positive")
     private Double width;
@@ -31,7 +38,20 @@ public class PackageRequest {
         this.mass = mass;
     }
 
+    public PackageRequest(String id, Double width, Double height, Double length, Double mass) {
+        this(width, height, length, mass);
+        this.id = id;
+    }
+
     // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public Double getWidth() {
         return width;
     }
@@ -67,7 +87,8 @@ public class PackageRequest {
     @Override
     public String toString() {
         return "PackageRequest{" +
-                "width=" + width +
+                "id=" + id +
+                ", width=" + width +
                 ", height=" + height +
                 ", length=" + length +
                 ", mass=" + mass +
@@ -0,0 +1,72 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Validates and classifies a streamed package and writes its result object.
+ * Shared by the batch and NDJSON endpoints so both answer exactly like /api/sort.
+ */
+public final class PackageResultWriter {
+
+    private PackageResultWriter() {
+    }
+
+    /**
+     * Writes {@code {"category":...}} or an inline error for the package just read.
+     *
+     * @param objectRead whether the value read was a JSON object at all
+     * @param line       line number to report with errors, or a negative value for none
+     * @return the category, or {@code null} if an error was written
+     */
+    public static String write(PackageSorter packageSorter, JsonGenerator generator,
+                               PackageMeasurement measurement, boolean objectRead, long line)
+            throws IOException {
+        if (!objectRead) {
+            writeError(generator, line, ErrorResponse.INVALID_REQUEST,
+                Collections.singletonList(GlobalExceptionHandler.INVALID_BODY_MESSAGE));
+            return null;
+        }
+        if (measurement.getInvalidField() >= 0) {
+            writeError(generator, line, ErrorResponse.INVALID_REQUEST, Collections.singletonList(
+                PackageValidator.invalidValueMessage(measurement.getInvalidField(),
+                    measurement.getInvalidValue())));
+            return null;
+        }
+        if (!PackageValidator.isValid(measurement)) {
+            writeError(generator, line, ErrorResponse.VALIDATION_FAILED,
+                PackageValidator.violations(measurement));
+            return null;
+        }
+
+        String category = packageSorter.sort(
+            measurement.getWidth(),
+            measurement.getHeight(),
+            measurement.getLength(),
+            measurement.getMass()
+        );
+        generator.writeStartObject();
+        generator.writeStringField("category", category);
+        generator.writeEndObject();
+        return category;
+    }
+
+    public static void writeError(JsonGenerator generator, long line, String error,
+                                  List<String> messages) throws IOException {
+        generator.writeStartObject();
+        if (line >= 0) {
+            generator.writeNumberField("line", line);
+        }
+        generator.writeNumberField("status", 400);
+        generator.writeStringField("error", error);
+        generator.writeArrayFieldStart("messages");
+        for (String message : messages) {
+            generator.writeString(message);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+}
@@ -1,61 +1,168 @@
 package com.thoughtful.sorting;
 
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Classifies packages against one {@link ThresholdProfile}. Instances are immutable: the
+ * thresholds are final fields read straight from the instance, so a sorter for any
+ * profile runs the same code as the built-in limits. To change limits, build a new
+ * sorter and swap it in (see {@link SortingProfiles}).
+ */
 public class PackageSorter {
-    
-    private static final int VOLUME_THRESHOLD = 1_000_000;
-    private static final int DIMENSION_THRESHOLD = 150;
-    private static final int MASS_THRESHOLD = 20;
-    
+
     public static final String STANDARD = "STANDARD";
     public static final String SPECIAL = "SPECIAL";
     public static final String REJECTED = "REJECTED";
-    
+
+    // Category codes: the number of rules (bulky, heavy) a package breaks
+    public static final byte STANDARD_CODE = 0;
+    public static final byte SPECIAL_CODE = 1;
+    public static final byte REJECTED_CODE = 2;
+
+    // Reasons reported to SortListeners
+    public static final int BULKY_BY_DIMENSION = 1;
+    public static final int BULKY_BY_VOLUME = 2;
+    public static final int HEAVY = 4;
+
+    private static final String[] CATEGORIES = {STANDARD, SPECIAL, REJECTED};
+
+    // VectorPackageSorter is only loaded once the module is known to be there
+    private static final boolean VECTOR_API_AVAILABLE =
+        ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() && VectorPackageSorter.isSupported();
+
+    private final ThresholdProfile profile;
+    private final double dimensionThreshold;
+    private final double volumeThreshold;
+    private final double massThreshold;
+    private final SortListener[] listeners;
+
+    public PackageSorter() {
+        this(ThresholdProfile.DEFAULT, List.of());
+    }
+
+    public PackageSorter(List<SortListener> listeners) {
+        this(ThresholdProfile.DEFAULT, listeners);
+    }
+
+    public PackageSorter(ThresholdProfile profile, List<SortListener> listeners) {
+        this.profile = profile;
+        this.dimensionThreshold = profile.getDimension();
+        this.volumeThreshold = profile.getVolume();
+        this.massThreshold = profile.getMass();
+        this.listeners = new SortListener[listeners.size()];
+        for (int i = 0; i < this.listeners.length; i++) {
+            this.listeners[i] = listeners.get(i).forProfile(profile);
+        }
+    }
+
+    public ThresholdProfile getProfile() {
+        return profile;
+    }
+
     public String sort(double width, double height, double length, double mass) {
-        boolean isBulky = isBulky(width, height, length);
-        boolean isHeavy = mass >= MASS_THRESHOLD;
-        
-        if (isBulky && isHeavy) {
-            return REJECTED;
-        } else if (isBulky || isHeavy) {
-            return SPECIAL;
+        return CATEGORIES[sortCode(width, height, length, mass)];
+    }
+
+    /**
+     * Branch-free variant of {@link #sort} returning the category code.
+     */
+    public byte sortCode(double width, double height, double length, double mass) {
+        byte code = code(width, height, length, mass);
+        if (listeners.length > 0) {
+            notifyListeners(width, height, length, mass, code);
+        }
+        return code;
+    }
+
+    private byte code(double width, double height, double length, double mass) {
+        boolean isBulky = (width >= dimensionThreshold)
+            | (height >= dimensionThreshold)
+            | (length >= dimensionThreshold)
+            | (width * height * length >= volumeThreshold);
+        boolean isHeavy = mass >= massThreshold;
+        return (byte) ((isBulky ? 1 : 0) + (isHeavy ? 1 : 0));
+    }
+
+    /**
+     * Classifies packages stored column-wise, writing one category code per package.
+     * Uses the JDK Vector API when the {@code jdk.incubator.vector} module is present
+     * (run with {@code --add-modules jdk.incubator.vector}) and the preferred vector holds
+     * 2 to 8 doubles, and a scalar loop otherwise;
+     * both give the same codes as {@link #sortCode}. Listeners are notified per package
+     * after the batch is classified.
+     */
+    public void sortBatch(double[] width, double[] height, double[] length, double[] mass, byte[] out) {
+        sortBatch(width, height, length, mass, out, 0, out.length);
+    }
+
+    public void sortBatch(double[] width, double[] height, double[] length, double[] mass,
+                          byte[] out, int offset, int count) {
+        if (VECTOR_API_AVAILABLE) {
+            VectorPackageSorter.sortBatch(width, height, length, mass, out, offset, count,
+                dimensionThreshold, volumeThreshold, massThreshold);
         } else {
-            return STANDARD;
+            sortBatchScalar(width, height, length, mass, out, offset, count);
+        }
+        if (listeners.length > 0) {
+            for (int i = offset, end = offset + count; i < end; i++) {
+                notifyListeners(width[i], height[i], length[i], mass[i], out[i]);
+            }
         }
     }
-    
-    private boolean isBulky(double width, double height, double length) {
-        if (width >= DIMENSION_THRESHOLD || 
-            height >= DIMENSION_THRESHOLD || 
-            length >= DIMENSION_THRESHOLD) {
-            return true;
+
+    void sortBatchScalar(double[] width, double[] height, double[] length, double[] mass,
+                         byte[] out, int offset, int count) {
+        for (int i = offset, end = offset + count; i < end; i++) {
+            out[i] = code(width[i], height[i], length[i], mass[i]);
         }
-        
-        double volume = width * height * length;
-        return volume >= VOLUME_THRESHOLD;
     }
-    
-    public static void main(String[] args) {
+
+    private void notifyListeners(double width, double height, double length, double mass, byte code) {
+        int reasons = (width >= dimensionThreshold || height >= dimensionThreshold
+                || length >= dimensionThreshold ? BULKY_BY_DIMENSION : 0)
+            | (width * height * length >= volumeThreshold ? BULKY_BY_VOLUME : 0)
+            | (mass >= massThreshold ? HEAVY : 0);
+        for (SortListener listener : listeners) {
+            listener.onSort(width, height, length, mass, code, reasons);
+        }
+    }
+
+    public static String category(byte code) {
+        return CATEGORIES[code];
+    }
+
+    public static boolean isVectorApiAvailable() {
+        return VECTOR_API_AVAILABLE;
+    }
+
+    // With arguments this runs the offline manifest classifier, otherwise the demo
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            ManifestClassifier.main(args);
+            return;
+        }
         PackageSorter sorter = new PackageSorter();
-        
+
         System.out.println("=".repeat(60));
         System.out.println("Package Sorting Demo");
         System.out.println("=".repeat(60));
         System.out.println();
-        
+
         testPackage(sorter, 50, 50, 50, 10, "Standard package");
         testPackage(sorter, 150, 50, 50, 10, "Bulky by dimension");
         testPackage(sorter, 100, 100, 100, 10, "Bulky by volume");
         testPackage(sorter, 50, 50, 50, 20, "Heavy package");
         testPackage(sorter, 150, 100, 100, 25, "Bulky and heavy");
-        
+
         System.out.println("=".repeat(60));
     }
-    
-    private static void testPackage(PackageSorter sorter, double width, double height, 
+
+    private static void testPackage(PackageSorter sorter, double width, double height,
                                     double length, double mass, String description) {
         String result = sorter.sort(width, height, length, mass);
         double volume = width * height * length;
-        
+
         System.out.println(description);
         System.out.printf("  Dimensions: %.0f x %.0f x %.0f cm%n", width, height, length);
         System.out.printf("  Volume: %.0f cm³%n", volume);
@@ -1,32 +1,79 @@
 package com.thoughtful.sorting;
 
-import jakarta.validation.Valid;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class PackageSortingController {
 
-    private final PackageSorter packageSorter;
+    private final SortingProfiles sortingProfiles;
+    private final DecisionStore decisionStore;
+    private final SingleSortProcessor singleSortProcessor;
+    private final BatchSortProcessor batchSortProcessor;
+    private final NdjsonSortProcessor ndjsonSortProcessor;
+    private final RequestTracer requestTracer;
+
+    public PackageSortingController(SortingProfiles sortingProfiles, DecisionStore decisionStore,
+                                    ObjectMapper objectMapper, ServletContext servletContext,
+                                    ObjectProvider<SortCoalescer> sortCoalescer, RequestTracer requestTracer) {
+        this.sortingProfiles = sortingProfiles;
+        this.decisionStore = decisionStore;
+        this.requestTracer = requestTracer;
+        this.singleSortProcessor = new SingleSortProcessor(
+            objectMapper, servletContext.getContextPath() + "/api/sort", sortCoalescer.getIfAvailable());
+        this.batchSortProcessor = new BatchSortProcessor(objectMapper.getFactory());
+        this.ndjsonSortProcessor = new NdjsonSortProcessor(objectMapper.getFactory());
+    }
+
+    // Reads and answers the body without binding PackageRequest; see SingleSortProcessor
+    @PostMapping(value = "/sort", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/*+json"})
+    public void sortPackage(HttpServletRequest request, HttpServletResponse response,
+                            @RequestHeader(value = SortingProfiles.HEADER, required = false) String profile)
+            throws IOException {
+        RequestTracer.Trace trace = requestTracer.sample();
+        PackageSorter sorter = sortingProfiles.sorter(profile);
+        singleSortProcessor.process(request.getInputStream(), status -> {
+            response.setStatus(status);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            return response.getOutputStream();
+        }, sorter, decisionStore, trace);
+        if (trace != null) {
+            requestTracer.record(trace, response.getStatus());
+        }
+    }
 
-    public PackageSortingController() {
-        this.packageSorter = new PackageSorter();
+    // Streams a JSON array of packages; results come back in the same order
+    @PostMapping(value = "/sort/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void sortBatch(HttpServletRequest request, HttpServletResponse response,
+                          @RequestHeader(value = SortingProfiles.HEADER, required = false) String profile)
+            throws IOException {
+        PackageSorter sorter = sortingProfiles.sorter(profile);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        batchSortProcessor.process(request.getInputStream(), response.getOutputStream(), sorter);
     }
 
-    //http://localhost:8080/api/sort?width=50&height=50
-    @PostMapping("/sort")
-    public ResponseEntity<PackageResponse> sortPackage(@Valid @RequestBody PackageRequest request) {
-        String category = packageSorter.sort(
-            request.getWidth(),
-            request.getHeight(),
-            request.getLength(),
-            request.getMass()
-        );
-        
-        PackageResponse response = new PackageResponse(category);
-        return ResponseEntity.ok(response);
+    // One package per line in, one result per line out, ending with a summary line
+    @PostMapping(value = "/sort/stream", consumes = NdjsonSortProcessor.MEDIA_TYPE)
+    public void sortStream(HttpServletRequest request, HttpServletResponse response,
+                           @RequestHeader(value = SortingProfiles.HEADER, required = false) String profile)
+            throws IOException {
+        PackageSorter sorter = sortingProfiles.sorter(profile);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NdjsonSortProcessor.MEDIA_TYPE);
+        ndjsonSortProcessor.process(request.getInputStream(), response.getOutputStream(), sorter);
     }
 
     @GetMapping("/health")
@@ -34,4 +81,3 @@ public class PackageSortingController {
         return ResponseEntity.ok("Package Sorting API is running");
     }
 }
-
@@ -0,0 +1,21 @@
+package com.thoughtful.sorting;
+
+import java.util.List;
+
+/**
+ * Thrown when a package request breaks its constraints and {@code @Valid} is not used;
+ * reported like a Bean Validation failure, one message per violation.
+ */
+public class PackageValidationException extends RuntimeException {
+
+    private final List<String> messages;
+
+    public PackageValidationException(List<String> messages) {
+        super(String.join("; ", messages));
+        this.messages = List.copyOf(messages);
+    }
+
+    public List<String> getMessages() {
+        return messages;
+    }
+}
@@ -0,0 +1,162 @@
+package com.thoughtful.sorting;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies the {@link PackageRequest} constraints to primitive measurements.
+ * <p>
+ * Messages are read once from the annotations on {@link PackageRequest}, so streaming
+ * endpoints report exactly what {@code @Valid} reports without per-item reflection.
+ */
+public final class PackageValidator {
+
+    public static final int WIDTH = 0;
+    public static final int HEIGHT = 1;
+    public static final int LENGTH = 2;
+    public static final int MASS = 3;
+    public static final int FIELD_COUNT = 4;
+
+    // Code reported in place of a category by the binary interfaces for invalid packages
+    public static final byte INVALID_CODE = (byte) 0xFF;
+
+    static final int ALL_FIELDS = (1 << FIELD_COUNT) - 1;
+
+    private static final String[] FIELD_NAMES = {"width", "height", "length", "mass"};
+    private static final String[] NULL_MESSAGES = new String[FIELD_COUNT];
+    private static final String[] POSITIVE_MESSAGES = new String[FIELD_COUNT];
+    private static final String ID_SIZE_MESSAGE;
+    private static final String ID_PATTERN_MESSAGE;
+
+    static {
+        try {
+            Field id = PackageRequest.class.getDeclaredField("id");
+            ID_SIZE_MESSAGE = id.getAnnotation(Size.class).message();
+            ID_PATTERN_MESSAGE = id.getAnnotation(Pattern.class).message();
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            try {
+                Field field = PackageRequest.class.getDeclaredField(FIELD_NAMES[i]);
+                NULL_MESSAGES[i] = field.getAnnotation(NotNull.class).message();
+                POSITIVE_MESSAGES[i] = field.getAnnotation(Positive.class).message();
+            } catch (NoSuchFieldException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+    private PackageValidator() {
+    }
+
+    public static int fieldIndex(String name) {
+        switch (name) {
+            case "width":
+                return WIDTH;
+            case "height":
+                return HEIGHT;
+            case "length":
+                return LENGTH;
+            case "mass":
+                return MASS;
+            default:
+                return -1;
+        }
+    }
+
+    public static String fieldName(int field) {
+        return FIELD_NAMES[field];
+    }
+
+    public static boolean isValid(PackageMeasurement measurement) {
+        return measurement.getInvalidField() < 0
+                && measurement.getPresent() == ALL_FIELDS
+                && isValid(measurement.getWidth(), measurement.getHeight(),
+                    measurement.getLength(), measurement.getMass());
+    }
+
+    // NaN fails the comparisons and is rejected like a non-positive value
+    public static boolean isValid(double width, double height, double length, double mass) {
+        return width > 0 && height > 0 && length > 0 && mass > 0;
+    }
+
+    /**
+     * Returns the constraint violations of a measurement that carried only numbers.
+     * Non-numeric values are reported separately through {@link #invalidValueMessage}.
+     */
+    public static List<String> violations(PackageMeasurement measurement) {
+        List<String> messages = new ArrayList<>(FIELD_COUNT);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (!measurement.isPresent(i)) {
+                messages.add(NULL_MESSAGES[i]);
+            } else if (!(measurement.get(i) > 0)) {
+                messages.add(POSITIVE_MESSAGES[i]);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Returns the constraint violations of a bound request, in the order width, height,
+     * length, mass, id. Used instead of {@code @Valid} where a request must be checked
+     * only after its id has been looked up.
+     */
+    public static List<String> violations(PackageRequest request) {
+        List<String> messages = new ArrayList<>(FIELD_COUNT);
+        Double[] values = {request.getWidth(), request.getHeight(), request.getLength(), request.getMass()};
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (values[i] == null) {
+                messages.add(NULL_MESSAGES[i]);
+            } else if (!(values[i] > 0)) {
+                messages.add(POSITIVE_MESSAGES[i]);
+            }
+        }
+        addIdViolations(request.getId(), messages);
+        return messages;
+    }
+
+    /**
+     * Adds the constraint violations of an optional package id to {@code messages}.
+     */
+    public static void addIdViolations(String id, List<String> messages) {
+        if (id != null) {
+            if (id.isEmpty() || id.length() > DecisionStore.MAX_ID_LENGTH) {
+                messages.add(ID_SIZE_MESSAGE);
+            }
+            if (!isPrintableAscii(id)) {
+                messages.add(ID_PATTERN_MESSAGE);
+            }
+        }
+    }
+
+    // Ids that DecisionStore can hold: 1 to MAX_ID_LENGTH characters from '!' to '~'
+    public static boolean isValidId(String id) {
+        return !id.isEmpty() && id.length() <= DecisionStore.MAX_ID_LENGTH && isPrintableAscii(id);
+    }
+
+    static boolean isPrintableAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x21 || c > 0x7E) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static String invalidValueMessage(int field, String value) {
+        if (value != null) {
+            return "Invalid value '" + value + "' for field '" + FIELD_NAMES[field]
+                    + "'. Expected a valid number (e.g., 10.5, 150.0).";
+        }
+        return "Invalid value for field '" + FIELD_NAMES[field]
+                + "'. Expected a valid number (e.g., 10.5, 150.0).";
+    }
+}
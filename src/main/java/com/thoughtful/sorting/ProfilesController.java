@@ -0,0 +1,31 @@
+package com.thoughtful.sorting;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/profiles")
+public class ProfilesController {
+
+    private final SortingProfiles sortingProfiles;
+
+    public ProfilesController(SortingProfiles sortingProfiles) {
+        this.sortingProfiles = sortingProfiles;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ThresholdProfile>> profiles() {
+        return ResponseEntity.ok(sortingProfiles.getProfiles());
+    }
+
+    // Re-reads sorting.profiles.location; on error the current profiles stay in effect
+    @PostMapping("/reload")
+    public ResponseEntity<List<ThresholdProfile>> reload() {
+        return ResponseEntity.ok(sortingProfiles.reload());
+    }
+}
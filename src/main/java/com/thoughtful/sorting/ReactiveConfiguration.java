@@ -0,0 +1,126 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.server.WebSocketService;
+import org.springframework.web.reactive.socket.server.support.HandshakeWebSocketService;
+import org.springframework.web.reactive.socket.server.upgrade.ReactorNettyRequestUpgradeStrategy;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Beans for {@code spring.main.web-application-type=reactive}. Tomcat is on the
+ * classpath for the default servlet stack, and Spring Boot would prefer it for reactive
+ * applications too, so the Netty server is declared explicitly.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfiguration {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    // Reactive counterpart of ScannerWebSocketConfiguration
+    @Bean
+    public HandlerMapping scannerWebSocketMapping(SortingProfiles sortingProfiles, ObjectMapper objectMapper,
+                                                  @Value("${sorting.scanner.batch-frames:32}") int batchFrames,
+                                                  @Value("${sorting.scanner.linger:2ms}") Duration linger) {
+        WebSocketHandler handler = new ReactiveScannerWebSocketHandler(
+            sortingProfiles, objectMapper.getFactory(), batchFrames, linger);
+        return new SimpleUrlHandlerMapping(Map.of(ScannerWebSocketHandler.PATH, handler), -1);
+    }
+
+    // With Tomcat's WebSocket classes present WebFlux would try to upgrade the Tomcat way
+    @Bean
+    public WebFluxConfigurer nettyWebSocketService() {
+        return new WebFluxConfigurer() {
+            @Override
+            public WebSocketService getWebSocketService() {
+                return new HandshakeWebSocketService(new ReactorNettyRequestUpgradeStrategy());
+            }
+        };
+    }
+
+    // Reactive counterpart of AdmissionFilter, also ahead of the latency filter
+    @Bean
+    @Order(0)
+    public WebFilter admissionWebFilter(AdmissionLimiter limiter, ObjectMapper objectMapper) {
+        return (exchange, chain) -> {
+            if (SortingMetrics.endpointIndex(exchange.getRequest().getPath().pathWithinApplication().value()) < 0) {
+                return chain.filter(exchange);
+            }
+            InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+            String client = AdmissionLimiter.client(
+                exchange.getRequest().getHeaders().getFirst(AdmissionLimiter.CLIENT_HEADER),
+                address == null ? "unknown" : address.getHostString());
+            long wait = limiter.tryAcquire(client);
+            if (wait > 0) {
+                return reject(exchange, objectMapper, HttpStatus.TOO_MANY_REQUESTS, ErrorResponse.TOO_MANY_REQUESTS,
+                    AdmissionLimiter.rateLimitedMessage(client), AdmissionLimiter.retryAfterSeconds(wait));
+            }
+            if (!limiter.enter()) {
+                return reject(exchange, objectMapper, HttpStatus.SERVICE_UNAVAILABLE,
+                    ErrorResponse.SERVICE_UNAVAILABLE, limiter.overloadedMessage(), 1);
+            }
+            return chain.filter(exchange).doFinally(signal -> limiter.exit());
+        };
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange, ObjectMapper objectMapper, HttpStatus status,
+                                     String error, String message, long retryAfterSeconds) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        ErrorResponse errorResponse = new ErrorResponse(
+            status.value(), error, List.of(message), request.getPath().value());
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(errorResponse);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        DataBuffer buffer = response.bufferFactory().wrap(body);
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    // Reactive counterpart of RequestLatencyFilter
+    @Bean
+    public WebFilter requestLatencyWebFilter(SortingMetrics metrics) {
+        return (exchange, chain) -> {
+            int endpoint = SortingMetrics.endpointIndex(
+                exchange.getRequest().getPath().pathWithinApplication().value());
+            if (endpoint < 0) {
+                return chain.filter(exchange);
+            }
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                .doFinally(signal -> metrics.recordRequest(endpoint, System.nanoTime() - start));
+        };
+    }
+}
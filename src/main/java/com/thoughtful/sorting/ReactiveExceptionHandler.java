@@ -0,0 +1,104 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reactive counterpart of {@link GlobalExceptionHandler}: WebFlux raises different
+ * exceptions for the same problems, and this maps them to the same error bodies.
+ */
+@RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExceptionHandler {
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<ErrorResponse> handleValidationExceptions(
+            WebExchangeBindException ex, ServerWebExchange exchange) {
+
+        List<String> messages = new ArrayList<>();
+        for (FieldError error : ex.getBindingResult().getFieldErrors()) {
+            messages.add(error.getDefaultMessage());
+        }
+
+        return GlobalExceptionHandler.error(HttpStatus.BAD_REQUEST, ErrorResponse.VALIDATION_FAILED, messages,
+            path(exchange));
+    }
+
+    @ExceptionHandler(PackageValidationException.class)
+    public ResponseEntity<ErrorResponse> handlePackageValidation(
+            PackageValidationException ex, ServerWebExchange exchange) {
+
+        return GlobalExceptionHandler.error(HttpStatus.BAD_REQUEST, ErrorResponse.VALIDATION_FAILED,
+            ex.getMessages(), path(exchange));
+    }
+
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<ErrorResponse> handleServerWebInput(
+            ServerWebInputException ex, ServerWebExchange exchange) {
+
+        String userFriendlyMessage = GlobalExceptionHandler.INVALID_BODY_MESSAGE;
+
+        Throwable cause = ex.getCause();
+        if (ex.getReason() != null && ex.getReason().contains("No request body")) {
+            userFriendlyMessage = GlobalExceptionHandler.BODY_REQUIRED_MESSAGE;
+        } else if (cause instanceof DecodingException && cause.getCause() instanceof InvalidFormatException) {
+            userFriendlyMessage = GlobalExceptionHandler.invalidFormatMessage(
+                (InvalidFormatException) cause.getCause());
+        } else if (cause instanceof DecodingException) {
+            userFriendlyMessage = GlobalExceptionHandler.INVALID_JSON_MESSAGE;
+        }
+
+        return GlobalExceptionHandler.error(HttpStatus.BAD_REQUEST, ErrorResponse.INVALID_REQUEST,
+            userFriendlyMessage, path(exchange));
+    }
+
+    @ExceptionHandler({InvalidProfileException.class, InvalidTimeRangeException.class, InvalidSketchException.class})
+    public ResponseEntity<ErrorResponse> handleInvalidRequest(RuntimeException ex, ServerWebExchange exchange) {
+        return GlobalExceptionHandler.error(HttpStatus.BAD_REQUEST, ErrorResponse.INVALID_REQUEST, ex.getMessage(),
+            path(exchange));
+    }
+
+    @ExceptionHandler({UnknownPackageException.class, UnknownStackException.class, UnknownJobException.class})
+    public ResponseEntity<ErrorResponse> handleNotFound(RuntimeException ex, ServerWebExchange exchange) {
+        return GlobalExceptionHandler.error(HttpStatus.NOT_FOUND, ErrorResponse.NOT_FOUND, ex.getMessage(),
+            path(exchange));
+    }
+
+    @ExceptionHandler({StacksFullException.class, JobStateException.class})
+    public ResponseEntity<ErrorResponse> handleConflict(RuntimeException ex, ServerWebExchange exchange) {
+        return GlobalExceptionHandler.error(HttpStatus.CONFLICT, ErrorResponse.CONFLICT, ex.getMessage(),
+            path(exchange));
+    }
+
+    @ExceptionHandler(UploadTooLargeException.class)
+    public ResponseEntity<ErrorResponse> handleUploadTooLarge(
+            UploadTooLargeException ex, ServerWebExchange exchange) {
+
+        return GlobalExceptionHandler.error(HttpStatus.PAYLOAD_TOO_LARGE, ErrorResponse.PAYLOAD_TOO_LARGE,
+            ex.getMessage(), path(exchange));
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ErrorResponse> handleGenericException(
+            Exception ex, ServerWebExchange exchange) {
+
+        return GlobalExceptionHandler.error(HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error",
+            GlobalExceptionHandler.UNEXPECTED_ERROR_MESSAGE, path(exchange));
+    }
+
+    private static String path(ServerWebExchange exchange) {
+        return exchange.getRequest().getPath().value();
+    }
+}
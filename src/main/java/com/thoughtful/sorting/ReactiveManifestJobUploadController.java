@@ -0,0 +1,67 @@
+package com.thoughtful.sorting;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code POST /api/jobs} contract of {@link ManifestJobUploadController} on the
+ * reactive stack. The body is written to disk as it arrives, off the event loop, and
+ * cut off with {@link UploadTooLargeException} once it passes the upload limit.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(name = "sorting.jobs.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveManifestJobUploadController {
+
+    private final ManifestJobs jobs;
+    private final SortingProfiles sortingProfiles;
+
+    public ReactiveManifestJobUploadController(ManifestJobs jobs, SortingProfiles sortingProfiles) {
+        this.jobs = jobs;
+        this.sortingProfiles = sortingProfiles;
+    }
+
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> create(
+            @RequestBody Flux<DataBuffer> body,
+            @RequestParam(required = false) String name,
+            @RequestHeader(value = SortingProfiles.HEADER, required = false) String profile) {
+        ThresholdProfile thresholds = sortingProfiles.sorter(profile).getProfile();
+        return Mono.fromCallable(() -> jobs.prepare(name, thresholds))
+            .flatMap(job -> DataBufferUtils.write(limit(body, jobs.getMaxUploadBytes()), jobs.uploadPath(job))
+                .publishOn(Schedulers.boundedElastic())
+                .then(Mono.fromCallable(() -> jobs.submit(job)))
+                .doOnError(e -> jobs.abandon(job)))
+            .subscribeOn(Schedulers.boundedElastic())
+            .map(ManifestJobsController::accepted);
+    }
+
+    private static Flux<DataBuffer> limit(Flux<DataBuffer> body, long maxBytes) {
+        AtomicLong received = new AtomicLong();
+        return body.handle((buffer, sink) -> {
+            if (received.addAndGet(buffer.readableByteCount()) > maxBytes) {
+                DataBufferUtils.release(buffer);
+                sink.error(new UploadTooLargeException(maxBytes));
+            } else {
+                sink.next(buffer);
+            }
+        });
+    }
+}
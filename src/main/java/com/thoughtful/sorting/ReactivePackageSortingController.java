@@ -0,0 +1,52 @@
+package com.thoughtful.sorting;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The {@code /api/sort} and {@code /api/health} contract of {@link PackageSortingController}
+ * on the non-blocking Netty stack, used when the application starts with
+ * {@code spring.main.web-application-type=reactive}. Classification is cheap enough to
+ * run directly on the event loop; with a {@link SortCoalescer} the response continues on
+ * the parallel scheduler, so the coalescer's worker only classifies.
+ */
+@RestController
+@RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePackageSortingController {
+
+    private final SortingProfiles sortingProfiles;
+    private final DecisionStore decisionStore;
+    private final SortCoalescer sortCoalescer;
+
+    public ReactivePackageSortingController(SortingProfiles sortingProfiles, DecisionStore decisionStore,
+                                            ObjectProvider<SortCoalescer> sortCoalescer) {
+        this.sortingProfiles = sortingProfiles;
+        this.decisionStore = decisionStore;
+        this.sortCoalescer = sortCoalescer.getIfAvailable();
+    }
+
+    @PostMapping("/sort")
+    public Mono<ResponseEntity<PackageResponse>> sortPackage(
+            @RequestBody Mono<PackageRequest> request,
+            @RequestHeader(value = SortingProfiles.HEADER, required = false) String profile) {
+        PackageSorter sorter = sortingProfiles.sorter(profile);
+        if (sortCoalescer != null) {
+            return request.flatMap(body -> Mono.fromFuture(
+                    SingleSortProcessor.classify(body, sorter, decisionStore, sortCoalescer)))
+                .publishOn(Schedulers.parallel())
+                .map(category -> ResponseEntity.ok(new PackageResponse(category)));
+        }
+        return request.map(body -> ResponseEntity.ok(new PackageResponse(
+            SingleSortProcessor.classify(body, sorter, decisionStore))));
+    }
+
+    @GetMapping("/health")
+    public Mono<ResponseEntity<String>> health() {
+        return Mono.just(ResponseEntity.ok("Package Sorting API is running"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reactive counterpart of {@link ScannerWebSocketHandler}, with the same protocol.
+ * <p>
+ * Frames are classified as they arrive and their results are joined into one outbound
+ * frame per {@code batchFrames} frames or per {@code linger}. The outbound side only
+ * requests frames as the connection takes results, so a scanner that stops reading
+ * stops being read.
+ */
+public class ReactiveScannerWebSocketHandler implements WebSocketHandler {
+
+    private final SortingProfiles sortingProfiles;
+    private final JsonFactory jsonFactory;
+    private final NdjsonSortProcessor processor;
+    private final int batchFrames;
+    private final Duration linger;
+
+    public ReactiveScannerWebSocketHandler(SortingProfiles sortingProfiles, JsonFactory jsonFactory,
+                                           int batchFrames, Duration linger) {
+        this.sortingProfiles = sortingProfiles;
+        this.jsonFactory = jsonFactory;
+        this.processor = new NdjsonSortProcessor(jsonFactory);
+        this.batchFrames = batchFrames;
+        this.linger = linger;
+    }
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        PackageSorter sorter;
+        try {
+            sorter = sortingProfiles.sorter(ScannerWebSocketHandler.profile(
+                session.getHandshakeInfo().getHeaders().getFirst(SortingProfiles.HEADER),
+                session.getHandshakeInfo().getUri()));
+        } catch (InvalidProfileException e) {
+            return session.close(CloseStatus.POLICY_VIOLATION.withReason(e.getMessage()));
+        }
+        ScannerSession scanner = new ScannerSession(processor, sorter, jsonFactory);
+
+        return session.send(session.receive()
+            .filter(message -> message.getType() == WebSocketMessage.Type.TEXT)
+            .handle((WebSocketMessage message, SynchronousSink<byte[]> sink) -> {
+                DataBuffer payload = message.getPayload();
+                byte[] frame = new byte[payload.readableByteCount()];
+                payload.read(frame);
+                scanner.accept(frame, frame.length);
+                byte[] results = scanner.drain();
+                if (results != null) {
+                    sink.next(results);
+                }
+            })
+            .bufferTimeout(batchFrames, linger, true)
+            .map(batch -> new WebSocketMessage(WebSocketMessage.Type.TEXT,
+                session.bufferFactory().wrap(join(batch)))));
+    }
+
+    private static byte[] join(List<byte[]> results) {
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (byte[] result : results) {
+            joined.writeBytes(result);
+        }
+        return joined.toByteArray();
+    }
+}
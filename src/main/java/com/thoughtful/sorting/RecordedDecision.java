@@ -0,0 +1,70 @@
+package com.thoughtful.sorting;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * One decision read back from the {@link DecisionJournal}.
+ */
+public class RecordedDecision {
+    private final LocalDateTime decidedAt;
+    private final String profile;
+    private final double width;
+    private final double height;
+    private final double length;
+    private final double mass;
+    private final String category;
+
+    public RecordedDecision(long decidedAtMillis, double width, double height, double length, double mass,
+                            String category, String profile) {
+        this.decidedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(decidedAtMillis), ZoneId.systemDefault());
+        this.profile = profile;
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.mass = mass;
+        this.category = category;
+    }
+
+    public LocalDateTime getDecidedAt() {
+        return decidedAt;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public double getLength() {
+        return length;
+    }
+
+    public double getMass() {
+        return mass;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordedDecision{" +
+                "decidedAt=" + decidedAt +
+                ", profile='" + profile + '\'' +
+                ", width=" + width +
+                ", height=" + height +
+                ", length=" + length +
+                ", mass=" + mass +
+                ", category='" + category + '\'' +
+                '}';
+    }
+}
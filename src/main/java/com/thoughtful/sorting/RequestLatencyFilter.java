@@ -0,0 +1,39 @@
+package com.thoughtful.sorting;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Times requests to the sorting endpoints, including validation and error handling,
+ * and records them in {@link SortingMetrics}.
+ */
+public class RequestLatencyFilter extends OncePerRequestFilter {
+
+    private final SortingMetrics metrics;
+
+    public RequestLatencyFilter(SortingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        int endpoint = SortingMetrics.endpointIndex(
+            request.getRequestURI().substring(request.getContextPath().length()));
+        if (endpoint < 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            metrics.recordRequest(endpoint, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.thoughtful.sorting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Samples {@code /api/sort} requests and records how long each phase took: reading the
+ * body, validating it, classifying (or finding a recent decision) and writing the
+ * response. Meant to stay in place in production and be turned up during an incident,
+ * instead of debug logging.
+ * <p>
+ * The sampling decision is one volatile read while the rate is 0, so tracing costs
+ * nothing until it is turned on. A sampled request keeps its timestamps in a small
+ * {@link Trace} and, once answered, copies the phase durations into a pre-allocated ring
+ * with one compare-and-set. A single drainer thread turns what was published into JSON
+ * lines in {@code sorting.tracing.file}, if set, and keeps the most recent ones for
+ * {@code GET /api/traces}. Unlike the {@link DecisionJournal}, request threads never wait
+ * for the drainer: a trace that finds the ring full is dropped and counted.
+ */
+public class RequestTracer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestTracer.class);
+
+    public static final int DESERIALIZE = 0;
+    public static final int VALIDATE = 1;
+    public static final int CLASSIFY = 2;
+    public static final int SERIALIZE = 3;
+    static final String[] PHASE_NAMES = {"deserialize", "validate", "classify", "serialize"};
+    static final int PHASES = PHASE_NAMES.length;
+
+    private static final int MAX_BATCH = 1024;
+    // Traces are for people reading them, so a few milliseconds late is fine
+    private static final long IDLE_PARK_NANOS = 5_000_000;
+    private static final byte NO_CODE = -1;
+
+    /**
+     * Timestamps of one sampled request, marked as it passes each phase.
+     */
+    public static final class Trace {
+
+        private final long startedAt = System.currentTimeMillis();
+        private final long start = System.nanoTime();
+        private final long[] ends = new long[PHASES];
+        private byte code = NO_CODE;
+        private boolean cached;
+
+        public void mark(int phase) {
+            ends[phase] = System.nanoTime();
+        }
+
+        /**
+         * Marks the end of the classify phase with its outcome.
+         *
+         * @param cached whether the decision came from the {@link DecisionStore}
+         */
+        public void classified(byte code, boolean cached) {
+            mark(CLASSIFY);
+            this.code = code;
+            this.cached = cached;
+        }
+    }
+
+    private final Path file;
+    private final long maxFileSize;
+    private volatile double sampleRate;
+
+    // Ring of traces waiting for the drainer; a slot holds the sequence it was published for
+    private final int capacity;
+    private final int mask;
+    private final long[] startedAt;
+    private final long[] durations;
+    private final int[] statuses;
+    private final byte[] codes;
+    private final boolean[] cachedFlags;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long drained;
+    private final LongAdder dropped = new LongAdder();
+
+    // Written by the drainer, newest at next - 1
+    private final Map<String, Object>[] recent;
+    private int next;
+    private long recentCount;
+
+    private BufferedWriter writer;
+    private long fileSize;
+    private Thread drainer;
+    private volatile boolean running;
+
+    /**
+     * @param sampleRate     fraction of requests traced, from 0 to 1
+     * @param bufferCapacity traces waiting for the drainer before new ones are dropped,
+     *                       rounded up to a power of two
+     * @param recentCapacity traces kept for {@link #recent}
+     * @param file           JSON lines file the traces are appended to, or null
+     * @param maxFileSize    size at which the file is moved to {@code <file>.1} and started
+     *                       again
+     */
+    @SuppressWarnings("unchecked")
+    public RequestTracer(double sampleRate, int bufferCapacity, int recentCapacity, Path file, long maxFileSize) {
+        setSampleRate(sampleRate);
+        this.file = file;
+        this.maxFileSize = maxFileSize;
+        this.capacity = Integer.highestOneBit(Math.max(2, bufferCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.startedAt = new long[capacity];
+        this.durations = new long[capacity * PHASES];
+        this.statuses = new int[capacity];
+        this.codes = new byte[capacity];
+        this.cachedFlags = new boolean[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.recent = new Map[Math.max(1, recentCapacity)];
+    }
+
+    /**
+     * A trace to fill in if this request is sampled, else null.
+     */
+    public Trace sample() {
+        double rate = sampleRate;
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return null;
+        }
+        return new Trace();
+    }
+
+    /**
+     * Records a sampled request once its response is written. Whatever ran after the last
+     * marked phase counts as serializing; phases never marked did not run.
+     */
+    public void record(Trace trace, int status) {
+        trace.mark(SERIALIZE);
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - drained >= capacity) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & mask;
+        long previous = trace.start;
+        for (int phase = 0; phase < PHASES; phase++) {
+            long end = trace.ends[phase];
+            durations[slot * PHASES + phase] = end == 0 ? -1 : end - previous;
+            if (end != 0) {
+                previous = end;
+            }
+        }
+        startedAt[slot] = trace.startedAt;
+        statuses[slot] = status;
+        codes[slot] = trace.code;
+        cachedFlags[slot] = trace.cached;
+        published.setRelease(slot, sequence);
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Takes effect from the next request.
+     */
+    public void setSampleRate(double sampleRate) {
+        if (!(sampleRate >= 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    /** Sampled requests whose trace was dropped because the drainer was a full ring behind. */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * The most recent drained traces, newest first, at most {@code limit}.
+     */
+    public synchronized List<Map<String, Object>> recent(int limit) {
+        int count = (int) Math.min(Math.min(limit, recentCount), recent.length);
+        List<Map<String, Object>> traces = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            traces.add(recent[Math.floorMod(next - i, recent.length)]);
+        }
+        return traces;
+    }
+
+    /**
+     * Waits until every trace recorded before the call has been drained.
+     */
+    public void flush() {
+        long target = claimed.get();
+        while (drained < target && running) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+        }
+    }
+
+    public Map<String, Object> toJson() {
+        long recorded = claimed.get();
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("sampleRate", sampleRate);
+        json.put("recorded", recorded);
+        json.put("dropped", getDropped());
+        json.put("pending", recorded - drained);
+        json.put("bufferCapacity", capacity);
+        json.put("file", file == null ? null : file.toAbsolutePath().toString());
+        return json;
+    }
+
+    @Override
+    public void start() {
+        if (file != null) {
+            try {
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                openFile();
+            } catch (IOException e) {
+                log.error("Could not open trace file {}; traces are only kept in memory", file, e);
+            }
+        }
+        running = true;
+        drainer = new Thread(this::run, "request-tracer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainer = null;
+        closeFile();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Started before the web server and stopped after it, like the DecisionJournal
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void run() {
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            long from = drained;
+            long to = from;
+            while (to - from < MAX_BATCH && published.getAcquire((int) to & mask) == to) {
+                to++;
+            }
+            if (to == from) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            for (long sequence = from; sequence < to; sequence++) {
+                drain((int) sequence & mask, line);
+            }
+            // Frees the slots only now, so record() cannot overwrite one being read
+            drained = to;
+            if (writer != null) {
+                try {
+                    writer.flush();
+                } catch (IOException e) {
+                    failFile(e);
+                }
+            }
+        }
+    }
+
+    private void drain(int slot, StringBuilder line) {
+        Map<String, Object> phases = new LinkedHashMap<>();
+        long total = 0;
+        for (int phase = 0; phase < PHASES; phase++) {
+            long nanos = durations[slot * PHASES + phase];
+            phases.put(PHASE_NAMES[phase], nanos < 0 ? null : nanos);
+            total += Math.max(0, nanos);
+        }
+        byte code = codes[slot];
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("startedAt", Instant.ofEpochMilli(startedAt[slot]).toString());
+        json.put("status", statuses[slot]);
+        json.put("category", code == NO_CODE ? null : PackageSorter.category(code));
+        json.put("cached", cachedFlags[slot]);
+        json.put("totalNanos", total);
+        json.put("phaseNanos", phases);
+        synchronized (this) {
+            recent[next] = json;
+            next = (next + 1) % recent.length;
+            recentCount++;
+        }
+        if (writer != null) {
+            line.setLength(0);
+            appendJson(line, json);
+            line.append('\n');
+            try {
+                writer.append(line);
+                fileSize += line.length();
+                if (fileSize >= maxFileSize) {
+                    closeFile();
+                    Files.move(file, file.resolveSibling(file.getFileName() + ".1"),
+                        StandardCopyOption.REPLACE_EXISTING);
+                    openFile();
+                }
+            } catch (IOException e) {
+                failFile(e);
+            }
+        }
+    }
+
+    // Only strings, numbers, booleans, null and nested maps occur in a trace
+    @SuppressWarnings("unchecked")
+    private static void appendJson(StringBuilder out, Map<String, Object> json) {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : json.entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            out.append('"').append(entry.getKey()).append("\":");
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                appendJson(out, (Map<String, Object>) value);
+            } else if (value instanceof String) {
+                out.append('"').append(value).append('"');
+            } else {
+                out.append(value);
+            }
+        }
+        out.append('}');
+    }
+
+    private void openFile() throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+        fileSize = Files.size(file);
+    }
+
+    private void closeFile() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Could not close trace file {}: {}", file, e.toString());
+            }
+            writer = null;
+        }
+    }
+
+    private void failFile(IOException e) {
+        log.error("Could not write trace file {}; traces are only kept in memory", file, e);
+        closeFile();
+    }
+}
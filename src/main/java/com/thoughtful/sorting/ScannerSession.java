@@ -0,0 +1,85 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Classification state of one scanner WebSocket session, shared by the servlet and
+ * reactive handlers.
+ * <p>
+ * Each text frame holds one or more packages as NDJSON lines. Every package gets one
+ * result line, exactly as {@code POST /api/sort/stream} writes it, in the order the
+ * packages arrived; lines are numbered across the whole session, so an error names the
+ * package it belongs to. Results pile up in an output buffer until the handler takes
+ * them with {@link #drain}, so it can send the results of several frames in one.
+ * <p>
+ * Not thread-safe: a session's frames are handled one at a time.
+ */
+final class ScannerSession {
+
+    private final NdjsonSortProcessor processor;
+    private final PackageSorter sorter;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+    private final JsonGenerator generator;
+    private final PackageMeasurement measurement = new PackageMeasurement();
+    private final NdjsonSortProcessor.Summary summary = new NdjsonSortProcessor.Summary();
+    private long line;
+    private int frames;
+
+    ScannerSession(NdjsonSortProcessor processor, PackageSorter sorter, JsonFactory factory) {
+        this.processor = processor;
+        this.sorter = sorter;
+        try {
+            this.generator = factory.createGenerator(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        generator.setRootValueSeparator(null);
+    }
+
+    /**
+     * Classifies the packages of one frame and buffers their results.
+     */
+    void accept(byte[] frame, int length) {
+        try {
+            int start = 0;
+            while (start < length) {
+                int newline = NdjsonSortProcessor.indexOf(frame, start, length);
+                int end = newline < 0 ? length : newline;
+                processor.processLine(frame, start, end, ++line, generator, measurement, summary, sorter);
+                start = end + 1;
+            }
+            generator.flush();
+        } catch (IOException e) {
+            // Only writes to memory
+            throw new UncheckedIOException(e);
+        }
+        frames++;
+    }
+
+    /** Frames accepted since the last {@link #drain}. */
+    int pendingFrames() {
+        return frames;
+    }
+
+    /**
+     * Takes the buffered result lines, or {@code null} if there are none.
+     */
+    byte[] drain() {
+        frames = 0;
+        if (out.size() == 0) {
+            return null;
+        }
+        byte[] results = out.toByteArray();
+        out.reset();
+        return results;
+    }
+
+    NdjsonSortProcessor.Summary getSummary() {
+        return summary;
+    }
+}
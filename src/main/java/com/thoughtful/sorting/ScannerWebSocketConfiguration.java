@@ -0,0 +1,41 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+import java.time.Duration;
+
+/**
+ * Registers the scanner session endpoint on the servlet stack; {@link ReactiveConfiguration}
+ * does the same for the reactive one. The handler is not a bean of its own, so it is
+ * destroyed with this configuration.
+ */
+@Configuration
+@EnableWebSocket
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ScannerWebSocketConfiguration implements WebSocketConfigurer, DisposableBean {
+
+    private final ScannerWebSocketHandler handler;
+
+    public ScannerWebSocketConfiguration(SortingProfiles sortingProfiles, ObjectMapper objectMapper,
+                                         @Value("${sorting.scanner.batch-frames:32}") int batchFrames,
+                                         @Value("${sorting.scanner.linger:2ms}") Duration linger) {
+        this.handler = new ScannerWebSocketHandler(sortingProfiles, objectMapper.getFactory(), batchFrames, linger);
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(handler, ScannerWebSocketHandler.PATH);
+    }
+
+    @Override
+    public void destroy() {
+        handler.destroy();
+    }
+}
@@ -0,0 +1,167 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scanner sessions on the servlet stack, at {@value #PATH}.
+ * <p>
+ * A scanner opens one session, picking a profile with the {@code X-Sorting-Profile}
+ * header or a {@code profile} query parameter, and sends packages as NDJSON text frames;
+ * see {@link ScannerSession} for what comes back. Results are sent once
+ * {@code batchFrames} frames have been answered, or {@code linger} after the first
+ * unsent result, whichever comes first, so a busy scanner gets few large frames and an
+ * idle one still gets its answer within the linger.
+ * <p>
+ * Sending blocks, and it happens under the session's lock: while a slow scanner is not
+ * reading its results, its next frame waits for the send, Tomcat stops reading from its
+ * connection, and TCP pushes back on the scanner. Other sessions are not affected.
+ * Lingered sends run on virtual threads for the same reason. Both executors are shut down
+ * on {@link #destroy}, after the web server has stopped.
+ */
+public class ScannerWebSocketHandler extends TextWebSocketHandler implements DisposableBean {
+
+    public static final String PATH = "/ws/scanner";
+
+    private static final Logger log = LoggerFactory.getLogger(ScannerWebSocketHandler.class);
+    private static final String CHANNEL = ScannerWebSocketHandler.class.getName();
+
+    private final SortingProfiles sortingProfiles;
+    private final JsonFactory jsonFactory;
+    private final NdjsonSortProcessor processor;
+    private final int batchFrames;
+    private final long lingerNanos;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "scanner-linger");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ScannerWebSocketHandler(SortingProfiles sortingProfiles, JsonFactory jsonFactory,
+                                   int batchFrames, Duration linger) {
+        this.sortingProfiles = sortingProfiles;
+        this.jsonFactory = jsonFactory;
+        this.processor = new NdjsonSortProcessor(jsonFactory);
+        this.batchFrames = batchFrames;
+        this.lingerNanos = linger.toNanos();
+    }
+
+    // Header first; browsers cannot set headers on a WebSocket, so also the query string
+    static String profile(String header, URI uri) {
+        if (header != null) {
+            return header;
+        }
+        return uri == null ? null : UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("profile");
+    }
+
+    @Override
+    public void destroy() {
+        // Pending lingers are dropped: their sessions have been closed with the web server
+        timer.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        PackageSorter sorter;
+        try {
+            sorter = sortingProfiles.sorter(
+                profile(session.getHandshakeHeaders().getFirst(SortingProfiles.HEADER), session.getUri()));
+        } catch (InvalidProfileException e) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason(e.getMessage()));
+            return;
+        }
+        // Tomcat's default of 8 KiB would close sessions sending larger frames
+        session.setTextMessageSizeLimit(NdjsonSortProcessor.MAX_LINE_LENGTH);
+        session.getAttributes().put(CHANNEL, new Channel(session, new ScannerSession(processor, sorter, jsonFactory)));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Channel channel = (Channel) session.getAttributes().get(CHANNEL);
+        if (channel != null) {
+            byte[] frame = message.asBytes();
+            channel.receive(frame);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Channel channel = (Channel) session.getAttributes().remove(CHANNEL);
+        if (channel != null) {
+            log.debug("Scanner session {} closed after {} packages", session.getId(),
+                channel.scanner.getSummary().getRecords());
+        }
+    }
+
+    private final class Channel {
+        private final WebSocketSession session;
+        private final ScannerSession scanner;
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean flushScheduled;
+
+        Channel(WebSocketSession session, ScannerSession scanner) {
+            this.session = session;
+            this.scanner = scanner;
+        }
+
+        void receive(byte[] frame) {
+            lock.lock();
+            try {
+                scanner.accept(frame, frame.length);
+                if (scanner.pendingFrames() >= batchFrames) {
+                    send();
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    timer.schedule(() -> senders.execute(this::flush), lingerNanos, TimeUnit.NANOSECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void flush() {
+            lock.lock();
+            try {
+                flushScheduled = false;
+                send();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void send() {
+            byte[] results = scanner.drain();
+            if (results == null || !session.isOpen()) {
+                return;
+            }
+            try {
+                session.sendMessage(new TextMessage(results));
+            } catch (IOException e) {
+                log.debug("Could not send to scanner session {}: {}", session.getId(), e.toString());
+                try {
+                    session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (IOException ignored) {
+                    // Already gone
+                }
+            }
+        }
+    }
+}
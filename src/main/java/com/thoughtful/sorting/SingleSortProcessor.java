@@ -0,0 +1,242 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Classifies the single package of a {@code POST /api/sort} body.
+ * <p>
+ * The body is read with the streaming parser straight into the primitive fields of a
+ * {@link PackageMeasurement}, and the answer is one of three response bodies serialized
+ * once, with the application's {@link ObjectMapper}, when the processor is created. A
+ * valid request therefore binds no {@link PackageRequest} or boxed values and builds no
+ * {@link PackageResponse} or {@code ResponseEntity}. Rejections are found without
+ * exceptions, except for syntax errors the parser reports, and written from
+ * {@link SortErrorBodies} templates. Response bodies and error messages are byte for byte
+ * what binding a {@code @RequestBody PackageRequest} produced.
+ * <p>
+ * A request whose id has a recent decision under the same profile in the
+ * {@link DecisionStore} gets that decision back without being validated or classified
+ * again. With a
+ * {@link SortCoalescer}, valid packages are classified in batches with those of
+ * concurrent requests.
+ */
+public class SingleSortProcessor {
+
+    // Outcome of reading the body
+    private static final int READ = 0;
+    private static final int BODY_REQUIRED = 1;
+    private static final int INVALID_JSON = 2;
+    private static final int INVALID_VALUE = 3;
+
+    private final JsonFactory jsonFactory;
+    private final byte[][] responses = new byte[Category.values().length][];
+    private final SortErrorBodies errorBodies;
+    private final SortCoalescer coalescer;
+
+    /**
+     * @param path request path reported in error bodies
+     */
+    public SingleSortProcessor(ObjectMapper objectMapper, String path) {
+        this(objectMapper, path, null);
+    }
+
+    /**
+     * @param path      request path reported in error bodies
+     * @param coalescer classifies packages of concurrent requests together, or null
+     */
+    public SingleSortProcessor(ObjectMapper objectMapper, String path, SortCoalescer coalescer) {
+        this.coalescer = coalescer;
+        this.jsonFactory = objectMapper.getFactory();
+        for (Category category : Category.values()) {
+            try {
+                responses[category.code()] = objectMapper.writeValueAsBytes(new PackageResponse(category.name()));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialize the " + category + " response", e);
+            }
+        }
+        this.errorBodies = new SortErrorBodies(objectMapper, path);
+    }
+
+    /**
+     * Starts the HTTP response once its status is known and returns the stream for the
+     * JSON body.
+     */
+    @FunctionalInterface
+    public interface Responder {
+        OutputStream begin(int status) throws IOException;
+    }
+
+    /**
+     * Classifies the package in the body and answers through {@code responder}: 200 with
+     * the category, or 400 with the error {@link GlobalExceptionHandler} reports for the
+     * same request.
+     */
+    public void process(InputStream in, Responder responder, PackageSorter sorter, DecisionStore decisionStore)
+            throws IOException {
+        process(in, responder, sorter, decisionStore, null);
+    }
+
+    /**
+     * {@link #process} that marks the end of each phase in {@code trace}, unless it is
+     * null. Writing the response is left for {@link RequestTracer#record} to time.
+     */
+    public void process(InputStream in, Responder responder, PackageSorter sorter, DecisionStore decisionStore,
+                        RequestTracer.Trace trace) throws IOException {
+        PackageMeasurement measurement = new PackageMeasurement();
+        int outcome = read(in, measurement);
+        if (trace != null) {
+            trace.mark(RequestTracer.DESERIALIZE);
+        }
+        switch (outcome) {
+            case BODY_REQUIRED:
+                errorBodies.writeBodyRequired(responder.begin(HttpServletResponse.SC_BAD_REQUEST));
+                return;
+            case INVALID_JSON:
+                errorBodies.writeInvalidJson(responder.begin(HttpServletResponse.SC_BAD_REQUEST));
+                return;
+            case INVALID_VALUE:
+                errorBodies.writeInvalidValue(responder.begin(HttpServletResponse.SC_BAD_REQUEST),
+                    measurement.getInvalidField(), measurement.getInvalidValue());
+                return;
+            default:
+                break;
+        }
+
+        String id = measurement.getId();
+        if (id != null) {
+            int cached = decisionStore.code(sorter.getProfile(), id);
+            if (cached >= 0) {
+                if (trace != null) {
+                    trace.classified((byte) cached, true);
+                }
+                responder.begin(HttpServletResponse.SC_OK).write(responses[cached]);
+                return;
+            }
+        }
+
+        boolean valid = PackageValidator.isValid(measurement) && (id == null || PackageValidator.isValidId(id));
+        if (trace != null) {
+            trace.mark(RequestTracer.VALIDATE);
+        }
+        if (!valid) {
+            errorBodies.writeViolations(responder.begin(HttpServletResponse.SC_BAD_REQUEST), measurement);
+            return;
+        }
+        byte code = coalescer == null
+            ? sorter.sortCode(measurement.getWidth(), measurement.getHeight(),
+                measurement.getLength(), measurement.getMass())
+            : coalescer.sortCode(sorter, measurement.getWidth(), measurement.getHeight(),
+                measurement.getLength(), measurement.getMass());
+        if (id != null) {
+            decisionStore.put(sorter.getProfile(), id, code);
+        }
+        if (trace != null) {
+            trace.classified(code, false);
+        }
+        responder.begin(HttpServletResponse.SC_OK).write(responses[code]);
+    }
+
+    /**
+     * {@link #process} for an already bound request, as the reactive stack receives it.
+     * Returns the category name.
+     */
+    public static String classify(PackageRequest request, PackageSorter sorter, DecisionStore decisionStore) {
+        String id = request.getId();
+        String cached = cachedCategory(sorter.getProfile(), id, decisionStore);
+        if (cached != null) {
+            return cached;
+        }
+
+        validate(request);
+        byte code = sorter.sortCode(
+            request.getWidth(),
+            request.getHeight(),
+            request.getLength(),
+            request.getMass()
+        );
+        if (id != null) {
+            decisionStore.put(sorter.getProfile(), id, code);
+        }
+        return PackageSorter.category(code);
+    }
+
+    /**
+     * {@link #classify} through a {@link SortCoalescer}, without blocking. Validation
+     * errors are thrown straight away; the future completes on the coalescer's worker.
+     */
+    public static CompletableFuture<String> classify(PackageRequest request, PackageSorter sorter,
+                                                     DecisionStore decisionStore, SortCoalescer coalescer) {
+        String id = request.getId();
+        String cached = cachedCategory(sorter.getProfile(), id, decisionStore);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        validate(request);
+        return coalescer.submit(
+            sorter,
+            request.getWidth(),
+            request.getHeight(),
+            request.getLength(),
+            request.getMass()
+        ).thenApply(code -> {
+            if (id != null) {
+                decisionStore.put(sorter.getProfile(), id, code);
+            }
+            return PackageSorter.category(code);
+        });
+    }
+
+    private static String cachedCategory(ThresholdProfile profile, String id, DecisionStore decisionStore) {
+        if (id != null) {
+            int cached = decisionStore.code(profile, id);
+            if (cached >= 0) {
+                return PackageSorter.category((byte) cached);
+            }
+        }
+        return null;
+    }
+
+    private static void validate(PackageRequest request) {
+        List<String> violations = PackageValidator.violations(request);
+        if (!violations.isEmpty()) {
+            throw new PackageValidationException(violations);
+        }
+    }
+
+    // Classifies the body as Spring MVC did: which GlobalExceptionHandler message it got
+    private int read(InputStream in, PackageMeasurement measurement) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            JsonToken first = parser.nextToken();
+            if (first == null && parser.currentLocation().getByteOffset() > 0) {
+                // Only whitespace: Jackson fails with "No content to map"
+                return INVALID_JSON;
+            }
+            if (first == null || first == JsonToken.VALUE_NULL) {
+                return BODY_REQUIRED;
+            }
+            if (!PackageJsonReader.read(parser, measurement)) {
+                return INVALID_JSON;
+            }
+        } catch (JsonProcessingException e) {
+            return INVALID_JSON;
+        }
+
+        int invalidField = measurement.getInvalidField();
+        if (measurement.isInvalidId() || (invalidField >= 0 && measurement.getInvalidValue() == null)) {
+            return INVALID_JSON;
+        }
+        return invalidField >= 0 ? INVALID_VALUE : READ;
+    }
+}
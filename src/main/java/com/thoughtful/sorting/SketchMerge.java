@@ -0,0 +1,88 @@
+package com.thoughtful.sorting;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merges package dimension sketches from files and running instances into one fleet-wide
+ * sketch, prints its quantiles per category and optionally writes it to a file or looks
+ * up how often a box size occurred. Inputs starting with {@code http://} or
+ * {@code https://} are fetched, so {@code http://sorter-1:8080/api/sketches} reads an
+ * instance's current sketch; anything else is a file written by {@code --out} or saved
+ * from that endpoint.
+ */
+public class SketchMerge {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> inputs = new ArrayList<>();
+        Path out = null;
+        double[] box = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--out".equals(args[i]) && i + 1 < args.length) {
+                out = Path.of(args[++i]);
+            } else if ("--box".equals(args[i]) && i + 1 < args.length) {
+                box = parseBox(args[++i]);
+            } else {
+                inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: SketchMerge [--out merged.sketch] [--box WxHxL] <file|url>...");
+            System.exit(2);
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        SketchSnapshot merged = SketchSnapshot.empty();
+        for (String input : inputs) {
+            merged.merge(SketchSnapshot.parse(read(client, input)));
+        }
+
+        System.out.printf("Merged %d sketches: %,d packages%n", inputs.size(), merged.count());
+        for (byte code = PackageSorter.STANDARD_CODE; code <= PackageSorter.REJECTED_CODE; code++) {
+            System.out.printf("  %s: %,d%n", PackageSorter.category(code), merged.count(code));
+            for (int metric = 0; metric < DimensionSketches.METRIC_NAMES.length; metric++) {
+                StringBuilder line = new StringBuilder(String.format("    %-19s", DimensionSketches.METRIC_NAMES[metric]));
+                for (int q = 0; q < SketchSnapshot.QUANTILES.length; q++) {
+                    line.append(String.format(" %s=%.4g", SketchSnapshot.QUANTILE_NAMES[q],
+                        merged.quantile(code, metric, SketchSnapshot.QUANTILES[q])));
+                }
+                System.out.println(line);
+            }
+        }
+        if (box != null) {
+            System.out.println("Box " + SketchesController.frequencyJson(merged, box[0], box[1], box[2]));
+        }
+        if (out != null) {
+            Files.write(out, merged.toBytes());
+            System.out.println("Wrote " + out);
+        }
+    }
+
+    private static byte[] read(HttpClient client, String input) throws IOException, InterruptedException {
+        if (!input.startsWith("http://") && !input.startsWith("https://")) {
+            return Files.readAllBytes(Path.of(input));
+        }
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(input))
+            .timeout(Duration.ofSeconds(30)).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException(input + " returned HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private static double[] parseBox(String box) {
+        String[] sides = box.split("x");
+        if (sides.length != 3) {
+            throw new IllegalArgumentException("Box must be WxHxL in cm, not " + box);
+        }
+        return new double[] {Double.parseDouble(sides[0]), Double.parseDouble(sides[1]), Double.parseDouble(sides[2])};
+    }
+}
@@ -0,0 +1,221 @@
+package com.thoughtful.sorting;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The counts of {@link DimensionSketches} at one point in time, from one instance or
+ * merged from several.
+ * <p>
+ * The serialized form is a 12-byte header ({@code int magic, int version, int counters},
+ * big-endian) followed by the number of non-zero counters and, for each, the gap since
+ * the previous one and its count, all as unsigned LEB128 varints. Sketches can be
+ * concatenated: {@link #parse} merges every sketch in its input.
+ */
+public class SketchSnapshot {
+
+    public static final int MAGIC = 0x504B4753; // "PKGS"
+    public static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    public static final String[] QUANTILE_NAMES = {"p50", "p90", "p95", "p99", "p999"};
+    public static final double[] QUANTILES = {0.5, 0.9, 0.95, 0.99, 0.999};
+
+    private final long[] counts;
+
+    SketchSnapshot(long[] counts) {
+        this.counts = counts;
+    }
+
+    public static SketchSnapshot empty() {
+        return new SketchSnapshot(new long[DimensionSketches.COUNTERS]);
+    }
+
+    /**
+     * Adds another sketch's counts to this one.
+     *
+     * @return this sketch
+     */
+    public SketchSnapshot merge(SketchSnapshot other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        return this;
+    }
+
+    /**
+     * Packages of the given category code, see {@link PackageSorter#STANDARD_CODE}.
+     */
+    public long count(byte code) {
+        int base = code * DimensionSketches.PER_CATEGORY + DimensionSketches.METRIC_OFFSETS[DimensionSketches.MASS];
+        long count = 0;
+        for (int bucket = 0; bucket < DimensionSketches.BUCKETS[DimensionSketches.MASS]; bucket++) {
+            count += counts[base + bucket];
+        }
+        return count;
+    }
+
+    public long count() {
+        long count = 0;
+        for (byte code = PackageSorter.STANDARD_CODE; code <= PackageSorter.REJECTED_CODE; code++) {
+            count += count(code);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the given quantile (0..1) of a metric such as {@link DimensionSketches#VOLUME}
+     * over the packages of one category, within {@link DimensionSketches#RELATIVE_ERROR}
+     * inside the metric's covered range, or 0 if the category is empty.
+     */
+    public double quantile(byte code, int metric, double quantile) {
+        long count = count(code);
+        if (count == 0) {
+            return 0;
+        }
+        int base = code * DimensionSketches.PER_CATEGORY + DimensionSketches.METRIC_OFFSETS[metric];
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        int buckets = DimensionSketches.BUCKETS[metric];
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            seen += counts[base + bucket];
+            if (seen >= rank) {
+                return DimensionSketches.bucketValue(metric, bucket);
+            }
+        }
+        return DimensionSketches.bucketValue(metric, buckets - 1);
+    }
+
+    /**
+     * Estimated number of packages with this box size, sides rounded to whole centimetres
+     * in any order. Never below the true count; above it by at most
+     * {@link #frequencyErrorBound} with probability 1 - e^-{@value DimensionSketches#FREQUENCY_DEPTH}.
+     */
+    public long frequency(double width, double height, double length) {
+        long key = DimensionSketches.boxKey(width, height, length);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DimensionSketches.FREQUENCY_DEPTH; row++) {
+            estimate = Math.min(estimate, counts[DimensionSketches.FREQUENCY_OFFSET
+                + DimensionSketches.frequencyCell(row, key)]);
+        }
+        return estimate;
+    }
+
+    public long frequencyErrorBound() {
+        return (long) Math.ceil(Math.E * count() / DimensionSketches.FREQUENCY_WIDTH);
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (long count : counts) {
+            nonZero += count != 0 ? 1 : 0;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + 4 * nonZero + 8);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+            .putInt(MAGIC).putInt(VERSION).putInt(counts.length);
+        out.writeBytes(header.array());
+        writeVarint(out, nonZero);
+        int previous = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                writeVarint(out, i - previous - 1);
+                writeVarint(out, counts[i]);
+                previous = i;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads one or more concatenated sketches and merges them.
+     *
+     * @throws InvalidSketchException if the input is empty, truncated or not a sketch of
+     *                                this layout
+     */
+    public static SketchSnapshot parse(byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new InvalidSketchException("No sketch in input");
+        }
+        SketchSnapshot merged = empty();
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            while (in.hasRemaining()) {
+                read(in, merged.counts);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new InvalidSketchException("Truncated sketch at byte " + in.position());
+        }
+        return merged;
+    }
+
+    private static void read(ByteBuffer in, long[] counts) {
+        int start = in.position();
+        if (in.getInt() != MAGIC) {
+            throw new InvalidSketchException("Not a package dimension sketch at byte " + start);
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new InvalidSketchException("Unsupported sketch version " + version);
+        }
+        int layout = in.getInt();
+        if (layout != counts.length) {
+            throw new InvalidSketchException("Sketch has " + layout + " counters, expected " + counts.length);
+        }
+        long entries = readVarint(in);
+        long index = -1;
+        for (long i = 0; i < entries; i++) {
+            index += readVarint(in) + 1;
+            long count = readVarint(in);
+            if (index < 0 || index >= counts.length || count < 0) {
+                throw new InvalidSketchException("Corrupt sketch at byte " + in.position());
+            }
+            counts[(int) index] += count;
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new InvalidSketchException("Corrupt sketch at byte " + in.position());
+    }
+
+    public Map<String, Object> toJson() {
+        Map<String, Object> categories = new LinkedHashMap<>();
+        for (byte code = PackageSorter.STANDARD_CODE; code <= PackageSorter.REJECTED_CODE; code++) {
+            Map<String, Object> category = new LinkedHashMap<>();
+            category.put("count", count(code));
+            for (int metric = 0; metric < DimensionSketches.METRIC_NAMES.length; metric++) {
+                Map<String, Double> quantiles = new LinkedHashMap<>();
+                for (int q = 0; q < QUANTILES.length; q++) {
+                    quantiles.put(QUANTILE_NAMES[q], quantile(code, metric, QUANTILES[q]));
+                }
+                category.put(DimensionSketches.METRIC_NAMES[metric], quantiles);
+            }
+            categories.put(PackageSorter.category(code), category);
+        }
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("packages", count());
+        json.put("relativeError", DimensionSketches.RELATIVE_ERROR);
+        json.put("frequencyErrorBound", frequencyErrorBound());
+        json.put("categories", categories);
+        return json;
+    }
+}
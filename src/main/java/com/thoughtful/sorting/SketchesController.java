@@ -0,0 +1,77 @@
+package com.thoughtful.sorting;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serves this instance's {@link DimensionSketches} in serialized form for other instances
+ * and {@link SketchMerge} to merge, and merges sketches posted to it. Summaries are
+ * quantiles per category; frequencies are looked up one box size at a time.
+ */
+@RestController
+@RequestMapping("/api/sketches")
+@ConditionalOnProperty(name = "sorting.sketches.enabled", havingValue = "true", matchIfMissing = true)
+public class SketchesController {
+
+    private final DimensionSketches sketches;
+
+    public SketchesController(DimensionSketches sketches) {
+        this.sketches = sketches;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> sketch() {
+        return ResponseEntity.ok(sketches.snapshot().toBytes());
+    }
+
+    @GetMapping(path = "/summary", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> summary() {
+        return ResponseEntity.ok(sketches.snapshot().toJson());
+    }
+
+    @GetMapping(path = "/frequency", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> frequency(@RequestParam double width, @RequestParam double height,
+                                                         @RequestParam double length) {
+        return ResponseEntity.ok(frequencyJson(sketches.snapshot(), width, height, length));
+    }
+
+    // One or more concatenated sketches, plus this instance's unless local=false
+    @PostMapping(path = "/merge", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> mergeSummary(@RequestBody byte[] body,
+                                                            @RequestParam(defaultValue = "true") boolean local) {
+        return ResponseEntity.ok(merge(body, local).toJson());
+    }
+
+    @PostMapping(path = "/merge", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> mergeSketch(@RequestBody byte[] body,
+                                              @RequestParam(defaultValue = "true") boolean local) {
+        return ResponseEntity.ok(merge(body, local).toBytes());
+    }
+
+    private SketchSnapshot merge(byte[] body, boolean local) {
+        SketchSnapshot merged = SketchSnapshot.parse(body);
+        return local ? merged.merge(sketches.snapshot()) : merged;
+    }
+
+    static Map<String, Object> frequencyJson(SketchSnapshot snapshot, double width, double height, double length) {
+        long key = DimensionSketches.boxKey(width, height, length);
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("box", (key >>> 32) + "x" + (key >>> 16 & 0xFFFF) + "x" + (key & 0xFFFF));
+        json.put("estimate", snapshot.frequency(width, height, length));
+        json.put("errorBound", snapshot.frequencyErrorBound());
+        json.put("packages", snapshot.count());
+        return json;
+    }
+}
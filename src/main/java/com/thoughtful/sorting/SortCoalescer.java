@@ -0,0 +1,227 @@
+package com.thoughtful.sorting;
+
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Classifies concurrent single sorts together, so that {@code POST /api/sort} under load
+ * goes through the batch path of {@link PackageSorter#sortBatch} instead of one
+ * {@link PackageSorter#sortCode} per request.
+ * <p>
+ * A request thread claims a slot in a pre-allocated ring with one atomic increment,
+ * writes the package into it, publishes it and gets a future for the category code. A
+ * single worker thread takes everything published since its last pass, up to
+ * {@code max-batch}; with a {@code max-wait} it waits that long after the first package
+ * for the batch to fill. Consecutive packages for the same profile are classified with
+ * one {@code sortBatch} call, and each caller's future is completed. When the worker
+ * falls a full ring behind, request threads wait for it. Batch sizes are recorded in
+ * {@link SortingMetrics}.
+ * <p>
+ * After {@link #stop} new packages are classified on the calling thread, and those
+ * already in the ring are still classified by the worker before it exits.
+ */
+public class SortCoalescer implements SmartLifecycle {
+
+    private static final long FULL_PARK_NANOS = 20_000;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    // Set in claimed by stop; sequences claimed after it are not in the ring
+    private static final long CLOSED = 1L << 62;
+
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final SortingMetrics metrics;
+
+    // Ring of pending packages; a slot holds the sequence it was published for
+    private final int capacity;
+    private final int mask;
+    private final double[] widths;
+    private final double[] heights;
+    private final double[] lengths;
+    private final double[] masses;
+    private final byte[] codes;
+    private final PackageSorter[] sorters;
+    private final CompletableFuture<Byte>[] futures;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(CLOSED);
+    private volatile long consumed;
+
+    private Thread worker;
+    private volatile boolean sleeping;
+    private volatile boolean running;
+
+    /**
+     * @param bufferCapacity packages waiting for the worker before request threads wait,
+     *                       rounded up to a power of two and at least {@code maxBatch}
+     */
+    @SuppressWarnings("unchecked")
+    public SortCoalescer(int maxBatch, Duration maxWait, int bufferCapacity, SortingMetrics metrics) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Max batch must be at least 1");
+        }
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.metrics = metrics;
+        this.capacity = Integer.highestOneBit(Math.max(2, Math.max(maxBatch, bufferCapacity) - 1)) << 1;
+        this.mask = capacity - 1;
+        this.widths = new double[capacity];
+        this.heights = new double[capacity];
+        this.lengths = new double[capacity];
+        this.masses = new double[capacity];
+        this.codes = new byte[capacity];
+        this.sorters = new PackageSorter[capacity];
+        this.futures = new CompletableFuture[capacity];
+        this.published = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Queues one package for the next batch.
+     *
+     * @return the future category code, completed on the worker thread
+     */
+    public CompletableFuture<Byte> submit(PackageSorter sorter, double width, double height, double length,
+                                          double mass) {
+        long sequence = claimed.getAndIncrement();
+        if ((sequence & CLOSED) != 0) {
+            return CompletableFuture.completedFuture(sorter.sortCode(width, height, length, mass));
+        }
+        while (sequence - consumed >= capacity) {
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        CompletableFuture<Byte> future = new CompletableFuture<>();
+        int slot = (int) sequence & mask;
+        widths[slot] = width;
+        heights[slot] = height;
+        lengths[slot] = length;
+        masses[slot] = mass;
+        sorters[slot] = sorter;
+        futures[slot] = future;
+        // Volatile, not release: with the worker's volatile write of sleeping and read of
+        // the slot, either it sees this package or this thread sees it sleeping
+        published.set(slot, sequence);
+        if (sleeping) {
+            LockSupport.unpark(worker);
+        }
+        return future;
+    }
+
+    /**
+     * {@link #submit} and wait: the category code, as {@link PackageSorter#sortCode}
+     * returns it.
+     */
+    public byte sortCode(PackageSorter sorter, double width, double height, double length, double mass) {
+        return submit(sorter, width, height, length, mass).join();
+    }
+
+    @Override
+    public void start() {
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        consumed = 0;
+        worker = new Thread(this::run, "sort-coalescer");
+        worker.setDaemon(true);
+        running = true;
+        claimed.set(0);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Started before the web server and stopped after it, like the DecisionJournal
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void run() {
+        long end = Long.MAX_VALUE;
+        while (true) {
+            long from = consumed;
+            if (from == end) {
+                break;
+            }
+            long to = drain(from, from);
+            if (to == from) {
+                if (!running && end == Long.MAX_VALUE) {
+                    // Later submits see CLOSED and classify on their own thread
+                    end = claimed.getAndAdd(CLOSED);
+                    continue;
+                }
+                sleeping = true;
+                if (published.get((int) from & mask) != from) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+                continue;
+            }
+            if (to - from < maxBatch && maxWaitNanos > 0) {
+                long deadline = System.nanoTime() + maxWaitNanos;
+                for (long left = maxWaitNanos; left > 0 && to - from < maxBatch; left = deadline - System.nanoTime()) {
+                    LockSupport.parkNanos(left);
+                    to = drain(from, to);
+                }
+            }
+            // Before answering, so a caller that got its result also sees its batch counted
+            metrics.recordBatch((int) (to - from));
+            classify(from, to);
+            consumed = to;
+        }
+    }
+
+    // Extends [from, to) over packages published since, up to maxBatch
+    private long drain(long from, long to) {
+        while (to - from < maxBatch && published.getAcquire((int) to & mask) == to) {
+            to++;
+        }
+        return to;
+    }
+
+    private void classify(long from, long to) {
+        long start = from;
+        while (start < to) {
+            int slot = (int) start & mask;
+            PackageSorter sorter = sorters[slot];
+            // A run of the same sorter, not wrapping around the end of the ring
+            int count = 1;
+            while (start + count < to && slot + count < capacity && sorters[slot + count] == sorter) {
+                count++;
+            }
+            try {
+                sorter.sortBatch(widths, heights, lengths, masses, codes, slot, count);
+                for (int i = slot; i < slot + count; i++) {
+                    futures[i].complete(codes[i]);
+                }
+            } catch (RuntimeException e) {
+                // A failing listener fails the requests of its batch, not the worker
+                for (int i = slot; i < slot + count; i++) {
+                    futures[i].completeExceptionally(e);
+                }
+            }
+            for (int i = slot; i < slot + count; i++) {
+                futures[i] = null;
+                sorters[i] = null;
+            }
+            start += count;
+        }
+    }
+}
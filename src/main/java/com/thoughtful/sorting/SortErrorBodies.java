@@ -0,0 +1,196 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Error bodies for rejected {@code /api/sort} requests, written without exceptions,
+ * {@code String.format} or an {@link ErrorResponse} per request.
+ * <p>
+ * Each distinct error is serialized once with the application's {@link ObjectMapper},
+ * with marker values where the timestamp and a rejected value go, and split into
+ * templates around them. A rejection then writes the template parts with the current
+ * timestamp, serialized at most once per millisecond, and the rejected value escaped as
+ * Jackson escapes it. The bodies are exactly what {@link GlobalExceptionHandler} writes
+ * for the same errors, with timestamps at millisecond precision.
+ */
+public class SortErrorBodies {
+
+    // Never a real timestamp or rejected value
+    private static final LocalDateTime TIMESTAMP_MARKER = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final String VALUE_MARKER = "__rejected_value__";
+
+    // Validation keys: two bits per measurement (1 missing, 2 not positive), then the id
+    private static final int MISSING = 1;
+    private static final int NOT_POSITIVE = 2;
+    private static final int ID_SIZE = 1 << (2 * PackageValidator.FIELD_COUNT);
+    private static final int ID_PATTERN = ID_SIZE << 1;
+    private static final int VALIDATION_KEYS = ID_PATTERN << 1;
+
+    private final ObjectMapper objectMapper;
+    private final String path;
+    private final byte[] timestampMarker;
+    private final byte[][] bodyRequired;
+    private final byte[][] invalidJson;
+    private final byte[][][] invalidValue = new byte[PackageValidator.FIELD_COUNT][][];
+    private final AtomicReferenceArray<byte[][]> violations = new AtomicReferenceArray<>(VALIDATION_KEYS);
+
+    private volatile Timestamp timestamp = new Timestamp(Long.MIN_VALUE, null);
+
+    public SortErrorBodies(ObjectMapper objectMapper, String path) {
+        this.objectMapper = objectMapper;
+        this.path = path;
+        try {
+            this.timestampMarker = objectMapper.writeValueAsBytes(TIMESTAMP_MARKER);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.bodyRequired = template(ErrorResponse.INVALID_REQUEST, GlobalExceptionHandler.BODY_REQUIRED_MESSAGE);
+        this.invalidJson = template(ErrorResponse.INVALID_REQUEST, GlobalExceptionHandler.INVALID_JSON_MESSAGE);
+        for (int field = 0; field < PackageValidator.FIELD_COUNT; field++) {
+            invalidValue[field] = template(ErrorResponse.INVALID_REQUEST,
+                PackageValidator.invalidValueMessage(field, VALUE_MARKER));
+        }
+    }
+
+    public void writeBodyRequired(OutputStream out) throws IOException {
+        write(out, bodyRequired, null);
+    }
+
+    public void writeInvalidJson(OutputStream out) throws IOException {
+        write(out, invalidJson, null);
+    }
+
+    /**
+     * Writes the error for a field whose text value is not a number.
+     */
+    public void writeInvalidValue(OutputStream out, int field, String value) throws IOException {
+        write(out, invalidValue[field], JsonStringEncoder.getInstance().quoteAsUTF8(value));
+    }
+
+    /**
+     * Writes the validation failure of a measurement that {@link PackageValidator} rejected,
+     * with the same messages as {@link PackageValidator#violations}.
+     */
+    public void writeViolations(OutputStream out, PackageMeasurement measurement) throws IOException {
+        int key = 0;
+        for (int field = 0; field < PackageValidator.FIELD_COUNT; field++) {
+            if (!measurement.isPresent(field)) {
+                key |= MISSING << (2 * field);
+            } else if (!(measurement.get(field) > 0)) {
+                key |= NOT_POSITIVE << (2 * field);
+            }
+        }
+        String id = measurement.getId();
+        if (id != null) {
+            if (id.isEmpty() || id.length() > DecisionStore.MAX_ID_LENGTH) {
+                key |= ID_SIZE;
+            }
+            if (!PackageValidator.isPrintableAscii(id)) {
+                key |= ID_PATTERN;
+            }
+        }
+
+        byte[][] template = violations.get(key);
+        if (template == null) {
+            List<String> messages = PackageValidator.violations(measurement);
+            PackageValidator.addIdViolations(id, messages);
+            template = template(ErrorResponse.VALIDATION_FAILED, messages);
+            violations.set(key, template);
+        }
+        write(out, template, null);
+    }
+
+    private void write(OutputStream out, byte[][] parts, byte[] value) throws IOException {
+        out.write(parts[0]);
+        out.write(timestamp());
+        out.write(parts[1]);
+        if (parts.length > 2) {
+            out.write(value);
+            out.write(parts[2]);
+        }
+    }
+
+    // The current time as the ObjectMapper writes it, serialized once per millisecond
+    private byte[] timestamp() throws IOException {
+        long now = System.currentTimeMillis();
+        Timestamp current = timestamp;
+        if (current.millis != now) {
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault());
+            current = new Timestamp(now, objectMapper.writeValueAsBytes(time));
+            timestamp = current;
+        }
+        return current.bytes;
+    }
+
+    private byte[][] template(String error, String message) {
+        List<String> messages = new ArrayList<>();
+        messages.add(message);
+        return template(error, messages);
+    }
+
+    // The body split around the timestamp and, if present, the value marker
+    private byte[][] template(String error, List<String> messages) {
+        ErrorResponse response = new ErrorResponse(HttpStatus.BAD_REQUEST.value(), error, messages, path);
+        response.setTimestamp(TIMESTAMP_MARKER);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int time = indexOf(body, timestampMarker, 0);
+        if (time < 0) {
+            throw new IllegalStateException("Timestamp not found in serialized error body");
+        }
+        byte[] head = Arrays.copyOfRange(body, 0, time);
+        int rest = time + timestampMarker.length;
+        byte[] valueMarker = VALUE_MARKER.getBytes(StandardCharsets.US_ASCII);
+        int value = indexOf(body, valueMarker, rest);
+        if (value < 0) {
+            return new byte[][] {head, Arrays.copyOfRange(body, rest, body.length)};
+        }
+        return new byte[][] {
+            head,
+            Arrays.copyOfRange(body, rest, value),
+            Arrays.copyOfRange(body, value + valueMarker.length, body.length)
+        };
+    }
+
+    private static int indexOf(byte[] array, byte[] pattern, int from) {
+        outer:
+        for (int i = from; i <= array.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (array[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static final class Timestamp {
+        final long millis;
+        final byte[] bytes;
+
+        Timestamp(long millis, byte[] bytes) {
+            this.millis = millis;
+            this.bytes = bytes;
+        }
+    }
+}
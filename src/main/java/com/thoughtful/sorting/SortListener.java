@@ -0,0 +1,25 @@
+package com.thoughtful.sorting;
+
+/**
+ * Receives every decision made by a {@link PackageSorter}. Called on the classifying
+ * thread, so implementations must be thread-safe and cheap.
+ */
+public interface SortListener {
+
+    /**
+     * @param code    category code, see {@link PackageSorter#STANDARD_CODE}
+     * @param reasons which rules the package broke, a combination of
+     *                {@link PackageSorter#BULKY_BY_DIMENSION}, {@link PackageSorter#BULKY_BY_VOLUME}
+     *                and {@link PackageSorter#HEAVY}
+     */
+    void onSort(double width, double height, double length, double mass, byte code, int reasons);
+
+    /**
+     * Returns the listener a sorter for the given profile should notify. Called once per
+     * sorter when it is built, so listeners that record the profile can bind it here
+     * instead of looking it up per decision. Returns this listener by default.
+     */
+    default SortListener forProfile(ThresholdProfile profile) {
+        return this;
+    }
+}
@@ -0,0 +1,157 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares one {@link PackageSorter} between every entry point, so REST and binary
+ * clients always get the same decision for the same package. Every {@link SortListener}
+ * bean, including {@link SortingMetrics}, {@link SortingStats} and, unless
+ * {@code sorting.sketches.enabled} is false, {@link DimensionSketches}, sees each decision.
+ * REST requests can pick a facility profile from {@link SortingProfiles}; the shared
+ * sorter is its default.
+ * Decisions for requests that carry a package id are kept in the {@link DecisionStore};
+ * with {@code sorting.journal.enabled} every decision is also kept in the
+ * {@link DecisionJournal}. Uploaded manifests are classified in the background by
+ * {@link ManifestJobs}. The {@link StackAssigner} holds the occupancy of the physical
+ * stacks of each category. The {@link AdmissionLimiter} decides which sorting requests
+ * are let in at all; with {@code sorting.coalescing.enabled} the {@link SortCoalescer}
+ * classifies concurrent {@code /api/sort} requests in batches. The {@link RequestTracer}
+ * times the phases of a sample of {@code /api/sort} requests.
+ */
+@Configuration
+public class SortingConfiguration {
+
+    @Bean
+    public SortingMetrics sortingMetrics() {
+        return new SortingMetrics();
+    }
+
+    @Bean
+    public SortingStats sortingStats() {
+        return new SortingStats();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sorting.sketches.enabled", havingValue = "true", matchIfMissing = true)
+    public DimensionSketches dimensionSketches() {
+        return new DimensionSketches();
+    }
+
+    @Bean
+    public SortingProfiles sortingProfiles(List<SortListener> listeners,
+                                           @Value("${sorting.profiles.location:}") String location) {
+        SortingProfiles profiles = new SortingProfiles(location.isEmpty() ? null : Path.of(location), listeners);
+        profiles.reload();
+        return profiles;
+    }
+
+    @Bean
+    public PackageSorter packageSorter(SortingProfiles sortingProfiles) {
+        return sortingProfiles.getDefault();
+    }
+
+    @Bean
+    public DecisionStore decisionStore(@Value("${sorting.decisions.capacity:262144}") int capacity,
+                                       @Value("${sorting.decisions.ttl:24h}") Duration ttl) {
+        return new DecisionStore(capacity, ttl);
+    }
+
+    @Bean
+    public StackAssigner stackAssigner(@Value("${sorting.stacks.standard:S1:500,S2:500,S3:500,S4:500}") String standard,
+                                       @Value("${sorting.stacks.special:P1:100,P2:100}") String special,
+                                       @Value("${sorting.stacks.rejected:R1:200}") String rejected) {
+        Map<Category, Map<String, Integer>> stacks = new EnumMap<>(Category.class);
+        stacks.put(Category.STANDARD, StackAssigner.parse(standard));
+        stacks.put(Category.SPECIAL, StackAssigner.parse(special));
+        stacks.put(Category.REJECTED, StackAssigner.parse(rejected));
+        return new StackAssigner(stacks);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sorting.journal.enabled", havingValue = "true")
+    public DecisionJournal decisionJournal(@Value("${sorting.journal.directory:journal}") String directory,
+                                           @Value("${sorting.journal.segment-size:64MB}") DataSize segmentSize,
+                                           @Value("${sorting.journal.sync-interval:50ms}") Duration syncInterval,
+                                           @Value("${sorting.journal.retention:90d}") Duration retention,
+                                           @Value("${sorting.journal.buffer-capacity:65536}") int bufferCapacity) {
+        return new DecisionJournal(Path.of(directory), Math.toIntExact(segmentSize.toBytes()),
+            syncInterval, retention, bufferCapacity);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sorting.jobs.enabled", havingValue = "true", matchIfMissing = true)
+    public ManifestJobs manifestJobs(@Value("${sorting.jobs.directory:jobs}") String directory,
+                                     @Value("${sorting.jobs.chunk-size:65536}") int chunkSize,
+                                     @Value("${sorting.jobs.parallelism:0}") int parallelism,
+                                     @Value("${sorting.jobs.max-upload-bytes:1073741824}") long maxUploadBytes) {
+        return new ManifestJobs(Path.of(directory), chunkSize, parallelism, maxUploadBytes);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sorting.coalescing.enabled", havingValue = "true")
+    public SortCoalescer sortCoalescer(SortingMetrics sortingMetrics,
+                                       @Value("${sorting.coalescing.max-batch:64}") int maxBatch,
+                                       @Value("${sorting.coalescing.max-wait:0}") Duration maxWait,
+                                       @Value("${sorting.coalescing.buffer-capacity:1024}") int bufferCapacity) {
+        return new SortCoalescer(maxBatch, maxWait, bufferCapacity, sortingMetrics);
+    }
+
+    @Bean
+    public AdmissionLimiter admissionLimiter(@Value("${sorting.admission.rate-per-second:0}") double ratePerSecond,
+                                             @Value("${sorting.admission.burst:20}") int burst,
+                                             @Value("${sorting.admission.max-concurrent:0}") int maxConcurrent,
+                                             @Value("${sorting.admission.max-clients:100000}") int maxClients) {
+        return new AdmissionLimiter(new AdmissionLimits(ratePerSecond, burst, maxConcurrent), maxClients);
+    }
+
+    @Bean
+    public RequestTracer requestTracer(@Value("${sorting.tracing.sample-rate:0}") double sampleRate,
+                                       @Value("${sorting.tracing.buffer-capacity:4096}") int bufferCapacity,
+                                       @Value("${sorting.tracing.recent:1000}") int recent,
+                                       @Value("${sorting.tracing.file:}") String file,
+                                       @Value("${sorting.tracing.max-file-size:64MB}") DataSize maxFileSize) {
+        return new RequestTracer(sampleRate, bufferCapacity, recent, file.isEmpty() ? null : Path.of(file),
+            maxFileSize.toBytes());
+    }
+
+    // Ahead of RequestLatencyFilter, so rejected requests don't count towards latency
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(AdmissionLimiter admissionLimiter,
+                                                                   ObjectMapper objectMapper) {
+        FilterRegistrationBean<AdmissionFilter> registration =
+            new FilterRegistrationBean<>(new AdmissionFilter(admissionLimiter, objectMapper));
+        registration.addUrlPatterns(SortingMetrics.ENDPOINTS);
+        registration.setOrder(0);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<RequestLatencyFilter> requestLatencyFilter(SortingMetrics metrics) {
+        FilterRegistrationBean<RequestLatencyFilter> registration =
+            new FilterRegistrationBean<>(new RequestLatencyFilter(metrics));
+        registration.addUrlPatterns(SortingMetrics.ENDPOINTS);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sorting.binary.enabled", havingValue = "true")
+    public BinarySortServer binarySortServer(PackageSorter packageSorter,
+                                             @Value("${sorting.binary.port:9090}") int port) {
+        return new BinarySortServer(packageSorter, port);
+    }
+}
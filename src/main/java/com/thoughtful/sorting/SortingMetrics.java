@@ -0,0 +1,204 @@
+package com.thoughtful.sorting;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Classification and request latency metrics. Decisions arrive through
+ * {@link SortListener}, latencies through {@link #recordRequest} and the sizes of
+ * {@link SortCoalescer} batches through {@link #recordBatch}; each is a lock-free add to
+ * striped counters, so instrumenting the hot path costs a few nanoseconds.
+ */
+public class SortingMetrics implements SortListener {
+
+    static final String[] ENDPOINTS = {"/api/sort", "/api/sort/batch", "/api/sort/stream"};
+
+    // In bit order of PackageSorter.BULKY_BY_DIMENSION, BULKY_BY_VOLUME and HEAVY
+    private static final String[] REASONS = {"bulky_dimension", "bulky_volume", "heavy"};
+
+    // One counter per (category, reasons) pair, so each decision is a single add;
+    // category and reason totals are summed when read
+    private static final int REASON_BITS = 3;
+    private static final int SLOTS = (PackageSorter.REJECTED_CODE + 1) << REASON_BITS;
+
+    // Upper bounds of the coalesced batch size buckets; larger batches count as +Inf
+    static final int[] BATCH_SIZE_BOUNDS = {1, 2, 4, 8, 16, 32, 64, 128};
+    private static final int BATCH_OVERFLOW = BATCH_SIZE_BOUNDS.length;
+    private static final int BATCH_PACKAGES = BATCH_OVERFLOW + 1;
+
+    private final StripedCounters decisions = new StripedCounters(SLOTS);
+    private final LatencyHistogram[] latencies = new LatencyHistogram[ENDPOINTS.length];
+    private final StripedCounters batches = new StripedCounters(BATCH_PACKAGES + 1);
+
+    public SortingMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void onSort(double width, double height, double length, double mass, byte code, int reasons) {
+        decisions.increment(code << REASON_BITS | reasons);
+    }
+
+    /**
+     * Records one batch of {@code size} coalesced single sorts.
+     */
+    public void recordBatch(int size) {
+        int bucket = size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+        batches.increment(Math.min(bucket, BATCH_OVERFLOW));
+        batches.add(BATCH_PACKAGES, size);
+    }
+
+    /**
+     * Records one request to the endpoint at the given index in {@link #ENDPOINTS}.
+     */
+    public void recordRequest(int endpoint, long nanos) {
+        latencies[endpoint].record(nanos);
+    }
+
+    static int endpointIndex(String path) {
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            if (ENDPOINTS[i].equals(path)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long getCount(byte code) {
+        long count = 0;
+        for (int reasons = 0; reasons < 1 << REASON_BITS; reasons++) {
+            count += decisions.sum(code << REASON_BITS | reasons);
+        }
+        return count;
+    }
+
+    /**
+     * Counts of packages that broke each rule; a package can break more than one.
+     */
+    public Map<String, Long> getReasons() {
+        long[] totals = new long[REASONS.length];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            long count = decisions.sum(slot);
+            for (int reason = 0; reason < REASONS.length; reason++) {
+                if ((slot & 1 << reason) != 0) {
+                    totals[reason] += count;
+                }
+            }
+        }
+        Map<String, Long> reasons = new LinkedHashMap<>();
+        for (int i = 0; i < REASONS.length; i++) {
+            reasons.put(REASONS[i], totals[i]);
+        }
+        return reasons;
+    }
+
+    public Map<String, Object> toJson() {
+        Map<String, Long> categories = new LinkedHashMap<>();
+        for (byte code = PackageSorter.STANDARD_CODE; code <= PackageSorter.REJECTED_CODE; code++) {
+            categories.put(PackageSorter.category(code), getCount(code));
+        }
+
+        Map<String, Object> requests = new LinkedHashMap<>();
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            LatencyHistogram.Snapshot snapshot = latencies[i].snapshot();
+            Map<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("count", snapshot.getCount());
+            endpoint.put("p50Micros", micros(snapshot.quantileNanos(0.5)));
+            endpoint.put("p99Micros", micros(snapshot.quantileNanos(0.99)));
+            endpoint.put("p999Micros", micros(snapshot.quantileNanos(0.999)));
+            endpoint.put("meanMicros", snapshot.getCount() == 0 ? 0.0
+                : micros(snapshot.getSumNanos() / snapshot.getCount()));
+            requests.put(ENDPOINTS[i], endpoint);
+        }
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("categories", categories);
+        json.put("reasons", getReasons());
+        json.put("requests", requests);
+        long batchCount = getBatchCount();
+        if (batchCount > 0) {
+            Map<String, Object> coalescing = new LinkedHashMap<>();
+            coalescing.put("batches", batchCount);
+            coalescing.put("packages", batches.sum(BATCH_PACKAGES));
+            coalescing.put("meanBatchSize", (double) batches.sum(BATCH_PACKAGES) / batchCount);
+            Map<String, Long> sizes = new LinkedHashMap<>();
+            for (int i = 0; i < BATCH_SIZE_BOUNDS.length; i++) {
+                sizes.put("le" + BATCH_SIZE_BOUNDS[i], batches.sum(i));
+            }
+            sizes.put("gt" + BATCH_SIZE_BOUNDS[BATCH_SIZE_BOUNDS.length - 1], batches.sum(BATCH_OVERFLOW));
+            coalescing.put("batchSizes", sizes);
+            json.put("coalescing", coalescing);
+        }
+        return json;
+    }
+
+    /**
+     * Renders the metrics in the Prometheus text exposition format.
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(2048);
+        out.append("# HELP sorting_packages_total Packages classified, by category.\n");
+        out.append("# TYPE sorting_packages_total counter\n");
+        for (byte code = PackageSorter.STANDARD_CODE; code <= PackageSorter.REJECTED_CODE; code++) {
+            out.append("sorting_packages_total{category=\"").append(PackageSorter.category(code))
+                .append("\"} ").append(getCount(code)).append('\n');
+        }
+
+        out.append("# HELP sorting_rule_triggers_total Packages that broke each sorting rule.\n");
+        out.append("# TYPE sorting_rule_triggers_total counter\n");
+        for (Map.Entry<String, Long> reason : getReasons().entrySet()) {
+            out.append("sorting_rule_triggers_total{reason=\"").append(reason.getKey())
+                .append("\"} ").append(reason.getValue()).append('\n');
+        }
+
+        out.append("# HELP sorting_request_duration_seconds Request latency, by endpoint.\n");
+        out.append("# TYPE sorting_request_duration_seconds summary\n");
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            LatencyHistogram.Snapshot snapshot = latencies[i].snapshot();
+            for (double quantile : new double[] {0.5, 0.99, 0.999}) {
+                out.append("sorting_request_duration_seconds{endpoint=\"").append(ENDPOINTS[i])
+                    .append("\",quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(snapshot.quantileNanos(quantile))).append('\n');
+            }
+            out.append("sorting_request_duration_seconds_sum{endpoint=\"").append(ENDPOINTS[i])
+                .append("\"} ").append(seconds(snapshot.getSumNanos())).append('\n');
+            out.append("sorting_request_duration_seconds_count{endpoint=\"").append(ENDPOINTS[i])
+                .append("\"} ").append(snapshot.getCount()).append('\n');
+        }
+
+        long batchCount = getBatchCount();
+        if (batchCount > 0) {
+            out.append("# HELP sorting_coalesced_batch_size Single sorts classified together, per batch.\n");
+            out.append("# TYPE sorting_coalesced_batch_size histogram\n");
+            long cumulative = 0;
+            for (int i = 0; i < BATCH_SIZE_BOUNDS.length; i++) {
+                cumulative += batches.sum(i);
+                out.append("sorting_coalesced_batch_size_bucket{le=\"").append(BATCH_SIZE_BOUNDS[i])
+                    .append("\"} ").append(cumulative).append('\n');
+            }
+            out.append("sorting_coalesced_batch_size_bucket{le=\"+Inf\"} ").append(batchCount).append('\n');
+            out.append("sorting_coalesced_batch_size_sum ").append(batches.sum(BATCH_PACKAGES)).append('\n');
+            out.append("sorting_coalesced_batch_size_count ").append(batchCount).append('\n');
+        }
+        return out.toString();
+    }
+
+    // Zero until request coalescing is switched on
+    long getBatchCount() {
+        long count = 0;
+        for (int i = 0; i <= BATCH_OVERFLOW; i++) {
+            count += batches.sum(i);
+        }
+        return count;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+}
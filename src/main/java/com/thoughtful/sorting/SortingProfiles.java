@@ -0,0 +1,154 @@
+package com.thoughtful.sorting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Named threshold profiles, one per facility, each compiled into its own immutable
+ * {@link PackageSorter}. Requests pick a profile with the {@link #HEADER} header; without
+ * it they get the built-in {@link ThresholdProfile#DEFAULT} limits.
+ * <p>
+ * Profiles are read from a properties file ({@code sorting.profiles.location}):
+ * <pre>
+ * berlin.dimension=120
+ * berlin.volume=800000
+ * berlin.mass=25
+ * </pre>
+ * {@link #reload()} builds a complete new set of sorters and publishes it with a single
+ * volatile write, so requests see either the old set or the new one, never a mix; if the
+ * file is invalid the old set stays in place.
+ */
+public class SortingProfiles {
+
+    public static final String HEADER = "X-Sorting-Profile";
+
+    private static final Logger log = LoggerFactory.getLogger(SortingProfiles.class);
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final String[] KEYS = {"dimension", "volume", "mass"};
+
+    private final Path location;
+    private final List<SortListener> listeners;
+    private final PackageSorter defaultSorter;
+
+    private volatile Map<String, PackageSorter> sorters;
+
+    /**
+     * @param location profiles file, or {@code null} for the default profile only
+     */
+    public SortingProfiles(Path location, List<SortListener> listeners) {
+        this.location = location;
+        this.listeners = List.copyOf(listeners);
+        this.defaultSorter = new PackageSorter(ThresholdProfile.DEFAULT, this.listeners);
+        this.sorters = Map.of(ThresholdProfile.DEFAULT_NAME, defaultSorter);
+    }
+
+    /**
+     * Returns the sorter for a profile name, or the default sorter for {@code null} or an
+     * empty name.
+     *
+     * @throws InvalidProfileException if there is no such profile
+     */
+    public PackageSorter sorter(String name) {
+        if (name == null || name.isEmpty()) {
+            return defaultSorter;
+        }
+        PackageSorter sorter = sorters.get(name);
+        if (sorter == null) {
+            throw new InvalidProfileException("Unknown sorting profile '" + name + "'");
+        }
+        return sorter;
+    }
+
+    public PackageSorter getDefault() {
+        return defaultSorter;
+    }
+
+    public List<ThresholdProfile> getProfiles() {
+        List<ThresholdProfile> profiles = new ArrayList<>();
+        for (PackageSorter sorter : sorters.values()) {
+            profiles.add(sorter.getProfile());
+        }
+        profiles.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return profiles;
+    }
+
+    /**
+     * Re-reads the profiles file and swaps in the new profiles.
+     *
+     * @return the profiles now in effect
+     * @throws InvalidProfileException if the file cannot be read or is invalid
+     */
+    public synchronized List<ThresholdProfile> reload() {
+        if (location == null) {
+            return getProfiles();
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(location, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new InvalidProfileException("Could not read sorting profiles from " + location, e);
+        }
+
+        Map<String, PackageSorter> loaded = new HashMap<>();
+        loaded.put(ThresholdProfile.DEFAULT_NAME, defaultSorter);
+        for (ThresholdProfile profile : parse(properties)) {
+            loaded.put(profile.getName(), new PackageSorter(profile, listeners));
+        }
+        sorters = Map.copyOf(loaded);
+
+        List<ThresholdProfile> profiles = getProfiles();
+        log.info("Loaded {} sorting profile(s) from {}: {}", profiles.size(), location, profiles);
+        return profiles;
+    }
+
+    static List<ThresholdProfile> parse(Properties properties) {
+        TreeSet<String> names = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.lastIndexOf('.');
+            String name = dot < 0 ? key : key.substring(0, dot);
+            String setting = dot < 0 ? "" : key.substring(dot + 1);
+            if (!NAME.matcher(name).matches() || !List.of(KEYS).contains(setting)) {
+                throw new InvalidProfileException("Unexpected sorting profile setting '" + key
+                    + "'. Expected <profile>.dimension, <profile>.volume or <profile>.mass");
+            }
+            if (ThresholdProfile.DEFAULT_NAME.equals(name)) {
+                throw new InvalidProfileException("The 'default' sorting profile cannot be redefined");
+            }
+            names.add(name);
+        }
+
+        List<ThresholdProfile> profiles = new ArrayList<>();
+        for (String name : names) {
+            double[] values = new double[KEYS.length];
+            for (int i = 0; i < KEYS.length; i++) {
+                String value = properties.getProperty(name + "." + KEYS[i]);
+                if (value == null) {
+                    throw new InvalidProfileException(
+                        "Sorting profile '" + name + "' is missing '" + KEYS[i] + "'");
+                }
+                try {
+                    values[i] = Double.parseDouble(value.trim());
+                } catch (NumberFormatException e) {
+                    throw new InvalidProfileException("Invalid value '" + value + "' for '"
+                        + name + "." + KEYS[i] + "'. Expected a number");
+                }
+            }
+            profiles.add(new ThresholdProfile(name, values[0], values[1], values[2]));
+        }
+        return profiles;
+    }
+}
@@ -0,0 +1,271 @@
+package com.thoughtful.sorting;
+
+import org.springframework.context.SmartLifecycle;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Category mix, reject rate, rule triggers and mass and volume distributions over the
+ * last 1, 5 and 60 minutes.
+ * <p>
+ * Each decision is two adds to cumulative {@link StripedCounters}: one counter per
+ * combination of broken rules and mass bin, one per combination and volume bin. The
+ * category follows from the rules, so category and rule totals are summed when read.
+ * Like {@link SortingMetrics}, recording is lock-free, constant time and never
+ * allocates. Once a second a ticker copies the totals into a ring with one slot per
+ * second for the last hour. A window is the current totals minus the slot from the start
+ * of the window, so the hot path never rotates or clears buckets. Windows longer than the
+ * uptime cover the uptime.
+ */
+public class SortingStats implements SortListener, SmartLifecycle {
+
+    static final int[] WINDOW_SECONDS = {60, 300, 3600};
+    private static final String[] WINDOW_NAMES = {"1m", "5m", "60m"};
+
+    // Lower bounds: kg, and cm³ in decades
+    static final double[] MASS_BINS = {0, 1, 2, 5, 10, 20, 50, 100};
+    static final double[] VOLUME_BINS = {0, 1e3, 1e4, 1e5, 1e6, 1e7};
+    private static final String[] MASS_LABELS = labels(MASS_BINS);
+    private static final String[] VOLUME_LABELS = labels(VOLUME_BINS);
+    private static final String[] REASONS = {"bulky_dimension", "bulky_volume", "heavy"};
+
+    // Mass bin counters for each combination of PackageSorter rule bits, then volume bins
+    private static final int COMBINATIONS = 1 << REASONS.length;
+    private static final int VOLUME_COUNTERS = COMBINATIONS * MASS_BINS.length;
+    static final int COUNTERS = VOLUME_COUNTERS + COMBINATIONS * VOLUME_BINS.length;
+
+    // One slot per second for the longest window, plus the one being overwritten
+    private static final int SLOTS = WINDOW_SECONDS[WINDOW_SECONDS.length - 1] + 2;
+
+    private final StripedCounters counters = new StripedCounters(COUNTERS);
+    private final long[][] ring = new long[SLOTS][COUNTERS];
+    private final LongSupplier nanoClock;
+    private final long startNanos;
+
+    // Last second copied into the ring; slots up to it are valid
+    private volatile long lastTick;
+    private ScheduledExecutorService ticker;
+
+    public SortingStats() {
+        this(System::nanoTime);
+    }
+
+    SortingStats(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+    }
+
+    @Override
+    public void onSort(double width, double height, double length, double mass, byte code, int reasons) {
+        counters.increment(reasons * MASS_BINS.length + bin(MASS_BINS, mass));
+        counters.increment(VOLUME_COUNTERS + reasons * VOLUME_BINS.length
+            + bin(VOLUME_BINS, width * height * length));
+    }
+
+    // Bulky by either rule and heavy add up to the code, as in PackageSorter
+    static byte category(int reasons) {
+        int bulky = (reasons & (PackageSorter.BULKY_BY_DIMENSION | PackageSorter.BULKY_BY_VOLUME)) != 0 ? 1 : 0;
+        int heavy = (reasons & PackageSorter.HEAVY) != 0 ? 1 : 0;
+        return (byte) (bulky + heavy);
+    }
+
+    // "0-1", "1-2", ..., "100+"
+    private static String[] labels(double[] lowerBounds) {
+        String[] labels = new String[lowerBounds.length];
+        for (int bin = 0; bin < labels.length; bin++) {
+            labels[bin] = (long) lowerBounds[bin]
+                + (bin == labels.length - 1 ? "+" : "-" + (long) lowerBounds[bin + 1]);
+        }
+        return labels;
+    }
+
+    private static int bin(double[] lowerBounds, double value) {
+        int bin = lowerBounds.length - 1;
+        while (bin > 0 && value < lowerBounds[bin]) {
+            bin--;
+        }
+        return bin;
+    }
+
+    /**
+     * Copies the current totals into the ring slot of every second since the last tick.
+     */
+    synchronized void tick() {
+        long second = elapsedNanos() / 1_000_000_000L;
+        if (second <= lastTick) {
+            return;
+        }
+        long[] totals = totals();
+        for (long s = Math.max(lastTick + 1, second - SLOTS + 1); s <= second; s++) {
+            System.arraycopy(totals, 0, ring[(int) (s % SLOTS)], 0, COUNTERS);
+        }
+        lastTick = second;
+    }
+
+    private long[] totals() {
+        long[] totals = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            totals[i] = counters.sum(i);
+        }
+        return totals;
+    }
+
+    private long elapsedNanos() {
+        return nanoClock.getAsLong() - startNanos;
+    }
+
+    /**
+     * Counts over the window ending now, index by index as laid out in this class, and
+     * the seconds the window actually covers.
+     */
+    Window window(int seconds) {
+        long now = elapsedNanos();
+        long[] counts = totals();
+        long from = now / 1_000_000_000L - seconds;
+        long covered = now;
+        if (from > 0) {
+            // Slot 0 is the start itself, all zero; a stalled ticker widens the window
+            long slot = Math.min(from, lastTick);
+            long[] baseline = ring[(int) (slot % SLOTS)];
+            for (int i = 0; i < COUNTERS; i++) {
+                counts[i] -= baseline[i];
+            }
+            covered = now - slot * 1_000_000_000L;
+        }
+        return new Window(counts, covered / 1e9);
+    }
+
+    public Map<String, Object> toJson() {
+        Map<String, Object> windows = new LinkedHashMap<>();
+        for (int i = 0; i < WINDOW_SECONDS.length; i++) {
+            windows.put(WINDOW_NAMES[i], window(WINDOW_SECONDS[i]).toJson());
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("windows", windows);
+        return json;
+    }
+
+    @Override
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "sorting-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long untilNextSecond = 1_000_000_000L - elapsedNanos() % 1_000_000_000L;
+        ticker.scheduleAtFixedRate(this::tick, untilNextSecond, 1_000_000_000L, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void stop() {
+        ticker.shutdownNow();
+        ticker = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ticker != null;
+    }
+
+    static final class Window {
+        private final long[] counts;
+        private final double seconds;
+
+        Window(long[] counts, double seconds) {
+            this.counts = counts;
+            this.seconds = seconds;
+        }
+
+        long getCount(byte code) {
+            long count = 0;
+            for (int bin = 0; bin < MASS_BINS.length; bin++) {
+                count += getMassBin(code, bin);
+            }
+            return count;
+        }
+
+        long getMassBin(byte code, int bin) {
+            long count = 0;
+            for (int reasons = 0; reasons < COMBINATIONS; reasons++) {
+                if (category(reasons) == code) {
+                    count += counts[reasons * MASS_BINS.length + bin];
+                }
+            }
+            return count;
+        }
+
+        long getVolumeBin(byte code, int bin) {
+            long count = 0;
+            for (int reasons = 0; reasons < COMBINATIONS; reasons++) {
+                if (category(reasons) == code) {
+                    count += counts[VOLUME_COUNTERS + reasons * VOLUME_BINS.length + bin];
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Packages that broke the rule with the given bit index, see {@link PackageSorter#HEAVY}.
+         */
+        long getReason(int reason) {
+            long count = 0;
+            for (int reasons = 0; reasons < COMBINATIONS; reasons++) {
+                if ((reasons & 1 << reason) != 0) {
+                    for (int bin = 0; bin < MASS_BINS.length; bin++) {
+                        count += counts[reasons * MASS_BINS.length + bin];
+                    }
+                }
+            }
+            return count;
+        }
+
+        Map<String, Object> toJson() {
+            long total = 0;
+            for (byte code = PackageSorter.STANDARD_CODE; code <= PackageSorter.REJECTED_CODE; code++) {
+                total += getCount(code);
+            }
+
+            Map<String, Object> categories = new LinkedHashMap<>();
+            for (byte code = PackageSorter.STANDARD_CODE; code <= PackageSorter.REJECTED_CODE; code++) {
+                long count = getCount(code);
+                Map<String, Object> category = new LinkedHashMap<>();
+                category.put("count", count);
+                category.put("share", ratio(count, total));
+                Map<String, Long> mass = new LinkedHashMap<>();
+                for (int bin = 0; bin < MASS_BINS.length; bin++) {
+                    mass.put(MASS_LABELS[bin], getMassBin(code, bin));
+                }
+                category.put("massKg", mass);
+                Map<String, Long> volume = new LinkedHashMap<>();
+                for (int bin = 0; bin < VOLUME_BINS.length; bin++) {
+                    volume.put(VOLUME_LABELS[bin], getVolumeBin(code, bin));
+                }
+                category.put("volumeCm3", volume);
+                categories.put(PackageSorter.category(code), category);
+            }
+
+            Map<String, Long> reasons = new LinkedHashMap<>();
+            for (int i = 0; i < REASONS.length; i++) {
+                reasons.put(REASONS[i], getReason(i));
+            }
+
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("seconds", Math.round(seconds));
+            json.put("packages", total);
+            json.put("packagesPerSecond", seconds == 0 ? 0.0 : total / seconds);
+            json.put("rejectRate", ratio(getCount(PackageSorter.REJECTED_CODE), total));
+            json.put("categories", categories);
+            json.put("reasons", reasons);
+            return json;
+        }
+
+        private static double ratio(long count, long total) {
+            return total == 0 ? 0.0 : (double) count / total;
+        }
+    }
+}
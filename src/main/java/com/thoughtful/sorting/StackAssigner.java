@@ -0,0 +1,180 @@
+package com.thoughtful.sorting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Picks the physical stack a classified package goes to.
+ * <p>
+ * Each category has its own stacks, each with a capacity. A package goes to the stack of
+ * its category that is least full relative to its capacity, so stacks of different sizes
+ * fill evenly. Ties go to a different stack for each thread, so concurrent assignments
+ * spread out instead of all racing for the first stack.
+ * <p>
+ * Occupancy is one atomic int per stack, padded onto its own cache line. An assignment
+ * reads the occupancy of its category's stacks and claims a place with a compare-and-set
+ * that only succeeds below capacity, retrying if another thread got there first; no lock
+ * is taken and a stack is never filled past its capacity. {@link #empty} resets a stack
+ * when it has been cleared.
+ */
+public class StackAssigner {
+
+    /** Returned by {@link #assign} when every stack of the category is full. */
+    public static final int NONE = -1;
+
+    // 16 ints = one cache line per stack
+    private static final int PADDING = 16;
+
+    private final String[] names;
+    private final int[] capacities;
+    private final byte[] categories;
+    private final int[][] stacksByCategory;
+    private final Map<String, Integer> indexByName = new HashMap<>();
+    private final AtomicIntegerArray occupancy;
+
+    /**
+     * @param stacks for each category, its stacks in order with their capacities
+     */
+    public StackAssigner(Map<Category, Map<String, Integer>> stacks) {
+        List<String> nameList = new ArrayList<>();
+        List<Integer> capacityList = new ArrayList<>();
+        List<Byte> categoryList = new ArrayList<>();
+        this.stacksByCategory = new int[Category.values().length][];
+        for (Category category : Category.values()) {
+            Map<String, Integer> ofCategory = stacks.getOrDefault(category, Map.of());
+            int[] indexes = new int[ofCategory.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> stack : ofCategory.entrySet()) {
+                if (stack.getValue() <= 0) {
+                    throw new IllegalArgumentException("Stack " + stack.getKey() + " needs a positive capacity");
+                }
+                if (indexByName.putIfAbsent(stack.getKey(), nameList.size()) != null) {
+                    throw new IllegalArgumentException("Stack " + stack.getKey() + " is configured twice");
+                }
+                indexes[i++] = nameList.size();
+                nameList.add(stack.getKey());
+                capacityList.add(stack.getValue());
+                categoryList.add(category.code());
+            }
+            stacksByCategory[category.code()] = indexes;
+        }
+        this.names = nameList.toArray(new String[0]);
+        this.capacities = capacityList.stream().mapToInt(Integer::intValue).toArray();
+        this.categories = new byte[names.length];
+        for (int i = 0; i < names.length; i++) {
+            categories[i] = categoryList.get(i);
+        }
+        this.occupancy = new AtomicIntegerArray(names.length * PADDING);
+    }
+
+    /**
+     * Parses {@code name:capacity} pairs separated by commas, such as
+     * {@code S1:500,S2:500}. An empty string is no stacks.
+     *
+     * @throws IllegalArgumentException for anything else
+     */
+    public static Map<String, Integer> parse(String stacks) {
+        Map<String, Integer> parsed = new LinkedHashMap<>();
+        if (stacks.isBlank()) {
+            return parsed;
+        }
+        for (String stack : stacks.split(",")) {
+            int colon = stack.indexOf(':');
+            String name = colon < 0 ? "" : stack.substring(0, colon).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Expected name:capacity, got '" + stack.trim() + "'");
+            }
+            try {
+                parsed.put(name, Integer.parseInt(stack.substring(colon + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid capacity in '" + stack.trim() + "'");
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Claims a place for one package of the category.
+     *
+     * @return the stack index, or {@link #NONE} if all stacks of the category are full
+     */
+    public int assign(byte code) {
+        int[] candidates = stacksByCategory[code];
+        int count = candidates.length;
+        if (count == 0) {
+            return NONE;
+        }
+        int first = (int) (Thread.currentThread().threadId() % count);
+        while (true) {
+            int best = NONE;
+            int bestOccupancy = 0;
+            for (int i = 0; i < count; i++) {
+                int stack = candidates[(first + i) % count];
+                int occupied = occupancy.get(stack * PADDING);
+                // occupied / capacity < bestOccupancy / best capacity, without division
+                if (occupied < capacities[stack] && (best == NONE
+                        || (long) occupied * capacities[best] < (long) bestOccupancy * capacities[stack])) {
+                    best = stack;
+                    bestOccupancy = occupied;
+                }
+            }
+            if (best == NONE) {
+                return NONE;
+            }
+            if (occupancy.compareAndSet(best * PADDING, bestOccupancy, bestOccupancy + 1)) {
+                return best;
+            }
+        }
+    }
+
+    /**
+     * Marks a stack as cleared.
+     *
+     * @return the packages it held
+     * @throws UnknownStackException if there is no stack of that name
+     */
+    public int empty(String name) {
+        return occupancy.getAndSet(index(name) * PADDING, 0);
+    }
+
+    public String getName(int stack) {
+        return names[stack];
+    }
+
+    public int getOccupancy(int stack) {
+        return occupancy.get(stack * PADDING);
+    }
+
+    public int getCapacity(int stack) {
+        return capacities[stack];
+    }
+
+    int index(String name) {
+        Integer index = indexByName.get(name);
+        if (index == null) {
+            throw new UnknownStackException(name);
+        }
+        return index;
+    }
+
+    public Map<String, Object> toJson(int stack) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("name", names[stack]);
+        json.put("category", PackageSorter.category(categories[stack]));
+        json.put("capacity", capacities[stack]);
+        json.put("occupancy", getOccupancy(stack));
+        return json;
+    }
+
+    public List<Map<String, Object>> toJson() {
+        List<Map<String, Object>> stacks = new ArrayList<>();
+        for (int stack = 0; stack < names.length; stack++) {
+            stacks.add(toJson(stack));
+        }
+        return stacks;
+    }
+}
@@ -0,0 +1,65 @@
+package com.thoughtful.sorting;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classifies a package and assigns it a stack of its category from the
+ * {@link StackAssigner}; lists stack occupancy and marks stacks emptied.
+ */
+@RestController
+@RequestMapping("/api/stacks")
+public class StacksController {
+
+    private final SortingProfiles sortingProfiles;
+    private final StackAssigner stackAssigner;
+
+    public StacksController(SortingProfiles sortingProfiles, StackAssigner stackAssigner) {
+        this.sortingProfiles = sortingProfiles;
+        this.stackAssigner = stackAssigner;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<Map<String, Object>>> stacks() {
+        return ResponseEntity.ok(stackAssigner.toJson());
+    }
+
+    // Each call claims a place, so a retried package is counted again
+    @PostMapping(value = "/assign", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> assign(
+            @RequestBody PackageRequest request,
+            @RequestHeader(value = SortingProfiles.HEADER, required = false) String profile) {
+        PackageSorter sorter = sortingProfiles.sorter(profile);
+        List<String> violations = PackageValidator.violations(request);
+        if (!violations.isEmpty()) {
+            throw new PackageValidationException(violations);
+        }
+        byte code = sorter.sortCode(request.getWidth(), request.getHeight(), request.getLength(), request.getMass());
+        int stack = stackAssigner.assign(code);
+        if (stack == StackAssigner.NONE) {
+            throw new StacksFullException(PackageSorter.category(code));
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("category", PackageSorter.category(code));
+        json.put("stack", stackAssigner.getName(stack));
+        return ResponseEntity.ok(json);
+    }
+
+    // The stack was cleared; returns it with its occupancy back at zero
+    @PostMapping(value = "/{name}/empty", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> empty(@PathVariable String name) {
+        stackAssigner.empty(name);
+        return ResponseEntity.ok(stackAssigner.toJson(stackAssigner.index(name)));
+    }
+}
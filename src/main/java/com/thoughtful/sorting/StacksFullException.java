@@ -0,0 +1,12 @@
+package com.thoughtful.sorting;
+
+/**
+ * Thrown when every stack of a package's category is at capacity. The message is shown to
+ * the client.
+ */
+public class StacksFullException extends RuntimeException {
+
+    public StacksFullException(String category) {
+        super("All " + category + " stacks are full");
+    }
+}
@@ -0,0 +1,25 @@
+package com.thoughtful.sorting;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private final SortingStats stats;
+
+    public StatsController(SortingStats stats) {
+        this.stats = stats;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(stats.toJson());
+    }
+}
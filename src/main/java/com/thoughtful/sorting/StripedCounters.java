@@ -0,0 +1,45 @@
+package com.thoughtful.sorting;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed set of counters spread over per-thread stripes, so concurrent writers rarely
+ * touch the same cache line. Updates are a single atomic add and never allocate;
+ * reads sum all stripes.
+ */
+public final class StripedCounters {
+
+    // 16 longs = two cache lines between the same counter in neighbouring stripes
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray cells;
+    private final int width;
+    private final int mask;
+
+    public StripedCounters(int counters) {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.width = (counters + PADDING - 1) / PADDING * PADDING;
+        this.mask = stripes - 1;
+        this.cells = new AtomicLongArray(stripes * width);
+    }
+
+    public void increment(int counter) {
+        add(counter, 1);
+    }
+
+    public void add(int counter, long delta) {
+        cells.getAndAdd(stripe() * width + counter, delta);
+    }
+
+    public long sum(int counter) {
+        long sum = 0;
+        for (int i = counter; i < cells.length(); i += width) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+    private int stripe() {
+        return (int) Thread.currentThread().threadId() & mask;
+    }
+}
@@ -0,0 +1,67 @@
+package com.thoughtful.sorting;
+
+import java.util.Objects;
+
+/**
+ * The limits one facility's robots sort by. A package is bulky when any side reaches
+ * {@code dimension} cm or its volume reaches {@code volume} cm³, and heavy when its
+ * mass reaches {@code mass} kg.
+ */
+public final class ThresholdProfile {
+
+    public static final String DEFAULT_NAME = "default";
+
+    public static final ThresholdProfile DEFAULT = new ThresholdProfile(DEFAULT_NAME, 150, 1_000_000, 20);
+
+    private final String name;
+    private final double dimension;
+    private final double volume;
+    private final double mass;
+
+    public ThresholdProfile(String name, double dimension, double volume, double mass) {
+        if (!(dimension > 0) || !(volume > 0) || !(mass > 0)
+                || Double.isInfinite(dimension) || Double.isInfinite(volume) || Double.isInfinite(mass)) {
+            throw new InvalidProfileException("Thresholds of profile '" + name + "' must be positive numbers");
+        }
+        this.name = name;
+        this.dimension = dimension;
+        this.volume = volume;
+        this.mass = mass;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getDimension() {
+        return dimension;
+    }
+
+    public double getVolume() {
+        return volume;
+    }
+
+    public double getMass() {
+        return mass;
+    }
+
+    // Equal profiles classify every package the same way
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ThresholdProfile profile
+            && name.equals(profile.name)
+            && Double.compare(dimension, profile.dimension) == 0
+            && Double.compare(volume, profile.volume) == 0
+            && Double.compare(mass, profile.mass) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, dimension, volume, mass);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (dimension " + dimension + " cm, volume " + volume + " cm³, mass " + mass + " kg)";
+    }
+}
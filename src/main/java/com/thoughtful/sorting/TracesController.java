@@ -0,0 +1,42 @@
+package com.thoughtful.sorting;
+
+import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Shows the {@link RequestTracer}'s most recent traces and counts, and changes its sample
+ * rate without a restart.
+ */
+@RestController
+@RequestMapping("/api/traces")
+public class TracesController {
+
+    private final RequestTracer requestTracer;
+
+    public TracesController(RequestTracer requestTracer) {
+        this.requestTracer = requestTracer;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> traces(@RequestParam(defaultValue = "100") int limit) {
+        Map<String, Object> json = requestTracer.toJson();
+        json.put("traces", requestTracer.recent(Math.max(0, limit)));
+        return ResponseEntity.ok(json);
+    }
+
+    // Takes effect from the next request; restarting goes back to sorting.tracing.sample-rate
+    @PutMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> setSampling(@Valid @RequestBody TracingSettings settings) {
+        requestTracer.setSampleRate(settings.getSampleRate());
+        return ResponseEntity.ok(requestTracer.toJson());
+    }
+}
@@ -0,0 +1,30 @@
+package com.thoughtful.sorting;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+
+/**
+ * Sampling of the {@link RequestTracer}, as accepted by {@code PUT /api/traces}.
+ */
+public class TracingSettings {
+
+    // Fraction of /api/sort requests traced
+    @DecimalMin(value = "0.0", message = "Sample rate must be between 0 and 1")
+    @DecimalMax(value = "1.0", message = "Sample rate must be between 0 and 1")
+    private double sampleRate;
+
+    public TracingSettings() {
+    }
+
+    public TracingSettings(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+}
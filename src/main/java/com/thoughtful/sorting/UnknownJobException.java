@@ -0,0 +1,11 @@
+package com.thoughtful.sorting;
+
+/**
+ * Thrown for a manifest job id that {@link ManifestJobs} does not know.
+ */
+public class UnknownJobException extends RuntimeException {
+
+    public UnknownJobException(String id) {
+        super("No manifest job with id '" + id + "'");
+    }
+}
@@ -0,0 +1,11 @@
+package com.thoughtful.sorting;
+
+/**
+ * Thrown when no recent decision is stored for a package id.
+ */
+public class UnknownPackageException extends RuntimeException {
+
+    public UnknownPackageException(String id) {
+        super("No recent decision for package '" + id + "'");
+    }
+}
@@ -0,0 +1,11 @@
+package com.thoughtful.sorting;
+
+/**
+ * Thrown for a stack name that is not configured in {@code sorting.stacks.*}.
+ */
+public class UnknownStackException extends RuntimeException {
+
+    public UnknownStackException(String name) {
+        super("No stack named '" + name + "'");
+    }
+}
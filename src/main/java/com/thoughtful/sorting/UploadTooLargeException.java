@@ -0,0 +1,12 @@
+package com.thoughtful.sorting;
+
+/**
+ * Thrown when a manifest upload goes past {@code sorting.jobs.max-upload-bytes}. The
+ * message is shown to the client.
+ */
+public class UploadTooLargeException extends RuntimeException {
+
+    public UploadTooLargeException(long maxBytes) {
+        super("Upload exceeds the limit of " + maxBytes + " bytes");
+    }
+}
@@ -0,0 +1,90 @@
+package com.thoughtful.sorting;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Vector API implementation of {@link PackageSorter#sortBatch}. Only loaded when the
+ * {@code jdk.incubator.vector} module is present.
+ * <p>
+ * The volume is computed as {@code (width * height) * length}, in the same order as the
+ * scalar path, so results agree bit for bit at the thresholds. Packages are handled in
+ * groups of eight: the comparison masks become two 8-bit sets, each spread to one byte per
+ * package through a lookup table, and their sum (the category codes) is stored as one long.
+ */
+final class VectorPackageSorter {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int GROUP = Long.BYTES;
+    private static final VarHandle LONG_VIEW =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // SPREAD[bits] holds bit k of bits in byte k
+    private static final long[] SPREAD = new long[1 << GROUP];
+
+    static {
+        for (int bits = 0; bits < SPREAD.length; bits++) {
+            long spread = 0;
+            for (int k = 0; k < GROUP; k++) {
+                spread |= (long) ((bits >>> k) & 1) << (k * 8);
+            }
+            SPREAD[bits] = spread;
+        }
+    }
+
+    private VectorPackageSorter() {
+    }
+
+    /**
+     * Whether {@link #sortBatch} can run here: a group of eight packages must be a whole
+     * number of vectors, and with one lane nothing is gained over the scalar loop.
+     */
+    static boolean isSupported() {
+        int lanes = SPECIES.length();
+        return lanes >= 2 && lanes <= GROUP;
+    }
+
+    static void sortBatch(double[] width, double[] height, double[] length, double[] mass,
+                          byte[] out, int offset, int count,
+                          double dimensionThreshold, double volumeThreshold, double massThreshold) {
+        int lanes = SPECIES.length();
+        int end = offset + count;
+        int i = offset;
+
+        for (; i + GROUP <= end; i += GROUP) {
+            int bulkyBits = 0;
+            int heavyBits = 0;
+            for (int j = 0; j < GROUP; j += lanes) {
+                DoubleVector w = DoubleVector.fromArray(SPECIES, width, i + j);
+                DoubleVector h = DoubleVector.fromArray(SPECIES, height, i + j);
+                DoubleVector l = DoubleVector.fromArray(SPECIES, length, i + j);
+                DoubleVector m = DoubleVector.fromArray(SPECIES, mass, i + j);
+
+                VectorMask<Double> bulky = w.compare(VectorOperators.GE, dimensionThreshold)
+                    .or(h.compare(VectorOperators.GE, dimensionThreshold))
+                    .or(l.compare(VectorOperators.GE, dimensionThreshold))
+                    .or(w.mul(h).mul(l).compare(VectorOperators.GE, volumeThreshold));
+                VectorMask<Double> heavy = m.compare(VectorOperators.GE, massThreshold);
+
+                bulkyBits |= (int) bulky.toLong() << j;
+                heavyBits |= (int) heavy.toLong() << j;
+            }
+            LONG_VIEW.set(out, i, SPREAD[bulkyBits] + SPREAD[heavyBits]);
+        }
+
+        for (; i < end; i++) {
+            boolean isBulky = (width[i] >= dimensionThreshold)
+                | (height[i] >= dimensionThreshold)
+                | (length[i] >= dimensionThreshold)
+                | (width[i] * height[i] * length[i] >= volumeThreshold);
+            boolean isHeavy = mass[i] >= massThreshold;
+            out[i] = (byte) ((isBulky ? 1 : 0) + (isHeavy ? 1 : 0));
+        }
+    }
+}
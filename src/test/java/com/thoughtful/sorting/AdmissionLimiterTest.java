@@ -0,0 +1,128 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private long now = 1_000_000_000L;
+
+    @Test
+    public void testBucketAllowsBurstThenRefillsAtRate() {
+        // 10 per second = one token every 100ms, up to 3 at once
+        AdmissionLimiter limiter = new AdmissionLimiter(new AdmissionLimits(10, 3, 0), 1000, () -> now);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("gw-1"));
+        }
+        long wait = limiter.tryAcquire("gw-1");
+        assertEquals(100 * MS, wait);
+        assertEquals(1, AdmissionLimiter.retryAfterSeconds(wait));
+
+        // Other clients have their own buckets
+        assertEquals(0, limiter.tryAcquire("gw-2"));
+
+        now += 100 * MS;
+        assertEquals(0, limiter.tryAcquire("gw-1"));
+        assertTrue(limiter.tryAcquire("gw-1") > 0);
+
+        // Idle for long enough to refill completely, but no further
+        now += 10_000 * MS;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("gw-1"));
+        }
+        assertTrue(limiter.tryAcquire("gw-1") > 0);
+        assertEquals(3L, limiter.toJson().get("rateLimited"));
+    }
+
+    @Test
+    public void testConcurrencyLimitShedsExcess() {
+        AdmissionLimiter limiter = new AdmissionLimiter(new AdmissionLimits(0, 1, 2), 1000, () -> now);
+        assertTrue(limiter.enter());
+        assertTrue(limiter.enter());
+        assertFalse(limiter.enter());
+        assertEquals(2, limiter.getInFlight());
+        limiter.exit();
+        assertTrue(limiter.enter());
+        assertEquals(3L, limiter.toJson().get("admitted"));
+        assertEquals(1L, limiter.toJson().get("overloaded"));
+    }
+
+    @Test
+    public void testLimitsChangeAtRuntime() {
+        AdmissionLimiter limiter = new AdmissionLimiter(new AdmissionLimits(0, 1, 0), 1000, () -> now);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, limiter.tryAcquire("gw-1"));
+        }
+        assertEquals(0, limiter.getClientCount());
+
+        limiter.setLimits(new AdmissionLimits(1, 1, 1));
+        assertEquals(0, limiter.tryAcquire("gw-1"));
+        assertEquals(1000 * MS, limiter.tryAcquire("gw-1"));
+        assertTrue(limiter.enter());
+        assertFalse(limiter.enter());
+
+        limiter.setLimits(new AdmissionLimits(0, 1, 0));
+        assertEquals(0, limiter.tryAcquire("gw-1"));
+        assertTrue(limiter.enter());
+        assertEquals(1, limiter.getLimits().getBurst());
+
+        assertThrows(IllegalArgumentException.class, () -> limiter.setLimits(new AdmissionLimits(-1, 1, 0)));
+        assertThrows(IllegalArgumentException.class, () -> limiter.setLimits(new AdmissionLimits(1, 0, 0)));
+    }
+
+    @Test
+    public void testIdleClientsAreDroppedAtMaxClients() {
+        AdmissionLimiter limiter = new AdmissionLimiter(new AdmissionLimits(100, 1, 0), 4, () -> now);
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire("gw-" + i);
+        }
+        assertEquals(4, limiter.getClientCount());
+
+        // gw-0 has been busy since; the rest are idle and full again
+        now += 2000 * MS;
+        limiter.tryAcquire("gw-0");
+        limiter.tryAcquire("gw-0");
+        limiter.tryAcquire("gw-4");
+        assertEquals(2, limiter.getClientCount());
+        assertTrue(limiter.tryAcquire("gw-0") > 0);
+    }
+
+    @Test
+    public void testConcurrentClientsNeverExceedTheirBurst() throws Exception {
+        // The clock stands still, so exactly the burst is let through
+        AdmissionLimiter limiter = new AdmissionLimiter(new AdmissionLimits(1, 500, 0), 1000, () -> now);
+        AtomicInteger admitted = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire("gw-1") == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(500, admitted.get());
+    }
+
+    @Test
+    public void testClientKey() {
+        assertEquals("gw-1", AdmissionLimiter.client("gw-1", "10.0.0.1"));
+        assertEquals("10.0.0.1", AdmissionLimiter.client(null, "10.0.0.1"));
+        assertEquals("10.0.0.1", AdmissionLimiter.client(" ", "10.0.0.1"));
+        assertEquals("10.0.0.1", AdmissionLimiter.client("x".repeat(65), "10.0.0.1"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySortServerTest {
+
+    private BinarySortServer server;
+    private SocketChannel client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new BinarySortServer(new PackageSorter(), 0);
+        server.start();
+        client = SocketChannel.open(new InetSocketAddress("localhost", server.getPort()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("Pipelined records are answered in order with category codes")
+    void testPipelinedRecords() throws IOException {
+        ByteBuffer request = records(
+            new double[] {50, 50, 50, 10},
+            new double[] {150, 50, 50, 10},
+            new double[] {100, 100, 100, 10},
+            new double[] {50, 50, 50, 20},
+            new double[] {150, 100, 100, 25},
+            new double[] {-50, 50, 50, 10},
+            new double[] {50, 50, 50, Double.NaN}
+        );
+        client.write(request);
+
+        byte[] answers = read(7);
+
+        assertArrayEquals(new byte[] {
+            PackageSorter.STANDARD_CODE,
+            PackageSorter.SPECIAL_CODE,
+            PackageSorter.SPECIAL_CODE,
+            PackageSorter.SPECIAL_CODE,
+            PackageSorter.REJECTED_CODE,
+            BinarySortServer.INVALID_CODE,
+            BinarySortServer.INVALID_CODE
+        }, answers);
+    }
+
+    @Test
+    @DisplayName("A record split across writes is answered once it is complete")
+    void testRecordSplitAcrossWrites() throws Exception {
+        ByteBuffer request = records(new double[] {150, 50, 50, 25});
+        request.limit(17);
+        client.write(request);
+        Thread.sleep(50);
+        request.limit(BinarySortServer.RECORD_SIZE);
+        client.write(request);
+
+        assertArrayEquals(new byte[] {PackageSorter.REJECTED_CODE}, read(1));
+    }
+
+    @Test
+    @DisplayName("Large pipelined bursts get one answer per record")
+    void testLargeBurst() throws IOException {
+        int count = 10_000;
+        double[][] packages = new double[count][];
+        for (int i = 0; i < count; i++) {
+            packages[i] = new double[] {50, 50, 50, i % 2 == 0 ? 10 : 20};
+        }
+        client.write(records(packages));
+
+        byte[] answers = read(count);
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 0 ? PackageSorter.STANDARD_CODE : PackageSorter.SPECIAL_CODE, answers[i]);
+        }
+    }
+
+    private static ByteBuffer records(double[]... packages) {
+        ByteBuffer buffer = ByteBuffer.allocate(packages.length * BinarySortServer.RECORD_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        long id = 1;
+        for (double[] p : packages) {
+            buffer.putLong(id++);
+            for (double value : p) {
+                buffer.putDouble(value);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private byte[] read(int count) throws IOException {
+        ByteBuffer answers = ByteBuffer.allocate(count);
+        while (answers.hasRemaining()) {
+            if (client.read(answers) < 0) {
+                fail("Server closed the connection after " + answers.position() + " answers");
+            }
+        }
+        return answers.array();
+    }
+}
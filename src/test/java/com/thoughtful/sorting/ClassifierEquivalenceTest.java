@@ -0,0 +1,304 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Differential test of every classifier path against a frozen copy of the original
+ * {@code PackageSorter.sort}. Inputs are generated in blocks, each from its own seeded
+ * random, and the blocks are checked in parallel on all cores. Every path must give the
+ * reference category for every input: random sizes, raw bit patterns (NaN, infinities,
+ * subnormals, negative zero), values a few ulps either side of each threshold, and
+ * packages whose computed volume lands a few ulps either side of the volume threshold.
+ * <p>
+ * A build checks 4M packages; for a long run pass the count (and optionally the seed):
+ * <pre>
+ * mvn test -Dtest=ClassifierEquivalenceTest -Dequivalence.inputs=4000000000
+ * </pre>
+ * A new classifier path only needs an entry in {@link #VARIANTS}.
+ */
+class ClassifierEquivalenceTest {
+
+    private static final long INPUTS = Long.getLong("equivalence.inputs", 1L << 22);
+    private static final long SEED = Long.getLong("equivalence.seed", 25);
+    private static final int BLOCK = 1 << 14;
+    private static final int MAX_REPORTED = 20;
+
+    // Bit patterns no generator is likely to reach on its own
+    private static final double[] SPECIALS = {
+        Double.NaN, Double.longBitsToDouble(0x7ff0000000000001L), Double.longBitsToDouble(0xfff8000000000000L),
+        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0.0, -0.0,
+        Double.MIN_VALUE, -Double.MIN_VALUE, Math.nextDown(Double.MIN_NORMAL), Double.MIN_NORMAL,
+        Double.MAX_VALUE, -Double.MAX_VALUE, 1, -1, 1e-300, 1e300
+    };
+
+    /**
+     * The classification as first written. Kept as the reference: do not optimize it or
+     * share code with {@link PackageSorter}.
+     */
+    static String reference(double width, double height, double length, double mass, ThresholdProfile profile) {
+        boolean isBulky = isBulky(width, height, length, profile);
+        boolean isHeavy = mass >= profile.getMass();
+
+        if (isBulky && isHeavy) {
+            return PackageSorter.REJECTED;
+        } else if (isBulky || isHeavy) {
+            return PackageSorter.SPECIAL;
+        } else {
+            return PackageSorter.STANDARD;
+        }
+    }
+
+    private static boolean isBulky(double width, double height, double length, ThresholdProfile profile) {
+        if (width >= profile.getDimension()
+            || height >= profile.getDimension()
+            || length >= profile.getDimension()) {
+            return true;
+        }
+
+        double volume = width * height * length;
+        return volume >= profile.getVolume();
+    }
+
+    /** One classifier path, writing a category code for packages {@code offset} to {@code end}. */
+    private interface Variant {
+        void classify(ThresholdProfile profile, Block block, int offset, int end, byte[] out);
+    }
+
+    private record NamedVariant(String name, Variant variant) {
+    }
+
+    private static final List<NamedVariant> VARIANTS = List.of(
+        new NamedVariant("sort", (profile, block, offset, end, out) -> {
+            PackageSorter sorter = new PackageSorter(profile, List.of());
+            for (int i = offset; i < end; i++) {
+                out[i] = Category.valueOf(sorter.sort(block.width[i], block.height[i], block.length[i],
+                    block.mass[i])).code();
+            }
+        }),
+        new NamedVariant("sortCode", (profile, block, offset, end, out) -> {
+            PackageSorter sorter = new PackageSorter(profile, List.of());
+            for (int i = offset; i < end; i++) {
+                out[i] = sorter.sortCode(block.width[i], block.height[i], block.length[i], block.mass[i]);
+            }
+        }),
+        new NamedVariant("sortCode reasons", (profile, block, offset, end, out) -> {
+            ReasonCodes listener = new ReasonCodes(out, offset);
+            PackageSorter sorter = new PackageSorter(profile, List.of(listener));
+            for (int i = offset; i < end; i++) {
+                sorter.sortCode(block.width[i], block.height[i], block.length[i], block.mass[i]);
+            }
+        }),
+        new NamedVariant("sortBatchScalar", (profile, block, offset, end, out) ->
+            new PackageSorter(profile, List.of())
+                .sortBatchScalar(block.width, block.height, block.length, block.mass, out, offset, end - offset)),
+        new NamedVariant("sortBatch", (profile, block, offset, end, out) ->
+            new PackageSorter(profile, List.of())
+                .sortBatch(block.width, block.height, block.length, block.mass, out, offset, end - offset)),
+        new NamedVariant("sortBatch reasons", (profile, block, offset, end, out) -> {
+            byte[] codes = new byte[out.length];
+            ReasonCodes listener = new ReasonCodes(out, offset);
+            new PackageSorter(profile, List.of(listener))
+                .sortBatch(block.width, block.height, block.length, block.mass, codes, offset, end - offset);
+            for (int i = offset; i < end; i++) {
+                if (codes[i] != out[i]) {
+                    out[i] = -2;
+                }
+            }
+        })
+    );
+
+    /**
+     * Writes the code a listener's reasons add up to, or -2 when the code it was given
+     * does not match them.
+     */
+    private static final class ReasonCodes implements SortListener {
+
+        private final byte[] out;
+        private int next;
+
+        ReasonCodes(byte[] out, int offset) {
+            this.out = out;
+            this.next = offset;
+        }
+
+        @Override
+        public void onSort(double width, double height, double length, double mass, byte code, int reasons) {
+            int bulky = (reasons & (PackageSorter.BULKY_BY_DIMENSION | PackageSorter.BULKY_BY_VOLUME)) != 0 ? 1 : 0;
+            int heavy = (reasons & PackageSorter.HEAVY) != 0 ? 1 : 0;
+            out[next++] = bulky + heavy == code ? code : -2;
+        }
+    }
+
+    private static final class Block {
+        final double[] width = new double[BLOCK];
+        final double[] height = new double[BLOCK];
+        final double[] length = new double[BLOCK];
+        final double[] mass = new double[BLOCK];
+    }
+
+    @Test
+    @DisplayName("Every classifier path matches the original sort on random, boundary and special inputs")
+    void testVariantsMatchReference() {
+        long blocks = (INPUTS + BLOCK - 1) / BLOCK;
+        Queue<String> mismatches = new ConcurrentLinkedQueue<>();
+        LongAdder mismatchCount = new LongAdder();
+        LongAdder orderSensitive = new LongAdder();
+
+        long start = System.nanoTime();
+        LongStream.range(0, blocks).parallel()
+            .forEach(index -> checkBlock(index, mismatches, mismatchCount, orderSensitive));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Checked %,d packages against %d classifier paths in %.1f s (seed %d)%n",
+            blocks * BLOCK, VARIANTS.size(), seconds, SEED);
+
+        assertTrue(mismatches.isEmpty(), mismatchCount.sum() + " mismatches, first ones:\n"
+            + mismatches.stream().limit(MAX_REPORTED).collect(Collectors.joining("\n")));
+        // Inputs where width * (height * length) would classify differently from the
+        // (width * height) * length every path uses, so a reordered product cannot pass
+        assertTrue(orderSensitive.sum() > 0, "no inputs on the volume rounding edge");
+    }
+
+    private static void checkBlock(long index, Queue<String> mismatches, LongAdder mismatchCount,
+                                   LongAdder orderSensitive) {
+        SplittableRandom random = new SplittableRandom(SEED * 0x9E3779B97F4A7C15L + index);
+        ThresholdProfile profile = profile(index, random);
+        Block block = new Block();
+        generate(random, profile, block);
+
+        byte[] expected = new byte[BLOCK];
+        for (int i = 0; i < BLOCK; i++) {
+            double w = block.width[i];
+            double h = block.height[i];
+            double l = block.length[i];
+            expected[i] = Category.valueOf(reference(w, h, l, block.mass[i], profile)).code();
+            if ((w * h * l >= profile.getVolume()) != (w * (h * l) >= profile.getVolume())) {
+                orderSensitive.increment();
+            }
+        }
+
+        byte[] out = new byte[BLOCK];
+        for (NamedVariant named : VARIANTS) {
+            // The whole block, then a range with odd ends so batch paths run their tails
+            check(named, profile, block, 0, BLOCK, out, expected, index, mismatches, mismatchCount);
+            int offset = 1 + random.nextInt(15);
+            int end = BLOCK - 1 - random.nextInt(15);
+            check(named, profile, block, offset, end, out, expected, index, mismatches, mismatchCount);
+        }
+    }
+
+    private static void check(NamedVariant named, ThresholdProfile profile, Block block, int offset, int end,
+                              byte[] out, byte[] expected, long index, Queue<String> mismatches,
+                              LongAdder mismatchCount) {
+        Arrays.fill(out, (byte) -1);
+        named.variant().classify(profile, block, offset, end, out);
+        for (int i = 0; i < BLOCK; i++) {
+            boolean inRange = i >= offset && i < end;
+            if (inRange ? out[i] != expected[i] : out[i] != -1) {
+                mismatchCount.increment();
+                if (mismatches.size() < MAX_REPORTED) {
+                    mismatches.add(String.format("%s, block %d [%d, %d) at %d, %s: %s x %s x %s, %s "
+                            + "(bits %x %x %x %x) expected %s, got %s",
+                        named.name(), index, offset, end, i, profile,
+                        block.width[i], block.height[i], block.length[i], block.mass[i],
+                        Double.doubleToRawLongBits(block.width[i]), Double.doubleToRawLongBits(block.height[i]),
+                        Double.doubleToRawLongBits(block.length[i]), Double.doubleToRawLongBits(block.mass[i]),
+                        inRange ? PackageSorter.category(expected[i]) : "untouched",
+                        out[i] < 0 ? (out[i] == -1 ? "untouched" : "reasons not matching code")
+                            : PackageSorter.category(out[i])));
+                }
+            }
+        }
+    }
+
+    // Half the blocks use the default limits; the rest random, fractional or extreme ones
+    private static ThresholdProfile profile(long index, SplittableRandom random) {
+        switch ((int) (index % 8)) {
+            case 1:
+                return new ThresholdProfile("random", 1 + random.nextDouble(299),
+                    1 + random.nextDouble(4_000_000), 0.1 + random.nextDouble(60));
+            case 3:
+                return new ThresholdProfile("off-grid", Math.nextUp(150.0), Math.nextDown(1_000_000.0),
+                    Math.nextDown(20.0));
+            case 5:
+                return new ThresholdProfile("tiny", Double.MIN_VALUE, Double.MIN_VALUE, Double.MIN_VALUE);
+            case 7:
+                return new ThresholdProfile("huge", Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+            default:
+                return ThresholdProfile.DEFAULT;
+        }
+    }
+
+    private static void generate(SplittableRandom random, ThresholdProfile profile, Block block) {
+        for (int i = 0; i < BLOCK; i++) {
+            block.width[i] = value(random, profile.getDimension());
+            block.height[i] = value(random, profile.getDimension());
+            block.length[i] = value(random, profile.getDimension());
+            block.mass[i] = value(random, profile.getMass());
+            if (random.nextInt(4) == 0) {
+                volumeEdge(random, profile, block, i);
+            }
+        }
+    }
+
+    private static double value(SplittableRandom random, double threshold) {
+        switch (random.nextInt(8)) {
+            case 0:
+                return Double.longBitsToDouble(random.nextLong());
+            case 1:
+                return SPECIALS[random.nextInt(SPECIALS.length)];
+            case 2:
+            case 3:
+                return ulps(threshold, random.nextInt(-4, 5));
+            default:
+                return random.nextDouble(2 * Math.min(threshold, Double.MAX_VALUE / 2));
+        }
+    }
+
+    // Two sides below the dimension threshold and the third so the volume lands within a few
+    // ulps of the volume threshold; which side is derived varies, since rounding depends on
+    // the order of the product
+    private static void volumeEdge(SplittableRandom random, ThresholdProfile profile, Block block, int i) {
+        double limit = Math.min(profile.getDimension(), Math.sqrt(profile.getVolume()));
+        double a = random.nextDouble(limit / 100, limit);
+        double b = random.nextDouble(limit / 100, limit);
+        double c = ulps(profile.getVolume() / (a * b), random.nextInt(-3, 4));
+        switch (random.nextInt(3)) {
+            case 0:
+                block.width[i] = a;
+                block.height[i] = b;
+                block.length[i] = c;
+                break;
+            case 1:
+                block.width[i] = a;
+                block.height[i] = c;
+                block.length[i] = b;
+                break;
+            default:
+                block.width[i] = c;
+                block.height[i] = a;
+                block.length[i] = b;
+        }
+    }
+
+    private static double ulps(double value, int steps) {
+        for (; steps > 0; steps--) {
+            value = Math.nextUp(value);
+        }
+        for (; steps < 0; steps++) {
+            value = Math.nextDown(value);
+        }
+        return value;
+    }
+}
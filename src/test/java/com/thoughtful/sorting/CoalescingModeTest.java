@@ -0,0 +1,52 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"sorting.coalescing.enabled=true", "sorting.coalescing.max-wait=1ms"})
+public class CoalescingModeTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void testConcurrentSingleSortsAreCoalesced() throws Exception {
+        AtomicInteger wrong = new AtomicInteger();
+        Thread[] threads = new Thread[16];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20; i++) {
+                    ResponseEntity<PackageResponse> response = restTemplate.postForEntity("/api/sort",
+                            new PackageRequest(150.0, 100.0, 100.0, 25.0), PackageResponse.class);
+                    if (response.getStatusCode().value() != 200
+                            || !"REJECTED".equals(response.getBody().getCategory())) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, wrong.get());
+
+        ResponseEntity<String> invalid = restTemplate.postForEntity("/api/sort",
+                new PackageRequest(-1.0, 100.0, 100.0, 25.0), String.class);
+        assertEquals(400, invalid.getStatusCode().value());
+
+        Map<?, ?> coalescing = (Map<?, ?>) restTemplate.getForObject("/api/metrics", Map.class).get("coalescing");
+        assertEquals(320, ((Number) coalescing.get("packages")).intValue());
+        assertTrue(((Number) coalescing.get("batches")).intValue() <= 320);
+    }
+}
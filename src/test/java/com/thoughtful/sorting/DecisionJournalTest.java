@@ -0,0 +1,201 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DecisionJournalTest {
+
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    @TempDir
+    Path directory;
+
+    private long now = 1_700_000_000_000L;
+    private DecisionJournal journal;
+
+    private DecisionJournal start(int segmentSize, int bufferCapacity) {
+        journal = new DecisionJournal(directory, segmentSize, Duration.ofMillis(10), Duration.ofDays(90),
+            bufferCapacity, () -> now);
+        journal.start();
+        return journal;
+    }
+
+    @AfterEach
+    public void stop() {
+        if (journal != null && journal.isRunning()) {
+            journal.stop();
+        }
+    }
+
+    @Test
+    public void testRecordsDecisionsWithProfile() {
+        start(1 << 20, 1024);
+        ThresholdProfile berlin = new ThresholdProfile("berlin", 120, 800_000, 25);
+        PackageSorter defaultSorter = new PackageSorter(List.of(journal));
+        PackageSorter berlinSorter = new PackageSorter(berlin, List.of(journal));
+
+        defaultSorter.sort(50, 50, 50, 10);
+        now += 1000;
+        berlinSorter.sort(130, 50, 50, 10);
+        journal.flush();
+
+        List<RecordedDecision> decisions = journal.scan(0, Long.MAX_VALUE, 10);
+        assertEquals(2, decisions.size());
+        RecordedDecision first = decisions.get(0);
+        assertEquals("default", first.getProfile());
+        assertEquals(PackageSorter.STANDARD, first.getCategory());
+        assertEquals(50.0, first.getWidth());
+        assertEquals(10.0, first.getMass());
+        RecordedDecision second = decisions.get(1);
+        assertEquals("berlin", second.getProfile());
+        assertEquals(PackageSorter.SPECIAL, second.getCategory());
+        assertEquals(130.0, second.getWidth());
+    }
+
+    @Test
+    public void testScansTimeRangeAcrossSegmentsAndRestarts() {
+        // Room for 71 records per segment
+        start(4096, 256);
+        PackageSorter sorter = new PackageSorter(List.of(journal));
+        for (int i = 0; i < 3000; i++) {
+            sorter.sort(10, 10, 10, i);
+            now += 1000;
+        }
+        journal.flush();
+        assertTrue(journal.getSegmentCount() > 40);
+
+        long start = 1_700_000_000_000L;
+        List<RecordedDecision> range = journal.scan(start + 1_000_000, start + 1_009_000, 100);
+        assertEquals(10, range.size());
+        assertEquals(1000.0, range.get(0).getMass());
+        assertEquals(1009.0, range.get(9).getMass());
+        assertEquals(5, journal.scan(start, start + 1_000_000, 5).size());
+
+        journal.stop();
+        start(4096, 256);
+        assertEquals(3000, journal.scan(0, Long.MAX_VALUE, 10_000).size());
+        assertEquals(10, journal.scan(start + 2_000_000, start + 2_009_000, 100).size());
+    }
+
+    @Test
+    public void testRecoveryTruncatesTornTail() throws Exception {
+        start(1 << 20, 1024);
+        PackageSorter sorter = new PackageSorter(List.of(journal));
+        for (int i = 0; i < 100; i++) {
+            sorter.sort(10, 10, 10, i);
+        }
+        journal.stop();
+
+        // A crash before sealing: no index, and half a record after the last complete one
+        Path segment = JournalSegment.file(directory, 0);
+        Files.delete(directory.resolve("00000000000000000000.idx"));
+        long size = Files.size(segment);
+        ByteBuffer torn = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+        torn.putInt(JournalSegment.FIXED_PAYLOAD + 7).putLong(now).putDouble(1).putDouble(2);
+        torn.flip();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(torn);
+        }
+
+        start(1 << 20, 1024);
+        assertEquals(size, Files.size(segment));
+        List<RecordedDecision> decisions = journal.scan(0, Long.MAX_VALUE, 1000);
+        assertEquals(100, decisions.size());
+        assertEquals(99.0, decisions.get(99).getMass());
+    }
+
+    @Test
+    public void testDeletesSegmentsPastRetention() {
+        start(4096, 256);
+        PackageSorter sorter = new PackageSorter(List.of(journal));
+        for (int i = 0; i < 200; i++) {
+            sorter.sort(10, 10, 10, 1);
+        }
+        journal.flush();
+        int segments = journal.getSegmentCount();
+        assertTrue(segments > 2);
+
+        now += 91 * DAY;
+        for (int i = 0; i < 60; i++) {
+            sorter.sort(10, 10, 10, 2);
+        }
+        journal.flush();
+        // Segments rolled after the expired ones go; the one holding both old and new stays
+        List<RecordedDecision> decisions = journal.scan(0, Long.MAX_VALUE, 1000);
+        assertTrue(journal.getSegmentCount() < segments);
+        assertTrue(decisions.stream().filter(decision -> decision.getMass() == 1.0).count() < 100);
+        assertEquals(60, decisions.stream().filter(decision -> decision.getMass() == 2.0).count());
+    }
+
+    @Test
+    public void testTrickleOfDecisionsIsForcedAtMostOncePerInterval() throws Exception {
+        journal = new DecisionJournal(directory, 1 << 20, Duration.ofMillis(100), Duration.ofDays(90), 1024,
+            () -> now);
+        journal.start();
+        PackageSorter sorter = new PackageSorter(List.of(journal));
+
+        // One decision every 2 ms, far below saturation, so the writer idles between them
+        long start = System.nanoTime();
+        for (int i = 0; i < 150; i++) {
+            sorter.sort(50, 50, 50, i);
+            Thread.sleep(2);
+        }
+        journal.flush();
+        long intervals = (System.nanoTime() - start) / Duration.ofMillis(100).toNanos();
+
+        long syncs = journal.getSyncCount();
+        assertTrue(syncs <= intervals + 1, syncs + " syncs in " + intervals + " intervals");
+        assertEquals(150, journal.scan(0, Long.MAX_VALUE, 1000).size());
+
+        // A lone decision is forced once its interval has passed, without waiting for more
+        Thread.sleep(250);
+        long settled = journal.getSyncCount();
+        sorter.sort(50, 50, 50, 1);
+        Thread.sleep(250);
+        assertEquals(settled + 1, journal.getSyncCount());
+    }
+
+    @Test
+    public void testConcurrentSortersWaitForTheWriter() throws Exception {
+        // Far more decisions than the ring holds
+        start(1 << 20, 64);
+        PackageSorter sorter = new PackageSorter(List.of(journal));
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    sorter.sort(thread, 10, 10, i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        journal.flush();
+
+        List<RecordedDecision> decisions = journal.scan(0, Long.MAX_VALUE, 100_000);
+        assertEquals(20_000, decisions.size());
+        assertEquals(0, journal.getDropped());
+        double[] last = {-1, -1, -1, -1};
+        for (RecordedDecision decision : decisions) {
+            int thread = (int) decision.getWidth();
+            assertTrue(decision.getMass() > last[thread]);
+            last[thread] = decision.getMass();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionStoreTest {
+
+    private static final ThresholdProfile DEFAULT = ThresholdProfile.DEFAULT;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    @Test
+    @DisplayName("Stored decisions are returned until they expire")
+    void testPutAndExpire() {
+        DecisionStore store = new DecisionStore(64, Duration.ofMinutes(10), clock::get);
+
+        assertEquals(-1, store.code(DEFAULT, "PKG-1"));
+        store.put(DEFAULT, "PKG-1", PackageSorter.SPECIAL_CODE);
+        assertEquals(PackageSorter.SPECIAL_CODE, store.code(DEFAULT, "PKG-1"));
+        assertEquals(-1, store.code(DEFAULT, "PKG-10"));
+
+        PackageDecision decision = store.lookup("PKG-1");
+        assertEquals("PKG-1", decision.getId());
+        assertEquals(PackageSorter.SPECIAL, decision.getCategory());
+
+        store.put(DEFAULT, "PKG-1", PackageSorter.REJECTED_CODE);
+        assertEquals(PackageSorter.REJECTED_CODE, store.code(DEFAULT, "PKG-1"));
+
+        clock.addAndGet(Duration.ofMinutes(10).toMillis());
+        assertEquals(-1, store.code(DEFAULT, "PKG-1"));
+        assertNull(store.lookup("PKG-1"));
+    }
+
+    @Test
+    @DisplayName("A decision made under another profile is a miss")
+    void testProfileMismatchIsAMiss() {
+        DecisionStore store = new DecisionStore(64, Duration.ofHours(1), clock::get);
+        ThresholdProfile berlin = new ThresholdProfile("berlin", 120, 800_000, 25);
+        store.put(berlin, "PKG-1", PackageSorter.SPECIAL_CODE);
+
+        assertEquals(-1, store.code(DEFAULT, "PKG-1"));
+        assertEquals(PackageSorter.SPECIAL_CODE, store.code(berlin, "PKG-1"));
+        // Reloaded with the same thresholds: still a hit; with new ones: a miss
+        assertEquals(PackageSorter.SPECIAL_CODE,
+            store.code(new ThresholdProfile("berlin", 120, 800_000, 25), "PKG-1"));
+        assertEquals(-1, store.code(new ThresholdProfile("berlin", 130, 800_000, 25), "PKG-1"));
+
+        store.put(DEFAULT, "PKG-1", PackageSorter.STANDARD_CODE);
+        assertEquals(PackageSorter.STANDARD_CODE, store.code(DEFAULT, "PKG-1"));
+        assertEquals(-1, store.code(berlin, "PKG-1"));
+        assertEquals(PackageSorter.STANDARD, store.lookup("PKG-1").getCategory());
+    }
+
+    @Test
+    @DisplayName("A full set evicts its least recently used entry")
+    void testLeastRecentlyUsedEviction() {
+        // One set: every id competes for the same eight entries
+        DecisionStore store = new DecisionStore(DecisionStore.WAYS, Duration.ofHours(1), clock::get);
+        for (int i = 0; i < DecisionStore.WAYS; i++) {
+            store.put(DEFAULT, "ID" + i, PackageSorter.STANDARD_CODE);
+            clock.incrementAndGet();
+        }
+        assertEquals(PackageSorter.STANDARD_CODE, store.code(DEFAULT, "ID0"));
+        clock.incrementAndGet();
+
+        store.put(DEFAULT, "NEW", PackageSorter.SPECIAL_CODE);
+
+        assertEquals(PackageSorter.STANDARD_CODE, store.code(DEFAULT, "ID0"));
+        assertEquals(-1, store.code(DEFAULT, "ID1"));
+        assertEquals(PackageSorter.SPECIAL_CODE, store.code(DEFAULT, "NEW"));
+    }
+
+    @Test
+    @DisplayName("Memory stays fixed however many ids pass through")
+    void testFixedCapacity() {
+        DecisionStore store = new DecisionStore(1000, Duration.ofHours(1), clock::get);
+        assertEquals(512, store.getCapacity());
+        assertEquals(512 * 64, store.getMemoryBytes());
+
+        for (int i = 0; i < 100_000; i++) {
+            store.put(DEFAULT, Integer.toString(i), PackageSorter.STANDARD_CODE);
+        }
+        int found = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (store.code(DEFAULT, Integer.toString(i)) >= 0) {
+                found++;
+            }
+        }
+        assertTrue(found <= 512);
+        assertEquals(PackageSorter.STANDARD_CODE, store.code(DEFAULT, "99999"));
+    }
+
+    @Test
+    @DisplayName("Ids that cannot be stored are never found")
+    void testInvalidIds() {
+        DecisionStore store = new DecisionStore(64, Duration.ofHours(1), clock::get);
+        String longest = "A".repeat(DecisionStore.MAX_ID_LENGTH);
+        store.put(DEFAULT, longest, PackageSorter.SPECIAL_CODE);
+
+        assertEquals(PackageSorter.SPECIAL_CODE, store.code(DEFAULT, longest));
+        assertEquals(-1, store.code(DEFAULT, longest + "A"));
+        assertEquals(-1, store.code(DEFAULT, ""));
+        assertEquals(-1, store.code(DEFAULT, "PKG 1"));
+        assertThrows(IllegalArgumentException.class, () -> store.put(DEFAULT, "PKG-ü", PackageSorter.STANDARD_CODE));
+        assertThrows(IllegalArgumentException.class, () -> new DecisionStore(4, Duration.ofHours(1)));
+        assertThrows(IllegalArgumentException.class, () -> new DecisionStore(64, Duration.ZERO));
+    }
+}
@@ -0,0 +1,149 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DimensionSketchesTest {
+
+    @Test
+    public void testMergedInstancesMatchOneInstanceThatSawEverything() {
+        // Four instances behind a load balancer, and one that sees all their traffic
+        DimensionSketches[] instances = new DimensionSketches[4];
+        PackageSorter[] sorters = new PackageSorter[instances.length];
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = new DimensionSketches();
+            sorters[i] = new PackageSorter(List.of(instances[i]));
+        }
+        DimensionSketches whole = new DimensionSketches();
+        PackageSorter wholeSorter = new PackageSorter(List.of(whole));
+
+        Random random = new Random(11);
+        List<List<double[]>> byCategory = new ArrayList<>();
+        for (int code = 0; code < 3; code++) {
+            byCategory.add(new ArrayList<>());
+        }
+        for (int i = 0; i < 40_000; i++) {
+            double width = 1 + Math.exp(random.nextGaussian() * 0.8 + 3.5);
+            double height = 1 + random.nextDouble() * 120;
+            double length = 1 + random.nextDouble() * 120;
+            double mass = 0.05 + random.nextDouble() * random.nextDouble() * 40;
+            byte code = sorters[random.nextInt(instances.length)].sortCode(width, height, length, mass);
+            wholeSorter.sortCode(width, height, length, mass);
+            byCategory.get(code).add(new double[] {
+                width * height * length, mass, Math.max(width, Math.max(height, length))});
+        }
+
+        // Serialized one after another, as SketchMerge or POST /api/sketches/merge get them
+        ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+        for (DimensionSketches instance : instances) {
+            concatenated.writeBytes(instance.snapshot().toBytes());
+        }
+        SketchSnapshot merged = SketchSnapshot.parse(concatenated.toByteArray());
+        assertArrayEquals(whole.snapshot().toBytes(), merged.toBytes());
+
+        // And merged in the other order in memory
+        SketchSnapshot reversed = SketchSnapshot.empty();
+        for (int i = instances.length - 1; i >= 0; i--) {
+            reversed.merge(instances[i].snapshot());
+        }
+        assertArrayEquals(merged.toBytes(), reversed.toBytes());
+        assertEquals(40_000, merged.count());
+
+        for (byte code = PackageSorter.STANDARD_CODE; code <= PackageSorter.REJECTED_CODE; code++) {
+            List<double[]> packages = byCategory.get(code);
+            assertEquals(packages.size(), merged.count(code));
+            assertTrue(packages.size() > 100, PackageSorter.category(code) + ": " + packages.size());
+            for (int metric = 0; metric < DimensionSketches.METRIC_NAMES.length; metric++) {
+                double[] values = new double[packages.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = packages.get(i)[metric];
+                }
+                Arrays.sort(values);
+                for (double q : SketchSnapshot.QUANTILES) {
+                    double exact = values[(int) Math.max(1, Math.ceil(q * values.length)) - 1];
+                    double estimate = merged.quantile(code, metric, q);
+                    assertTrue(Math.abs(estimate - exact) <= exact * DimensionSketches.RELATIVE_ERROR,
+                        PackageSorter.category(code) + " " + DimensionSketches.METRIC_NAMES[metric]
+                            + " p" + q + ": " + estimate + " vs " + exact);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBucketsCoverTheRangeWithinTheRelativeError() {
+        for (int metric = 0; metric < DimensionSketches.METRIC_NAMES.length; metric++) {
+            assertEquals(0, DimensionSketches.bucket(metric, 0));
+            assertEquals(0, DimensionSketches.bucket(metric, Double.NaN));
+            int last = DimensionSketches.BUCKETS[metric] - 1;
+            assertEquals(last, DimensionSketches.bucket(metric, Double.POSITIVE_INFINITY));
+            int previous = 0;
+            for (double value = 0.01; value < 1e9; value *= 1.007) {
+                int bucket = DimensionSketches.bucket(metric, value);
+                assertTrue(bucket >= previous);
+                previous = bucket;
+                if (bucket > 0 && bucket < last) {
+                    double estimate = DimensionSketches.bucketValue(metric, bucket);
+                    assertTrue(Math.abs(estimate - value) <= value * DimensionSketches.RELATIVE_ERROR,
+                        value + " -> " + estimate);
+                }
+            }
+        }
+        assertEquals(1.0 / 1024, DimensionSketches.bucketValue(DimensionSketches.MASS, 0));
+    }
+
+    @Test
+    public void testFrequencyIgnoresOrientationAndNeverUndercounts() {
+        DimensionSketches sketches = new DimensionSketches();
+        PackageSorter sorter = new PackageSorter(List.of(sketches));
+        for (int i = 0; i < 300; i++) {
+            sorter.sortCode(30, 20, 10, 2);
+        }
+        sorter.sortCode(10.4, 30.2, 19.6, 2);
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            sorter.sortCode(1 + random.nextInt(200), 1 + random.nextInt(200), 1 + random.nextInt(200), 2);
+        }
+
+        SketchSnapshot snapshot = sketches.snapshot();
+        long estimate = snapshot.frequency(20, 10, 30);
+        assertTrue(estimate >= 301 && estimate <= 301 + snapshot.frequencyErrorBound(), "estimate " + estimate);
+        assertEquals(estimate, snapshot.frequency(10, 30, 20));
+        assertTrue(snapshot.frequency(500, 500, 500) <= snapshot.frequencyErrorBound());
+        assertEquals("30x20x10", SketchesController.frequencyJson(snapshot, 10, 20, 30).get("box"));
+    }
+
+    @Test
+    public void testRejectsWhatIsNotASketch() {
+        byte[] valid = new DimensionSketches().snapshot().toBytes();
+        assertEquals(0, SketchSnapshot.parse(valid).count());
+
+        assertThrows(InvalidSketchException.class, () -> SketchSnapshot.parse(new byte[0]));
+        assertThrows(InvalidSketchException.class, () -> SketchSnapshot.parse("not a sketch".getBytes()));
+        assertThrows(InvalidSketchException.class,
+            () -> SketchSnapshot.parse(Arrays.copyOf(valid, valid.length - 1)));
+
+        byte[] newer = valid.clone();
+        ByteBuffer.wrap(newer).putInt(4, SketchSnapshot.VERSION + 1);
+        InvalidSketchException version = assertThrows(InvalidSketchException.class,
+            () -> SketchSnapshot.parse(newer));
+        assertEquals("Unsupported sketch version 2", version.getMessage());
+
+        // One entry whose gap points past the last counter
+        ByteBuffer outOfRange = ByteBuffer.allocate(17).putInt(SketchSnapshot.MAGIC)
+            .putInt(SketchSnapshot.VERSION).putInt(DimensionSketches.COUNTERS)
+            .put((byte) 1).put((byte) 0xFF).put((byte) 0xFF).put((byte) 0x7F).put((byte) 1);
+        assertThrows(InvalidSketchException.class, () -> SketchSnapshot.parse(outOfRange.array()));
+    }
+}
@@ -0,0 +1,119 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManifestClassifierTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("CSV manifest is converted and classified with invalid rows flagged in place")
+    void testClassifyCsv() throws IOException {
+        Path csv = dir.resolve("manifest.csv");
+        Files.writeString(csv, String.join("\n",
+            "width,height,length,mass",
+            "50,50,50,10",
+            "150,50,50,10",
+            "",
+            "100,100,100,10",
+            "-5,50,50,10",
+            "50,50,50,20",
+            "abc,1,1,1",
+            "150,100,100,25",
+            "10,10,10"));
+        ManifestClassifier classifier = new ManifestClassifier(new PackageSorter(), 3);
+
+        Path binary = classifier.binaryFor(csv);
+        ManifestClassifier.Result result = classifier.classify(binary, dir.resolve("codes.out"));
+
+        assertEquals(dir.resolve("manifest.bin"), binary);
+        assertArrayEquals(new byte[] {0, 1, 1, -1, 1, -1, 2, -1}, Files.readAllBytes(dir.resolve("codes.out")));
+        assertEquals(8, result.getRecords());
+        assertEquals(1, result.getCount(PackageSorter.STANDARD_CODE));
+        assertEquals(3, result.getCount(PackageSorter.SPECIAL_CODE));
+        assertEquals(1, result.getCount(PackageSorter.REJECTED_CODE));
+        assertEquals(3, result.getInvalid());
+    }
+
+    @Test
+    @DisplayName("Only a header naming the columns is skipped; a malformed first row is a record")
+    void testMalformedFirstRowIsNotAHeader() throws IOException {
+        ManifestClassifier classifier = new ManifestClassifier(new PackageSorter());
+        Path headed = dir.resolve("headed.csv");
+        Files.writeString(headed, "Width, HEIGHT ,length,Mass\n50,50,50,10\n");
+        Path malformed = dir.resolve("malformed.csv");
+        Files.writeString(malformed, "5O,50,50,10\n50,50,50,10\n");
+
+        ManifestClassifier.Result result = classifier.classify(classifier.binaryFor(headed), dir.resolve("headed.out"));
+        assertEquals(1, result.getRecords());
+        result = classifier.classify(classifier.binaryFor(malformed), dir.resolve("malformed.out"));
+        assertEquals(2, result.getRecords());
+        assertArrayEquals(new byte[] {-1, 0}, Files.readAllBytes(dir.resolve("malformed.out")));
+    }
+
+    @Test
+    @DisplayName("An up-to-date binary manifest is reused instead of re-parsing the CSV")
+    void testBinaryReused() throws IOException {
+        Path csv = dir.resolve("day.csv");
+        Files.writeString(csv, "50,50,50,10\n");
+        ManifestClassifier classifier = new ManifestClassifier(new PackageSorter());
+        Path binary = classifier.binaryFor(csv);
+        FileTime converted = FileTime.fromMillis(Files.getLastModifiedTime(csv).toMillis() + 10_000);
+        Files.setLastModifiedTime(binary, converted);
+
+        assertEquals(binary, classifier.binaryFor(csv));
+        assertEquals(converted, Files.getLastModifiedTime(binary));
+    }
+
+    @Test
+    @DisplayName("Parallel chunked classification matches the scalar sorter record by record")
+    void testChunksMatchScalar() throws IOException {
+        PackageSorter sorter = new PackageSorter();
+        Random random = new Random(1);
+        int count = 10_001;
+        double[][] rows = new double[count][4];
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            for (int c = 0; c < 4; c++) {
+                rows[i][c] = Math.round(random.nextDouble() * (c == 3 ? 4000 : 20000)) / 100.0;
+            }
+            csv.append(rows[i][0]).append(',').append(rows[i][1]).append(',')
+                .append(rows[i][2]).append(',').append(rows[i][3]).append('\n');
+        }
+        Path input = dir.resolve("big.csv");
+        Files.writeString(input, csv);
+        ManifestClassifier classifier = new ManifestClassifier(sorter, 1000);
+
+        classifier.classify(classifier.binaryFor(input), dir.resolve("big.out"));
+
+        byte[] codes = Files.readAllBytes(dir.resolve("big.out"));
+        assertEquals(count, codes.length);
+        for (int i = 0; i < count; i++) {
+            double[] r = rows[i];
+            byte expected = PackageValidator.isValid(r[0], r[1], r[2], r[3])
+                ? sorter.sortCode(r[0], r[1], r[2], r[3]) : PackageValidator.INVALID_CODE;
+            assertEquals(expected, codes[i], "record " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Files without the manifest header are rejected")
+    void testRejectsNonManifest() throws IOException {
+        Path bogus = dir.resolve("bogus.bin");
+        Files.writeString(bogus, "this is not a manifest file at all.");
+
+        assertThrows(IOException.class,
+            () -> new ManifestClassifier(new PackageSorter()).classify(bogus, dir.resolve("x.out")));
+    }
+}
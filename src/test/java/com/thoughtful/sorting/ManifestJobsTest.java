@@ -0,0 +1,261 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ManifestJobsTest {
+
+    private static final ThresholdProfile COMPACT = new ThresholdProfile("compact", 100, 500_000, 15);
+
+    @TempDir
+    Path directory;
+
+    private ManifestJobs jobs;
+
+    private ManifestJobs start(int chunkSize, int parallelism) {
+        return start(chunkSize, parallelism, Long.MAX_VALUE);
+    }
+
+    private ManifestJobs start(int chunkSize, int parallelism, long maxUploadBytes) {
+        jobs = new ManifestJobs(directory, chunkSize, parallelism, maxUploadBytes);
+        jobs.start();
+        return jobs;
+    }
+
+    @AfterEach
+    public void stop() {
+        if (jobs != null && jobs.isRunning()) {
+            jobs.stop();
+        }
+    }
+
+    // Header, then random packages; every 97th row is invalid or unparseable
+    private static List<String> manifest(int records) {
+        Random random = new Random(records);
+        List<String> lines = new ArrayList<>();
+        lines.add("width,height,length,mass");
+        for (int i = 0; i < records; i++) {
+            if (i % 97 == 5) {
+                lines.add(i % 2 == 0 ? "-1,10,10,10" : "x,10,10,10");
+            } else {
+                lines.add((1 + random.nextInt(200)) + "," + (1 + random.nextInt(200)) + ","
+                    + (1 + random.nextInt(200)) + "," + (1 + random.nextInt(40)));
+            }
+        }
+        return lines;
+    }
+
+    private ManifestJob upload(List<String> lines, ThresholdProfile profile) throws IOException {
+        byte[] body = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return jobs.create(new ByteArrayInputStream(body), "day.csv", profile);
+    }
+
+    private static void await(ManifestJob job, ManifestJob.State state) throws InterruptedException {
+        CountDownLatch reached = new CountDownLatch(1);
+        Runnable unsubscribe = job.subscribe(changed -> {
+            if (changed.getState() == state) {
+                reached.countDown();
+            }
+        });
+        try {
+            assertTrue(reached.await(30, TimeUnit.SECONDS), "job is " + job.getState() + ", error " + job.getError());
+        } finally {
+            unsubscribe.run();
+        }
+    }
+
+    // What each results line's category should be, from the CSV line
+    private static String expected(String line, PackageSorter sorter) {
+        String[] fields = line.split(",");
+        try {
+            double width = Double.parseDouble(fields[0]);
+            double height = Double.parseDouble(fields[1]);
+            double length = Double.parseDouble(fields[2]);
+            double mass = Double.parseDouble(fields[3]);
+            return PackageValidator.isValid(width, height, length, mass)
+                ? sorter.sort(width, height, length, mass) : "INVALID";
+        } catch (NumberFormatException e) {
+            return "INVALID";
+        }
+    }
+
+    @Test
+    public void testClassifiesInChunksAndWritesResults() throws Exception {
+        start(100, 2);
+        List<String> lines = manifest(1050);
+        ManifestJob job = upload(lines, COMPACT);
+        await(job, ManifestJob.State.DONE);
+
+        assertEquals(1050, job.getRecords());
+        assertEquals(11, job.getChunks());
+        assertEquals(11, job.getCompletedChunks());
+        assertEquals(1050, job.getProcessed());
+
+        PackageSorter sorter = new PackageSorter(COMPACT, List.of());
+        List<String> results = Files.readAllLines(jobs.results(job.getId()));
+        assertEquals(1051, results.size());
+        assertEquals("width,height,length,mass,category", results.get(0));
+        long[] counts = new long[4];
+        for (int i = 1; i < results.size(); i++) {
+            String category = expected(lines.get(i), sorter);
+            assertTrue(results.get(i).endsWith("," + category), i + ": " + results.get(i));
+            counts["INVALID".equals(category) ? 3 : Category.valueOf(category).ordinal()]++;
+        }
+        assertEquals(",10.0,10.0,10.0,INVALID", results.get(1 + 5));
+        for (byte code = PackageSorter.STANDARD_CODE; code <= PackageSorter.REJECTED_CODE; code++) {
+            assertEquals(counts[code], job.getCount(code));
+        }
+        assertEquals(counts[3], job.getCount(PackageValidator.INVALID_CODE));
+        assertFalse(Files.exists(job.file(ManifestJob.UPLOAD)));
+        assertEquals("compact", job.toJson().get("profile"));
+        assertEquals(1.0, job.toJson().get("progress"));
+    }
+
+    @Test
+    public void testUploadOverLimitIsAbandoned() throws Exception {
+        start(100, 1, 1000);
+        List<String> lines = manifest(200);
+
+        assertThrows(UploadTooLargeException.class, () -> upload(lines, COMPACT));
+        assertTrue(jobs.list().isEmpty());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+
+        ManifestJob job = upload(lines.subList(0, 20), COMPACT);
+        await(job, ManifestJob.State.DONE);
+        assertEquals(19, job.getRecords());
+    }
+
+    @Test
+    public void testBinaryManifestIsUsedAsUploaded() throws Exception {
+        start(64, 1);
+        List<String> lines = manifest(300);
+        Path csv = directory.resolve("manifest.csv");
+        Files.write(csv, lines);
+        Path binary = directory.resolve("manifest.bin");
+        new ManifestClassifier(new PackageSorter()).convertCsv(csv, binary);
+
+        ManifestJob job = jobs.create(Files.newInputStream(binary), null, ThresholdProfile.DEFAULT);
+        await(job, ManifestJob.State.DONE);
+        assertEquals(job.getId(), job.getName());
+        assertEquals(300, job.getProcessed());
+        assertEquals(301, Files.readAllLines(jobs.results(job.getId())).size());
+    }
+
+    @Test
+    public void testResumesFromTheLastCompletedChunkAfterRestart() throws Exception {
+        start(100, 2);
+        List<String> lines = manifest(1000);
+        ManifestJob job = upload(lines, ThresholdProfile.DEFAULT);
+        await(job, ManifestJob.State.DONE);
+        jobs.stop();
+
+        // As if stopped after chunks 0 and 3: the rest is unmarked and never written, and
+        // the marked chunks are all STANDARD so it shows if they are classified again
+        byte[] marks = new byte[10];
+        marks[0] = 1;
+        marks[3] = 1;
+        Files.write(job.file(ManifestJob.CHUNKS), marks);
+        try (FileChannel codes = FileChannel.open(job.file(ManifestJob.CODES), StandardOpenOption.WRITE)) {
+            codes.write(ByteBuffer.allocate(1000), 0);
+        }
+        Files.delete(job.file(ManifestJob.RESULTS));
+        Path properties = job.file(ManifestJob.PROPERTIES);
+        Files.writeString(properties, Files.readString(properties).replace("state=DONE", "state=RUNNING"));
+
+        start(100, 2);
+        ManifestJob resumed = jobs.get(job.getId());
+        await(resumed, ManifestJob.State.DONE);
+        assertEquals(10, resumed.getCompletedChunks());
+
+        PackageSorter sorter = new PackageSorter();
+        List<String> results = Files.readAllLines(jobs.results(job.getId()));
+        long standard = 0;
+        for (int i = 1; i < results.size(); i++) {
+            int chunk = (i - 1) / 100;
+            String category = chunk == 0 || chunk == 3 ? "STANDARD" : expected(lines.get(i), sorter);
+            assertTrue(results.get(i).endsWith("," + category), i + ": " + results.get(i));
+            standard += "STANDARD".equals(category) ? 1 : 0;
+        }
+        assertEquals(standard, resumed.getCount(PackageSorter.STANDARD_CODE));
+    }
+
+    @Test
+    public void testCancelThenResume() throws Exception {
+        start(10, 1);
+        ManifestJob job = jobs.prepare("day.csv", ThresholdProfile.DEFAULT);
+        Files.write(jobs.uploadPath(job), manifest(500));
+        // Cancel from the worker once the first chunk is done
+        Runnable unsubscribe = job.subscribe(changed -> {
+            if (changed.getCompletedChunks() == 1 && changed.getState() == ManifestJob.State.RUNNING) {
+                jobs.cancel(changed.getId());
+            }
+        });
+        jobs.submit(job);
+        await(job, ManifestJob.State.CANCELLED);
+        unsubscribe.run();
+
+        int completed = job.getCompletedChunks();
+        assertTrue(completed < 50, "completed " + completed);
+        JobStateException notDone = assertThrows(JobStateException.class, () -> jobs.results(job.getId()));
+        assertEquals("Job '" + job.getId() + "' is CANCELLED; results are ready when it is DONE", notDone.getMessage());
+        assertThrows(JobStateException.class, () -> jobs.cancel(job.getId()));
+
+        jobs.resume(job.getId());
+        await(job, ManifestJob.State.DONE);
+        assertEquals(50, job.getCompletedChunks());
+        assertEquals(500, job.getProcessed());
+        assertThrows(JobStateException.class, () -> jobs.resume(job.getId()));
+    }
+
+    @Test
+    public void testQueuedJobCancelsAtOnceAndDeleteRemovesFiles() throws Exception {
+        start(100, 1);
+        ManifestJob job = jobs.prepare("day.csv", ThresholdProfile.DEFAULT);
+        Files.write(jobs.uploadPath(job), manifest(10));
+        assertThrows(JobStateException.class, () -> jobs.delete(job.getId()));
+        assertThrows(JobStateException.class, () -> jobs.cancel(job.getId()));
+
+        jobs.stop();
+        // Queued with no workers, then cancelled before it ever runs
+        jobs.submit(job);
+        assertEquals(ManifestJob.State.CANCELLED, jobs.cancel(job.getId()).getState());
+
+        jobs.delete(job.getId());
+        assertFalse(Files.exists(job.getDirectory()));
+        assertThrows(UnknownJobException.class, () -> jobs.get(job.getId()));
+    }
+
+    @Test
+    public void testIncompleteUploadIsDeletedOnStart() throws Exception {
+        start(100, 1);
+        ManifestJob job = jobs.prepare("day.csv", ThresholdProfile.DEFAULT);
+        jobs.stop();
+
+        start(100, 1);
+        assertThrows(UnknownJobException.class, () -> jobs.get(job.getId()));
+        assertFalse(Files.exists(job.getDirectory()));
+    }
+}
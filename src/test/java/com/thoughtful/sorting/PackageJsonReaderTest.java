@@ -0,0 +1,62 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackageJsonReaderTest {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Test
+    @DisplayName("Decimals are read exactly as Double.parseDouble reads them")
+    void testReadDoubleMatchesParseDouble() throws IOException {
+        String[] samples = {
+            "0.1", "0.2", "0.3", "100.0", "-50.25", "149.99999999999", "150.00000000000003",
+            "1e22", "1.5e-7", "9.999999999999999e22", "123456789012345.6", "0.000000000000000000001",
+            "1E+2", "-0.0", "2.2250738585072014E-308", "1.7976931348623157e308", "4.9e-324",
+            "0.1000000000000000055511151231257827", "100.000000000000000000"
+        };
+        for (String sample : samples) {
+            assertReadsLikeParseDouble(sample);
+        }
+
+        Random random = new Random(31);
+        for (int i = 0; i < 100_000; i++) {
+            double value = random.nextDouble() * Math.pow(10, random.nextInt(12) - 4);
+            assertReadsLikeParseDouble(Double.toString(value));
+            assertReadsLikeParseDouble(String.format("%." + random.nextInt(8) + "f", value));
+        }
+    }
+
+    @Test
+    @DisplayName("Ids are read as text from any scalar")
+    void testReadId() throws IOException {
+        PackageMeasurement measurement = read("{\"id\":\"PKG-1\",\"width\":1}");
+        assertEquals("PKG-1", measurement.getId());
+        assertEquals(1.0, measurement.getWidth());
+
+        assertEquals("12345", read("{\"id\":12345}").getId());
+        assertNull(read("{\"id\":null}").getId());
+        assertTrue(read("{\"id\":[\"PKG-1\"]}").isInvalidId());
+    }
+
+    private void assertReadsLikeParseDouble(String number) throws IOException {
+        assertEquals(Double.parseDouble(number), read("{\"width\":" + number + "}").getWidth(), number);
+    }
+
+    private PackageMeasurement read(String json) throws IOException {
+        PackageMeasurement measurement = new PackageMeasurement();
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            parser.nextToken();
+            assertTrue(PackageJsonReader.read(parser, measurement));
+        }
+        return measurement;
+    }
+}
@@ -0,0 +1,136 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the columnar sortBatch paths agree with the scalar sort.
+ */
+class PackageSorterBatchTest {
+
+    private static final double[] EDGES = {
+        0.5, 1, 19.99, 20, 20.01, 44, 64, 99.9, 100, 100.0000001, 125,
+        149, 149.99, Math.nextDown(150.0), 150, Math.nextUp(150.0), 200
+    };
+
+    private PackageSorter sorter;
+
+    @BeforeEach
+    void setUp() {
+        sorter = new PackageSorter();
+    }
+
+    @Test
+    @DisplayName("Vector and scalar batch paths agree when the Vector API is used")
+    void testVectorApiAvailable() {
+        // surefire runs with --add-modules jdk.incubator.vector, but a CPU whose preferred vector
+        // holds more than 8 doubles (wide SVE) falls back to the scalar loop, covered by the rest
+        assumeTrue(PackageSorter.isVectorApiAvailable(), "Vector API not used on this JVM or CPU");
+        assertBatchMatchesScalar(EDGES, EDGES, EDGES, EDGES);
+    }
+
+    @Test
+    @DisplayName("Category codes map back to category names")
+    void testCategoryCodes() {
+        assertEquals(PackageSorter.STANDARD, PackageSorter.category(PackageSorter.STANDARD_CODE));
+        assertEquals(PackageSorter.SPECIAL, PackageSorter.category(PackageSorter.SPECIAL_CODE));
+        assertEquals(PackageSorter.REJECTED, PackageSorter.category(PackageSorter.REJECTED_CODE));
+    }
+
+    @Test
+    @DisplayName("Batch results match scalar results on every threshold-edge combination")
+    void testBatch_ThresholdEdges() {
+        int n = EDGES.length * EDGES.length * EDGES.length * EDGES.length;
+        double[] w = new double[n];
+        double[] h = new double[n];
+        double[] l = new double[n];
+        double[] m = new double[n];
+        int i = 0;
+        for (double a : EDGES) {
+            for (double b : EDGES) {
+                for (double c : EDGES) {
+                    for (double d : EDGES) {
+                        w[i] = a;
+                        h[i] = b;
+                        l[i] = c;
+                        m[i] = d;
+                        i++;
+                    }
+                }
+            }
+        }
+        assertBatchMatchesScalar(w, h, l, m);
+    }
+
+    @Test
+    @DisplayName("Volume exactly at 1,000,000 cm³ is bulky in both paths")
+    void testBatch_VolumeBoundary() {
+        double[] w = {100, 200, 125, 99.9, 100, 0.1, 1e3};
+        double[] h = {100, 100, 125, 100, Math.nextDown(100.0), 1e4, 1e3};
+        double[] l = {100, 50, 64, 100, 100, 1e3, 1};
+        double[] m = {5, 5, 5, 5, 5, 5, 5};
+        byte[] out = new byte[w.length];
+
+        sorter.sortBatch(w, h, l, m, out);
+
+        assertArrayEquals(new byte[] {1, 1, 1, 0, 0, 1, 1}, out);
+        assertBatchMatchesScalar(w, h, l, m);
+    }
+
+    @Test
+    @DisplayName("Batch results match scalar results for random packages, NaN and infinities")
+    void testBatch_Random() {
+        Random random = new Random(42);
+        int n = 10_007;
+        double[] w = new double[n];
+        double[] h = new double[n];
+        double[] l = new double[n];
+        double[] m = new double[n];
+        for (int i = 0; i < n; i++) {
+            w[i] = random.nextDouble() * 200;
+            h[i] = random.nextDouble() * 200;
+            l[i] = random.nextDouble() * 200;
+            m[i] = random.nextDouble() * 40;
+        }
+        w[3] = Double.NaN;
+        h[5] = Double.POSITIVE_INFINITY;
+        m[7] = Double.NaN;
+        l[11] = Double.MIN_VALUE;
+        assertBatchMatchesScalar(w, h, l, m);
+    }
+
+    @Test
+    @DisplayName("Offset and count only touch the requested range")
+    void testBatch_Range() {
+        double[] w = {150, 150, 150, 150};
+        double[] h = {1, 1, 1, 1};
+        double[] l = {1, 1, 1, 1};
+        double[] m = {25, 25, 25, 25};
+        byte[] out = {9, 9, 9, 9};
+
+        sorter.sortBatch(w, h, l, m, out, 1, 2);
+
+        assertArrayEquals(new byte[] {9, 2, 2, 9}, out);
+    }
+
+    private void assertBatchMatchesScalar(double[] w, double[] h, double[] l, double[] m) {
+        int n = w.length;
+        byte[] vector = new byte[n];
+        byte[] scalar = new byte[n];
+        sorter.sortBatch(w, h, l, m, vector);
+        sorter.sortBatchScalar(w, h, l, m, scalar, 0, n);
+        for (int i = 0; i < n; i++) {
+            String expected = sorter.sort(w[i], h[i], l[i], m[i]);
+            assertEquals(expected, PackageSorter.category(vector[i]),
+                "vector path at " + w[i] + "x" + h[i] + "x" + l[i] + ", " + m[i]);
+            assertEquals(expected, PackageSorter.category(scalar[i]),
+                "scalar path at " + w[i] + "x" + h[i] + "x" + l[i] + ", " + m[i]);
+        }
+    }
+}
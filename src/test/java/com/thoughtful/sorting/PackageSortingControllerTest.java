@@ -2,17 +2,33 @@ package com.thoughtful.sorting;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
+import com.jayway.jsonpath.JsonPath;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = {
+        "sorting.profiles.location=src/test/resources/sorting-profiles.properties",
+        "sorting.journal.enabled=true",
+        "sorting.journal.directory=target/test-journal",
+        "sorting.stacks.rejected=R1:1",
+        "sorting.jobs.directory=target/test-jobs",
+        "sorting.jobs.max-upload-bytes=4096"
+})
 @AutoConfigureMockMvc
 public class PackageSortingControllerTest {
 
@@ -22,6 +38,12 @@ public class PackageSortingControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private DecisionJournal decisionJournal;
+
+    @Autowired
+    private RequestTracer requestTracer;
+
     @Test
     public void testHealthEndpoint() throws Exception {
         mockMvc.perform(get("/api/health"))
@@ -144,5 +166,552 @@ public class PackageSortingControllerTest {
                 .andExpect(jsonPath("$.status").value(400))
                 .andExpect(jsonPath("$.error").value("Validation Failed"));
     }
-}
 
+    @Test
+    public void testSortBatchMixedResults() throws Exception {
+        String batch = "[{\"width\":50,\"height\":50,\"length\":50,\"mass\":10},"
+                + "{\"width\":150,\"height\":100,\"length\":100,\"mass\":25},"
+                + "{\"width\":-1,\"height\":50,\"length\":50},"
+                + "{\"width\":\"abc\",\"height\":50,\"length\":50,\"mass\":10},"
+                + "{\"width\":100,\"height\":100,\"length\":100,\"mass\":1,\"note\":{\"a\":1}}]";
+
+        mockMvc.perform(post("/api/sort/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].category").value("STANDARD"))
+                .andExpect(jsonPath("$[1].category").value("REJECTED"))
+                .andExpect(jsonPath("$[2].error").value("Validation Failed"))
+                .andExpect(jsonPath("$[2].messages[0]").value("Width must be positive"))
+                .andExpect(jsonPath("$[2].messages[1]").value("Mass cannot be null"))
+                .andExpect(jsonPath("$[3].error").value("Invalid Request"))
+                .andExpect(jsonPath("$[3].messages[0]").value("Invalid value 'abc' for field 'width'. Expected a valid number (e.g., 10.5, 150.0)."))
+                .andExpect(jsonPath("$[4].category").value("SPECIAL"));
+    }
+
+    @Test
+    public void testSortBatchTruncatedArray() throws Exception {
+        mockMvc.perform(post("/api/sort/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"width\":50,\"height\":50,\"length\":50,\"mass\":10},{\"width\":"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].category").value("STANDARD"))
+                .andExpect(jsonPath("$[1].error").value("Invalid Request"));
+    }
+
+    @Test
+    public void testSortBatchRequiresArray() throws Exception {
+        mockMvc.perform(post("/api/sort/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"width\":50}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid Request"))
+                .andExpect(jsonPath("$.messages[0]").value("Request body must be a JSON array of packages"));
+    }
+
+    @Test
+    public void testSortStreamNdjson() throws Exception {
+        String manifest = "{\"width\":50,\"height\":50,\"length\":50,\"mass\":10}\n"
+                + "\n"
+                + "{\"width\":50,\"height\":50,\"length\":50,\"mass\":20}\r\n"
+                + "{\"width\":0,\"height\":50,\"length\":50,\"mass\":10}\n"
+                + "not json\n"
+                + "{\"width\":150,\"height\":100,\"length\":100,\"mass\":25}";
+
+        String body = mockMvc.perform(post("/api/sort/stream")
+                .contentType("application/x-ndjson")
+                .content(manifest))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(6, lines.length);
+        assertEquals("{\"category\":\"STANDARD\"}", lines[0]);
+        assertEquals("{\"category\":\"SPECIAL\"}", lines[1]);
+        assertEquals("{\"line\":4,\"status\":400,\"error\":\"Validation Failed\","
+                + "\"messages\":[\"Width must be positive\"]}", lines[2]);
+        assertTrue(lines[3].startsWith("{\"line\":5,\"status\":400,\"error\":\"Invalid Request\""));
+        assertEquals("{\"category\":\"REJECTED\"}", lines[4]);
+        assertTrue(lines[5].startsWith("{\"summary\":{\"records\":5,\"standard\":1,\"special\":1,"
+                + "\"rejected\":1,\"errors\":2,"));
+    }
+
+    @Test
+    public void testMetricsCountDecisionsAndLatency() throws Exception {
+        long before = objectMapper.readTree(mockMvc.perform(get("/api/metrics"))
+                .andReturn().getResponse().getContentAsString())
+                .path("categories").path("REJECTED").asLong();
+
+        mockMvc.perform(post("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"width\":150,\"height\":100,\"length\":100,\"mass\":25}"))
+                .andExpect(status().isOk());
+
+        String json = mockMvc.perform(get("/api/metrics"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        var metrics = objectMapper.readTree(json);
+        assertEquals(before + 1, metrics.path("categories").path("REJECTED").asLong());
+        assertTrue(metrics.path("reasons").path("heavy").asLong() >= 1);
+        assertTrue(metrics.path("requests").path("/api/sort").path("count").asLong() >= 1);
+        assertTrue(metrics.path("requests").path("/api/sort").path("p99Micros").asDouble() > 0);
+
+        mockMvc.perform(get("/api/metrics/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN))
+                .andExpect(content().string(containsString(
+                        "sorting_packages_total{category=\"REJECTED\"} " + (before + 1))))
+                .andExpect(content().string(containsString(
+                        "sorting_request_duration_seconds_count{endpoint=\"/api/sort\"}")));
+    }
+
+    @Test
+    public void testStatsWindowsCountRecentDecisions() throws Exception {
+        long before = objectMapper.readTree(mockMvc.perform(get("/api/stats"))
+                .andReturn().getResponse().getContentAsString())
+                .path("windows").path("1m").path("categories").path("REJECTED").path("count").asLong();
+
+        mockMvc.perform(post("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"width\":150,\"height\":100,\"length\":100,\"mass\":25}"))
+                .andExpect(status().isOk());
+
+        String json = mockMvc.perform(get("/api/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.windows['5m'].rejectRate").isNumber())
+                .andExpect(jsonPath("$.windows['60m'].categories.STANDARD.massKg['10-20']").isNumber())
+                .andReturn().getResponse().getContentAsString();
+        var rejected = objectMapper.readTree(json).path("windows").path("1m").path("categories").path("REJECTED");
+        assertEquals(before + 1, rejected.path("count").asLong());
+        assertTrue(rejected.path("massKg").path("20-50").asLong() >= 1);
+        assertTrue(rejected.path("volumeCm3").path("1000000-10000000").asLong() >= 1);
+    }
+
+    @Test
+    public void testDecisionJournalReturnsRecentDecisions() throws Exception {
+        mockMvc.perform(post("/api/sort")
+                .header(SortingProfiles.HEADER, "compact")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"width\":100,\"height\":50,\"length\":50,\"mass\":17.25}"))
+                .andExpect(status().isOk());
+        decisionJournal.flush();
+
+        String json = mockMvc.perform(get("/api/decisions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.truncated").isBoolean())
+                .andReturn().getResponse().getContentAsString();
+        boolean found = false;
+        for (var decision : objectMapper.readTree(json).path("decisions")) {
+            if (decision.path("mass").asDouble() == 17.25) {
+                assertEquals("compact", decision.path("profile").asText());
+                assertEquals("REJECTED", decision.path("category").asText());
+                assertTrue(decision.path("decidedAt").isTextual());
+                found = true;
+            }
+        }
+        assertTrue(found);
+
+        mockMvc.perform(get("/api/decisions")
+                .param("from", "2024-01-02T00:00:00")
+                .param("to", "2024-01-01T00:00:00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(ErrorResponse.INVALID_REQUEST));
+        mockMvc.perform(get("/api/decisions").param("from", "yesterday"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testAdmissionLimitsChangeAtRuntime() throws Exception {
+        String jsonRequest = "{\"width\":50,\"height\":50,\"length\":50,\"mass\":10}";
+        mockMvc.perform(put("/api/admission")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ratePerSecond\":0.001,\"burst\":2,\"maxConcurrent\":0}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.burst").value(2));
+        try {
+            for (int i = 0; i < 2; i++) {
+                mockMvc.perform(post("/api/sort")
+                        .header(AdmissionLimiter.CLIENT_HEADER, "flooding-gateway")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonRequest))
+                        .andExpect(status().isOk());
+            }
+            mockMvc.perform(post("/api/sort/batch")
+                    .header(AdmissionLimiter.CLIENT_HEADER, "flooding-gateway")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[" + jsonRequest + "]"))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().exists("Retry-After"))
+                    .andExpect(jsonPath("$.error").value(ErrorResponse.TOO_MANY_REQUESTS))
+                    .andExpect(jsonPath("$.messages[0]").value("Rate limit exceeded for client 'flooding-gateway'"));
+            mockMvc.perform(post("/api/sort")
+                    .header(AdmissionLimiter.CLIENT_HEADER, "other-gateway")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(jsonRequest))
+                    .andExpect(status().isOk());
+            mockMvc.perform(get("/api/admission"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.rateLimited").value(1));
+
+            mockMvc.perform(put("/api/admission")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"ratePerSecond\":-1,\"burst\":0,\"maxConcurrent\":0}"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.messages.length()").value(2));
+        } finally {
+            mockMvc.perform(put("/api/admission")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"ratePerSecond\":0,\"burst\":20,\"maxConcurrent\":0}"))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    public void testSketchesServeAndMerge() throws Exception {
+        mockMvc.perform(post("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"width\":31,\"height\":17,\"length\":23,\"mass\":3}"))
+                .andExpect(status().isOk());
+        byte[] sketch = mockMvc.perform(get("/api/sketches"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andReturn().getResponse().getContentAsByteArray();
+        long packages = SketchSnapshot.parse(sketch).count();
+        assertTrue(packages > 0);
+
+        // Two instances' sketches, without this one's
+        byte[] twice = new byte[sketch.length * 2];
+        System.arraycopy(sketch, 0, twice, 0, sketch.length);
+        System.arraycopy(sketch, 0, twice, sketch.length, sketch.length);
+        mockMvc.perform(post("/api/sketches/merge").param("local", "false")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(twice))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.packages").value(2 * packages))
+                .andExpect(jsonPath("$.categories.STANDARD.massKg.p50").isNumber());
+        byte[] merged = mockMvc.perform(post("/api/sketches/merge")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .accept(MediaType.APPLICATION_OCTET_STREAM)
+                .content(sketch))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(2 * packages, SketchSnapshot.parse(merged).count());
+
+        mockMvc.perform(get("/api/sketches/frequency")
+                .param("width", "23").param("height", "31").param("length", "17"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.box").value("31x23x17"))
+                .andExpect(jsonPath("$.estimate").value(greaterThanOrEqualTo(1)));
+        mockMvc.perform(get("/api/sketches/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.categories.REJECTED.longestDimensionCm.p99").isNumber());
+
+        mockMvc.perform(post("/api/sketches/merge")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content("not a sketch".getBytes()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(ErrorResponse.INVALID_REQUEST))
+                .andExpect(jsonPath("$.messages[0]").value("Not a package dimension sketch at byte 0"));
+    }
+
+    @Test
+    public void testTracesSampledSortRequests() throws Exception {
+        mockMvc.perform(put("/api/traces")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"sampleRate\":1.0}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sampleRate").value(1.0));
+        try {
+            mockMvc.perform(post("/api/sort")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"width\":51,\"height\":52,\"length\":53,\"mass\":4}"))
+                    .andExpect(status().isOk());
+        } finally {
+            mockMvc.perform(put("/api/traces")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"sampleRate\":0}"))
+                    .andExpect(status().isOk());
+        }
+        requestTracer.flush();
+
+        mockMvc.perform(get("/api/traces").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sampleRate").value(0.0))
+                .andExpect(jsonPath("$.dropped").value(0))
+                .andExpect(jsonPath("$.traces.length()").value(1))
+                .andExpect(jsonPath("$.traces[0].status").value(200))
+                .andExpect(jsonPath("$.traces[0].category").value("STANDARD"))
+                .andExpect(jsonPath("$.traces[0].phaseNanos.deserialize").isNumber())
+                .andExpect(jsonPath("$.traces[0].phaseNanos.classify").isNumber());
+
+        mockMvc.perform(put("/api/traces")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"sampleRate\":2}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.messages[0]").value("Sample rate must be between 0 and 1"));
+    }
+
+    @Test
+    public void testManifestJobUploadOverLimit() throws Exception {
+        mockMvc.perform(post("/api/jobs")
+                .contentType("text/csv")
+                .content("50,50,50,10\n".repeat(400)))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.error").value(ErrorResponse.PAYLOAD_TOO_LARGE))
+                .andExpect(jsonPath("$.messages[0]").value("Upload exceeds the limit of 4096 bytes"));
+    }
+
+    @Test
+    public void testManifestJobLifecycle() throws Exception {
+        String csv = "width,height,length,mass\n50,50,50,10\n150,50,50,10\n150,100,100,25\n-1,10,10,1\n";
+        String location = mockMvc.perform(post("/api/jobs").param("name", "day.csv")
+                .header("X-Sorting-Profile", "compact")
+                .contentType("text/csv")
+                .content(csv))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.name").value("day.csv"))
+                .andExpect(jsonPath("$.profile").value("compact"))
+                .andReturn().getResponse().getHeader("Location");
+        String id = location.substring(location.lastIndexOf('/') + 1);
+
+        String state = "QUEUED";
+        for (int attempt = 0; attempt < 100 && !"DONE".equals(state); attempt++) {
+            Thread.sleep(50);
+            state = JsonPath.read(mockMvc.perform(get(location))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString(), "$.state");
+        }
+        assertEquals("DONE", state);
+        mockMvc.perform(get(location))
+                .andExpect(jsonPath("$.records").value(4))
+                .andExpect(jsonPath("$.progress").value(1.0))
+                .andExpect(jsonPath("$.categories.STANDARD").value(0))
+                .andExpect(jsonPath("$.categories.SPECIAL").value(1))
+                .andExpect(jsonPath("$.categories.REJECTED").value(2))
+                .andExpect(jsonPath("$.categories.INVALID").value(1));
+        mockMvc.perform(get("/api/jobs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.jobs[?(@.id == '" + id + "')].state").value("DONE"));
+
+        mockMvc.perform(get(location + "/results"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", containsString("day-results.csv")))
+                .andExpect(content().string(containsString("150.0,100.0,100.0,25.0,REJECTED\n")))
+                .andExpect(content().string(containsString("-1.0,10.0,10.0,1.0,INVALID\n")));
+
+        // A finished job's stream is its final event
+        MvcResult events = mockMvc.perform(get(location + "/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(events))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("event:done")));
+
+        mockMvc.perform(post(location + "/cancel"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value(ErrorResponse.CONFLICT));
+        mockMvc.perform(delete(location))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get(location))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.messages[0]").value("No manifest job with id '" + id + "'"));
+    }
+
+    @Test
+    public void testStackAssignmentAndEmptying() throws Exception {
+        String rejected = "{\"width\":150,\"height\":100,\"length\":100,\"mass\":25}";
+        mockMvc.perform(post("/api/stacks/R1/empty"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/stacks/assign")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(rejected))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category").value("REJECTED"))
+                .andExpect(jsonPath("$.stack").value("R1"));
+        mockMvc.perform(post("/api/stacks/assign")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(rejected))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value(ErrorResponse.CONFLICT))
+                .andExpect(jsonPath("$.messages[0]").value("All REJECTED stacks are full"));
+
+        mockMvc.perform(get("/api/stacks"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.name == 'R1')].occupancy").value(1))
+                .andExpect(jsonPath("$[?(@.name == 'S1')].capacity").value(500));
+        mockMvc.perform(post("/api/stacks/R1/empty"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.occupancy").value(0));
+        mockMvc.perform(post("/api/stacks/X9/empty"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/stacks/assign")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"width\":-1,\"height\":100,\"length\":100,\"mass\":25}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testSortWithProfileHeader() throws Exception {
+        String jsonRequest = "{\"width\":100,\"height\":50,\"length\":50,\"mass\":10}";
+
+        mockMvc.perform(post("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonRequest))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category").value("STANDARD"));
+
+        mockMvc.perform(post("/api/sort")
+                .header("X-Sorting-Profile", "compact")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonRequest))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category").value("REJECTED"));
+
+        mockMvc.perform(post("/api/sort/batch")
+                .header("X-Sorting-Profile", "compact")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + jsonRequest + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].category").value("REJECTED"));
+    }
+
+    @Test
+    public void testSameIdUnderTwoProfiles() throws Exception {
+        String jsonRequest = "{\"id\":\"PKG-PROFILES\",\"width\":100,\"height\":50,\"length\":50,\"mass\":10}";
+
+        mockMvc.perform(post("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonRequest))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category").value("STANDARD"));
+
+        // The default profile's decision is not an answer for the compact profile
+        mockMvc.perform(post("/api/sort")
+                .header("X-Sorting-Profile", "compact")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonRequest))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category").value("REJECTED"));
+
+        mockMvc.perform(post("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonRequest))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category").value("STANDARD"));
+    }
+
+    @Test
+    public void testSortWithUnknownProfile() throws Exception {
+        mockMvc.perform(post("/api/sort")
+                .header("X-Sorting-Profile", "nowhere")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"width\":50,\"height\":50,\"length\":50,\"mass\":10}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid Request"))
+                .andExpect(jsonPath("$.messages[0]").value("Unknown sorting profile 'nowhere'"));
+    }
+
+    @Test
+    public void testListAndReloadProfiles() throws Exception {
+        mockMvc.perform(post("/api/profiles/reload"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("compact"))
+                .andExpect(jsonPath("$[0].dimension").value(100.0))
+                .andExpect(jsonPath("$[1].name").value("default"));
+
+        mockMvc.perform(get("/api/profiles"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    public void testRetriedIdReturnsFirstDecision() throws Exception {
+        mockMvc.perform(post("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":\"RETRY-1\",\"width\":150,\"height\":50,\"length\":50,\"mass\":10}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category").value("SPECIAL"));
+
+        // The retry is answered from the decision store without validation
+        mockMvc.perform(post("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":\"RETRY-1\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category").value("SPECIAL"));
+
+        mockMvc.perform(get("/api/packages/RETRY-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("RETRY-1"))
+                .andExpect(jsonPath("$.category").value("SPECIAL"))
+                .andExpect(jsonPath("$.decidedAt").exists());
+    }
+
+    @Test
+    public void testUnknownPackageLookup() throws Exception {
+        mockMvc.perform(get("/api/packages/NEVER-SEEN"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Not Found"))
+                .andExpect(jsonPath("$.messages[0]").value("No recent decision for package 'NEVER-SEEN'"));
+    }
+
+    @Test
+    public void testSortWithInvalidId() throws Exception {
+        mockMvc.perform(post("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":\"PKG 1\",\"width\":-50,\"height\":50,\"length\":50,\"mass\":10}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation Failed"))
+                .andExpect(jsonPath("$.messages[0]").value("Width must be positive"))
+                .andExpect(jsonPath("$.messages[1]").value("Id must be printable ASCII without spaces"));
+    }
+
+    @Test
+    public void testSortResponseBodyMatchesSerializedResponse() throws Exception {
+        String body = mockMvc.perform(post("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"width\":50,\"height\":50,\"length\":50,\"mass\":25}"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(objectMapper.writeValueAsString(new PackageResponse("SPECIAL")), body);
+    }
+
+    @Test
+    public void testSortMalformedBodies() throws Exception {
+        String[][] cases = {
+            {"", "Request body is required"},
+            {"null", "Request body is required"},
+            {"  ", "Invalid JSON format. Please check your request structure."},
+            {"[1, 2]", "Invalid JSON format. Please check your request structure."},
+            {"{\"width\":50,", "Invalid JSON format. Please check your request structure."},
+            {"{\"width\":true}", "Invalid JSON format. Please check your request structure."},
+            {"{\"id\":{},\"width\":50}", "Invalid JSON format. Please check your request structure."},
+            {"{\"width\":\"wide\",\"mass\":\"x\"}",
+                "Invalid value 'wide' for field 'width'. Expected a valid number (e.g., 10.5, 150.0)."}
+        };
+        for (String[] c : cases) {
+            mockMvc.perform(post("/api/sort")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(c[0]))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value("Invalid Request"))
+                    .andExpect(jsonPath("$.messages[0]").value(c[1]));
+        }
+    }
+
+    @Test
+    public void testSortCoercesLikeJackson() throws Exception {
+        mockMvc.perform(post("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":12345,\"width\":\"150\",\"height\":50,\"length\":50,\"mass\":\"\",\"extra\":[1]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation Failed"))
+                .andExpect(jsonPath("$.messages.length()").value(1))
+                .andExpect(jsonPath("$.messages[0]").value("Mass cannot be null"));
+    }
+}
@@ -0,0 +1,260 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.netty.NettyWebServer;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.main.web-application-type=reactive",
+                "sorting.jobs.directory=target/test-jobs-reactive",
+                "sorting.jobs.max-upload-bytes=4096"
+        })
+@AutoConfigureWebTestClient
+public class ReactivePackageSortingControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveWebServerApplicationContext context;
+
+    @Autowired
+    private AdmissionLimiter admissionLimiter;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void testRunsOnNetty() {
+        assertInstanceOf(NettyWebServer.class, context.getWebServer());
+    }
+
+    @Test
+    public void testScannerSession() throws Exception {
+        ScannerWebSocketTest.Scanner scanner = ScannerWebSocketTest.Scanner.connect(port, "");
+        scanner.send("{\"width\":50,\"height\":50,\"length\":50,\"mass\":10}\n"
+                + "{\"width\":150,\"height\":100,\"length\":100,\"mass\":25}");
+        scanner.send("{\"width\":-1,\"height\":50,\"length\":50,\"mass\":10}");
+
+        List<String> results = scanner.receive(3);
+        assertEquals("{\"category\":\"STANDARD\"}", results.get(0));
+        assertEquals("{\"category\":\"REJECTED\"}", results.get(1));
+        assertTrue(results.get(2).startsWith("{\"line\":3,\"status\":400"));
+        scanner.close();
+    }
+
+    @Test
+    public void testAdmissionSheds() {
+        webTestClient.put().uri("/api/admission")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"ratePerSecond\":0,\"burst\":1,\"maxConcurrent\":1}")
+                .exchange()
+                .expectStatus().isOk();
+        // A request already in progress takes the only slot
+        assertTrue(admissionLimiter.enter());
+        try {
+            sort("{\"width\":50.0,\"height\":50.0,\"length\":50.0,\"mass\":10.0}")
+                    .expectStatus().isEqualTo(503)
+                    .expectHeader().valueEquals("Retry-After", "1")
+                    .expectBody()
+                    .jsonPath("$.error").isEqualTo(ErrorResponse.SERVICE_UNAVAILABLE)
+                    .jsonPath("$.path").isEqualTo("/api/sort");
+        } finally {
+            admissionLimiter.exit();
+            admissionLimiter.setLimits(new AdmissionLimits(0, 20, 0));
+        }
+        sort("{\"width\":50.0,\"height\":50.0,\"length\":50.0,\"mass\":10.0}")
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void testSketchesMergeOnNetty() {
+        byte[] sketch = webTestClient.get().uri("/api/sketches")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        webTestClient.post().uri("/api/sketches/merge?local=false")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(sketch)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.packages").isEqualTo(SketchSnapshot.parse(sketch).count());
+        webTestClient.post().uri("/api/sketches/merge")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .bodyValue(new byte[] {1, 2, 3})
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo(ErrorResponse.INVALID_REQUEST)
+                .jsonPath("$.messages[0]").isEqualTo("Truncated sketch at byte 0");
+    }
+
+    @Test
+    public void testManifestJobOnNetty() {
+        String location = webTestClient.post().uri("/api/jobs?name=day.csv")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue("width,height,length,mass\n50,50,50,10\n150,100,100,25\n")
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("day.csv")
+                .returnResult().getResponseHeaders().getLocation().toString();
+
+        // Completes with the job's final event
+        List<String> events = webTestClient.get().uri(location + "/events")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseBody()
+                .collectList().block(Duration.ofSeconds(30));
+        assertTrue(events.get(events.size() - 1).contains("\"DONE\""), events.toString());
+
+        webTestClient.get().uri(location + "/results")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("width,height,length,mass,category\n"
+                        + "50.0,50.0,50.0,10.0,STANDARD\n150.0,100.0,100.0,25.0,REJECTED\n");
+        webTestClient.post().uri(location + "/resume")
+                .exchange()
+                .expectStatus().isEqualTo(409);
+        webTestClient.get().uri("/api/jobs/nope")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void testManifestJobUploadOverLimitOnNetty() {
+        webTestClient.post().uri("/api/jobs")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue("50,50,50,10\n".repeat(400))
+                .exchange()
+                .expectStatus().isEqualTo(413)
+                .expectBody()
+                .jsonPath("$.error").isEqualTo(ErrorResponse.PAYLOAD_TOO_LARGE)
+                .jsonPath("$.messages[0]").isEqualTo("Upload exceeds the limit of 4096 bytes");
+    }
+
+    @Test
+    public void testHealthEndpoint() {
+        webTestClient.get().uri("/api/health")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("Package Sorting API is running");
+    }
+
+    @Test
+    public void testSortRejectedPackage() {
+        sort("{\"width\":150.0,\"height\":100.0,\"length\":100.0,\"mass\":25.0}")
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.category").isEqualTo("REJECTED");
+    }
+
+    @Test
+    public void testSortWithNegativeValue() {
+        sort("{\"width\":-50.0,\"height\":50.0,\"length\":50.0,\"mass\":10.0}")
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.error").isEqualTo("Validation Failed")
+                .jsonPath("$.messages[0]").isEqualTo("Width must be positive")
+                .jsonPath("$.path").isEqualTo("/api/sort")
+                .jsonPath("$.timestamp").exists();
+    }
+
+    @Test
+    public void testRetriedIdReturnsFirstDecision() {
+        sort("{\"id\":\"REACTIVE-1\",\"width\":50.0,\"height\":50.0,\"length\":50.0,\"mass\":25.0}")
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.category").isEqualTo("SPECIAL");
+
+        sort("{\"id\":\"REACTIVE-1\"}")
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.category").isEqualTo("SPECIAL");
+
+        webTestClient.get().uri("/api/packages/REACTIVE-1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.category").isEqualTo("SPECIAL");
+        webTestClient.get().uri("/api/packages/NEVER-SEEN")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Not Found");
+    }
+
+    @Test
+    public void testSortWithInvalidNumber() {
+        sort("{\"width\":\"not-a-number\"}")
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Invalid Request")
+                .jsonPath("$.messages[0]").isEqualTo("Invalid value 'not-a-number' for field 'width'. "
+                        + "Expected a valid number (e.g., 10.5, 150.0).");
+    }
+
+    @Test
+    public void testSortWithMalformedJson() {
+        sort("{\"width\":")
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Invalid Request")
+                .jsonPath("$.messages[0]").isEqualTo(GlobalExceptionHandler.INVALID_JSON_MESSAGE);
+    }
+
+    @Test
+    public void testSortWithoutBody() {
+        webTestClient.post().uri("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.messages[0]").isEqualTo(GlobalExceptionHandler.BODY_REQUIRED_MESSAGE);
+    }
+
+    @Test
+    public void testMetricsRecordReactiveRequests() {
+        sort("{\"width\":50.0,\"height\":50.0,\"length\":50.0,\"mass\":10.0}")
+                .expectStatus().isOk();
+
+        webTestClient.get().uri("/api/metrics")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.categories.STANDARD").value(count -> assertTrue(((Number) count).longValue() >= 1))
+                .jsonPath("$.requests['/api/sort'].count").value(count -> assertTrue(((Number) count).longValue() >= 1));
+
+        webTestClient.get().uri("/api/stats")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.windows['1m'].categories.STANDARD.count")
+                .value(count -> assertTrue(((Number) count).longValue() >= 1));
+    }
+
+    private WebTestClient.ResponseSpec sort(String body) {
+        return webTestClient.post().uri("/api/sort")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange();
+    }
+}
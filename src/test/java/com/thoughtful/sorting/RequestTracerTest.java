@@ -0,0 +1,154 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestTracerTest {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    public void testSamplesTheConfiguredFraction() {
+        RequestTracer tracer = new RequestTracer(0, 16, 16, null, 1 << 20);
+        for (int i = 0; i < 10_000; i++) {
+            assertNull(tracer.sample());
+        }
+        tracer.setSampleRate(1);
+        assertNotNull(tracer.sample());
+
+        tracer.setSampleRate(0.1);
+        int sampled = 0;
+        for (int i = 0; i < 100_000; i++) {
+            sampled += tracer.sample() == null ? 0 : 1;
+        }
+        assertTrue(sampled > 9_000 && sampled < 11_000, "sampled " + sampled);
+
+        assertThrows(IllegalArgumentException.class, () -> tracer.setSampleRate(1.5));
+        assertThrows(IllegalArgumentException.class, () -> tracer.setSampleRate(Double.NaN));
+        assertEquals(0.1, tracer.getSampleRate());
+    }
+
+    @Test
+    public void testRecordsPhasesOfSortRequestsToTheFile() throws Exception {
+        Path file = directory.resolve("traces/sort.ndjson");
+        RequestTracer tracer = new RequestTracer(1, 16, 16, file, 1 << 20);
+        tracer.start();
+        SingleSortProcessor processor = new SingleSortProcessor(objectMapper, "/api/sort");
+        DecisionStore decisionStore = new DecisionStore(16, Duration.ofHours(1));
+        try {
+            sort(tracer, processor, decisionStore, "{\"id\":\"PKG-1\",\"width\":150,\"height\":100,\"length\":100,\"mass\":25}");
+            sort(tracer, processor, decisionStore, "{\"id\":\"PKG-1\",\"width\":150,\"height\":100,\"length\":100,\"mass\":25}");
+            sort(tracer, processor, decisionStore, "{\"width\":-1,\"height\":100,\"length\":100,\"mass\":25}");
+            sort(tracer, processor, decisionStore, "{\"width\":");
+            tracer.flush();
+
+            List<Map<String, Object>> traces = tracer.recent(10);
+            assertEquals(4, traces.size());
+            // Newest first: bad JSON, invalid package, retried id, classified
+            Map<String, Object> classified = traces.get(3);
+            assertEquals(200, classified.get("status"));
+            assertEquals("REJECTED", classified.get("category"));
+            assertEquals(false, classified.get("cached"));
+            Map<?, ?> phases = (Map<?, ?>) classified.get("phaseNanos");
+            for (String phase : RequestTracer.PHASE_NAMES) {
+                assertTrue((Long) phases.get(phase) >= 0, phase);
+            }
+            long total = 0;
+            for (Object nanos : phases.values()) {
+                total += (Long) nanos;
+            }
+            assertEquals(total, classified.get("totalNanos"));
+
+            Map<?, ?> retried = (Map<?, ?>) traces.get(2).get("phaseNanos");
+            assertEquals(true, traces.get(2).get("cached"));
+            assertNull(retried.get("validate"));
+            assertNotNull(retried.get("classify"));
+
+            assertEquals(400, traces.get(1).get("status"));
+            assertNull(traces.get(1).get("category"));
+            assertNotNull(((Map<?, ?>) traces.get(1).get("phaseNanos")).get("validate"));
+            assertNull(((Map<?, ?>) traces.get(1).get("phaseNanos")).get("classify"));
+            assertNull(((Map<?, ?>) traces.get(0).get("phaseNanos")).get("validate"));
+            assertEquals(1, tracer.recent(1).size());
+        } finally {
+            tracer.stop();
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(4, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals("REJECTED", first.get("category").asText());
+        assertTrue(first.get("phaseNanos").get("classify").canConvertToLong());
+        assertTrue(objectMapper.readTree(lines.get(3)).get("category").isNull());
+    }
+
+    private static void sort(RequestTracer tracer, SingleSortProcessor processor, DecisionStore decisionStore,
+                             String body) throws Exception {
+        RequestTracer.Trace trace = tracer.sample();
+        int[] status = new int[1];
+        processor.process(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), code -> {
+            status[0] = code;
+            return new ByteArrayOutputStream();
+        }, new PackageSorter(), decisionStore, trace);
+        tracer.record(trace, status[0]);
+    }
+
+    @Test
+    public void testDropsTracesInsteadOfWaitingForTheDrainer() {
+        RequestTracer tracer = new RequestTracer(1, 4, 16, null, 1 << 20);
+        // Not started, so nothing drains the ring
+        for (int i = 0; i < 6; i++) {
+            RequestTracer.Trace trace = tracer.sample();
+            trace.mark(RequestTracer.DESERIALIZE);
+            tracer.record(trace, 400);
+        }
+        assertEquals(2, tracer.getDropped());
+        assertEquals(4L, tracer.toJson().get("pending"));
+
+        tracer.start();
+        tracer.flush();
+        tracer.stop();
+        assertEquals(4, tracer.recent(100).size());
+        assertEquals(0L, tracer.toJson().get("pending"));
+    }
+
+    @Test
+    public void testRollsTheFileAtItsMaximumSize() throws Exception {
+        Path file = directory.resolve("sort.ndjson");
+        RequestTracer tracer = new RequestTracer(1, 64, 4, file, 1000);
+        tracer.start();
+        for (int i = 0; i < 20; i++) {
+            tracer.record(tracer.sample(), 200);
+        }
+        tracer.flush();
+        tracer.stop();
+
+        Path rolled = directory.resolve("sort.ndjson.1");
+        assertTrue(Files.exists(rolled));
+        assertTrue(Files.size(rolled) >= 1000);
+        assertTrue(Files.size(file) < 1000);
+        assertFalse(tracer.isRunning());
+        assertEquals(4, tracer.recent(100).size());
+    }
+}
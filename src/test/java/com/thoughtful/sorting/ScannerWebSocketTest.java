@@ -0,0 +1,108 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "sorting.profiles.location=src/test/resources/sorting-profiles.properties")
+public class ScannerWebSocketTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void testResultsComeBackInOrderAcrossFrames() throws Exception {
+        Scanner scanner = Scanner.connect(port, "");
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            scanner.send("{\"width\":50,\"height\":50,\"length\":50,\"mass\":10}\n"
+                + "{\"width\":150,\"height\":50,\"length\":50,\"mass\":" + (i % 30 + 1) + "}\n");
+            expected.add("{\"category\":\"STANDARD\"}");
+            expected.add(i % 30 + 1 >= 20 ? "{\"category\":\"REJECTED\"}" : "{\"category\":\"SPECIAL\"}");
+        }
+        assertEquals(expected, scanner.receive(400));
+        // 200 frames answered in batches of up to 32
+        assertTrue(scanner.frames < 200);
+        scanner.close();
+    }
+
+    @Test
+    public void testErrorsNameTheirLineAndProfileApplies() throws Exception {
+        Scanner scanner = Scanner.connect(port, "?profile=compact");
+        scanner.send("{\"width\":-1,\"height\":50,\"length\":50,\"mass\":10}");
+        scanner.send("not json\n{\"width\":100,\"height\":10,\"length\":10,\"mass\":1}");
+
+        List<String> results = scanner.receive(3);
+        assertEquals("{\"line\":1,\"status\":400,\"error\":\"Validation Failed\","
+            + "\"messages\":[\"Width must be positive\"]}", results.get(0));
+        assertTrue(results.get(1).startsWith("{\"line\":2,\"status\":400,\"error\":\"Invalid Request\""));
+        // 100 cm is bulky for the compact profile only
+        assertEquals("{\"category\":\"SPECIAL\"}", results.get(2));
+        scanner.close();
+    }
+
+    /** JDK WebSocket client collecting result lines. */
+    static final class Scanner implements WebSocket.Listener {
+        private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        private final StringBuilder partial = new StringBuilder();
+        private WebSocket socket;
+        private int frames;
+
+        static Scanner connect(int port, String query) throws Exception {
+            Scanner scanner = new Scanner();
+            scanner.socket = HttpClient.newHttpClient().newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:" + port + ScannerWebSocketHandler.PATH + query), scanner)
+                .get(10, TimeUnit.SECONDS);
+            return scanner;
+        }
+
+        void send(String frame) throws Exception {
+            socket.sendText(frame, true).get(10, TimeUnit.SECONDS);
+        }
+
+        List<String> receive(int count) throws InterruptedException {
+            List<String> received = new ArrayList<>();
+            while (received.size() < count) {
+                String line = lines.poll(10, TimeUnit.SECONDS);
+                if (line == null) {
+                    break;
+                }
+                received.add(line);
+            }
+            return received;
+        }
+
+        void close() throws Exception {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "").get(10, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                frames++;
+                for (String line : partial.toString().split("\n")) {
+                    lines.add(line);
+                }
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SortCoalescerTest {
+
+    private final SortingMetrics metrics = new SortingMetrics();
+    private SortCoalescer coalescer;
+
+    private SortCoalescer start(int maxBatch, Duration maxWait, int bufferCapacity) {
+        coalescer = new SortCoalescer(maxBatch, maxWait, bufferCapacity, metrics);
+        coalescer.start();
+        return coalescer;
+    }
+
+    @AfterEach
+    public void stop() {
+        if (coalescer != null && coalescer.isRunning()) {
+            coalescer.stop();
+        }
+    }
+
+    @Test
+    public void testBatchesGiveTheSameCodesAsSingleSorts() {
+        start(64, Duration.ofMillis(20), 1024);
+        AtomicInteger notified = new AtomicInteger();
+        PackageSorter sorter = new PackageSorter(List.of((w, h, l, m, code, reasons) -> notified.incrementAndGet()));
+        PackageSorter compact = new PackageSorter(new ThresholdProfile("compact", 100, 500_000, 15), List.of());
+        PackageSorter plain = new PackageSorter();
+        PackageSorter plainCompact = new PackageSorter(new ThresholdProfile("compact", 100, 500_000, 15), List.of());
+
+        Random random = new Random(5);
+        double[][] packages = new double[500][];
+        List<CompletableFuture<Byte>> futures = new ArrayList<>();
+        int listened = 0;
+        for (int i = 0; i < packages.length; i++) {
+            packages[i] = new double[] {
+                1 + random.nextDouble() * 199, 1 + random.nextDouble() * 199,
+                1 + random.nextDouble() * 199, 0.1 + random.nextDouble() * 39.9};
+            double[] p = packages[i];
+            listened += i / 7 % 2 == 0 ? 1 : 0;
+            // Runs of each profile, so batches hold several sortBatch calls
+            futures.add(coalescer.submit(i / 7 % 2 == 0 ? sorter : compact, p[0], p[1], p[2], p[3]));
+        }
+        for (int i = 0; i < packages.length; i++) {
+            double[] p = packages[i];
+            PackageSorter expected = i / 7 % 2 == 0 ? plain : plainCompact;
+            assertEquals(expected.sortCode(p[0], p[1], p[2], p[3]), futures.get(i).join());
+        }
+
+        assertEquals(listened, notified.get());
+        long batches = metrics.getBatchCount();
+        assertTrue(batches > 0 && batches < packages.length, "batches: " + batches);
+        assertEquals(500L, ((Map<?, ?>) metrics.toJson().get("coalescing")).get("packages"));
+    }
+
+    @Test
+    public void testRequestThreadsWaitForTheWorker() throws Exception {
+        // Far more packages than the ring holds, wrapping around it many times
+        start(4, Duration.ZERO, 8);
+        PackageSorter sorter = new PackageSorter();
+        AtomicInteger wrong = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    double width = (thread * 2000 + i) % 200 + 1;
+                    if (coalescer.sortCode(sorter, width, 10, 10, i % 30 + 1)
+                            != sorter.sortCode(width, 10, 10, i % 30 + 1)) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, wrong.get());
+        assertTrue(metrics.toPrometheus().contains("sorting_coalesced_batch_size_sum 16000\n"));
+    }
+
+    @Test
+    public void testStopDrainsThenSortsOnTheCallingThread() {
+        start(64, Duration.ofMillis(50), 1024);
+        PackageSorter sorter = new PackageSorter();
+        CompletableFuture<Byte> pending = coalescer.submit(sorter, 150, 10, 10, 25);
+        coalescer.stop();
+        assertEquals(PackageSorter.REJECTED_CODE, pending.getNow((byte) -1));
+
+        CompletableFuture<Byte> after = coalescer.submit(sorter, 10, 10, 10, 25);
+        assertTrue(after.isDone());
+        assertEquals(PackageSorter.SPECIAL_CODE, after.join());
+
+        // And again after a restart
+        coalescer.start();
+        assertEquals(PackageSorter.STANDARD_CODE, coalescer.sortCode(sorter, 10, 10, 10, 1));
+    }
+
+    @Test
+    public void testClassifyAsync() {
+        start(64, Duration.ZERO, 1024);
+        DecisionStore store = new DecisionStore(1024, Duration.ofHours(1));
+        PackageSorter sorter = new PackageSorter();
+
+        assertEquals(PackageSorter.SPECIAL, SingleSortProcessor.classify(
+            new PackageRequest("ASYNC-1", 150.0, 10.0, 10.0, 1.0), sorter, store, coalescer).join());
+        assertEquals(PackageSorter.SPECIAL, SingleSortProcessor.classify(
+            new PackageRequest("ASYNC-1", 1.0, 1.0, 1.0, 1.0), sorter, store, coalescer).join());
+        assertThrows(PackageValidationException.class, () -> SingleSortProcessor.classify(
+            new PackageRequest(-1.0, 10.0, 10.0, 1.0), sorter, store, coalescer));
+    }
+}
@@ -0,0 +1,82 @@
+package com.thoughtful.sorting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortErrorBodiesTest {
+
+    private static final String PATH = "/api/sort";
+
+    // Configured as application.properties configures the application's mapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+        .indentOutput(true)
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+    private final SortErrorBodies errorBodies = new SortErrorBodies(objectMapper, PATH);
+
+    @Test
+    @DisplayName("Template bodies match a serialized ErrorResponse byte for byte")
+    void testBodiesMatchSerializedErrorResponse() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        errorBodies.writeBodyRequired(out);
+        assertSameAsErrorResponse(out, ErrorResponse.INVALID_REQUEST,
+            List.of(GlobalExceptionHandler.BODY_REQUIRED_MESSAGE));
+
+        out.reset();
+        errorBodies.writeInvalidJson(out);
+        assertSameAsErrorResponse(out, ErrorResponse.INVALID_REQUEST,
+            List.of(GlobalExceptionHandler.INVALID_JSON_MESSAGE));
+
+        String value = "12\"\\\n\u0001 cm ü";
+        out.reset();
+        errorBodies.writeInvalidValue(out, PackageValidator.MASS, value);
+        assertSameAsErrorResponse(out, ErrorResponse.INVALID_REQUEST,
+            List.of(PackageValidator.invalidValueMessage(PackageValidator.MASS, value)));
+    }
+
+    @Test
+    @DisplayName("Validation bodies list the same messages as PackageValidator")
+    void testViolations() throws IOException {
+        PackageMeasurement measurement = new PackageMeasurement();
+        measurement.set(PackageValidator.WIDTH, -1);
+        measurement.set(PackageValidator.LENGTH, 75);
+        measurement.set(PackageValidator.MASS, 0);
+        measurement.setId("PKG 1");
+        List<String> expected = PackageValidator.violations(measurement);
+        PackageValidator.addIdViolations("PKG 1", expected);
+
+        // Twice: the first builds the template, the second reuses it
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            errorBodies.writeViolations(out, measurement);
+            assertSameAsErrorResponse(out, ErrorResponse.VALIDATION_FAILED, expected);
+        }
+        assertEquals(List.of("Width must be positive", "Height cannot be null", "Mass must be positive",
+            "Id must be printable ASCII without spaces"), expected);
+
+        measurement.setId("A".repeat(DecisionStore.MAX_ID_LENGTH + 1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        errorBodies.writeViolations(out, measurement);
+        assertEquals("Id must be 1 to 38 characters",
+            objectMapper.readTree(out.toByteArray()).get("messages").get(3).asText());
+    }
+
+    private void assertSameAsErrorResponse(ByteArrayOutputStream out, String error, List<String> messages)
+            throws IOException {
+        JsonNode body = objectMapper.readTree(out.toByteArray());
+        ErrorResponse expected = new ErrorResponse(400, error, messages, PATH);
+        expected.setTimestamp(LocalDateTime.parse(body.get("timestamp").asText()));
+        assertEquals(objectMapper.writeValueAsString(expected), out.toString("UTF-8"));
+    }
+}
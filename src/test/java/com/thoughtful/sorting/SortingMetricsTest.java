@@ -0,0 +1,92 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SortingMetricsTest {
+
+    @Test
+    public void testCountsCategoriesAndReasons() {
+        SortingMetrics metrics = new SortingMetrics();
+        PackageSorter sorter = new PackageSorter(List.of(metrics));
+
+        sorter.sort(50, 50, 50, 10);
+        sorter.sort(150, 50, 50, 10);
+        sorter.sort(100, 100, 100, 10);
+        sorter.sort(150, 100, 100, 25);
+
+        assertEquals(1, metrics.getCount(PackageSorter.STANDARD_CODE));
+        assertEquals(2, metrics.getCount(PackageSorter.SPECIAL_CODE));
+        assertEquals(1, metrics.getCount(PackageSorter.REJECTED_CODE));
+        assertEquals(2L, metrics.getReasons().get("bulky_dimension"));
+        assertEquals(2L, metrics.getReasons().get("bulky_volume"));
+        assertEquals(1L, metrics.getReasons().get("heavy"));
+    }
+
+    @Test
+    public void testBatchNotifiesPerPackage() {
+        SortingMetrics metrics = new SortingMetrics();
+        PackageSorter sorter = new PackageSorter(List.of(metrics));
+        double[] width = {50, 150, 50};
+        double[] height = {50, 50, 50};
+        double[] length = {50, 50, 50};
+        double[] mass = {10, 10, 20};
+
+        sorter.sortBatch(width, height, length, mass, new byte[3]);
+
+        assertEquals(1, metrics.getCount(PackageSorter.STANDARD_CODE));
+        assertEquals(2, metrics.getCount(PackageSorter.SPECIAL_CODE));
+    }
+
+    @Test
+    public void testHistogramQuantilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertWithin(500_000, snapshot.quantileNanos(0.5));
+        assertWithin(990_000, snapshot.quantileNanos(0.99));
+        assertWithin(999_000, snapshot.quantileNanos(0.999));
+        assertEquals(0, new LatencyHistogram().snapshot().quantileNanos(0.99));
+    }
+
+    @Test
+    public void testHistogramBucketsCoverEveryValue() {
+        for (long value : new long[] {0, 1, 7, 8, 9, 15, 16, 1023, 1024, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(bucket >= 0 && bucket < LatencyHistogram.BUCKETS);
+            if (bucket < LatencyHistogram.BUCKETS - 1) {
+                assertTrue(LatencyHistogram.upperBound(bucket) >= value);
+                assertTrue(bucket == 0 || LatencyHistogram.upperBound(bucket - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void testPrometheusFormat() {
+        SortingMetrics metrics = new SortingMetrics();
+        metrics.onSort(50, 50, 50, 20, PackageSorter.SPECIAL_CODE, PackageSorter.HEAVY);
+        metrics.recordRequest(0, 2_000_000);
+
+        String text = metrics.toPrometheus();
+
+        assertTrue(text.contains("# TYPE sorting_packages_total counter\n"));
+        assertTrue(text.contains("sorting_packages_total{category=\"SPECIAL\"} 1\n"));
+        assertTrue(text.contains("sorting_rule_triggers_total{reason=\"heavy\"} 1\n"));
+        assertTrue(text.contains("sorting_request_duration_seconds_count{endpoint=\"/api/sort\"} 1\n"));
+        assertTrue(text.contains("sorting_request_duration_seconds_sum{endpoint=\"/api/sort\"} 0.002\n"));
+    }
+
+    // Buckets are an eighth of a power of two wide
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.125,
+            "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,103 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortingProfilesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Profiles classify with their own thresholds")
+    void testProfileThresholds() throws IOException {
+        SortingProfiles profiles = load("compact.dimension=100\ncompact.volume=500000\ncompact.mass=10\n");
+
+        PackageSorter compact = profiles.sorter("compact");
+        assertEquals(PackageSorter.STANDARD, compact.sort(99, 50, 50, 9.9));
+        assertEquals(PackageSorter.SPECIAL, compact.sort(100, 50, 50, 5));
+        assertEquals(PackageSorter.SPECIAL, compact.sort(80, 80, 80, 5));
+        assertEquals(PackageSorter.REJECTED, compact.sort(100, 50, 50, 10));
+        assertEquals(PackageSorter.STANDARD, profiles.sorter(null).sort(100, 50, 50, 10));
+        assertSame(profiles.getDefault(), profiles.sorter(""));
+    }
+
+    @Test
+    @DisplayName("sortBatch uses the profile thresholds")
+    void testProfileBatch() throws IOException {
+        PackageSorter compact = load("compact.dimension=100\ncompact.volume=500000\ncompact.mass=10\n")
+            .sorter("compact");
+        double[] width = {99, 100, 80, 100, 99, 99, 99, 99, 99};
+        double[] height = {50, 50, 80, 50, 50, 50, 50, 50, 50};
+        double[] length = {50, 50, 80, 50, 50, 50, 50, 50, 50};
+        double[] mass = {9.9, 5, 5, 10, 9.9, 9.9, 9.9, 9.9, 10};
+        byte[] codes = new byte[width.length];
+
+        compact.sortBatch(width, height, length, mass, codes);
+
+        for (int i = 0; i < codes.length; i++) {
+            assertEquals(compact.sortCode(width[i], height[i], length[i], mass[i]), codes[i], "package " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Reload swaps profiles, and a bad file keeps the current ones")
+    void testReload() throws IOException {
+        Path file = dir.resolve("profiles.properties");
+        Files.writeString(file, "a.dimension=100\na.volume=500000\na.mass=10\n");
+        SortingProfiles profiles = new SortingProfiles(file, List.of());
+        profiles.reload();
+        PackageSorter before = profiles.sorter("a");
+
+        Files.writeString(file, "a.dimension=120\na.volume=500000\na.mass=10\n"
+            + "b.dimension=90\nb.volume=400000\nb.mass=8\n");
+        List<ThresholdProfile> loaded = profiles.reload();
+
+        assertEquals(List.of("a", "b", "default"), loaded.stream().map(ThresholdProfile::getName).toList());
+        assertEquals(120, profiles.sorter("a").getProfile().getDimension());
+        assertNotSame(before, profiles.sorter("a"));
+
+        Files.writeString(file, "a.dimension=120\na.volume=-1\na.mass=10\n");
+        assertThrows(InvalidProfileException.class, profiles::reload);
+        assertEquals(90, profiles.sorter("b").getProfile().getDimension());
+    }
+
+    @Test
+    @DisplayName("Invalid profile files are rejected with a readable message")
+    void testInvalidFiles() {
+        assertEquals("Sorting profile 'a' is missing 'mass'", assertThrows(InvalidProfileException.class,
+            () -> load("a.dimension=100\na.volume=500000\n")).getMessage());
+        assertEquals("Invalid value 'big' for 'a.mass'. Expected a number", assertThrows(InvalidProfileException.class,
+            () -> load("a.dimension=100\na.volume=500000\na.mass=big\n")).getMessage());
+        assertThrows(InvalidProfileException.class, () -> load("a.weight=10\n"));
+        assertThrows(InvalidProfileException.class,
+            () -> load("default.dimension=100\ndefault.volume=500000\ndefault.mass=10\n"));
+        assertThrows(InvalidProfileException.class,
+            () -> new SortingProfiles(dir.resolve("missing.properties"), List.of()).reload());
+    }
+
+    @Test
+    @DisplayName("Unknown profile names are rejected")
+    void testUnknownProfile() {
+        SortingProfiles profiles = new SortingProfiles(null, List.of());
+
+        InvalidProfileException ex = assertThrows(InvalidProfileException.class, () -> profiles.sorter("nowhere"));
+        assertEquals("Unknown sorting profile 'nowhere'", ex.getMessage());
+    }
+
+    private SortingProfiles load(String content) throws IOException {
+        Path file = Files.createTempFile(dir, "profiles", ".properties");
+        Files.writeString(file, content);
+        SortingProfiles profiles = new SortingProfiles(file, List.of());
+        profiles.reload();
+        return profiles;
+    }
+}
@@ -0,0 +1,105 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SortingStatsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private long now = 5 * SECOND;
+    private final SortingStats stats = new SortingStats(() -> now);
+    private final PackageSorter sorter = new PackageSorter(List.of(stats));
+
+    @Test
+    public void testCountsCategoriesBinsAndReasons() {
+        sorter.sort(50, 50, 50, 10);
+        sorter.sort(10, 10, 5, 0.5);
+        sorter.sort(150, 50, 50, 10);
+        sorter.sort(150, 100, 100, 25);
+
+        SortingStats.Window window = stats.window(60);
+        assertEquals(2, window.getCount(PackageSorter.STANDARD_CODE));
+        assertEquals(1, window.getCount(PackageSorter.SPECIAL_CODE));
+        assertEquals(1, window.getCount(PackageSorter.REJECTED_CODE));
+        // 10 kg is in 10-20, 0.5 kg in 0-1; 125,000 cm³ in 100000-1000000, 500 cm³ in 0-1000
+        assertEquals(1, window.getMassBin(PackageSorter.STANDARD_CODE, 4));
+        assertEquals(1, window.getMassBin(PackageSorter.STANDARD_CODE, 0));
+        assertEquals(1, window.getVolumeBin(PackageSorter.STANDARD_CODE, 3));
+        assertEquals(1, window.getVolumeBin(PackageSorter.STANDARD_CODE, 0));
+        assertEquals(1, window.getVolumeBin(PackageSorter.REJECTED_CODE, 4));
+        assertEquals(2, window.getReason(0));
+        assertEquals(1, window.getReason(1));
+        assertEquals(1, window.getReason(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWindowsSlideOverOlderDecisions() {
+        sorter.sort(150, 100, 100, 25);
+        advance(120);
+        sorter.sort(50, 50, 50, 10);
+        advance(30);
+        sorter.sort(50, 50, 50, 10);
+
+        // 150 s after start: the rejected package was sorted at 0 s, the others at 120 s and 150 s
+        assertEquals(2, stats.window(60).getCount(PackageSorter.STANDARD_CODE));
+        assertEquals(0, stats.window(60).getCount(PackageSorter.REJECTED_CODE));
+        assertEquals(1, stats.window(300).getCount(PackageSorter.REJECTED_CODE));
+
+        Map<String, Object> windows = (Map<String, Object>) stats.toJson().get("windows");
+        Map<String, Object> oneMinute = (Map<String, Object>) windows.get("1m");
+        Map<String, Object> fiveMinutes = (Map<String, Object>) windows.get("5m");
+        assertEquals(60L, oneMinute.get("seconds"));
+        assertEquals(2L, oneMinute.get("packages"));
+        assertEquals(0.0, oneMinute.get("rejectRate"));
+        // The 5 minute window covers the uptime so far
+        assertEquals(150L, fiveMinutes.get("seconds"));
+        assertEquals(1.0 / 3, fiveMinutes.get("rejectRate"));
+
+        advance(3601);
+        assertEquals(0, stats.window(3600).getCount(PackageSorter.STANDARD_CODE));
+    }
+
+    @Test
+    public void testCategoryFollowsReasons() {
+        sorter.sort(150, 10, 10, 1);
+        sorter.sort(100, 100, 100, 1);
+        sorter.sort(10, 10, 10, 30);
+        sorter.sort(100, 100, 100, 30);
+
+        SortingStats.Window window = stats.window(60);
+        assertEquals(0, window.getCount(PackageSorter.STANDARD_CODE));
+        assertEquals(3, window.getCount(PackageSorter.SPECIAL_CODE));
+        assertEquals(1, window.getCount(PackageSorter.REJECTED_CODE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJsonDistributions() {
+        sorter.sort(50, 50, 50, 10);
+        sorter.sort(40, 50, 50, 12);
+
+        Map<String, Object> windows = (Map<String, Object>) stats.toJson().get("windows");
+        Map<String, Object> categories = (Map<String, Object>) ((Map<String, Object>) windows.get("1m"))
+            .get("categories");
+        Map<String, Object> standard = (Map<String, Object>) categories.get("STANDARD");
+        assertEquals(2L, standard.get("count"));
+        assertEquals(1.0, standard.get("share"));
+        assertEquals(2L, ((Map<String, Long>) standard.get("massKg")).get("10-20"));
+        assertEquals(2L, ((Map<String, Long>) standard.get("volumeCm3")).get("100000-1000000"));
+        assertEquals(0L, ((Map<String, Long>) standard.get("massKg")).get("100+"));
+    }
+
+    // Moves the clock forward a second at a time, ticking like the scheduler does
+    private void advance(int seconds) {
+        for (int i = 0; i < seconds; i++) {
+            now += SECOND;
+            stats.tick();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.thoughtful.sorting;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StackAssignerTest {
+
+    private static StackAssigner assigner(String standard, String special) {
+        Map<Category, Map<String, Integer>> stacks = new EnumMap<>(Category.class);
+        stacks.put(Category.STANDARD, StackAssigner.parse(standard));
+        stacks.put(Category.SPECIAL, StackAssigner.parse(special));
+        return new StackAssigner(stacks);
+    }
+
+    @Test
+    public void testBalancesByFillRatioAndStopsAtCapacity() {
+        StackAssigner assigner = assigner("S1:10,S2:30", "P1:2");
+
+        for (int i = 0; i < 20; i++) {
+            assigner.assign(Category.STANDARD.code());
+        }
+        // Both half full, not 10 and 10
+        assertEquals(5, assigner.getOccupancy(assigner.index("S1")));
+        assertEquals(15, assigner.getOccupancy(assigner.index("S2")));
+
+        for (int i = 0; i < 20; i++) {
+            assigner.assign(Category.STANDARD.code());
+        }
+        assertEquals(StackAssigner.NONE, assigner.assign(Category.STANDARD.code()));
+        assertEquals(10, assigner.getOccupancy(assigner.index("S1")));
+        assertEquals(30, assigner.getOccupancy(assigner.index("S2")));
+
+        assertEquals(0, assigner.getOccupancy(assigner.index("P1")));
+        assertEquals(StackAssigner.NONE, assigner.assign(Category.REJECTED.code()));
+    }
+
+    @Test
+    public void testEmptyFreesAStack() {
+        StackAssigner assigner = assigner("S1:1,S2:1", "");
+        assigner.assign(Category.STANDARD.code());
+        assigner.assign(Category.STANDARD.code());
+        assertEquals(StackAssigner.NONE, assigner.assign(Category.STANDARD.code()));
+
+        assertEquals(1, assigner.empty("S2"));
+        assertEquals("S2", assigner.getName(assigner.assign(Category.STANDARD.code())));
+        assertThrows(UnknownStackException.class, () -> assigner.empty("X9"));
+    }
+
+    @Test
+    public void testConcurrentAssignmentsNeverOverfill() throws Exception {
+        StackAssigner assigner = assigner("S1:1000,S2:1000,S3:1000,S4:1000", "");
+        AtomicIntegerArray assigned = new AtomicIntegerArray(4);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    int stack = assigner.assign(Category.STANDARD.code());
+                    if (stack != StackAssigner.NONE) {
+                        assigned.incrementAndGet(stack);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int stack = 0; stack < 4; stack++) {
+            assertEquals(1000, assigned.get(stack));
+            assertEquals(1000, assigner.getOccupancy(stack));
+        }
+    }
+
+    @Test
+    public void testParsesAndRejectsStackLists() {
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("A1", 20);
+        expected.put("A2", 30);
+        assertEquals(expected, StackAssigner.parse("A1:20, A2:30"));
+        assertEquals(Map.of(), StackAssigner.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> StackAssigner.parse("A1"));
+        assertThrows(IllegalArgumentException.class, () -> StackAssigner.parse("A1:many"));
+        assertThrows(IllegalArgumentException.class, () -> assigner("A1:0", ""));
+        assertThrows(IllegalArgumentException.class, () -> assigner("A1:5", "A1:5"));
+    }
+}
@@ -0,0 +1,37 @@
+package com.thoughtful.sorting;
+
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=true")
+public class VirtualThreadModeTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void testRequestsRunOnVirtualThreads() {
+        TomcatWebServer server = (TomcatWebServer) context.getWebServer();
+        assertInstanceOf(VirtualThreadExecutor.class,
+                server.getTomcat().getConnector().getProtocolHandler().getExecutor());
+
+        ResponseEntity<PackageResponse> response = restTemplate.postForEntity("/api/sort",
+                new PackageRequest(150.0, 100.0, 100.0, 25.0), PackageResponse.class);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("REJECTED", response.getBody().getCategory());
+    }
+}